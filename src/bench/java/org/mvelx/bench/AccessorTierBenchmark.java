@@ -0,0 +1,60 @@
+package org.mvelx.bench;
+
+import org.mvelx.MVEL;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对各访问器优化层级(反射,方法句柄,asm)在稳定执行下的单次访问开销进行对比
+ * 只包括访问链本身,变量工厂在多次执行之间复用,以排除每次执行创建对象的开销.
+ * 方法句柄节点中的句柄为实例字段,不会被JIT视为常量,因此无法像asm生成的类那样内联目标方法,预期介于反射与asm之间
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessorTierBenchmark {
+    @Param({OptimizerFactory.SAFE_REFLECTIVE, OptimizerFactory.METHOD_HANDLE, OptimizerFactory.ASM})
+    public String optimizer;
+
+    @Param({"getterChain", "methodCall", "constructor"})
+    public String scenario;
+
+    private Serializable compiled;
+    private MapVariableResolverFactory factory;
+
+    @Setup
+    public void setup() {
+        String expr;
+        switch(scenario) {
+            case "methodCall":
+                expr = BenchFixtures.METHOD_CALL;
+                break;
+            case "constructor":
+                expr = "new java.lang.StringBuilder(person.name).length()";
+                break;
+            default:
+                expr = BenchFixtures.PROPERTY_CHAIN;
+        }
+
+        OptimizerFactory.setDefaultOptimizer(optimizer);
+        compiled = MVEL.compileExpression(expr);
+        factory = new MapVariableResolverFactory(BenchFixtures.createVars());
+
+        //预先执行,保证访问器已完成优化
+        for(int i = 0; i < 1000; i++) {
+            access();
+        }
+    }
+
+    @Benchmark
+    public Object access() {
+        return MVEL.executeExpression(compiled, factory);
+    }
+}
@@ -0,0 +1,115 @@
+package org.mvelx.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 性能测试中共用的测试对象及脚本
+ * 每种场景对应一段脚本,执行时使用相同的变量集合
+ */
+public class BenchFixtures {
+    /** 属性链访问 */
+    public static final String PROPERTY_CHAIN = "person.address.city";
+    /** 方法调用 */
+    public static final String METHOD_CALL = "person.name.substring(1).toUpperCase()";
+    /** 算术运算,即 MathProcessor */
+    public static final String ARITHMETIC = "(x + y) * 3 - x / 2.0 + y % 2";
+    /** 内联集合 */
+    public static final String INLINE_COLLECTION = "[1, 2, x, ['a' : y, 'b' : [x, y]]]";
+    /** 投影,即 Fold */
+    public static final String PROJECTION = "(name in people)";
+    /** foreach 循环 */
+    public static final String FOREACH = "total = 0; foreach(p : people) { total += p.age }; total";
+    /** 函数定义及调用 */
+    public static final String FUNCTION = "def add(a, b) { a + b }; add(x, y) + add(y, x)";
+
+    /** 小脚本 */
+    public static final String SMALL_SCRIPT = "x > 1 && person.age < 40 ? person.name : 'none'";
+    /** 大脚本,由多段赋值及条件组合而成 */
+    public static final String LARGE_SCRIPT = largeScript(50);
+
+    /** 获取指定场景的脚本 */
+    public static String scenario(String name) {
+        switch(name) {
+            case "propertyChain":
+                return PROPERTY_CHAIN;
+            case "methodCall":
+                return METHOD_CALL;
+            case "arithmetic":
+                return ARITHMETIC;
+            case "inlineCollection":
+                return INLINE_COLLECTION;
+            case "projection":
+                return PROJECTION;
+            case "foreach":
+                return FOREACH;
+            case "function":
+                return FUNCTION;
+            default:
+                throw new IllegalArgumentException("unknown scenario: " + name);
+        }
+    }
+
+    private static String largeScript(int statements) {
+        StringBuilder sb = new StringBuilder("s = 0;\n");
+        for(int i = 0; i < statements; i++) {
+            sb.append("v").append(i).append(" = x + ").append(i).append(" * y;\n");
+            sb.append("if (v").append(i).append(" > 10) { s = s + v").append(i).append(" } else { s = s - person.age };\n");
+        }
+        return sb.append("s").toString();
+    }
+
+    /** 创建执行时使用的变量 */
+    public static Map<String, Object> createVars() {
+        Person person = new Person("alice", 30, new Address("paris"));
+        List<Person> people = new ArrayList<>();
+        people.add(person);
+        people.add(new Person("bob", 40, new Address("rome")));
+        people.add(new Person("carol", 25, new Address("oslo")));
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("x", 7);
+        vars.put("y", 3);
+        vars.put("person", person);
+        vars.put("people", people);
+        return vars;
+    }
+
+    public static class Address {
+        private final String city;
+
+        public Address(String city) {
+            this.city = city;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static class Person {
+        private final String name;
+        private final int age;
+        private final Address address;
+
+        public Person(String name, int age, Address address) {
+            this.name = name;
+            this.age = age;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+}
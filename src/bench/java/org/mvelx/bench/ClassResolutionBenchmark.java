@@ -0,0 +1,66 @@
+package org.mvelx.bench;
+
+import org.mvelx.ParserContext;
+import org.mvelx.util.ParseTools;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对类名解析及构建函数查找的缓存进行多线程争用测试
+ * 多个线程同时进行查找,与单线程的结果对比即体现缓存上的锁争用情况
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassResolutionBenchmark {
+    private static final String[] CLASS_NAMES = {
+            "java.util.ArrayList", "java.util.HashMap", "java.lang.StringBuilder", "java.math.BigDecimal",
+            "java.util.concurrent.ConcurrentHashMap", "org.mvelx.bench.BenchFixtures"
+    };
+    private static final Class[] TYPES = {java.util.ArrayList.class, StringBuilder.class, java.math.BigDecimal.class};
+    private static final Class[][] ARGUMENTS = {{}, {int.class}, {String.class}};
+
+    private ParserContext pCtx;
+
+    @Setup
+    public void setup() {
+        pCtx = new ParserContext();
+    }
+
+    /** 每个线程各自的查找位置,轮流查找不同的key */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Class createClass(Cursor c) throws ClassNotFoundException {
+        return ParseTools.createClass(CLASS_NAMES[c.i++ % CLASS_NAMES.length], pCtx);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Class createClassContended(Cursor c) throws ClassNotFoundException {
+        return ParseTools.createClass(CLASS_NAMES[c.i++ % CLASS_NAMES.length], pCtx);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Constructor constructor(Cursor c) {
+        int i = c.i++;
+        return ParseTools.getBestConstructorCandidate(ARGUMENTS[i % ARGUMENTS.length], TYPES[i % TYPES.length], false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Constructor constructorContended(Cursor c) {
+        int i = c.i++;
+        return ParseTools.getBestConstructorCandidate(ARGUMENTS[i % ARGUMENTS.length], TYPES[i % TYPES.length], false);
+    }
+}
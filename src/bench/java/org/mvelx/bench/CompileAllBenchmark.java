@@ -0,0 +1,53 @@
+package org.mvelx.bench;
+
+import org.mvelx.MVEL;
+import org.mvelx.compiler.BulkCompilation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对批量编译(MVEL.compileAll)进行测试
+ * 使用不同并行度的线程池编译同一组表达式,以体现编译随核数的扩展情况
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompileAllBenchmark {
+    /** 编译使用的线程数 */
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    /** 表达式个数 */
+    @Param({"2000"})
+    public int count;
+
+    private Map<String, String> expressions;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        expressions = new LinkedHashMap<>();
+        for(int i = 0; i < count; i++) {
+            //每个表达式各不相同,以避免命中解析过程中的缓存
+            expressions.put("rule" + i, BenchFixtures.SMALL_SCRIPT + " + " + i);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BulkCompilation compileAll() {
+        return MVEL.compileAll(expressions, null, pool);
+    }
+}
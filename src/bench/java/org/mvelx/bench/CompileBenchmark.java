@@ -0,0 +1,36 @@
+package org.mvelx.bench;
+
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对表达式的解析及编译(ExpressionCompiler.compile)进行测试
+ * 不包括运行期的优化过程
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompileBenchmark {
+    /** 脚本大小 */
+    @Param({"small", "large"})
+    public String size;
+
+    private String script;
+
+    @Setup
+    public void setup() {
+        script = "small".equals(size) ? BenchFixtures.SMALL_SCRIPT : BenchFixtures.LARGE_SCRIPT;
+    }
+
+    @Benchmark
+    public CompiledExpression compile() {
+        return new ExpressionCompiler(script, new ParserContext()).compile();
+    }
+}
@@ -0,0 +1,56 @@
+package org.mvelx.bench;
+
+import org.mvelx.EvaluationFrame;
+import org.mvelx.MVEL;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对编译表达式的稳定执行(即优化完成之后)进行测试
+ * 覆盖各个优化器,其中 DYNAMIC 与 ASM 的对比即体现动态优化器在切换完成后的稳态开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecuteBenchmark {
+    @Param({OptimizerFactory.SAFE_REFLECTIVE, OptimizerFactory.METHOD_HANDLE, OptimizerFactory.ASM, OptimizerFactory.DYNAMIC})
+    public String optimizer;
+
+    @Param({"propertyChain", "methodCall", "arithmetic", "inlineCollection", "projection", "foreach", "function"})
+    public String scenario;
+
+    private Serializable compiled;
+    private Map<String, Object> vars;
+
+    @Setup
+    public void setup() {
+        OptimizerFactory.setDefaultOptimizer(optimizer);
+        compiled = MVEL.compileExpression(BenchFixtures.scenario(scenario));
+        vars = BenchFixtures.createVars();
+
+        //预先执行,保证动态优化器已经完成切换
+        for(int i = 0; i < 1000; i++) {
+            execute();
+        }
+    }
+
+    /** 每次执行使用新的变量map,避免脚本中定义的变量及函数(重复定义会报错)在多次执行之间相互影响 */
+    @Benchmark
+    public Object execute() {
+        return MVEL.executeExpression(compiled, new HashMap<>(vars));
+    }
+
+    /** 使用复用的执行帧执行,与 execute 对比即体现每次执行创建变量工厂等对象的开销 */
+    @Benchmark
+    public Object executeInFrame() {
+        return EvaluationFrame.local().execute(compiled, new HashMap<>(vars));
+    }
+}
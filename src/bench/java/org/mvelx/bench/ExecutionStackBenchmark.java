@@ -0,0 +1,60 @@
+package org.mvelx.bench;
+
+import org.mvelx.Operator;
+import org.mvelx.util.ExecutionStack;
+import org.mvelx.util.OperandStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对运行期的操作数栈进行对比测试
+ * 即原链表结构的 ExecutionStack 与数组结构的 OperandStack 在 MVELRuntime 中的使用方式(入栈后马上归约)下的性能
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutionStackBenchmark {
+    /** 每次计算的操作数个数,即 a + b + c ... */
+    @Param({"2", "8"})
+    public int operands;
+
+    private Object[] values;
+
+    @Setup
+    public void setup() {
+        values = new Object[operands];
+        for(int i = 0; i < operands; i++) {
+            values[i] = i;
+        }
+    }
+
+    @Benchmark
+    public Object linkedStack() {
+        ExecutionStack stk = new ExecutionStack();
+        stk.push(values[0]);
+        for(int i = 1; i < values.length; i++) {
+            stk.push(values[i], Operator.ADD);
+            while(stk.isReduceable()) {
+                stk.op();
+            }
+        }
+        return stk.peek();
+    }
+
+    @Benchmark
+    public Object arrayStack() {
+        OperandStack stk = new OperandStack();
+        stk.push(values[0]);
+        for(int i = 1; i < values.length; i++) {
+            stk.push(values[i], Operator.ADD);
+            while(stk.isReduceable()) {
+                stk.op();
+            }
+        }
+        return stk.peek();
+    }
+}
@@ -0,0 +1,47 @@
+package org.mvelx.bench;
+
+import org.mvelx.MVEL;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对编译表达式的首次执行进行测试
+ * 首次执行时各个节点需要通过优化器创建访问器,因此此测试主要体现各个优化器的优化成本
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, batchSize = 1)
+@Measurement(iterations = 50, batchSize = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FirstExecutionBenchmark {
+    @Param({OptimizerFactory.SAFE_REFLECTIVE, OptimizerFactory.METHOD_HANDLE, OptimizerFactory.ASM, OptimizerFactory.DYNAMIC})
+    public String optimizer;
+
+    @Param({"propertyChain", "methodCall", "arithmetic", "inlineCollection", "projection", "foreach", "function"})
+    public String scenario;
+
+    private Serializable compiled;
+    private Map<String, Object> vars;
+
+    @Setup(Level.Trial)
+    public void setupOptimizer() {
+        OptimizerFactory.setDefaultOptimizer(optimizer);
+    }
+
+    /** 每次调用之前重新编译,以保证测量的是未优化表达式的首次执行 */
+    @Setup(Level.Invocation)
+    public void setup() {
+        compiled = MVEL.compileExpression(BenchFixtures.scenario(scenario));
+        vars = BenchFixtures.createVars();
+    }
+
+    @Benchmark
+    public Object firstExecution() {
+        return MVEL.executeExpression(compiled, vars);
+    }
+}
@@ -0,0 +1,67 @@
+package org.mvelx.bench;
+
+import org.mvelx.MVEL;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.optimizers.impl.asm.AsmStatementCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对整体表达式编译进行测试,即同一个表达式解释执行(节点均已完成优化及类型特化)与编译为字节码之后执行的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WholeExpressionBenchmark {
+    @Param({"arithmetic", "condition", "branch", "smallScript"})
+    public String scenario;
+
+    private CompiledExpression interpreted;
+    private ExecutableStatement compiled;
+    private MapVariableResolverFactory factory;
+
+    @Setup
+    public void setup() {
+        String expr;
+        switch(scenario) {
+            case "condition":
+                expr = "x > 1 && y < 10 || x == y";
+                break;
+            case "branch":
+                expr = "if (x * 2 + 1 > y) { x * y - 1 } else { x / y }";
+                break;
+            case "smallScript":
+                expr = BenchFixtures.SMALL_SCRIPT;
+                break;
+            default:
+                expr = BenchFixtures.ARITHMETIC;
+        }
+
+        interpreted = (CompiledExpression) MVEL.compileExpression(expr);
+        Map<String, Object> vars = new HashMap<>(BenchFixtures.createVars());
+        factory = new MapVariableResolverFactory(vars);
+        //预先解释执行,使节点完成优化以及类型特化,整体编译时可以使用观察到的类型
+        for(int i = 0; i < 1000; i++) {
+            interpreted.getValue(null, factory);
+        }
+        compiled = AsmStatementCompiler.compile(interpreted);
+    }
+
+    @Benchmark
+    public Object interpreted() {
+        return interpreted.getValue(null, factory);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return compiled.getValue(null, factory);
+    }
+}
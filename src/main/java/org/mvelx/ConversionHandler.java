@@ -1,5 +1,7 @@
 package org.mvelx;
 
+import org.mvelx.conversion.Converter;
+
 /**
  * 描述一个通用的数据转换处理器，可以将指定类型的数据转换为另一种类型
  * 因为在脚本处理当中，数据类型均为弱类型，不同类型的数据进行处理时，即需要进行转换之后再进行处理
@@ -28,4 +30,14 @@ public interface ConversionHandler {
      * @return - true if the converter supports converting from the specified type.
      */
     boolean canConvertFrom(Class cls);
+
+    /**
+     * 获取从指定源类型转换至当前类型的直接转换函数,以便调用方记住转换函数,不再每次通过 convertFrom 判定源类型
+     *
+     * @param cls - 源类型
+     * @return - 直接的转换函数,没有时返回null,此时使用 convertFrom 进行转换
+     */
+    default Converter getConverter(Class cls) {
+        return null;
+    }
 }
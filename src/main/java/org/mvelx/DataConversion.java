@@ -1,10 +1,12 @@
 package org.mvelx;
 
+import com.google.common.collect.MapMaker;
 import org.mvelx.conversion.*;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mvelx.util.ReflectionUtil.isAssignableFrom;
 import static org.mvelx.util.ReflectionUtil.toNonPrimitiveType;
@@ -16,9 +18,15 @@ import static org.mvelx.util.ReflectionUtil.toNonPrimitiveType;
  * @see ConversionHandler
  */
 public class DataConversion {
-    /** 转换处理程序，key为转换至的目标类，源类为handler中自行判定 */
+    /** 转换处理程序，key为转换至的目标类，源类为handler中自行判定;运行时会动态添加数组类型的处理程序,因此使用并发map */
     private static final Map<Class, ConversionHandler> CONVERTERS
-            = new HashMap<>(38 * 2, 0.5f);
+            = new ConcurrentHashMap<>(38 * 2, 0.5f);
+
+    /** 原样返回的转换函数,即源类型与目标类型兼容 */
+    public static final Converter IDENTITY = o -> o;
+
+    /** 已计算的转换函数及可转换判定,在注册新的转换器时整体失效 */
+    private static volatile Plans plans = new Plans();
 
     static {
         ConversionHandler ch;
@@ -79,13 +87,27 @@ public class DataConversion {
         CONVERTERS.put(TreeSet.class, ch);
     }
 
-    /** 判定两个类型之间是否能够进行转换 */
+    /** 判定两个类型之间是否能够进行转换,判定结果按 (目标类型,源类型) 记录 */
     public static boolean canConvert(Class toType, Class convertFrom) {
+        if(convertFrom == null) {
+            return computeCanConvert(toType, null);
+        }
+
+        Map<Class, Boolean> convertible = plans.convertible.get(toType);
+        Boolean result = convertible.get(convertFrom);
+        if(result == null) {
+            convertible.put(convertFrom, result = computeCanConvert(toType, convertFrom));
+        }
+        return result;
+    }
+
+    private static boolean computeCanConvert(Class toType, Class convertFrom) {
         //如果本身即是类型兼容，即父子类型，那么直接支持
         if(isAssignableFrom(toType, convertFrom)) return true;
         //先判定是否直接支持转换
-        if(CONVERTERS.containsKey(toType)) {
-            return CONVERTERS.get(toType).canConvertFrom(toNonPrimitiveType(convertFrom));
+        ConversionHandler h = CONVERTERS.get(toType);
+        if(h != null) {
+            return h.canConvertFrom(toNonPrimitiveType(convertFrom));
         }
         //如果转换的目标类为数组，但源类型与目标类型兼容，也可以转换
         //即可以认为两个类型之间可以通过数组再进行处理,即A[]->B[]
@@ -101,22 +123,45 @@ public class DataConversion {
         //空处理
         if(in == null) return null;
         //类型兼容
-        if(toType == in.getClass() || toType.isAssignableFrom(in.getClass())) {
+        if(toType == in.getClass()) {
             return (T) in;
         }
+        return (T) getConverter(in.getClass(), toType).convert(in);
+    }
+
+    /**
+     * 获取从源类型转换至目标类型的转换函数,结果按 (目标类型,源类型) 记录
+     * 类型兼容时返回 {@link #IDENTITY},转换器支持直接转换时返回相应的转换函数,否则通过转换器的 convertFrom 进行转换
+     */
+    public static Converter getConverter(Class fromType, Class toType) {
+        Map<Class, Converter> converters = plans.converters.get(toType);
+        Converter c = converters.get(fromType);
+        if(c == null) {
+            converters.put(fromType, c = computeConverter(fromType, toType));
+        }
+        return c;
+    }
+
+    private static Converter computeConverter(Class fromType, Class toType) {
+        if(toType.isAssignableFrom(fromType)) {
+            return IDENTITY;
+        }
 
         //在接下来的转换中，如果目标类型为数组，那么可以认为如果存在源类型到componentType的转换
         //则也可以进行转换，同时通过ArrayHandler来实现相应的处理逻辑即可
         ConversionHandler h = CONVERTERS.get(toType);
         if(h == null && toType.isArray()) {
-            ArrayHandler ah;
             //这里动态添加新的转换处理类，即A[]->B[]的转换
-            CONVERTERS.put(toType, ah = new ArrayHandler(toType));
-            return (T) ah.convertFrom(in);
-        } else {
-            assert h != null;
-            return (T) h.convertFrom(in);
+            h = CONVERTERS.computeIfAbsent(toType, ArrayHandler::new);
+        }
+        if(h == null) {
+            return o -> {
+                throw new ConversionException("cannot convert type: " + o.getClass().getName() + " to: " + toType.getName());
+            };
         }
+
+        Converter c = h.getConverter(fromType);
+        return c != null ? c : h::convertFrom;
     }
 
     /**
@@ -127,5 +172,63 @@ public class DataConversion {
      */
     public static void addConversionHandler(Class type, ConversionHandler handler) {
         CONVERTERS.put(type, handler);
+        plans = new Plans();
+    }
+
+    /**
+     * 一个转换位置,如方法的某个参数,强制转换等.用于在同一个位置重复转换时记住上一次的源类型及转换函数,
+     * 源类型不变时直接使用转换函数进行转换
+     */
+    public static final class ConversionSite {
+        /** 目标类型 */
+        private final Class toType;
+        /** 上一次转换的源类型及转换函数 */
+        private Binding last;
+
+        public ConversionSite(Class toType) {
+            this.toType = toType;
+        }
+
+        public Class getToType() {
+            return toType;
+        }
+
+        public Object convert(Object in) {
+            if(in == null) return null;
+
+            Binding b = last;
+            if(b == null || b.fromType != in.getClass()) {
+                last = b = new Binding(in.getClass(), getConverter(in.getClass(), toType));
+            }
+            return b.converter.convert(in);
+        }
+    }
+
+    /** 源类型及相应的转换函数,不可变,可在多线程间直接共享 */
+    private static final class Binding {
+        private final Class fromType;
+        private final Converter converter;
+
+        Binding(Class fromType, Converter converter) {
+            this.fromType = fromType;
+            this.converter = converter;
+        }
+    }
+
+    /** 按目标类型记录的转换函数及可转换判定,源类型为弱引用,不影响源类型的回收 */
+    private static final class Plans {
+        private final ClassValue<Map<Class, Converter>> converters = new ClassValue<Map<Class, Converter>>() {
+            @Override
+            protected Map<Class, Converter> computeValue(Class<?> type) {
+                return new MapMaker().weakKeys().makeMap();
+            }
+        };
+
+        private final ClassValue<Map<Class, Boolean>> convertible = new ClassValue<Map<Class, Boolean>>() {
+            @Override
+            protected Map<Class, Boolean> computeValue(Class<?> type) {
+                return new MapMaker().weakKeys().makeMap();
+            }
+        };
     }
 }
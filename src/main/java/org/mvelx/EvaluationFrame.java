@@ -0,0 +1,161 @@
+package org.mvelx;
+
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.integration.impl.ClassImportResolverFactory;
+import org.mvelx.integration.impl.FrameVariableResolverFactory;
+import org.mvelx.integration.impl.StackResetResolverFactory;
+import org.mvelx.optimizers.impl.asm.AsmCompiledStatement;
+import org.mvelx.util.OperandStack;
+
+import java.util.Map;
+
+/**
+ * 可复用的执行帧,用于在同一线程中反复执行编译表达式
+ * MVEL.executeExpression 每次执行都会创建map变量工厂(以及其中的解析器),栈重置工厂(或引用工厂)以及操作数栈,
+ * 执行帧持有这些对象并在每次执行之前重置,因此对于常见的条件表达式,多次执行之间基本不再产生新的对象.
+ * 执行帧不是线程安全的,每个线程应使用自己的执行帧,可以通过 local() 获取当前线程的执行帧.
+ * 在执行过程中又通过同一个执行帧执行其它表达式时(如在被调用的方法中再次执行表达式),会退回到普通的执行方式.
+ * 注:执行帧中的变量作用域在执行结束之后即被重用,因此执行结果中不能保留对作用域的引用(如返回脚本中定义的函数)
+ */
+public class EvaluationFrame {
+    private static final ThreadLocal<EvaluationFrame> local = ThreadLocal.withInitial(EvaluationFrame::new);
+
+    /** 复用的map变量工厂 */
+    private final FrameVariableResolverFactory variables = new FrameVariableResolverFactory();
+    /** 复用的栈重置工厂 */
+    private final StackResetResolverFactory stackReset = new StackResetResolverFactory(variables);
+    /** 复用的操作数栈 */
+    private final OperandStack stack = new OperandStack();
+
+    /** 最近一次使用的引用工厂,以及其对应的解析配置 */
+    private ClassImportResolverFactory importFactory;
+    private ParserConfiguration importConfiguration;
+
+    /** 当前是否正在执行 */
+    private boolean active;
+
+    /** 当前线程的执行帧 */
+    public static EvaluationFrame local() {
+        return local.get();
+    }
+
+    /** 使用上下文+map变量执行编译表达式,与 MVEL.executeExpression(compiled, ctx, vars) 相同 */
+    public Object execute(Object compiledExpression, Object ctx, Map vars) {
+        if(active) {
+            return MVEL.executeExpression(compiledExpression, ctx, vars);
+        }
+
+        active = true;
+        try{
+            return run(compiledExpression, ctx, variables.reset(vars));
+        } finally {
+            //执行出错时同样写回已修改的变量,与直接使用map变量执行时一致
+            variables.externalize();
+            release();
+        }
+    }
+
+    /** 使用map变量执行编译表达式 */
+    public Object execute(Object compiledExpression, Map vars) {
+        return execute(compiledExpression, null, vars);
+    }
+
+    /** 使用上下文+变量工厂执行编译表达式,与 MVEL.executeExpression(compiled, ctx, factory) 相同 */
+    public Object execute(Object compiledExpression, Object ctx, VariableResolverFactory factory) {
+        if(active) {
+            return MVEL.executeExpression(compiledExpression, ctx, factory);
+        }
+
+        active = true;
+        try{
+            return run(compiledExpression, ctx, factory);
+        } finally {
+            release();
+        }
+    }
+
+    /** 使用上下文+map变量执行条件表达式,与 MVEL.executeBoolean(compiled, ctx, vars) 相同 */
+    public boolean executeBoolean(Object compiledExpression, Object ctx, Map vars) {
+        if(active) {
+            return MVEL.executeBoolean(compiledExpression, ctx, vars);
+        }
+
+        active = true;
+        try{
+            return runBoolean(compiledExpression, ctx, variables.reset(vars));
+        } finally {
+            //执行出错时同样写回已修改的变量,与直接使用map变量执行时一致
+            variables.externalize();
+            release();
+        }
+    }
+
+    /** 使用map变量执行条件表达式 */
+    public boolean executeBoolean(Object compiledExpression, Map vars) {
+        return executeBoolean(compiledExpression, null, vars);
+    }
+
+    /** 使用上下文+变量工厂执行条件表达式 */
+    public boolean executeBoolean(Object compiledExpression, Object ctx, VariableResolverFactory factory) {
+        if(active) {
+            return MVEL.executeBoolean(compiledExpression, ctx, factory);
+        }
+
+        active = true;
+        try{
+            return runBoolean(compiledExpression, ctx, factory);
+        } finally {
+            release();
+        }
+    }
+
+    private Object run(Object compiledExpression, Object ctx, VariableResolverFactory factory) {
+        if(compiledExpression instanceof CompiledExpression) {
+            CompiledExpression compiled = (CompiledExpression) compiledExpression;
+            return MVELRuntime.execute(false, compiled, ctx, wrap(compiled, factory), stack);
+        } else if(compiledExpression instanceof AsmCompiledStatement) {
+            AsmCompiledStatement compiled = (AsmCompiledStatement) compiledExpression;
+            return compiled.getDirectValue(ctx, wrap(compiled.getSource(), factory));
+        }
+        return ((ExecutableStatement) compiledExpression).getValue(ctx, factory);
+    }
+
+    private boolean runBoolean(Object compiledExpression, Object ctx, VariableResolverFactory factory) {
+        if(compiledExpression instanceof CompiledExpression) {
+            CompiledExpression compiled = (CompiledExpression) compiledExpression;
+            return compiled.getDirectBoolean(ctx, wrap(compiled, factory), stack);
+        }
+        return (Boolean) run(compiledExpression, ctx, factory);
+    }
+
+    /** 与 CompiledExpression 相同,根据是否有外部导入对变量工厂进行包装,包装工厂均为复用的对象 */
+    private VariableResolverFactory wrap(CompiledExpression compiled, VariableResolverFactory factory) {
+        if(!compiled.isImportInjectionRequired()) {
+            return stackReset.reset(factory);
+        }
+
+        ParserConfiguration conf = compiled.getParserConfiguration();
+        if(importFactory == null || importConfiguration != conf) {
+            importFactory = new ClassImportResolverFactory(conf, factory, true);
+            importConfiguration = conf;
+        } else {
+            importFactory.setNextFactory(factory);
+            importFactory.setTiltFlag(false);
+        }
+        return importFactory;
+    }
+
+    /** 执行结束,释放对外部变量及结果的引用,并清除执行期间添加的引用 */
+    private void release() {
+        variables.release();
+        stackReset.reset(null);
+        if(importFactory != null) {
+            importFactory.setNextFactory(null);
+            importFactory.resetDynamicImports();
+        }
+        stack.clear();
+        active = false;
+    }
+}
@@ -16,21 +16,29 @@ package org.mvelx;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.mvelx.compiler.BulkCompilation;
 import org.mvelx.compiler.CompiledAccExpression;
 import org.mvelx.compiler.CompiledExpression;
 import org.mvelx.compiler.ExecutableStatement;
 import org.mvelx.compiler.ExpressionCompiler;
 import org.mvelx.integration.Interceptor;
 import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.integration.impl.ArgumentsVariableResolverFactory;
 import org.mvelx.integration.impl.CachingMapVariableResolverFactory;
 import org.mvelx.integration.impl.ClassImportResolverFactory;
 import org.mvelx.integration.impl.ImmutableDefaultFactory;
+import org.mvelx.optimizers.impl.asm.AsmCompiledStatement;
+import org.mvelx.optimizers.impl.asm.AsmStatementCompiler;
 import org.mvelx.optimizers.impl.refl.nodes.GetterAccessor;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.lang.Boolean.getBoolean;
 import static org.mvelx.DataConversion.convert;
@@ -53,6 +61,11 @@ public class MVEL {
      * 如 import java.lang.String;String 这种处理
      */
     public static boolean COMPILER_OPT_ALLOCATE_TYPE_LITERALS_TO_SHARED_SYMBOL_TABLE = getBoolean("mvelx.compiler.allocate_type_literals_to_shared_symbol_table");
+    /**
+     * 是否将整个编译表达式(多个语句,if/while,三元运算等)翻译为单个字节码类,而不仅仅是优化其中的属性访问
+     * 见 {@link org.mvelx.optimizers.impl.asm.AsmStatementCompiler}
+     */
+    public static boolean COMPILER_OPT_WHOLE_EXPRESSION = getBoolean("mvelx.compiler.whole_expression");
 
     /**
      * 对指定表达式+指定上下文进行语法上的分析，并进行验证，即仅验证语法上是否正确
@@ -166,6 +179,102 @@ public class MVEL {
         return optimizeTree(new ExpressionCompiler(expression, ctx).compile());
     }
 
+    /**
+     * 并行编译一组表达式,编译结果与逐个调用 compileExpression 相同
+     * 每个表达式使用以模板上下文复制出的独立上下文进行编译(复制解析配置,入参及变量声明),
+     * 因此编译中识别到的变量以及表达式中的 import 语句不会相互影响,也不会写回到模板上下文中.
+     * 单个表达式编译失败时不影响其它表达式,相应的错误信息按名称记录在结果中
+     *
+     * @param expressions 表达式名称及表达式文本
+     * @param template    模板上下文,为null时使用默认上下文
+     * @param executor    执行编译的线程池,为null时使用 ForkJoinPool.commonPool()
+     */
+    public static BulkCompilation compileAll(Map<String, String> expressions, ParserContext template, Executor executor) {
+        ParserContext base = template != null ? template : new ParserContext();
+        Executor exec = executor != null ? executor : ForkJoinPool.commonPool();
+
+        int n = expressions.size();
+        String[] names = expressions.keySet().toArray(new String[n]);
+        Object[] results = new Object[n];
+        CompletableFuture<?>[] tasks = new CompletableFuture[n];
+        for(int i = 0; i < n; i++) {
+            int idx = i;
+            String expression = expressions.get(names[i]);
+            tasks[i] = CompletableFuture.runAsync(() -> results[idx] = compileOrError(expression, base), exec);
+        }
+
+        try{
+            CompletableFuture.allOf(tasks).join();
+        } catch(CompletionException e) {
+            //编译错误已在任务中处理,这里只会是Error等严重错误
+            if(e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+
+        Map<String, Serializable> compiled = new LinkedHashMap<>();
+        Map<String, List<ErrorDetail>> errors = new LinkedHashMap<>();
+        for(int i = 0; i < n; i++) {
+            if(results[i] instanceof ErrorDetail[]) {
+                errors.put(names[i], Arrays.asList((ErrorDetail[]) results[i]));
+            } else {
+                compiled.put(names[i], (Serializable) results[i]);
+            }
+        }
+        return new BulkCompilation(compiled, errors);
+    }
+
+    /** 编译单个表达式,失败时返回相应的错误信息 */
+    private static Object compileOrError(String expression, ParserContext template) {
+        try{
+            return compileExpression(expression, template.createTemplateCopy());
+        } catch(CompileException e) {
+            List<ErrorDetail> errors = e.getErrors();
+            if(!errors.isEmpty()) {
+                return errors.toArray(new ErrorDetail[errors.size()]);
+            }
+            char[] expr = e.getExpr() != null ? e.getExpr() : String.valueOf(expression).toCharArray();
+            return new ErrorDetail[]{new ErrorDetail(expr, e.getCursor(), true, e.getMessage())};
+        } catch(RuntimeException e) {
+            return new ErrorDetail[]{new ErrorDetail(String.valueOf(expression).toCharArray(), 0, true, String.valueOf(e.getMessage()))};
+        }
+    }
+
+    /**
+     * 使用表达式+解析上下文进行编译,并声明按顺序的入参
+     * 每个入参在编译期即确定其下标,执行时通过 {@link #executeWithArgs(Object, Object, Object[])} 传入参数数组,
+     * 访问器直接通过下标读取参数值,不再通过变量名进行查找
+     *
+     * 编译在传入上下文的副本上进行,入参不会写回到传入的上下文中,因此同一上下文可以用于多个不同入参顺序的表达式
+     *
+     * @param inputNames 入参名,与执行时的参数数组一一对应
+     */
+    public static Serializable compileWithInputs(String expression, ParserContext ctx, String... inputNames) {
+        if(new HashSet<>(Arrays.asList(inputNames)).size() != inputNames.length) {
+            throw new IllegalArgumentException("duplicate input names: " + Arrays.toString(inputNames));
+        }
+
+        //下标入参按照 inputNames 的顺序重新分配,不使用上下文中已有的下标入参
+        ParserContext inputCtx = ctx == null ? new ParserContext() : ctx.createTemplateCopy();
+        inputCtx.getIndexedInputs().clear();
+        for(String name : inputNames) {
+            inputCtx.addIndexedInput(name);
+            if(!inputCtx.hasVarOrInput(name)) {
+                inputCtx.addInput(name, Object.class);
+            }
+        }
+
+        //这里不使用 optimizeTree,以保证单节点的表达式同样保留入参信息
+        CompiledExpression compiled = new ExpressionCompiler(expression, inputCtx).compile();
+        for(int i = 0; i < inputNames.length; i++) {
+            if(inputCtx.variableIndexOf(inputNames[i]) != i) {
+                throw new IllegalStateException("input index mismatch: " + inputNames[i] + " expected " + i
+                        + " but was " + inputCtx.variableIndexOf(inputNames[i]));
+            }
+        }
+        compiled.setInputNames(inputNames.clone());
+        return COMPILER_OPT_WHOLE_EXPRESSION ? AsmStatementCompiler.compile(compiled) : compiled;
+    }
+
     /** 对指定的字符数组+解析上下文进行编译 */
     public static Serializable compileExpression(char[] expression, int start, int offset, ParserContext ctx) {
         ExpressionCompiler c = new ExpressionCompiler(expression, start, offset, ctx);
@@ -271,6 +380,23 @@ public class MVEL {
         ((CompiledAccExpression) compiledSet).setValue(ctx, ctx, vrf, value);
     }
 
+    /**
+     * 使用参数数组执行通过 {@link #compileWithInputs(String, ParserContext, String...)} 编译的表达式
+     *
+     * @param thisCtx 当前上下文对象
+     * @param args    参数值,与编译时声明的入参一一对应,对入参的赋值会写回此数组
+     */
+    public static Object executeWithArgs(Object compiledExpression, Object thisCtx, Object[] args) {
+        ExecutableStatement stmt = (ExecutableStatement) compiledExpression;
+        CompiledExpression source = stmt instanceof AsmCompiledStatement ? ((AsmCompiledStatement) stmt).getSource()
+                : stmt instanceof CompiledExpression ? (CompiledExpression) stmt : null;
+        if(source == null || source.getInputNames() == null) {
+            throw new IllegalArgumentException("expression was not compiled with declared inputs");
+        }
+
+        return stmt.getValue(thisCtx, new ArgumentsVariableResolverFactory(source.getInputNames(), args));
+    }
+
     /** 执行之前编译好的表达式,无变量工厂 */
     public static Object executeExpression(Object compiledExpression) {
         return ((ExecutableStatement) compiledExpression).getValue(null, new ImmutableDefaultFactory());
@@ -395,6 +521,33 @@ public class MVEL {
         return convert(executeExpression(compiledExpression, ctx), toType);
     }
 
+    /**
+     * 使用上下文+变量工厂执行条件类的编译表达式,直接返回boolean结果
+     * 与 executeExpression 不同,表达式中的比较,逻辑运算以及常量等节点直接计算出基本类型,避免结果的装箱及拆箱
+     * 表达式的结果必须为boolean类型
+     */
+    public static boolean executeBoolean(final Object compiledExpression, final Object ctx, final VariableResolverFactory resolverFactory) {
+        return ((ExecutableStatement) compiledExpression).getBoolean(ctx, ctx, resolverFactory);
+    }
+
+    /** 使用上下文+初始map变量工厂执行条件类的编译表达式,直接返回boolean结果 */
+    @SuppressWarnings({"unchecked"})
+    public static boolean executeBoolean(final Object compiledExpression, final Object ctx, final Map vars) {
+        CachingMapVariableResolverFactory factory = vars != null ? new CachingMapVariableResolverFactory(vars) : null;
+        try{
+            return ((ExecutableStatement) compiledExpression).getBoolean(ctx, ctx, factory);
+        } finally {
+            if(factory != null) {
+                factory.externalize();
+            }
+        }
+    }
+
+    /** 使用初始map变量工厂执行条件类的编译表达式,直接返回boolean结果 */
+    public static boolean executeBoolean(final Object compiledExpression, final Map vars) {
+        return executeBoolean(compiledExpression, null, vars);
+    }
+
     /** 批量执行编译表达式,无上下文，无变量工厂 */
     public static void executeExpression(Iterable<CompiledExpression> compiledExpression) {
         for(CompiledExpression ce : compiledExpression) {
@@ -4,7 +4,7 @@ import org.mvelx.ast.ASTNode;
 import org.mvelx.compiler.CompiledExpression;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.OptimizerFactory;
-import org.mvelx.util.ExecutionStack;
+import org.mvelx.util.OperandStack;
 
 import static org.mvelx.Operator.*;
 import static org.mvelx.util.PropertyTools.isEmpty;
@@ -28,10 +28,19 @@ public class MVELRuntime {
      */
     public static Object execute(boolean debugger, final CompiledExpression expression, final Object ctx,
                                  VariableResolverFactory variableFactory) {
+        //保存当前临时的执行栈,因为每次入栈后均会马上归约,因此只需要固定大小的操作数栈即可
+        return execute(debugger, expression, ctx, variableFactory, new OperandStack());
+    }
+
+    /**
+     * 使用外部提供的操作数栈执行编译表达式,用于执行帧中复用操作数栈
+     *
+     * @param stk 空的操作数栈
+     */
+    public static Object execute(boolean debugger, final CompiledExpression expression, final Object ctx,
+                                 VariableResolverFactory variableFactory, OperandStack stk) {
 
         Object v1, v2;
-        //保存当前临时的执行栈
-        ExecutionStack stk = new ExecutionStack();
 
         ASTNode tk = expression.getFirstNode();
         Integer operator;
@@ -99,8 +108,7 @@ public class MVELRuntime {
                 try{
                     //这里保证当前栈中只有一个操作数，因为之前的操作数均没有用处
                     while(stk.isReduceable()) {
-                        if((Integer) stk.peek() == CHOR) {
-                            stk.pop();
+                        if(stk.peekOperator() == CHOR) {
                             v1 = stk.pop();
                             v2 = stk.pop();
                             if(!isEmpty(v2) || !isEmpty(v1)) {
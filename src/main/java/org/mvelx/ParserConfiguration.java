@@ -25,7 +25,7 @@ import static org.mvelx.util.ParseTools.forNameWithInner;
 @Getter
 public class ParserConfiguration implements Serializable {
     /** 使用到的引用的类名或方法名(不全是类名).也可能为方法句柄，或者是静态字段值等 */
-    protected Map<String, Object> imports;
+    protected volatile Map<String, Object> imports;
     /** 使用到的引用的包名 */
     protected HashSet<String> packageImports;
     /** 相应的拦截器映射组 */
@@ -33,8 +33,11 @@ public class ParserConfiguration implements Serializable {
     /** 当前解析配置中所引用的类加载器,用于在引用类名时进行加载 */
     protected transient ClassLoader classLoader;
 
-    /** 用于存储一些实际上不能成功使用的import列表，即在动态引入中实际上引入失效的类,上限为1000 */
-    private transient Set<String> nonValidImports;
+    /**
+     * 用于存储一些实际上不能成功使用的import列表，即在动态引入中实际上引入失效的类,上限为1000
+     * 解析配置可能在多个线程的编译中共享,因此使用并发集合
+     */
+    private transient volatile Set<String> nonValidImports;
 
     /**
      * 即是否在编译的时候就允许二次优化,其值默认为true，即此开关是默认开启的
@@ -54,6 +57,24 @@ public class ParserConfiguration implements Serializable {
         this.interceptors = interceptors;
     }
 
+    /**
+     * 复制一份独立的解析配置,引用及包引用均为新的集合,拦截器及类加载器直接共享
+     * 表达式中的 import 语句会写入解析配置,因此并行编译时每个任务使用各自的副本,以避免互相影响以及写回到原配置中
+     */
+    public ParserConfiguration copy() {
+        ParserConfiguration conf = new ParserConfiguration();
+        if(imports != null) {
+            conf.initImports();
+            conf.imports.putAll(imports);
+        }
+        if(packageImports != null) conf.packageImports = new LinkedHashSet<>(packageImports);
+        conf.interceptors = interceptors;
+        conf.classLoader = classLoader;
+        conf.allowBootstrapBypass = allowBootstrapBypass;
+        conf.nullSafe = nullSafe;
+        return conf;
+    }
+
     /** 通过引用名获取之前已import进来的类名，并且期望相应的类型为class类型 */
     public Class getImport(String name) {
         if(imports != null && imports.containsKey(name) && imports.get(name) instanceof Class) {
@@ -141,7 +162,8 @@ public class ParserConfiguration implements Serializable {
         //本身不是有效的类名开始
         if(!Character.isJavaIdentifierStart(className.charAt(0))) return false;
         //如果之前就判定为无效,则快速判断
-        if(nonValidImports != null && nonValidImports.contains(className)) return false;
+        Set<String> nonValid = nonValidImports;
+        if(nonValid != null && nonValid.contains(className)) return false;
 
         //尝试在之前包引用的情况下,查看此类是否在之前的哪个包下面
         int found = 0;
@@ -179,7 +201,11 @@ public class ParserConfiguration implements Serializable {
 
     private void initImports() {
         if(this.imports == null) {
-            this.imports = new ConcurrentHashMap<>();
+            synchronized(this) {
+                if(this.imports == null) {
+                    this.imports = new ConcurrentHashMap<>();
+                }
+            }
         }
     }
 
@@ -248,19 +274,28 @@ public class ParserConfiguration implements Serializable {
 
     /** 将不能引用的信息添加到nonValid集合中,因为有限制，因此去掉超过限制的 */
     private void cacheNegativeHitForDynamicImport(String negativeHit) {
-        if(nonValidImports == null) {
-            nonValidImports = new LinkedHashSet<>();
-        } else if(nonValidImports.size() > 1000) {
-            Iterator<String> i = nonValidImports.iterator();
-            i.next();
-            i.remove();
+        Set<String> set = nonValidImports;
+        if(set == null) {
+            synchronized(this) {
+                if((set = nonValidImports) == null) {
+                    nonValidImports = set = ConcurrentHashMap.newKeySet();
+                }
+            }
+        } else if(set.size() > 1000) {
+            //超过上限时随意移除一个
+            Iterator<String> i = set.iterator();
+            if(i.hasNext()) {
+                i.next();
+                i.remove();
+            }
         }
 
-        nonValidImports.add(negativeHit);
+        set.add(negativeHit);
     }
 
     public void flushCaches() {
-        if(nonValidImports != null)
-            nonValidImports.clear();
+        Set<String> set = nonValidImports;
+        if(set != null)
+            set.clear();
     }
 }
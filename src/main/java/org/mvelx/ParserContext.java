@@ -136,6 +136,24 @@ public class ParserContext implements Serializable {
         return ctx;
     }
 
+    /**
+     * 以当前上下文为模板构建一个独立的上下文,复制解析配置,入参,变量,下标入参以及类型检查标记
+     * 与子上下文不同,新上下文没有父上下文,也不共享错误列表等编译期状态,主要用于多个表达式的并行编译.
+     * 解析配置同样为副本,表达式中的 import 语句不会影响其它表达式及模板
+     */
+    public ParserContext createTemplateCopy() {
+        ParserContext ctx = new ParserContext(parserConfiguration.copy());
+
+        ctx.addInputs(inputs);
+        ctx.addVariables(variables);
+        ctx.addIndexedInputs(indexedInputs);
+
+        ctx.strictTypeEnforcement = strictTypeEnforcement;
+        ctx.strongTyping = strongTyping;
+
+        return ctx;
+    }
+
     /** 构建一个克隆上下文,即对原上下文是直接引用,但在各个变量的使用时增加相应的溢出标识,主要用于判定for无限循环处理 */
     public ParserContext createColoringSubcontext() {
         if(parent == null) {
@@ -7,8 +7,12 @@ import org.mvelx.compiler.Accessor;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizationNotSupported;
+import org.mvelx.optimizers.dynamic.DeoptimizationCounter;
+import org.mvelx.optimizers.dynamic.DynamicOptimizer;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static java.lang.Thread.currentThread;
 import static org.mvelx.Operator.NOOP;
@@ -78,7 +82,7 @@ public class ASTNode implements Cloneable, Serializable {
     /** 表示当前节点是一个 数组类型的空常量,如[]，即用来标识数组 */
     public static final int ARRAY_TYPE_LITERAL = 1 << 26;
 
-    /** 取消优化 */
+    /** 取消优化,即暂时固定使用反射访问,直到反优化计数衰减至上限以下 */
     public static final int NOJIT = 1 << 27;
     /** 表示当前节点需要反优化，即之前的优化失败了 */
     public static final int DEOP = 1 << 28;
@@ -86,13 +90,23 @@ public class ASTNode implements Cloneable, Serializable {
     /** 表示当前节点应该被废掉 */
     public static final int DISCARD = 1 << 29;
 
+    /** 用于以CAS的方式安装及移除访问器 */
+    private static final AtomicReferenceFieldUpdater<ASTNode, Accessor> ACCESSOR_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ASTNode.class, Accessor.class, "accessor");
+    /** 用于保证同一节点同时只有一个线程进行优化 */
+    private static final AtomicIntegerFieldUpdater<ASTNode> OPTIMIZING_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ASTNode.class, "optimizing");
+    /** 用于在运行期以CAS的方式修改标记(如DEOP,NOJIT),避免多线程同时修改时相互覆盖 */
+    private static final AtomicIntegerFieldUpdater<ASTNode> FIELDS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ASTNode.class, "fields");
+
     /** 即在 a[x] 或 xy(xxx)中第一次出现[符号的位置 与endOfName不同的地方在于后者认为a.x是一起的,则firstUnion则认定下标在第1个.处 */
     protected int firstUnion;
     /** 用于描述在a[x] 或者是 xy(xxx)这种结构中第一次出现[或(的下标值,那么前面部分就可以认为是实际可用的name值 */
     protected int endOfName;
 
-    /** 描述当前节点的解析属性值 */
-    public int fields = 0;
+    /** 描述当前节点的解析属性值,运行期对标记的修改(如DEOP,NOJIT)均通过CAS进行 */
+    public volatile int fields = 0;
 
     /** 当前节点的处理类型(声明类型) 如果是object,则表示此类型还不太确定(需要在运行期再处理) */
     protected Class egressType;
@@ -111,6 +125,10 @@ public class ASTNode implements Cloneable, Serializable {
 
     /** 当前节点的值访问器(优化版的)，通常指asm访问 */
     protected transient volatile Accessor accessor;
+    /** 当前是否有线程正在对此节点进行优化,1表示正在优化 */
+    private transient volatile int optimizing;
+    /** 反优化计数,首次反优化时创建 */
+    private transient volatile DeoptimizationCounter deoptCounter;
     /**
      * 当前节点的安全访问器(未优化的)
      * 这里的是非优化版，均是指通过二次编译之后的访问，而不是指解释运行
@@ -135,66 +153,180 @@ public class ASTNode implements Cloneable, Serializable {
             return literal;
         }
 
-        if(accessor != null) {
+        Accessor a = accessor;
+        if(a != null) {
             try{
-                return accessor.getValue(ctx, thisValue, factory);
+                return a.getValue(ctx, thisValue, factory);
             } catch(ClassCastException ce) {
                 log.debug("优先访问失败，将重新处理.:{}", ce.getMessage());
-                return deop(ctx, thisValue, factory, ce);
+                return deop(ctx, thisValue, factory, a);
             }
         } else {
             return optimize(ctx, thisValue, factory);
         }
     }
 
-    /** 反向优化,即声明DEOP标记以及NOJIT,以使用默认的反射访问方式来运行 */
-    private Object deop(Object ctx, Object thisValue, VariableResolverFactory factory, RuntimeException e) {
-        if((fields & DEOP) == 0) {
-            accessor = null;
-            fields |= DEOP | NOJIT;
+    /**
+     * 以boolean的形式获取执行值,用于条件判断.默认对 getReducedValueAccelerated 的结果拆箱,
+     * 可直接计算出基本类型结果的节点(如常量,比较及逻辑运算)覆盖此方法以避免装箱
+     */
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return (Boolean) getReducedValueAccelerated(ctx, thisValue, factory);
+    }
+
+    /** 以int的形式获取执行值,默认对 getReducedValueAccelerated 的结果拆箱 */
+    public int getReducedInt(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).intValue();
+    }
 
+    /** 以long的形式获取执行值,默认对 getReducedValueAccelerated 的结果拆箱 */
+    public long getReducedLong(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).longValue();
+    }
+
+    /** 以double的形式获取执行值,默认对 getReducedValueAccelerated 的结果拆箱 */
+    public double getReducedDouble(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) getReducedValueAccelerated(ctx, thisValue, factory)).doubleValue();
+    }
+
+    /**
+     * 反向优化,即声明DEOP标记并移除当前访问器,以按当前的类型重新进行优化
+     * 反优化次数(随时间衰减)达到上限时再声明NOJIT,以暂时使用默认的反射访问方式来运行
+     * 仅当出错的访问器仍是当前访问器时才进行移除,如果已经被其它线程替换,则直接使用新的访问器重新执行;
+     * 如果其它线程正在对同一访问器进行反优化(还未移除),则使用临时的反射访问器重新计算
+     *
+     * @param failed 执行出错的访问器
+     */
+    private Object deop(Object ctx, Object thisValue, VariableResolverFactory factory, Accessor failed) {
+        if(accessor != failed) {
+            return getReducedValueAccelerated(ctx, thisValue, factory);
+        }
+
+        if(addFlag(DEOP)) {
+            if(deoptimizationCounter().record() >= DynamicOptimizer.maximumDeoptimization) {
+                addFlag(NOJIT);
+            }
+            ACCESSOR_UPDATER.compareAndSet(this, failed, null);
+            return getReducedValueAccelerated(ctx, thisValue, factory);
+        }
+
+        return accessor != failed ? getReducedValueAccelerated(ctx, thisValue, factory) : evaluateReflective(ctx, thisValue, factory);
+    }
+
+    /**
+     * 以CAS的方式设置标记
+     *
+     * @return 标记之前未设置,并由当前线程设置成功时返回true
+     */
+    private boolean addFlag(int flag) {
+        for(; ; ) {
+            int f = fields;
+            if((f & flag) != 0) {
+                return false;
+            }
+            if(FIELDS_UPDATER.compareAndSet(this, f, f | flag)) {
+                return true;
+            }
+        }
+    }
+
+    /** 以CAS的方式清除标记 */
+    private void removeFlag(int flag) {
+        for(; ; ) {
+            int f = fields;
+            if((f & flag) == 0 || FIELDS_UPDATER.compareAndSet(this, f, f & ~flag)) {
+                return;
+            }
+        }
+    }
+
+    /** 获取反优化计数,不存在时创建 */
+    private DeoptimizationCounter deoptimizationCounter() {
+        DeoptimizationCounter counter = deoptCounter;
+        if(counter == null) {
             synchronized(this) {
-                return getReducedValueAccelerated(ctx, thisValue, factory);
+                if((counter = deoptCounter) == null) {
+                    deoptCounter = counter = new DeoptimizationCounter();
+                }
             }
-        } else {
-            assert e != null;
-            throw e;
         }
+        return counter;
     }
 
-    /** 尝试使用相应的优化器对表达式进行优化,以形成executeStatement以优化式执行.同时 */
+    /**
+     * 尝试使用相应的优化器对表达式进行优化,以形成executeStatement以优化式执行
+     * 同一节点同时只有一个线程进行优化(即只会生成一次访问器类),其它线程在优化完成之前使用反射方式计算,且不安装访问器
+     */
     private Object optimize(Object ctx, Object thisValue, VariableResolverFactory factory) {
-        if((fields & DEOP) != 0) {
-            fields ^= DEOP;
+        if(!beginOptimize()) {
+            return evaluateReflective(ctx, thisValue, factory);
+        }
+
+        try{
+            if(accessor == null) {
+                return doOptimize(ctx, thisValue, factory);
+            }
+        } finally {
+            endOptimize();
+        }
+
+        //在获取到优化权之前,其它线程已经完成了优化
+        return getReducedValueAccelerated(ctx, thisValue, factory);
+    }
+
+    /** 使用临时的反射访问器进行计算,不安装,期间创建的访问器均不会生成新类 */
+    private Object evaluateReflective(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        boolean reflective = beginReflectiveOnly();
+        try{
+            AccessorOptimizer optimizer = getAccessorCompiler(SAFE_REFLECTIVE);
+            optimizer.optimizeAccessor(createOptimizeContext(factory), expr, start, offset, ctx, thisValue, factory, null);
+            return optimizer.getResultOptPass();
+        } finally {
+            if(reflective) {
+                endReflectiveOnly();
+            }
         }
+    }
+
+    /** 创建优化时使用的解析上下文 */
+    private ParserContext createOptimizeContext(VariableResolverFactory factory) {
+        //如果之前在当前节点中存储了上下文，则直接使用当前节点中存储的
+        if((fields & PCTX_STORED) != 0) {
+            return (ParserContext) literal;
+        }
+        //重新使用解析上下文，并不采用定义时解析上下文
+        return new ParserContext(new ParserConfiguration(getInjectedImports(factory), null));
+    }
+
+    /** 由获取到优化权的线程进行实际的优化,并安装访问器 */
+    private Object doOptimize(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        removeFlag(DEOP);
+        //反优化次数已衰减至上限以下,可以重新进行优化
+        if((fields & NOJIT) != 0 && (deoptCounter == null || !deoptCounter.isPinned())) {
+            removeFlag(NOJIT);
+        }
+        boolean pinned = (fields & NOJIT) != 0;
 
         AccessorOptimizer optimizer;
         Object retVal;
 
-        if((fields & NOJIT) != 0 || factory != null && factory.isResolvable(nameCache)) {
+        if(pinned || factory != null && factory.isResolvable(nameCache)) {
             optimizer = getAccessorCompiler(SAFE_REFLECTIVE);
         } else {
             optimizer = getDefaultAccessorCompiler();
         }
 
-        //重新使用解析上下文，并不采用定义时解析上下文
-        ParserContext pCtx;
-
-        //如果之前在当前节点中存储了上下文，则直接使用当前节点中存储的
-        if((fields & PCTX_STORED) != 0) {
-            pCtx = (ParserContext) literal;
-        } else {
-            pCtx = new ParserContext(new ParserConfiguration(getInjectedImports(factory), null));
-        }
+        ParserContext pCtx = createOptimizeContext(factory);
 
         try{
             pCtx.optimizationNotify();
             //因为是执行访问操作，因此采用优化器产生一个get类的访问器以进行相应的处理。在默认的处理中，均认为获取值都是获取类操作
             //在针对a = b的这种处理时，会采用不同的node，而在其内部切换为相应的优化器的set版本
-            setAccessor(optimizer.optimizeAccessor(pCtx, expr, start, offset, ctx, thisValue, factory, egressType));
+            Accessor optimized = optimizer.optimizeAccessor(pCtx, expr, start, offset, ctx, thisValue, factory, egressType);
+            installAccessor(pinned ? new PinnedAccessor(optimized) : optimized);
         } catch(OptimizationNotSupported ne) {
             //这里优化失败了,那么就使用默认的reflect进行反射访问
-            setAccessor((optimizer = getAccessorCompiler(SAFE_REFLECTIVE))
+            installAccessor((optimizer = getAccessorCompiler(SAFE_REFLECTIVE))
                     .optimizeAccessor(pCtx, expr, start, offset, ctx, thisValue, factory, null));
         }
 
@@ -209,6 +341,42 @@ public class ASTNode implements Cloneable, Serializable {
         return retVal;
     }
 
+    /**
+     * 固定使用反射版本时所安装的访问器
+     * 每调用一定次数检查一次反优化计数,已衰减至上限以下时移除自己,使节点在下次访问时重新进行优化
+     */
+    private final class PinnedAccessor implements Accessor {
+        /** 每多少次调用检查一次,须为2的幂 */
+        private static final int CHECK_INTERVAL = 1024;
+
+        private final Accessor delegate;
+        /** 调用次数,不要求精确 */
+        private int calls;
+
+        PinnedAccessor(Accessor delegate) {
+            this.delegate = delegate;
+        }
+
+        public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+            if((++calls & (CHECK_INTERVAL - 1)) == 0 && !deoptCounter.isPinned()) {
+                ACCESSOR_UPDATER.compareAndSet(ASTNode.this, this, null);
+            }
+            return delegate.getValue(ctx, elCtx, variableFactory);
+        }
+
+        public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+            return delegate.setValue(ctx, elCtx, variableFactory, value);
+        }
+
+        public Class getKnownEgressType() {
+            return delegate.getKnownEgressType();
+        }
+
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
     public Class getEgressType() {
         return egressType;
     }
@@ -326,6 +494,21 @@ public class ASTNode implements Cloneable, Serializable {
         return this.accessor = accessor;
     }
 
+    /** 以CAS的方式安装优化得到的访问器,仅在当前没有访问器时生效 */
+    protected void installAccessor(Accessor accessor) {
+        ACCESSOR_UPDATER.compareAndSet(this, null, accessor);
+    }
+
+    /** 尝试获取当前节点的优化权,获取成功之后需要通过 endOptimize 释放 */
+    protected boolean beginOptimize() {
+        return OPTIMIZING_UPDATER.compareAndSet(this, 0, 1);
+    }
+
+    /** 释放当前节点的优化权 */
+    protected void endOptimize() {
+        optimizing = 0;
+    }
+
     /** 表示当前节点是否是变量节点 */
     public boolean isIdentifier() {
         return (fields & IDENTIFIER) != 0;
@@ -440,7 +623,7 @@ public class ASTNode implements Cloneable, Serializable {
 
     public String toString() {
         return isOperator() ? "<<" + (getOperator()) + ">>" :
-                (PCTX_STORED & fields) != 0 ? nameCache : new String(expr, start, offset);
+                (PCTX_STORED & fields) != 0 ? nameCache : expr == null ? getClass().getSimpleName() : new String(expr, start, offset);
     }
 
     protected ClassLoader getClassLoader() {
@@ -38,8 +38,12 @@ public class And extends BooleanNode {
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //与java && 相同,即计算两边值,然后再处理.因为是 && 运算,因此与满足java中的懒计算原则.
         // 如果left计算为false,那么就是直接返回,而不是再计算右侧
-        return (((Boolean) left.getReducedValueAccelerated(ctx, thisValue, factory))
-                && ((Boolean) right.getReducedValueAccelerated(ctx, thisValue, factory)));
+        return getReducedBoolean(ctx, thisValue, factory);
+    }
+
+    /** 两边均直接以boolean的形式计算,避免中间结果的装箱 */
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return left.getReducedBoolean(ctx, thisValue, factory) && right.getReducedBoolean(ctx, thisValue, factory);
     }
 
     public String toString() {
@@ -49,7 +49,7 @@ public class AssertNode extends ASTNode {
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         try{
             //这里进行强转,并且在catch中进行判定,即要求assert后面的结果就是一个boolean值
-            if(!((Boolean) assertion.getValue(ctx, thisValue, factory))) {
+            if(!assertion.getBoolean(ctx, thisValue, factory)) {
                 throw new AssertionError("assertion failed in expression: " + new String(this.expr, start, offset));
             } else {
                 return true;
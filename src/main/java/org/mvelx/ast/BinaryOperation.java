@@ -23,6 +23,7 @@ import org.mvelx.Operator;
 import org.mvelx.ParserContext;
 import org.mvelx.ScriptRuntimeException;
 import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.math.SpecializedOperation;
 import org.mvelx.util.CompatibilityStrategy;
 import org.mvelx.util.NullType;
 import org.mvelx.util.ParseTools;
@@ -33,8 +34,17 @@ import static org.mvelx.math.MathProcessor.doOperations;
 import static org.mvelx.util.CompilerTools.getReturnTypeFromOp;
 import static org.mvelx.util.ParseTools.boxPrimitive;
 
-/** 这里描述一个二元运算操作 */
+/**
+ * 这里描述一个二元运算操作
+ * 在运行期会记录左右值的实际类型,在连续多次观察到相同类型之后,使用特化的运算(见 SpecializedOperation)代替通用的数学处理.
+ * 特化运算通过类型守卫保护,一旦出现其它类型即反特化回到通用运算,反特化次数过多之后则不再进行特化
+ */
 public class BinaryOperation extends BooleanNode {
+    /** 连续观察到相同类型多少次之后进行特化,小于等于0表示不进行特化 */
+    public static int specializeThreshold = Integer.getInteger("mvelx.binary.specialize_threshold", 20);
+    /** 单个节点最多允许的反特化次数,超过此次数之后固定使用通用运算 */
+    public static int maximumDeoptimization = Integer.getInteger("mvelx.binary.maximum_deoptimization", 3);
+
     /** 运算符 */
     private final int operation;
     /** 左边类型(内部表示形式,见DataTypes) */
@@ -42,6 +52,17 @@ public class BinaryOperation extends BooleanNode {
     /** 右边类型(内部表示形式,见DataTypes) */
     private int rType = -1;
 
+    /** 最近一次观察到的左值类型 */
+    private transient Class observedLeft;
+    /** 最近一次观察到的右值类型 */
+    private transient Class observedRight;
+    /** 连续观察到相同类型的次数 */
+    private transient int observedCount;
+    /** 当前的特化运算,为null表示使用通用运算 */
+    private transient volatile SpecializedOperation specialized;
+    /** 已反特化(或无法特化)的次数 */
+    private transient int deoptimizeCount;
+
     public BinaryOperation(int operation, ParserContext ctx) {
         super(ctx);
         this.operation = operation;
@@ -128,15 +149,94 @@ public class BinaryOperation extends BooleanNode {
     }
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        Object l = left.getReducedValueAccelerated(ctx, thisValue, factory);
+        Object r = right.getReducedValueAccelerated(ctx, thisValue, factory);
+
+        SpecializedOperation s = specialized;
+        if(s != null) {
+            if(s.accept(l, r)) {
+                return s.apply(l, r);
+            }
+            deoptimize();
+        } else if(deoptimizeCount < maximumDeoptimization && specializeThreshold > 0) {
+            recordType(l, r);
+        }
+
         //由数学处理器来完成相应的计算
-        return doOperations(lType, left.getReducedValueAccelerated(ctx, thisValue, factory), operation, rType,
-                right.getReducedValueAccelerated(ctx, thisValue, factory));
+        return doOperations(lType, l, operation, rType, r);
+    }
+
+    /** 以boolean的形式计算,特化的比较运算直接返回基本类型结果 */
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        Object l = left.getReducedValueAccelerated(ctx, thisValue, factory);
+        Object r = right.getReducedValueAccelerated(ctx, thisValue, factory);
+
+        SpecializedOperation s = specialized;
+        if(s != null) {
+            if(s.accept(l, r)) {
+                //算术运算的结果不是boolean,仍按原方式拆箱
+                return operation >= Operator.LTHAN ? s.applyBoolean(l, r) : (Boolean) s.apply(l, r);
+            }
+            deoptimize();
+        } else if(deoptimizeCount < maximumDeoptimization && specializeThreshold > 0) {
+            recordType(l, r);
+        }
+
+        return (Boolean) doOperations(lType, l, operation, rType, r);
+    }
+
+    /** 记录当前的左右值类型,连续相同的次数达到阈值之后尝试进行特化 */
+    private void recordType(Object l, Object r) {
+        if(l == null || r == null) {
+            observedCount = 0;
+            return;
+        }
+
+        Class lc = l.getClass();
+        Class rc = r.getClass();
+        if(lc != observedLeft || rc != observedRight) {
+            observedLeft = lc;
+            observedRight = rc;
+            observedCount = 1;
+            return;
+        }
+
+        if(++observedCount >= specializeThreshold) {
+            //使用当前值的类型进行特化,不支持的类型则不再继续收集
+            SpecializedOperation s = SpecializedOperation.create(lType, lc, operation, rType, rc);
+            if(s == null) {
+                deoptimizeCount = maximumDeoptimization;
+            }
+            specialized = s;
+        }
+    }
+
+    /** 类型守卫失败,回到通用运算并重新收集类型 */
+    private void deoptimize() {
+        specialized = null;
+        observedCount = 0;
+        deoptimizeCount++;
+    }
+
+    /** 当前的特化运算,为null表示未特化 */
+    public SpecializedOperation getSpecialized() {
+        return specialized;
     }
 
     public int getOperation() {
         return operation;
     }
 
+    /** 左边的类型(内部表示形式) */
+    public int getLeftType() {
+        return lType;
+    }
+
+    /** 右边的类型(内部表示形式) */
+    public int getRightType() {
+        return rType;
+    }
+
     /** 替换掉最右边的节点 如 a + b - c 增加一个 * d时，就把c替换为(c*d) */
     public void setRightMost(ASTNode right) {
         BinaryOperation n = this;
@@ -42,5 +42,10 @@ public class BlockNode extends ASTNode {
     public int getBlockStart() {
         return blockStart;
     }
+
+    /** 返回编译好的执行块 */
+    public ExecutableStatement getCompiledBlock() {
+        return compiledBlock;
+    }
 }
 
@@ -41,8 +41,22 @@ public class Contains extends ASTNode {
         return containsCheck(stmt.getReducedValueAccelerated(ctx, thisValue, factory), stmt2.getReducedValueAccelerated(ctx, thisValue, factory));
     }
 
+    /** 左节点,即被检查的集合或字符串 */
+    public ASTNode getStmt() {
+        return stmt;
+    }
+
+    /** 右节点,即要查找的值 */
+    public ASTNode getStmt2() {
+        return stmt2;
+    }
+
     /** 返回值即为boolean */
     public Class getEgressType() {
         return Boolean.class;
     }
+
+    public String toString() {
+        return "(" + stmt + " contains " + stmt2 + ")";
+    }
 }
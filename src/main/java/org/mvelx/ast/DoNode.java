@@ -74,7 +74,7 @@ public class DoNode extends BlockNode {
             compiledBlock.getValue(ctx, thisValue, ctxFactory);
         }
         //这里的条件判断还是作用的外部作用域,以与执行体相区分
-        while((Boolean) condition.getValue(ctx, thisValue, factory));
+        while(condition.getBoolean(ctx, thisValue, factory));
 
         return null;
     }
@@ -66,7 +66,7 @@ public class DoUntilNode extends BlockNode {
         do{
             compiledBlock.getValue(ctx, thisValue, lc);
         }
-        while(!(Boolean) condition.getValue(ctx, thisValue, lc));
+        while(!condition.getBoolean(ctx, thisValue, lc));
 
         return null;
     }
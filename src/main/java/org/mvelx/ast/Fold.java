@@ -88,7 +88,7 @@ public class Fold extends ASTNode {
 
             for(Object o : col) {
                 itemR.value = o;
-                if((Boolean) constraintEx.getValue(ctx, thisValue, itemFactory)) {
+                if(constraintEx.getBoolean(ctx, thisValue, itemFactory)) {
                     list.add(subEx.getValue(o, thisValue, itemFactory));
                 }
             }
@@ -75,7 +75,7 @@ public class ForNode extends BlockNode {
         VariableResolverFactory ctxFactory = indexAlloc ? factory : new MapVariableResolverFactory(new HashMap<String, Object>(1), factory);
         Object v;
         //标准的for循环3段式处理,初始化,条件,递增处理
-        for(initializer.getValue(ctx, thisValue, ctxFactory); (Boolean) condition.getValue(ctx, thisValue, ctxFactory); after.getValue(ctx, thisValue, ctxFactory)) {
+        for(initializer.getValue(ctx, thisValue, ctxFactory); condition.getBoolean(ctx, thisValue, ctxFactory); after.getValue(ctx, thisValue, ctxFactory)) {
             //内部语法块执行
             v = compiledBlock.getValue(ctx, thisValue, ctxFactory);
             //因为过程中可能有相应的return 语句,因此这里进行判定,以支持在for循环中提前返回
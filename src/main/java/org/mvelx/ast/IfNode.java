@@ -20,6 +20,7 @@ package org.mvelx.ast;
 
 import org.mvelx.CompileException;
 import org.mvelx.ParserContext;
+import org.mvelx.compiler.ExecutableLiteral;
 import org.mvelx.compiler.ExecutableStatement;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.integration.impl.MapVariableResolverFactory;
@@ -79,7 +80,7 @@ public class IfNode extends BlockNode implements NestedStatement {
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //标准的if elseif else逻辑,在创建变量作用域时,需要根据当前的作用域是否可创建新变量才判定是否要使用新的作用域
-        if((Boolean) condition.getValue(ctx, thisValue, factory)) {
+        if(condition.getBoolean(ctx, thisValue, factory)) {
             return nestedStatement.getValue(ctx, thisValue, idxAlloc ? factory : new MapVariableResolverFactory(new HashMap(0), factory));
         } else if(elseIf != null) {
             return elseIf.getReducedValueAccelerated(ctx, thisValue, idxAlloc ? factory : new MapVariableResolverFactory(new HashMap(0), factory));
@@ -92,6 +93,21 @@ public class IfNode extends BlockNode implements NestedStatement {
         }
     }
 
+    /** 返回条件表达式 */
+    public ExecutableStatement getCondition() {
+        return condition;
+    }
+
+    /** 返回后面的elseIf节点 */
+    public IfNode getElseIf() {
+        return elseIf;
+    }
+
+    /** 执行代码块时是否直接使用当前的变量工厂(即不需要创建新的作用域) */
+    public boolean isIdxAlloc() {
+        return idxAlloc;
+    }
+
     /** 相应的嵌套代码块,即if{}内部的执行语句 */
     public ExecutableStatement getNestedStatement() {
         return nestedStatement;
@@ -112,6 +128,53 @@ public class IfNode extends BlockNode implements NestedStatement {
         return this;
     }
 
+    /**
+     * 条件为常量时去除不可达的分支,elseIf链中的每个条件均会进行处理
+     * 条件为true时仅保留当前代码块,为false时由后面的elseIf或else代替当前节点(else代码块即转为条件为true的节点)
+     *
+     * @return 实际需要执行的节点,为null表示没有任何分支会被执行
+     */
+    public IfNode foldBranches() {
+        if(elseIf != null) {
+            IfNode folded = elseIf.foldBranches();
+            if(folded == null) {
+                elseIf = null;
+            } else if(folded.isUnconditional()) {
+                elseIf = null;
+                elseBlock = folded.nestedStatement;
+            } else {
+                elseIf = folded;
+            }
+        }
+
+        Object value = condition instanceof ExecutableLiteral ? condition.getValue(null, null) : null;
+        if(!(value instanceof Boolean)) {
+            return this;
+        }
+
+        if((Boolean) value) {
+            elseIf = null;
+            elseBlock = null;
+            return this;
+        }
+        if(elseIf != null) {
+            return elseIf;
+        }
+        if(elseBlock != null) {
+            condition = new ExecutableLiteral(Boolean.TRUE);
+            nestedStatement = elseBlock;
+            elseBlock = null;
+            return this;
+        }
+        return null;
+    }
+
+    /** 条件为常量true并且没有其它分支,即总是执行当前代码块 */
+    public boolean isUnconditional() {
+        return condition instanceof ExecutableLiteral && Boolean.TRUE.equals(condition.getValue(null, null))
+                && elseIf == null && elseBlock == null;
+    }
+
     public String toString() {
         return new String(expr, start, offset);
     }
@@ -1,12 +1,17 @@
 package org.mvelx.ast;
 
 import org.mvelx.ParserContext;
+import org.mvelx.compiler.Accessor;
+import org.mvelx.compiler.ExecutableLiteral;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.impl.refl.collection.MapCreator;
 import org.mvelx.util.CollectionParser;
 
-import java.util.List;
+import java.util.*;
+
+import static org.mvelx.util.ParseTools.subCompileExpression;
 
 /**
  * 表示一个内联的集合表达式,使用[ 或 {均可以用来表示集合,即集合直接字面量 如 new int[]{1,2} 这种
@@ -39,39 +44,112 @@ public class InlineCollectionNode extends ASTNode {
 
     /** 采用编译的方式进行数据访问 */
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-        if(accessor == null)
-            compileAccessor(null, null, ctx, thisValue, factory);
+        Accessor a = accessor;
+        if(a == null)
+            a = compileAccessor(null, null, ctx, thisValue, factory);
 
-        return accessor.getValue(ctx, thisValue, factory);
+        return a.getValue(ctx, thisValue, factory);
     }
 
-    /** 构建好相应的访问器 */
-    private void compileAccessor(Class type, ParserContext pCtx, Object ctx, Object thisValue, VariableResolverFactory factory) {
+    /**
+     * 构建好相应的访问器
+     * 只由获取到优化权的线程构建并安装访问器,其它线程使用临时构建的反射访问器
+     */
+    private Accessor compileAccessor(Class type, ParserContext pCtx, Object ctx, Object thisValue, VariableResolverFactory factory) {
+        boolean owner = beginOptimize();
+        boolean reflective = !owner && OptimizerFactory.beginReflectiveOnly();
         try{
-            AccessorOptimizer ao = OptimizerFactory.getThreadAccessorOptimizer();
+            //在获取到优化权之前,其它线程已经完成了优化
+            Accessor a = accessor;
+            if(owner && a != null)
+                return a;
+
+            AccessorOptimizer ao = owner ? OptimizerFactory.getThreadAccessorOptimizer() : OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
             //如果没有编译，则进行编译，然后再根据优化之后的访问器来获取数据
-            if(collectionGraph == null)
-                parseGraph(type, pCtx);
+            Object graph = collectionGraph;
+            if(graph == null)
+                graph = parseGraph(type, pCtx);
 
-            accessor = ao.optimizeCollection(pCtx, collectionGraph, egressType, expr, start + offset, 0, ctx, thisValue, factory);
-            egressType = ao.getEgressType();
+            Accessor optimized = ao.optimizeCollection(pCtx, graph, egressType, expr, start + offset, 0, ctx, thisValue, factory);
+            if(owner) {
+                egressType = ao.getEgressType();
+                installAccessor(optimized);
+            }
+            return optimized;
         } finally {
+            if(owner) {
+                endOptimize();
+            }
+            if(reflective) {
+                OptimizerFactory.endReflectiveOnly();
+            }
             OptimizerFactory.clearThreadAccessorOptimizer();
         }
     }
 
-    private void parseGraph(Class type, ParserContext pCtx) {
+    /**
+     * 在确定集合不会被修改,也不会被传递到表达式之外时(如仅用于contains或相等比较),将内容全部为常量的集合只构建一次并共享使用
+     * 仅处理单层的list和map,共享的集合为不可修改的集合,数组总是需要新建
+     *
+     * @return 是否已转为共享的常量集合
+     */
+    public boolean shareLiteral(ParserContext pCtx) {
+        if(accessor instanceof ExecutableLiteral) return true;
+
+        Object graph = collectionGraph;
+        Object value;
+        if(graph instanceof List) {
+            List<Object> list = new ArrayList<>(((List) graph).size());
+            for(Object item : (List) graph) {
+                ExecutableLiteral literal = literalOf(item, pCtx);
+                if(literal == null) return false;
+                list.add(literal.getLiteral());
+            }
+            value = Collections.unmodifiableList(list);
+        } else if(graph instanceof Map) {
+            Object[] keys = ((Map) graph).keySet().toArray();
+            Map<Object, Object> map = new HashMap<>(MapCreator.initialCapacity(keys.length));
+            //与MapCreator的处理顺序保持一致
+            for(int i = keys.length - 1; i != -1; i--) {
+                ExecutableLiteral k = literalOf(keys[i], pCtx);
+                ExecutableLiteral v = literalOf(((Map) graph).get(keys[i]), pCtx);
+                if(k == null || v == null) return false;
+                map.put(k.getLiteral(), v.getLiteral());
+            }
+            value = Collections.unmodifiableMap(map);
+        } else {
+            return false;
+        }
+
+        setAccessor(new ExecutableLiteral(value));
+        return true;
+    }
+
+    /** 将集合中的某一项编译为常量,不是常量(包括嵌套的集合)时返回null */
+    private static ExecutableLiteral literalOf(Object item, ParserContext pCtx) {
+        if(!(item instanceof String)) return null;
+        try{
+            Object stmt = subCompileExpression(((String) item).toCharArray(), pCtx);
+            return stmt instanceof ExecutableLiteral ? (ExecutableLiteral) stmt : null;
+        } catch(RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Object parseGraph(Class type, ParserContext pCtx) {
         CollectionParser parser = new CollectionParser();
 
         //以下因为是以内部集合的方式进行解析,即外层通过[或者{使用,即认为外层表示为集合
         //因此下层的解析返回值肯定为list,然后再单独返回内层对象
         //type仅用于表示在解析过程中的子类型的类型，因此不影响到返回的结果信息
+        Object graph;
         if(type == null) {
-            collectionGraph = ((List) parser.parseCollection(expr, start, offset, true, pCtx)).get(0);
+            graph = ((List) parser.parseCollection(expr, start, offset, true, pCtx)).get(0);
         } else {
-            collectionGraph = ((List) parser.parseCollection(expr, start, offset, true, type, pCtx)).get(0);
+            graph = ((List) parser.parseCollection(expr, start, offset, true, type, pCtx)).get(0);
         }
 
-        if(this.egressType == null) this.egressType = collectionGraph.getClass();
+        if(this.egressType == null) this.egressType = graph.getClass();
+        return collectionGraph = graph;
     }
 }
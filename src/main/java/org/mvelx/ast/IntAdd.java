@@ -17,8 +17,12 @@ public class IntAdd extends BinaryOperation implements IntOptimized {
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //整数相加,分别计算出数值,直接进行+即可,而不必通过math.doOperate进行多项判断
         //各个节点采用编译执行完成
-        return ((Integer) left.getReducedValueAccelerated(ctx, thisValue, factory))
-                + ((Integer) right.getReducedValueAccelerated(ctx, thisValue, factory));
+        return getReducedInt(ctx, thisValue, factory);
+    }
+
+    @Override
+    public int getReducedInt(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return left.getReducedInt(ctx, thisValue, factory) + right.getReducedInt(ctx, thisValue, factory);
     }
 
     /** 整数相加,结果肯定为int类型 */
@@ -16,8 +16,12 @@ public class IntDiv extends BinaryOperation implements IntOptimized {
     @Override
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         // a / b ,每个节点采用编译运行的方式
-        return ((Integer) left.getReducedValueAccelerated(ctx, thisValue, factory))
-                / ((Integer) right.getReducedValueAccelerated(ctx, thisValue, factory));
+        return getReducedInt(ctx, thisValue, factory);
+    }
+
+    @Override
+    public int getReducedInt(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return left.getReducedInt(ctx, thisValue, factory) / right.getReducedInt(ctx, thisValue, factory);
     }
 
     @Override
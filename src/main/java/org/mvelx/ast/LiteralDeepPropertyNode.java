@@ -18,10 +18,13 @@
 package org.mvelx.ast;
 
 import org.mvelx.ParserContext;
+import org.mvelx.compiler.Accessor;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
 
+import static org.mvelx.optimizers.OptimizerFactory.SAFE_REFLECTIVE;
+import static org.mvelx.optimizers.OptimizerFactory.getAccessorCompiler;
 import static org.mvelx.optimizers.OptimizerFactory.getThreadAccessorOptimizer;
 
 /**
@@ -45,15 +48,31 @@ public class LiteralDeepPropertyNode extends ASTNode {
     }
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-        if(accessor != null) {
-            return accessor.getValue(literal, thisValue, factory);
+        Accessor a = accessor;
+        if(a != null) {
+            return a.getValue(literal, thisValue, factory);
         } else {
+            //只由获取到优化权的线程构建并安装访问器,其它线程使用反射方式计算
+            boolean owner = beginOptimize();
+            boolean reflective = !owner && OptimizerFactory.beginReflectiveOnly();
             try{
-                AccessorOptimizer aO = getThreadAccessorOptimizer();
-                accessor = aO.optimizeAccessor(pCtx, expr, start, offset,
-                        literal, thisValue, factory, null);
+                //在获取到优化权之前,其它线程已经完成了优化
+                if(owner && (a = accessor) != null) {
+                    return a.getValue(literal, thisValue, factory);
+                }
+                AccessorOptimizer aO = owner ? getThreadAccessorOptimizer() : getAccessorCompiler(SAFE_REFLECTIVE);
+                Accessor optimized = aO.optimizeAccessor(pCtx, expr, start, offset, literal, thisValue, factory, null);
+                if(owner) {
+                    installAccessor(optimized);
+                }
                 return aO.getResultOptPass();
             } finally {
+                if(owner) {
+                    endOptimize();
+                }
+                if(reflective) {
+                    OptimizerFactory.endReflectiveOnly();
+                }
                 OptimizerFactory.clearThreadAccessorOptimizer();
             }
         }
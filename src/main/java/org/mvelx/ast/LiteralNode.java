@@ -50,6 +50,22 @@ public class LiteralNode extends ASTNode {
         return literal;
     }
 
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return (Boolean) literal;
+    }
+
+    public int getReducedInt(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) literal).intValue();
+    }
+
+    public long getReducedLong(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) literal).longValue();
+    }
+
+    public double getReducedDouble(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return ((Number) literal).doubleValue();
+    }
+
     public Object getLiteralValue() {
         return literal;
     }
@@ -48,7 +48,11 @@ public class Negation extends ASTNode {
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //直接采用!boolean 的处理方式即可.编译执行下采用计算单元的方式
-        return !((Boolean) stmt.getValue(ctx, thisValue, factory));
+        return getReducedBoolean(ctx, thisValue, factory);
+    }
+
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return !stmt.getBoolean(ctx, thisValue, factory);
     }
 
     /** 原表达式为boolean,取反也为boolean类型 */
@@ -48,8 +48,8 @@ import static org.mvelx.util.ReflectionUtil.toPrimitiveArrayType;
  */
 @SuppressWarnings({"ManualArrayCopy"})
 public class NewObjectNode extends ASTNode {
-    /** 相应的new 处理优化器,在第一次执行时创建 */
-    private transient Accessor newObjectOptimizer;
+    /** 相应的new 处理优化器,在第一次执行时由获取到优化权的线程创建 */
+    private transient volatile Accessor newObjectOptimizer;
     /** 类型描述符 */
     private TypeDescriptor typeDescr;
     /** 当前类型类名信息 */
@@ -179,73 +179,151 @@ public class NewObjectNode extends ASTNode {
         }
     }
 
+    /**
+     * 第一次执行时创建优化器,同一节点同时只有一个线程进行创建
+     * 其它线程(以及创建过程中因参数计算而重入当前节点的调用)在创建完成之前使用临时的反射访问器计算,且不安装,
+     * 以避免相互等待(重入时即等待自己)
+     */
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-        //第一次,开始创建起优化器
-        if(newObjectOptimizer == null) {
-            //如果之前类型未能成功解析,则重新解析相应的类型信息
-            if(egressType == null) {
-                /**
-                 * This means we couldn't resolve the type at the time this AST node was created, which means
-                 * we have to attempt runtime resolution.
-                 */
-
-                if(factory != null && factory.isResolvable(typeDescr.getClassName())) {
-                    try{
-                        //这里强行获取相应的变量并认为是类信息,后续有classCast判定
-                        egressType = (Class) factory.getVariableResolver(typeDescr.getClassName()).getValue();
-                        rewriteClassReferenceToFQCN(COMPILE_IMMEDIATE);
-
-                        if(typeDescr.isArray()) {
-                            try{
-                                egressType = findClass(factory,
-                                        repeatChar('[', typeDescr.getArrayLength()) + "L" + egressType.getName() + ";", pCtx);
-                            } catch(Exception e) {
-                                // for now, don't handle this.
-                            }
-                        }
-
-                    } catch(ClassCastException e) {
-                        throw new CompileException("cannot construct object: " + typeDescr.getClassName()
-                                + " is not a class reference", expr, start, e);
-                    }
-                }
-            }
+        Accessor a = newObjectOptimizer;
+        if(a != null) {
+            return a.getValue(ctx, thisValue, factory);
+        }
 
-            //如果是数组,则使用数组优化器
-            if(typeDescr.isArray()) {
-                return (newObjectOptimizer = new NewObjectArray(getBaseComponentType(egressType.getComponentType()), typeDescr.getCompiledArraySize()))
-                        .getValue(ctx, thisValue, factory);
+        if(!beginOptimize()) {
+            return evaluateReflective(ctx, thisValue, factory);
+        }
+
+        try{
+            if(newObjectOptimizer == null) {
+                return optimize(ctx, thisValue, factory);
             }
+        } finally {
+            endOptimize();
+        }
 
-            //不是数组,则由优化器本身创建起new Object优化器
-            try{
-                AccessorOptimizer optimizer = getThreadAccessorOptimizer();
+        //在获取到优化权之前,其它线程已经完成了优化
+        return newObjectOptimizer.getValue(ctx, thisValue, factory);
+    }
+
+    /** 创建并安装优化器,并返回本次的计算结果 */
+    private Object optimize(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        //如果之前类型未能成功解析,则重新解析相应的类型信息
+        if(egressType == null) {
+            /**
+             * This means we couldn't resolve the type at the time this AST node was created, which means
+             * we have to attempt runtime resolution.
+             */
+            Class type = resolveRuntimeType(factory);
+            if(type != null) {
+                egressType = type;
+                rewriteClassReferenceToFQCN(COMPILE_IMMEDIATE);
 
-                ParserContext pCtx = this.pCtx;
-                if(pCtx == null) {
-                    pCtx = new ParserContext();
-                    pCtx.getParserConfiguration().setAllImports(getInjectedImports(factory));
+                if(typeDescr.isArray()) {
+                    egressType = arrayType(type, factory);
                 }
+            }
+        }
 
-                newObjectOptimizer = optimizer.optimizeObjectCreation(pCtx, name, 0, name.length, ctx, thisValue, factory);
+        //如果是数组,则使用数组优化器
+        if(typeDescr.isArray()) {
+            Accessor array = new NewObjectArray(getBaseComponentType(egressType.getComponentType()), typeDescr.getCompiledArraySize());
+            newObjectOptimizer = array;
+            return array.getValue(ctx, thisValue, factory);
+        }
 
-                /**
-                 * Check to see if the optimizer actually produced the object during optimization.  If so,
-                 * we return that value now.
-                 */
-                //如果相应的计算结果已经确定,则直接返回相应的处理结果
-                if(optimizer.getResultOptPass() != null) {
-                    egressType = optimizer.getEgressType();
-                    return optimizer.getResultOptPass();
-                }
-            } catch(CompileException e) {
-                throw ErrorUtil.rewriteIfNeeded(e, expr, start);
-            } finally {
-                OptimizerFactory.clearThreadAccessorOptimizer();
+        //不是数组,则由优化器本身创建起new Object优化器
+        try{
+            AccessorOptimizer optimizer = getThreadAccessorOptimizer();
+
+            Accessor created = optimizer.optimizeObjectCreation(createContext(factory), name, 0, name.length, ctx, thisValue, factory);
+            newObjectOptimizer = created;
+
+            /**
+             * Check to see if the optimizer actually produced the object during optimization.  If so,
+             * we return that value now.
+             */
+            //如果相应的计算结果已经确定,则直接返回相应的处理结果
+            if(optimizer.getResultOptPass() != null) {
+                egressType = optimizer.getEgressType();
+                return optimizer.getResultOptPass();
             }
+            return created.getValue(ctx, thisValue, factory);
+        } catch(CompileException e) {
+            throw ErrorUtil.rewriteIfNeeded(e, expr, start);
+        } finally {
+            OptimizerFactory.clearThreadAccessorOptimizer();
         }
+    }
 
-        return newObjectOptimizer.getValue(ctx, thisValue, factory);
+    /**
+     * 未获取到优化权时,使用临时的反射访问器进行计算,不修改当前节点的任何信息
+     * 期间创建的访问器(包括参数中的子表达式)均使用反射方式,不会生成新类
+     */
+    private Object evaluateReflective(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        if(typeDescr.isArray()) {
+            Class type = egressType;
+            //类型仍在由获取到优化权的线程解析中
+            if(type == null || !type.isArray()) {
+                Class componentType = resolveRuntimeType(factory);
+                type = componentType == null ? type : arrayType(componentType, factory);
+            }
+            return new NewObjectArray(getBaseComponentType(type.getComponentType()), typeDescr.getCompiledArraySize())
+                    .getValue(ctx, thisValue, factory);
+        }
+
+        boolean reflective = OptimizerFactory.beginReflectiveOnly();
+        try{
+            AccessorOptimizer optimizer = OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
+            //参数会在创建过程中重新编译,使用解析上下文的副本,以避免与获取到优化权的线程并发修改同一个解析上下文
+            ParserContext context = pCtx == null ? createContext(factory) : pCtx.createTemplateCopy();
+            Accessor created = optimizer.optimizeObjectCreation(context, name, 0, name.length, ctx, thisValue, factory);
+            if(optimizer.getResultOptPass() != null) {
+                return optimizer.getResultOptPass();
+            }
+            return created.getValue(ctx, thisValue, factory);
+        } catch(CompileException e) {
+            throw ErrorUtil.rewriteIfNeeded(e, expr, start);
+        } finally {
+            if(reflective) {
+                OptimizerFactory.endReflectiveOnly();
+            }
+        }
+    }
+
+    /** 在运行期通过变量工厂解析类型(即编译期未能解析时),无法解析时返回null */
+    private Class resolveRuntimeType(VariableResolverFactory factory) {
+        if(factory == null || !factory.isResolvable(typeDescr.getClassName())) {
+            return null;
+        }
+
+        try{
+            //这里强行获取相应的变量并认为是类信息,后续有classCast判定
+            return (Class) factory.getVariableResolver(typeDescr.getClassName()).getValue();
+        } catch(ClassCastException e) {
+            throw new CompileException("cannot construct object: " + typeDescr.getClassName()
+                    + " is not a class reference", expr, start, e);
+        }
+    }
+
+    /** 由数组的元素类型获取数组类型,无法获取时返回元素类型本身 */
+    private Class arrayType(Class componentType, VariableResolverFactory factory) {
+        try{
+            return findClass(factory, repeatChar('[', typeDescr.getArrayLength()) + "L" + componentType.getName() + ";", pCtx);
+        } catch(Exception e) {
+            // for now, don't handle this.
+            return componentType;
+        }
+    }
+
+    /** 创建优化时使用的解析上下文 */
+    private ParserContext createContext(VariableResolverFactory factory) {
+        ParserContext pCtx = this.pCtx;
+        if(pCtx == null) {
+            pCtx = new ParserContext();
+            pCtx.getParserConfiguration().setAllImports(getInjectedImports(factory));
+        }
+        return pCtx;
     }
 
     /** 描述一个new Integer[] 创建数组对象的访问器 */
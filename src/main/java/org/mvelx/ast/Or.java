@@ -34,8 +34,12 @@ public class Or extends BooleanNode {
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //采用与java相一致的 || 运算,同时满足java的懒计算原则
-        return (((Boolean) left.getReducedValueAccelerated(ctx, thisValue, factory))
-                || ((Boolean) right.getReducedValueAccelerated(ctx, thisValue, factory)));
+        return getReducedBoolean(ctx, thisValue, factory);
+    }
+
+    /** 两边均直接以boolean的形式计算,避免中间结果的装箱 */
+    public boolean getReducedBoolean(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        return left.getReducedBoolean(ctx, thisValue, factory) || right.getReducedBoolean(ctx, thisValue, factory);
     }
 
     /** 设置最右侧节点,即同一运行级别最右侧的 */
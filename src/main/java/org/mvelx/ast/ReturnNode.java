@@ -22,6 +22,7 @@ import org.mvelx.ParserContext;
 import org.mvelx.compiler.Accessor;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.integration.impl.StackDemarcResolverFactory;
+import org.mvelx.optimizers.OptimizerFactory;
 
 import static org.mvelx.util.ParseTools.subCompileExpression;
 
@@ -40,13 +41,28 @@ public class ReturnNode extends ASTNode {
 
         //在翻译期对相应的返回数据进行编译,以确保其执行
         if((fields & COMPILE_IMMEDIATE) != 0) {
-            setAccessor((Accessor) subCompileExpression(expr, start, offset, pCtx));
+            installAccessor((Accessor) subCompileExpression(expr, start, offset, pCtx));
         }
     }
 
+    /**
+     * 第一次执行时编译返回值表达式,同一节点同时只有一个线程进行编译并安装
+     * 其它线程在编译完成之前使用解析上下文的副本单独编译,并以反射方式执行,不安装,以避免等待及重复生成访问器类
+     */
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
-        if(accessor == null) {
-            setAccessor((Accessor) subCompileExpression(expr, start, offset, pCtx));
+        Accessor a = accessor;
+        if(a == null) {
+            if(!beginOptimize()) {
+                return evaluateReflective(ctx, thisValue, factory);
+            }
+            try{
+                if(accessor == null) {
+                    installAccessor((Accessor) subCompileExpression(expr, start, offset, pCtx));
+                }
+            } finally {
+                endOptimize();
+            }
+            a = accessor;
         }
 
         //因为已经最终需要返回,因此相应的解析器工厂设置终止标记
@@ -54,7 +70,22 @@ public class ReturnNode extends ASTNode {
 
         //直接使用访问器来处理相应的数据
         //使用StackDemarcResolverFactory来隔离相应的终止标记
-        return accessor.getValue(ctx, thisValue, new StackDemarcResolverFactory(factory));
+        return a.getValue(ctx, thisValue, new StackDemarcResolverFactory(factory));
+    }
+
+    /** 未获取到优化权时,使用临时编译的访问器计算返回值,期间不会生成新类 */
+    private Object evaluateReflective(Object ctx, Object thisValue, VariableResolverFactory factory) {
+        Accessor a = (Accessor) subCompileExpression(expr, start, offset, pCtx == null ? null : pCtx.createTemplateCopy());
+        factory.setTiltFlag(true);
+
+        boolean reflective = OptimizerFactory.beginReflectiveOnly();
+        try{
+            return a.getValue(ctx, thisValue, new StackDemarcResolverFactory(factory));
+        } finally {
+            if(reflective) {
+                OptimizerFactory.endReflectiveOnly();
+            }
+        }
     }
 
     /** return 也算作操作符的一部分，但优先级最低 */
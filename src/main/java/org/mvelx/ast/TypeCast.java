@@ -19,12 +19,12 @@
 package org.mvelx.ast;
 
 import org.mvelx.CompileException;
+import org.mvelx.DataConversion.ConversionSite;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.ExecutableStatement;
 import org.mvelx.integration.VariableResolverFactory;
 
 import static org.mvelx.DataConversion.canConvert;
-import static org.mvelx.DataConversion.convert;
 import static org.mvelx.util.ParseTools.subCompileExpression;
 import static org.mvelx.util.ReflectionUtil.isAssignableFrom;
 
@@ -34,6 +34,8 @@ public class TypeCast extends ASTNode {
     private ExecutableStatement statement;
     /** 是否是宽转换，表示从子类型转换为父类型 */
     private boolean widen;
+    /** 转换位置,记住上一次的源类型及转换函数 */
+    private transient ConversionSite conversion;
 
     public TypeCast(char[] expr, int start, int offset, Class cast, int fields, ParserContext pCtx) {
         super(pCtx);
@@ -78,7 +80,15 @@ public class TypeCast extends ASTNode {
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //根据宽化逻辑采用简单的cast 或者是类型转换处理
         //noinspection unchecked
-        return widen ? typeCheck(statement.getValue(ctx, thisValue, factory), egressType) : convert(statement.getValue(ctx, thisValue, factory), egressType);
+        if(widen) {
+            return typeCheck(statement.getValue(ctx, thisValue, factory), egressType);
+        }
+
+        ConversionSite site = conversion;
+        if(site == null) {
+            conversion = site = new ConversionSite(egressType);
+        }
+        return site.convert(statement.getValue(ctx, thisValue, factory));
     }
 
     /** 检查相应的实例类型是否是指定类型的实例 */
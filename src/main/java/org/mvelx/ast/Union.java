@@ -29,7 +29,7 @@ public class Union extends ASTNode {
     /** 当前访问的主节点,即先处理主节点,再处理后续数据 */
     private ASTNode main;
     /** 相应的优化器(与父类中的accessor作用一致) */
-    private transient Accessor accessor;
+    private transient volatile Accessor accessor;
 
     public Union(char[] expr, int start, int offset, int fields, ASTNode main, ParserContext pCtx) {
         super(expr, start, offset, fields, pCtx);
@@ -38,17 +38,35 @@ public class Union extends ASTNode {
 
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //如果之前相应的访问器已处理好,则直接通过访问处理
-        if(accessor != null) {
+        Accessor a = accessor;
+        if(a != null) {
             //先调用主节点,再调用访问器
-            return accessor.getValue(main.getReducedValueAccelerated(ctx, thisValue, factory), thisValue, factory);
+            return a.getValue(main.getReducedValueAccelerated(ctx, thisValue, factory), thisValue, factory);
         } else {
+            Object mainValue = main.getReducedValueAccelerated(ctx, thisValue, factory);
+            //只由获取到优化权的线程构建并安装访问器,其它线程使用反射方式计算
+            boolean owner = beginOptimize();
+            if(owner && (a = accessor) != null) {
+                //在获取到优化权之前,其它线程已经完成了优化
+                endOptimize();
+                return a.getValue(mainValue, thisValue, factory);
+            }
+            boolean reflective = !owner && OptimizerFactory.beginReflectiveOnly();
             try{
                 //构建出访问器,使用主节点的相应的值作为新访问器的上下文
-                AccessorOptimizer o = OptimizerFactory.getThreadAccessorOptimizer();
-                accessor = o.optimizeAccessor(pCtx, expr, start, offset,
-                        main.getReducedValueAccelerated(ctx, thisValue, factory), thisValue, factory, main.getEgressType());
+                AccessorOptimizer o = owner ? OptimizerFactory.getThreadAccessorOptimizer() : OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
+                Accessor optimized = o.optimizeAccessor(pCtx, expr, start, offset, mainValue, thisValue, factory, main.getEgressType());
+                if(owner) {
+                    accessor = optimized;
+                }
                 return o.getResultOptPass();
             } finally {
+                if(owner) {
+                    endOptimize();
+                }
+                if(reflective) {
+                    OptimizerFactory.endReflectiveOnly();
+                }
                 OptimizerFactory.clearThreadAccessorOptimizer();
             }
         }
@@ -60,7 +60,7 @@ public class UntilNode extends BlockNode {
     public Object getReducedValueAccelerated(Object ctx, Object thisValue, VariableResolverFactory factory) {
         //开启单独的循环解析作用域,按照与while相反的判断条件进行循环执行
         VariableResolverFactory ctxFactory = new MapVariableResolverFactory(new HashMap(0), factory);
-        while(!(Boolean) condition.getValue(ctx, thisValue, factory)) {
+        while(!condition.getBoolean(ctx, thisValue, factory)) {
             compiledBlock.getValue(ctx, thisValue, ctxFactory);
         }
 
@@ -62,11 +62,16 @@ public class WhileNode extends BlockNode {
         //为执行作用域单独创建变量解析域,在整个处理完之后,即不会再使用
         VariableResolverFactory ctxFactory = new MapVariableResolverFactory(new HashMap<String, Object>(), factory);
         //标准的while执行过程
-        while((Boolean) condition.getValue(ctx, thisValue, factory)) {
+        while(condition.getBoolean(ctx, thisValue, factory)) {
             compiledBlock.getValue(ctx, thisValue, ctxFactory);
         }
 
         //因为是循环语句,因此只影响过程,不影响相应的
         return null;
     }
+
+    /** 返回while条件 */
+    public ExecutableStatement getCondition() {
+        return condition;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.mvelx.compiler;
 
+import com.google.common.collect.MapMaker;
 import org.mvelx.CompileException;
 import org.mvelx.ErrorDetail;
 import org.mvelx.Operator;
@@ -13,7 +14,7 @@ import org.mvelx.util.FunctionParser;
 
 import java.io.Serializable;
 import java.util.HashMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
@@ -74,10 +75,16 @@ public class AbstractParser implements Parser, Serializable {
     /** 当前处理解析的最新的节点信息 */
     protected ASTNode lastNode;
 
-    /** 使用一个弱引用来维护从原始表达式到去掉前后空格的表达式的映射，以减少处理空格的时间 */
-    private static final WeakHashMap<String, char[]> EX_PRECACHE = new WeakHashMap<>(15);
+    /**
+     * 使用一个弱引用来维护从原始表达式到去掉前后空格的表达式的映射，以减少处理空格的时间
+     * 值为弱引用,即在相应的编译结果被回收之后即可被回收;使用并发map,多个线程同时编译时不再互相阻塞
+     */
+    private static final ConcurrentMap<String, char[]> EX_PRECACHE = new MapMaker().weakValues().makeMap();
 
-    /** 各种常量集合,如true,false等 */
+    /**
+     * 各种常量集合,如true,false等
+     * 可在编译之前注册新的常量,但不应在有其它线程编译的同时进行修改(编译期间只进行读取)
+     */
     public static HashMap<String, Object> LITERALS;
     /** 各种内部系统类集合,如String,System等 */
     public static HashMap<String, Object> CLASS_LITERALS;
@@ -123,72 +130,73 @@ public class AbstractParser implements Parser, Serializable {
      * OSGi, it may be necessary to utilize this manually.
      */
     private static void setupParser() {
-        LITERALS = new HashMap<>();
-        CLASS_LITERALS = new HashMap<>();
-        OPERATORS = new HashMap<>();
+        HashMap<String, Object> literals = new HashMap<>();
+        HashMap<String, Object> classLiterals = new HashMap<>();
 
         //Add System and all the class wrappers from the JCL.
-        CLASS_LITERALS.put("System", System.class);
-        CLASS_LITERALS.put("String", String.class);
-        CLASS_LITERALS.put("CharSequence", CharSequence.class);
+        classLiterals.put("System", System.class);
+        classLiterals.put("String", String.class);
+        classLiterals.put("CharSequence", CharSequence.class);
 
-        CLASS_LITERALS.put("Integer", Integer.class);
-        CLASS_LITERALS.put("int", int.class);
+        classLiterals.put("Integer", Integer.class);
+        classLiterals.put("int", int.class);
 
-        CLASS_LITERALS.put("Long", Long.class);
-        CLASS_LITERALS.put("long", long.class);
+        classLiterals.put("Long", Long.class);
+        classLiterals.put("long", long.class);
 
-        CLASS_LITERALS.put("Boolean", Boolean.class);
-        CLASS_LITERALS.put("boolean", boolean.class);
+        classLiterals.put("Boolean", Boolean.class);
+        classLiterals.put("boolean", boolean.class);
 
-        CLASS_LITERALS.put("Short", Short.class);
-        CLASS_LITERALS.put("short", short.class);
+        classLiterals.put("Short", Short.class);
+        classLiterals.put("short", short.class);
 
-        CLASS_LITERALS.put("Character", Character.class);
-        CLASS_LITERALS.put("char", char.class);
+        classLiterals.put("Character", Character.class);
+        classLiterals.put("char", char.class);
 
-        CLASS_LITERALS.put("Double", Double.class);
-        CLASS_LITERALS.put("double", double.class);
+        classLiterals.put("Double", Double.class);
+        classLiterals.put("double", double.class);
 
-        CLASS_LITERALS.put("Float", Float.class);
-        CLASS_LITERALS.put("float", float.class);
+        classLiterals.put("Float", Float.class);
+        classLiterals.put("float", float.class);
 
-        CLASS_LITERALS.put("Byte", Byte.class);
-        CLASS_LITERALS.put("byte", byte.class);
+        classLiterals.put("Byte", Byte.class);
+        classLiterals.put("byte", byte.class);
 
-        CLASS_LITERALS.put("Math", Math.class);
-        CLASS_LITERALS.put("Void", Void.class);
-        CLASS_LITERALS.put("Object", Object.class);
-        CLASS_LITERALS.put("Number", Number.class);
+        classLiterals.put("Math", Math.class);
+        classLiterals.put("Void", Void.class);
+        classLiterals.put("Object", Object.class);
+        classLiterals.put("Number", Number.class);
 
         //java.lang包下的各项常量
-        CLASS_LITERALS.put("Class", Class.class);
-        CLASS_LITERALS.put("ClassLoader", ClassLoader.class);
-        CLASS_LITERALS.put("Runtime", Runtime.class);
-        CLASS_LITERALS.put("Thread", Thread.class);
-        CLASS_LITERALS.put("Compiler", Compiler.class);
-        CLASS_LITERALS.put("StringBuffer", StringBuffer.class);
-        CLASS_LITERALS.put("ThreadLocal", ThreadLocal.class);
-        CLASS_LITERALS.put("SecurityManager", SecurityManager.class);
-        CLASS_LITERALS.put("StrictMath", StrictMath.class);
+        classLiterals.put("Class", Class.class);
+        classLiterals.put("ClassLoader", ClassLoader.class);
+        classLiterals.put("Runtime", Runtime.class);
+        classLiterals.put("Thread", Thread.class);
+        classLiterals.put("Compiler", Compiler.class);
+        classLiterals.put("StringBuffer", StringBuffer.class);
+        classLiterals.put("ThreadLocal", ThreadLocal.class);
+        classLiterals.put("SecurityManager", SecurityManager.class);
+        classLiterals.put("StrictMath", StrictMath.class);
 
-        CLASS_LITERALS.put("Exception", Exception.class);
+        classLiterals.put("Exception", Exception.class);
 
-        CLASS_LITERALS.put("Array", java.lang.reflect.Array.class);
+        classLiterals.put("Array", java.lang.reflect.Array.class);
 
-        CLASS_LITERALS.put("StringBuilder", StringBuilder.class);
+        classLiterals.put("StringBuilder", StringBuilder.class);
 
         // Setup LITERALS
-        LITERALS.putAll(CLASS_LITERALS);
-        LITERALS.put("true", TRUE);
-        LITERALS.put("false", FALSE);
+        literals.putAll(classLiterals);
+        literals.put("true", TRUE);
+        literals.put("false", FALSE);
 
-        LITERALS.put("null", null);
-        LITERALS.put("nil", null);
+        literals.put("null", null);
+        literals.put("nil", null);
 
-        LITERALS.put("empty", BlankLiteral.INSTANCE);
+        literals.put("empty", BlankLiteral.INSTANCE);
 
-        setLanguageLevel(Boolean.getBoolean("mvel.future.lang.support") ? 6 : 5);
+        CLASS_LITERALS = classLiterals;
+        LITERALS = literals;
+        OPERATORS = loadLanguageFeaturesByLevel(Boolean.getBoolean("mvel.future.lang.support") ? 6 : 5);
     }
 
     /** 实际上就是获取下一个节点，即跳过调试节点 */
@@ -2136,24 +2144,22 @@ public class AbstractParser implements Parser, Serializable {
      */
     protected void setExpression(String expression) {
         if(expression != null && expression.length() != 0) {
-            synchronized(EX_PRECACHE) {
-                if((this.expr = EX_PRECACHE.get(expression)) == null) {
-                    end = length = (this.expr = expression.toCharArray()).length;
+            if((this.expr = EX_PRECACHE.get(expression)) == null) {
+                end = length = (this.expr = expression.toCharArray()).length;
 
-                    // trim any whitespace.
-                    while(start < length && isWhitespace(expr[start])) start++;
+                // trim any whitespace.
+                while(start < length && isWhitespace(expr[start])) start++;
 
-                    while(length != 0 && isWhitespace(this.expr[length - 1])) length--;
+                while(length != 0 && isWhitespace(this.expr[length - 1])) length--;
 
-                    char[] e = new char[length];
+                char[] e = new char[length];
 
-                    for(int i = 0; i != e.length; i++)
-                        e[i] = expr[i];
+                for(int i = 0; i != e.length; i++)
+                    e[i] = expr[i];
 
-                    EX_PRECACHE.put(expression, e);
-                } else {
-                    end = length = this.expr.length;
-                }
+                EX_PRECACHE.put(expression, e);
+            } else {
+                end = length = this.expr.length;
             }
         }
     }
@@ -2313,11 +2319,6 @@ public class AbstractParser implements Parser, Serializable {
         pCtx.addError(new ErrorDetail(expr, start, true, message));
     }
 
-    private static void setLanguageLevel(int level) {
-        OPERATORS.clear();
-        OPERATORS.putAll(loadLanguageFeaturesByLevel(level));
-    }
-
     /** 加载操作符常量表 */
     public static HashMap<String, Integer> loadLanguageFeaturesByLevel(int languageLevel) {
         HashMap<String, Integer> operatorsTable = new HashMap<>();
@@ -40,4 +40,27 @@ public interface Accessor {
 
     /** 获取已知的返回结果类型 */
     Class getKnownEgressType();
+
+    /**
+     * 以boolean的形式获取值,用于条件判断等场景,避免结果的装箱及拆箱
+     * 默认实现对 getValue 的结果进行拆箱,可以直接计算出基本类型结果的访问器应覆盖此方法
+     */
+    default boolean getBoolean(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return (Boolean) getValue(ctx, elCtx, variableFactory);
+    }
+
+    /** 以int的形式获取值,默认对 getValue 的结果进行拆箱 */
+    default int getInt(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return ((Number) getValue(ctx, elCtx, variableFactory)).intValue();
+    }
+
+    /** 以long的形式获取值,默认对 getValue 的结果进行拆箱 */
+    default long getLong(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return ((Number) getValue(ctx, elCtx, variableFactory)).longValue();
+    }
+
+    /** 以double的形式获取值,默认对 getValue 的结果进行拆箱 */
+    default double getDouble(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return ((Number) getValue(ctx, elCtx, variableFactory)).doubleValue();
+    }
 }
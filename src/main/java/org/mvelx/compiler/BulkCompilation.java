@@ -0,0 +1,31 @@
+package org.mvelx.compiler;
+
+import lombok.Getter;
+import org.mvelx.ErrorDetail;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量编译的结果,由 MVEL.compileAll 返回
+ * 单个表达式的编译失败不影响其它表达式,失败的表达式以名称记录相应的错误信息
+ */
+@Getter
+public class BulkCompilation {
+    /** 编译成功的表达式,按传入时的顺序 */
+    private final Map<String, Serializable> compiled;
+    /** 编译失败的表达式及其错误信息,按传入时的顺序 */
+    private final Map<String, List<ErrorDetail>> errors;
+
+    public BulkCompilation(Map<String, Serializable> compiled, Map<String, List<ErrorDetail>> errors) {
+        this.compiled = Collections.unmodifiableMap(compiled);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /** 是否有表达式编译失败 */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,24 @@
+package org.mvelx.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/** 使用指定类加载器解析类的反序列化流,用于反序列化编译表达式,以支持表达式中引用的业务类 */
+class ClassLoaderObjectInputStream extends ObjectInputStream {
+    private final ClassLoader classLoader;
+
+    ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+        super(in);
+        this.classLoader = classLoader;
+    }
+
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        try{
+            return Class.forName(desc.getName(), false, classLoader);
+        } catch(ClassNotFoundException e) {
+            return super.resolveClass(desc);
+        }
+    }
+}
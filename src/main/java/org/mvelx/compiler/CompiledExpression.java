@@ -8,7 +8,9 @@ import org.mvelx.ast.TypeCast;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.integration.impl.ClassImportResolverFactory;
 import org.mvelx.integration.impl.StackResetResolverFactory;
+import org.mvelx.optimizers.OptimizerFactory;
 import org.mvelx.util.ASTLinkedList;
+import org.mvelx.util.OperandStack;
 
 import java.io.Serializable;
 
@@ -48,6 +50,11 @@ public class CompiledExpression implements Serializable, ExecutableStatement {
     @Getter
     private ParserConfiguration parserConfiguration;
 
+    /** 编译时声明的按下标访问的入参名,执行时参数数组中的值与此一一对应 */
+    @Getter
+    @Setter
+    private String[] inputNames;
+
     public CompiledExpression(String expr, ASTLinkedList astMap, Class egressType, ParserConfiguration parserConfiguration, boolean literalOnly) {
         this.expr = expr;
         this.firstNode = astMap.firstNode();
@@ -80,10 +87,40 @@ public class CompiledExpression implements Serializable, ExecutableStatement {
         return getDirectValue(staticContext, factory);
     }
 
+    /**
+     * 以boolean的形式计算结果,单个节点的表达式(如大部分的条件判断)直接由节点计算,不再经过完整的执行过程
+     * 与 getValue 一致,使用 staticContext 作为this值
+     */
+    public boolean getBoolean(Object staticContext, Object elCtx, VariableResolverFactory factory) {
+        return getDirectBoolean(staticContext, wrapFactory(factory), null);
+    }
+
+    /**
+     * 使用已经包装好的变量工厂计算boolean结果,供执行帧复用变量工厂及操作数栈
+     *
+     * @param factory 已经过 StackReset 或 ClassImport 包装的变量工厂
+     * @param stk     复用的空操作数栈,为null时新建
+     */
+    public boolean getDirectBoolean(Object staticContext, VariableResolverFactory factory, OperandStack stk) {
+        ASTNode node = firstNode;
+        if(node != null && node.nextASTNode == null && node.fields != -1) {
+            try{
+                return node.getReducedBoolean(staticContext, staticContext, factory);
+            } finally {
+                OptimizerFactory.clearThreadAccessorOptimizer();
+            }
+        }
+        return (Boolean) execute(false, this, staticContext, factory, stk == null ? new OperandStack() : stk);
+    }
+
     /** 调用计算程序最终计算出相应的值 */
     public Object getDirectValue(Object staticContext, VariableResolverFactory factory) {
-        return execute(false, this, staticContext,
-                importInjectionRequired ? new ClassImportResolverFactory(parserConfiguration, factory, true) : new StackResetResolverFactory(factory));
+        return execute(false, this, staticContext, wrapFactory(factory));
+    }
+
+    /** 根据是否有外部导入对变量工厂进行包装,同时重置其结束标记 */
+    private VariableResolverFactory wrapFactory(VariableResolverFactory factory) {
+        return importInjectionRequired ? new ClassImportResolverFactory(parserConfiguration, factory, true) : new StackResetResolverFactory(factory);
     }
 
     /** 当前表达式不是整数优化的 */
@@ -0,0 +1,202 @@
+package org.mvelx.compiler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.mvelx.MVEL;
+import org.mvelx.ParserConfiguration;
+import org.mvelx.ParserContext;
+import org.mvelx.integration.Interceptor;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 全局的编译表达式缓存,避免相同的表达式被重复解析和优化
+ * 缓存的key由表达式文本以及解析上下文的指纹组成,指纹包括引用,包引用,拦截器,强类型标记,声明的变量和入参信息以及类加载器,
+ * 即只有在相同的解析配置下编译的表达式才会被复用;相同的文本在不同的类加载器(如不同的应用或插件)下编译时各自缓存,以避免使用到其它加载器中的类.
+ * 缓存有上限(按个数或按表达式长度计算的权重),超过上限时按最近最少使用淘汰;
+ * 同一个key在并发情况下只会编译一次,其它线程等待编译结果.
+ * 可以通过 persistTo 设置持久化缓存作为下层,内存中不存在时先从磁盘中加载,以避免重启之后重新编译.
+ * 注:命中缓存时不会再对传入的解析上下文进行修改(如添加编译中识别到的变量)
+ */
+public class CompiledExpressionCache {
+    /** 默认缓存的最大表达式个数 */
+    public static long defaultMaximumSize = Long.getLong("mvelx.cache.maximum_size", 10000);
+    /** 默认缓存的最大权重(即表达式的总长度),大于0时使用权重而不是个数进行限制 */
+    public static long defaultMaximumWeight = Long.getLong("mvelx.cache.maximum_weight", 0);
+    /** 全局缓存的持久化目录,为空时不进行持久化 */
+    public static String defaultDirectory = System.getProperty("mvelx.cache.directory");
+
+    private static volatile CompiledExpressionCache shared;
+
+    private final Cache<Key, Serializable> cache;
+    /** 下层的持久化缓存 */
+    private volatile PersistentExpressionCache persistent;
+
+    public CompiledExpressionCache(long maximumSize) {
+        this(maximumSize, 0);
+    }
+
+    /**
+     * 创建一个缓存
+     *
+     * @param maximumSize   最大的表达式个数
+     * @param maximumWeight 最大权重(表达式的总长度),大于0时忽略maximumSize
+     */
+    public CompiledExpressionCache(long maximumSize, long maximumWeight) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if(maximumWeight > 0) {
+            builder.maximumWeight(maximumWeight).weigher((Key k, Serializable v) -> k.expression.length());
+        } else {
+            builder.maximumSize(maximumSize);
+        }
+        this.cache = builder.build();
+    }
+
+    /** 全局共享的缓存,使用默认的上限配置 */
+    public static CompiledExpressionCache getShared() {
+        if(shared == null) {
+            synchronized(CompiledExpressionCache.class) {
+                if(shared == null) {
+                    CompiledExpressionCache cache = new CompiledExpressionCache(defaultMaximumSize, defaultMaximumWeight);
+                    if(defaultDirectory != null && !defaultDirectory.isEmpty()) {
+                        cache.persistTo(new PersistentExpressionCache(Paths.get(defaultDirectory)));
+                    }
+                    shared = cache;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /** 设置下层的持久化缓存,为null时取消持久化 */
+    public CompiledExpressionCache persistTo(PersistentExpressionCache persistent) {
+        this.persistent = persistent;
+        return this;
+    }
+
+    public PersistentExpressionCache getPersistent() {
+        return persistent;
+    }
+
+    /** 使用默认的解析上下文编译或从缓存中获取表达式 */
+    public Serializable compile(String expression) {
+        return compile(expression, (ParserContext) null);
+    }
+
+    /** 使用引用信息编译或从缓存中获取表达式 */
+    public Serializable compile(String expression, Map<String, Object> imports) {
+        return compile(expression, new ParserContext(imports, null));
+    }
+
+    /**
+     * 编译或从缓存中获取表达式,编译结果与 MVEL.compileExpression(expression, ctx) 相同
+     * 并发情况下同一个key只会有一个线程进行编译
+     */
+    public Serializable compile(String expression, ParserContext ctx) {
+        final ParserContext pCtx = ctx == null ? new ParserContext() : ctx;
+        try{
+            return cache.get(new Key(expression, pCtx), () -> {
+                PersistentExpressionCache p = persistent;
+                return p == null ? MVEL.compileExpression(expression, pCtx) : p.get(expression, pCtx, () -> MVEL.compileExpression(expression, pCtx));
+            });
+        } catch(UncheckedExecutionException | ExecutionError | ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if(cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException("failed to compile: " + expression, cause);
+        }
+    }
+
+    /** 获取之前已缓存的表达式,不存在时返回null */
+    public Serializable getIfPresent(String expression, ParserContext ctx) {
+        return cache.getIfPresent(new Key(expression, ctx == null ? new ParserContext() : ctx));
+    }
+
+    /** 移除指定的表达式 */
+    public void invalidate(String expression, ParserContext ctx) {
+        cache.invalidate(new Key(expression, ctx == null ? new ParserContext() : ctx));
+    }
+
+    /** 清空缓存,如在配置刷新时使用 */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /** 当前缓存的表达式个数(近似值) */
+    public long size() {
+        return cache.size();
+    }
+
+    /** 缓存统计信息,包括命中,未命中,淘汰次数以及编译耗时 */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /** 缓存key,即表达式文本+解析上下文指纹,指纹在创建时复制,以避免编译过程中对上下文的修改影响到key */
+    private static final class Key {
+        private final String expression;
+        private final Map<String, Object> imports;
+        private final Set<String> packageImports;
+        private final Map<String, Interceptor> interceptors;
+        private final Map<String, Class> inputs;
+        private final Map<String, Class> variables;
+        private final List<String> indexedInputs;
+        private final boolean strongTyping;
+        private final boolean strictTypeEnforcement;
+        private final boolean nullSafe;
+        /** 解析配置所使用的类加载器,按引用比较,弱引用以避免缓存阻止加载器的卸载 */
+        private final WeakReference<ClassLoader> classLoader;
+        private final int hash;
+
+        Key(String expression, ParserContext ctx) {
+            ParserConfiguration conf = ctx.getParserConfiguration();
+            this.expression = expression;
+            this.imports = copy(conf.getImports());
+            this.packageImports = conf.getPackageImports() == null ? Collections.emptySet() : new HashSet<>(conf.getPackageImports());
+            this.interceptors = copy(conf.getInterceptors());
+            this.inputs = copy(ctx.getInputs());
+            this.variables = copy(ctx.getVariables());
+            this.indexedInputs = Arrays.asList(ctx.getIndexedVarNames());
+            this.strongTyping = ctx.isStrongTyping();
+            this.strictTypeEnforcement = ctx.isStrictTypeEnforcement();
+            this.nullSafe = conf.isNullSafe();
+            ClassLoader loader = conf.getClassLoader();
+            this.classLoader = new WeakReference<>(loader);
+            this.hash = Objects.hash(expression, imports, packageImports, interceptors, inputs, variables, indexedInputs,
+                    strongTyping, strictTypeEnforcement, nullSafe, System.identityHashCode(loader));
+        }
+
+        private static <V> Map<String, V> copy(Map<String, V> map) {
+            return map == null || map.isEmpty() ? Collections.emptyMap() : new HashMap<>(map);
+        }
+
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash
+                    && strongTyping == key.strongTyping
+                    && strictTypeEnforcement == key.strictTypeEnforcement
+                    && nullSafe == key.nullSafe
+                    && classLoader.get() == key.classLoader.get()
+                    && expression.equals(key.expression)
+                    && imports.equals(key.imports)
+                    && packageImports.equals(key.packageImports)
+                    && interceptors.equals(key.interceptors)
+                    && inputs.equals(key.inputs)
+                    && variables.equals(key.variables)
+                    && indexedInputs.equals(key.indexedInputs);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
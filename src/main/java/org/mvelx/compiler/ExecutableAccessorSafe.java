@@ -45,6 +45,22 @@ public class ExecutableAccessorSafe implements ExecutableStatement, Safe {
         return node.getReducedValueAccelerated(staticContext, staticContext, factory);
     }
 
+    public boolean getBoolean(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return node.getReducedBoolean(ctx, elCtx, variableFactory);
+    }
+
+    public int getInt(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return node.getReducedInt(ctx, elCtx, variableFactory);
+    }
+
+    public long getLong(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return node.getReducedLong(ctx, elCtx, variableFactory);
+    }
+
+    public double getDouble(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return node.getReducedDouble(ctx, elCtx, variableFactory);
+    }
+
     public void setKnownIngressType(Class type) {
         this.ingress = type;
     }
@@ -83,6 +83,15 @@ public class ExecutableLiteral implements ExecutableStatement, Safe {
         return literal;
     }
 
+    public boolean getBoolean(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return (Boolean) literal;
+    }
+
+    /** 整数常量直接返回int值 */
+    public int getInt(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return intOptimized ? integer32 : ((Number) literal).intValue();
+    }
+
 
     public Object getLiteral() {
         return literal;
@@ -114,4 +123,9 @@ public class ExecutableLiteral implements ExecutableStatement, Safe {
     public String nodeExpr() {
         return String.valueOf(literal);
     }
+
+    @Override
+    public String toString() {
+        return "Literal<" + literal + ">";
+    }
 }
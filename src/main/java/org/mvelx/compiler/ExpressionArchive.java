@@ -0,0 +1,176 @@
+package org.mvelx.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.util.ParseTools;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译表达式包,用于在运行时加载由 {@link ExpressionArchiveCompiler} 在构建期编译好的表达式
+ * 包中的表达式均已完成解析和编译,加载时直接反序列化得到编译表达式,不再进行任何解析.
+ * 包内的结构如下:
+ * <pre>
+ * META-INF/mvelx/expressions.index      索引,每行一个表达式id,首行为格式标记
+ * META-INF/mvelx/schema.properties      编译时使用的入参及引用声明
+ * META-INF/mvelx/expressions/{id}.ser   序列化之后的编译表达式
+ * META-INF/mvelx/expressions/{id}.mvel  表达式原文
+ * </pre>
+ * 当序列化数据与当前的mvelx版本不兼容时(如升级了mvelx但没有重新构建表达式包),会使用原文及声明重新编译,并记录警告.
+ * 类路径中可以有多个表达式包,但表达式id不能重复
+ */
+@Slf4j
+public class ExpressionArchive {
+    /** 索引文件位置 */
+    public static final String INDEX = "META-INF/mvelx/expressions.index";
+    /** 索引的格式标记 */
+    static final String FORMAT = "#mvelx-aot-1";
+    /** 声明文件名,相对于索引文件 */
+    static final String SCHEMA = "schema.properties";
+    /** 表达式目录,相对于索引文件 */
+    static final String ENTRY_DIR = "expressions/";
+    /** 声明中引用类的前缀,其它的声明均为入参 */
+    static final String IMPORT_PREFIX = "import.";
+
+    private final ClassLoader classLoader;
+    /** 表达式id及其所在的包索引地址 */
+    private final Map<String, URL> entries;
+    /** 已加载的表达式 */
+    private final Map<String, Serializable> loaded = new ConcurrentHashMap<>();
+
+    private ExpressionArchive(ClassLoader classLoader, Map<String, URL> entries) {
+        this.classLoader = classLoader;
+        this.entries = entries;
+    }
+
+    /** 从当前线程的类加载器中加载所有的表达式包 */
+    public static ExpressionArchive load() {
+        return load(Thread.currentThread().getContextClassLoader());
+    }
+
+    /** 从指定的类加载器中加载所有的表达式包,此时只读取索引,表达式在首次获取时才进行反序列化 */
+    public static ExpressionArchive load(ClassLoader classLoader) {
+        Map<String, URL> entries = new LinkedHashMap<>();
+        try{
+            Enumeration<URL> indexes = classLoader.getResources(INDEX);
+            while(indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                for(String id : readIndex(index)) {
+                    URL existed = entries.put(id, index);
+                    if(existed != null) {
+                        throw new IllegalStateException("duplicate expression id '" + id + "' in " + existed + " and " + index);
+                    }
+                }
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException("failed to read expression archive index", e);
+        }
+        return new ExpressionArchive(classLoader, entries);
+    }
+
+    /** 所有的表达式id */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /** 是否包含指定的表达式 */
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * 获取指定id的编译表达式,可直接通过 MVEL.executeExpression 执行
+     *
+     * @return 不存在时返回null
+     */
+    public Serializable get(String id) {
+        URL index = entries.get(id);
+        if(index == null) {
+            return null;
+        }
+        return loaded.computeIfAbsent(id, k -> read(index, k));
+    }
+
+    private Serializable read(URL index, String id) {
+        try(ObjectInputStream in = new ClassLoaderObjectInputStream(new URL(index, ENTRY_DIR + id + ".ser").openStream(), classLoader)) {
+            return (Serializable) in.readObject();
+        } catch(InvalidClassException | ClassNotFoundException | StreamCorruptedException e) {
+            //序列化格式不兼容,使用原文重新编译
+            log.warn("预编译表达式与当前版本不兼容,将重新编译.id:{},原因:{}", id, e.toString());
+            return recompile(index, id);
+        } catch(IOException e) {
+            throw new UncheckedIOException("failed to read expression '" + id + "' from " + index, e);
+        }
+    }
+
+    private Serializable recompile(URL index, String id) {
+        try{
+            Properties schema = new Properties();
+            try(InputStream in = new URL(index, SCHEMA).openStream()) {
+                schema.load(in);
+            }
+            String expression = readString(new URL(index, ENTRY_DIR + id + ".mvel"));
+            return MVEL.compileExpression(expression, createContext(schema, classLoader));
+        } catch(IOException e) {
+            throw new UncheckedIOException("failed to recompile expression '" + id + "' from " + index, e);
+        }
+    }
+
+    /**
+     * 根据声明创建编译时使用的解析上下文
+     * 声明中以 import. 开头的为引用类,如 import.Math=java.lang.Math,其它的为入参类型,如 order=com.foo.Order
+     */
+    static ParserContext createContext(Properties schema, ClassLoader classLoader) {
+        ParserContext ctx = new ParserContext();
+        for(String name : new TreeSet<>(schema.stringPropertyNames())) {
+            String className = schema.getProperty(name).trim();
+            Class type;
+            try{
+                type = ParseTools.forNameWithInner(className, classLoader);
+            } catch(ClassNotFoundException e) {
+                throw new IllegalArgumentException("unable to resolve class '" + className + "' declared by '" + name + "'", e);
+            }
+
+            if(name.startsWith(IMPORT_PREFIX)) {
+                ctx.addImport(name.substring(IMPORT_PREFIX.length()), type);
+            } else {
+                ctx.addInput(name, type);
+            }
+        }
+        return ctx;
+    }
+
+    /** 读取索引中的表达式id */
+    private static List<String> readIndex(URL index) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(readString(index)));
+        String line = reader.readLine();
+        if(!FORMAT.equals(line)) {
+            throw new IllegalStateException("unsupported expression archive format '" + line + "' in " + index);
+        }
+
+        List<String> ids = new ArrayList<>();
+        while((line = reader.readLine()) != null) {
+            line = line.trim();
+            if(!line.isEmpty() && line.charAt(0) != '#') {
+                ids.add(line);
+            }
+        }
+        return ids;
+    }
+
+    private static String readString(URL url) throws IOException {
+        try(InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for(int n; (n = in.read(buf)) != -1; ) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
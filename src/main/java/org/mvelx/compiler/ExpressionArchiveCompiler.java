@@ -0,0 +1,187 @@
+package org.mvelx.compiler;
+
+import org.mvelx.MVEL;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 构建期的表达式编译器,将表达式文件编译之后打包为表达式包,运行时通过 {@link ExpressionArchive} 加载
+ * 每个 .mvel 文件为一个表达式,表达式id为其相对于源目录的路径(去掉扩展名,以/分隔).
+ * 入参及引用通过声明文件(properties格式)给出,格式见 {@link ExpressionArchive#createContext}.
+ * 任何一个表达式编译失败时整个构建失败,即表达式中的语法错误在构建期即可发现.
+ * <p>
+ * 命令行使用:
+ * <pre>
+ * java -cp mvel.jar:app.jar org.mvelx.compiler.ExpressionArchiveCompiler -o rules.jar [-s schema.properties] src/main/rules
+ * </pre>
+ * 在maven构建中,可以通过 exec-maven-plugin 的 java 目标在 process-classes 阶段执行,此时项目的类均在类路径中:
+ * <pre>
+ * &lt;plugin&gt;
+ *     &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *     &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *     &lt;executions&gt;&lt;execution&gt;
+ *         &lt;phase&gt;process-classes&lt;/phase&gt;
+ *         &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *         &lt;configuration&gt;
+ *             &lt;mainClass&gt;org.mvelx.compiler.ExpressionArchiveCompiler&lt;/mainClass&gt;
+ *             &lt;arguments&gt;
+ *                 &lt;argument&gt;-o&lt;/argument&gt;&lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *                 &lt;argument&gt;-s&lt;/argument&gt;&lt;argument&gt;src/main/rules/schema.properties&lt;/argument&gt;
+ *                 &lt;argument&gt;src/main/rules&lt;/argument&gt;
+ *             &lt;/arguments&gt;
+ *         &lt;/configuration&gt;
+ *     &lt;/execution&gt;&lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * 输出位置为目录时直接写入到目录中(如classes目录,随项目一起打包),否则写入为jar文件.
+ * 注:访问器(asm类)依赖于运行时的实际数据类型,仍在运行时首次执行时生成,预编译省去的是解析及编译过程
+ */
+public class ExpressionArchiveCompiler {
+    /** 表达式文件扩展名 */
+    public static final String EXTENSION = ".mvel";
+
+    /** 入参及引用声明 */
+    private final Properties schema = new Properties();
+    /** 表达式id及表达式原文,按id排序以保证输出稳定 */
+    private final SortedMap<String, String> expressions = new TreeMap<>();
+
+    /** 加载声明文件 */
+    public ExpressionArchiveCompiler schema(Path file) throws IOException {
+        try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            schema.load(reader);
+        }
+        return this;
+    }
+
+    /** 添加单个声明 */
+    public ExpressionArchiveCompiler declare(String name, String className) {
+        schema.setProperty(name, className);
+        return this;
+    }
+
+    /** 添加单个表达式 */
+    public ExpressionArchiveCompiler add(String id, String expression) {
+        if(expressions.put(id, expression) != null) {
+            throw new IllegalArgumentException("duplicate expression id: " + id);
+        }
+        return this;
+    }
+
+    /** 添加源文件,为目录时添加其下所有的表达式文件 */
+    public ExpressionArchiveCompiler addSource(Path source) throws IOException {
+        if(Files.isDirectory(source)) {
+            List<Path> files;
+            try(Stream<Path> stream = Files.walk(source)) {
+                files = stream.filter(p -> p.toString().endsWith(EXTENSION) && Files.isRegularFile(p)).collect(Collectors.toList());
+            }
+            for(Path file : files) {
+                add(toId(source.relativize(file)), readString(file));
+            }
+        } else {
+            add(toId(source.getFileName()), readString(source));
+        }
+        return this;
+    }
+
+    /** 编译所有的表达式并写入到指定位置,位置为目录时写入目录,否则写入为jar文件 */
+    public void writeTo(Path output) throws IOException {
+        Map<String, byte[]> files = compile();
+        if(Files.isDirectory(output)) {
+            for(Map.Entry<String, byte[]> e : files.entrySet()) {
+                Path file = output.resolve(e.getKey());
+                Files.createDirectories(file.getParent());
+                Files.write(file, e.getValue());
+            }
+        } else {
+            if(output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            try(JarOutputStream jar = new JarOutputStream(Files.newOutputStream(output))) {
+                for(Map.Entry<String, byte[]> e : files.entrySet()) {
+                    jar.putNextEntry(new JarEntry(e.getKey()));
+                    jar.write(e.getValue());
+                    jar.closeEntry();
+                }
+            }
+        }
+    }
+
+    /** 编译所有的表达式,返回包中的文件路径及内容 */
+    Map<String, byte[]> compile() throws IOException {
+        String base = ExpressionArchive.INDEX.substring(0, ExpressionArchive.INDEX.lastIndexOf('/') + 1);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Map<String, byte[]> files = new LinkedHashMap<>();
+
+        StringBuilder index = new StringBuilder(ExpressionArchive.FORMAT).append('\n');
+        for(Map.Entry<String, String> e : expressions.entrySet()) {
+            String id = e.getKey();
+            Serializable compiled;
+            try{
+                //每个表达式使用独立的解析上下文,避免编译过程中识别到的变量相互影响
+                compiled = MVEL.compileExpression(e.getValue(), ExpressionArchive.createContext(schema, classLoader));
+            } catch(RuntimeException ex) {
+                throw new IllegalArgumentException("failed to compile expression '" + id + "': " + ex.getMessage(), ex);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(compiled);
+            }
+            files.put(base + ExpressionArchive.ENTRY_DIR + id + ".ser", bytes.toByteArray());
+            files.put(base + ExpressionArchive.ENTRY_DIR + id + EXTENSION, e.getValue().getBytes(StandardCharsets.UTF_8));
+            index.append(id).append('\n');
+        }
+
+        ByteArrayOutputStream schemaBytes = new ByteArrayOutputStream();
+        schema.store(schemaBytes, null);
+        files.put(base + ExpressionArchive.SCHEMA, schemaBytes.toByteArray());
+        files.put(ExpressionArchive.INDEX, index.toString().getBytes(StandardCharsets.UTF_8));
+        return files;
+    }
+
+    private static String toId(Path relative) {
+        String id = relative.toString().replace(File.separatorChar, '/');
+        return id.endsWith(EXTENSION) ? id.substring(0, id.length() - EXTENSION.length()) : id;
+    }
+
+    private static String readString(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /** 命令行入口,参数为 -o 输出位置 [-s 声明文件] 源文件或目录... */
+    public static void main(String[] args) throws IOException {
+        ExpressionArchiveCompiler compiler = new ExpressionArchiveCompiler();
+        Path output = null;
+        int sources = 0;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-o":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "-s":
+                    compiler.schema(Paths.get(args[++i]));
+                    break;
+                default:
+                    compiler.addSource(Paths.get(args[i]));
+                    sources++;
+            }
+        }
+
+        if(output == null || sources == 0) {
+            System.err.println("usage: ExpressionArchiveCompiler -o <output jar or directory> [-s <schema.properties>] <source>...");
+            System.exit(2);
+        }
+
+        compiler.writeTo(output);
+        System.out.println("compiled " + compiler.expressions.size() + " expressions into " + output);
+    }
+}
@@ -306,7 +306,11 @@ public class ExpressionCompiler extends AbstractParser {
 
             //如果并不仅仅是验证,还需要进一步优化，因此进行相应的优化操作
             if(!verifyOnly) {
-                return new CompiledExpression(new String(expr, start, length), finalizePayload(astBuild, secondPassOptimization, pCtx), returnType, pCtx.getParserConfiguration(), literalOnly == 1);
+                String source = new String(expr, start, length);
+                //在节点优化之后再进行常量折叠,折叠之后仅剩单个常量节点的同样认为是常量表达式
+                ASTLinkedList optimizedAst = ConstantFolder.fold(finalizePayload(astBuild, secondPassOptimization, pCtx), source, pCtx);
+                boolean literal = literalOnly == 1 || optimizedAst.isSingleNode() && optimizedAst.firstNonSymbol().isLiteral();
+                return new CompiledExpression(source, optimizedAst, returnType, pCtx.getParserConfiguration(), literal);
             }
             //仅验证，因此这里分析出相应的返回类型，直接返回null
             else {
@@ -0,0 +1,300 @@
+package org.mvelx.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mvelx.ParserConfiguration;
+import org.mvelx.ParserContext;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 持久化的编译表达式缓存,将编译结果保存在磁盘目录中,以便在重启之后直接加载,不再重新解析和编译
+ * 每个表达式保存为一个文件,文件名为 表达式文本+解析上下文指纹 的摘要,文件中同时记录了表达式所引用的类及其字节码摘要.
+ * 加载时重新计算这些类的摘要,任何一个类有变化(包括mvelx本身升级)即认为缓存失效并重新编译.
+ * 指纹与内存缓存一致,包括引用,包引用,强类型标记以及声明的变量和入参信息;使用了拦截器的表达式不进行持久化.
+ * 通常作为 {@link CompiledExpressionCache} 的下层使用,通过 -Dmvelx.cache.directory 为全局缓存开启
+ */
+@Slf4j
+public class PersistentExpressionCache {
+    /** 文件格式标记 */
+    private static final int MAGIC = 0x4d564331;
+    /** 缓存文件扩展名 */
+    private static final String EXTENSION = ".mvc";
+
+    /** 缓存目录 */
+    private final Path directory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /** 因引用类有变化而失效的次数 */
+    private final AtomicLong invalidated = new AtomicLong();
+
+    public PersistentExpressionCache(Path directory) {
+        this.directory = directory;
+        try{
+            Files.createDirectories(directory);
+        } catch(IOException e) {
+            throw new UncheckedIOException("failed to create cache directory: " + directory, e);
+        }
+    }
+
+    /**
+     * 从磁盘中加载编译表达式,不存在或已失效时使用编译过程进行编译并保存
+     * 读写磁盘出错时只记录日志,不影响编译结果
+     */
+    public Serializable get(String expression, ParserContext ctx, Supplier<Serializable> compiler) {
+        String fingerprint = fingerprint(ctx);
+        if(fingerprint == null) {
+            return compiler.get();
+        }
+
+        Path file = directory.resolve(digest(expression + '\0' + fingerprint) + EXTENSION);
+        ClassLoader classLoader = ctx.getParserConfiguration().getClassLoader();
+        Serializable compiled = read(file, expression, fingerprint, classLoader);
+        if(compiled != null) {
+            hits.incrementAndGet();
+            return compiled;
+        }
+
+        misses.incrementAndGet();
+        compiled = compiler.get();
+        write(file, expression, fingerprint, compiled, classLoader);
+        return compiled;
+    }
+
+    /** 清除所有的缓存文件 */
+    public void clear() {
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for(Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException("failed to clear cache directory: " + directory, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidated() {
+        return invalidated.get();
+    }
+
+    private Serializable read(Path file, String expression, String fingerprint, ClassLoader classLoader) {
+        if(!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            //摘要冲突或格式不同时视为不存在
+            if(in.readInt() != MAGIC || !in.readUTF().equals(fingerprint) || !readString(in).equals(expression)) {
+                return null;
+            }
+
+            int n = in.readInt();
+            Map<String, String> classes = new LinkedHashMap<>(n);
+            for(int i = 0; i < n; i++) {
+                classes.put(in.readUTF(), in.readUTF());
+            }
+            if(!classes.equals(digestClasses(classes.keySet(), classLoader))) {
+                invalidated.incrementAndGet();
+                log.debug("引用类有变化,持久化缓存失效:{}", expression);
+                Files.deleteIfExists(file);
+                return null;
+            }
+
+            try(ObjectInputStream ois = new ClassLoaderObjectInputStream(in, classLoader)) {
+                return (Serializable) ois.readObject();
+            }
+        } catch(IOException | ClassNotFoundException | RuntimeException e) {
+            log.debug("读取持久化缓存失败,将重新编译:{},原因:{}", file, e.toString());
+            return null;
+        }
+    }
+
+    private void write(Path file, String expression, String fingerprint, Serializable compiled, ClassLoader classLoader) {
+        try{
+            //序列化的同时收集所引用的类
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Set<Class> referenced = new HashSet<>();
+            try(ObjectOutputStream out = new ClassCollectingObjectOutputStream(bytes, referenced)) {
+                out.writeObject(compiled);
+            }
+
+            Set<String> names = new TreeSet<>();
+            for(Class cls : referenced) {
+                while(cls.isArray()) cls = cls.getComponentType();
+                if(!cls.isPrimitive() && cls.getClassLoader() != null) names.add(cls.getName());
+            }
+            Map<String, String> classes = digestClasses(names, classLoader);
+            if(classes == null) {
+                return;
+            }
+
+            Path temp = Files.createTempFile(directory, "mvelx", ".tmp");
+            try{
+                try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeUTF(fingerprint);
+                    writeString(out, expression);
+                    out.writeInt(classes.size());
+                    for(Map.Entry<String, String> e : classes.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                    bytes.writeTo(out);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch(IOException | RuntimeException e) {
+            log.debug("写入持久化缓存失败:{},原因:{}", expression, e.toString());
+        }
+    }
+
+    /**
+     * 计算各个类的字节码摘要
+     *
+     * @return 有类无法加载或找不到字节码(如运行时生成的类)时返回null,即不能进行持久化
+     */
+    private static Map<String, String> digestClasses(Collection<String> names, ClassLoader classLoader) {
+        Map<String, String> digests = new LinkedHashMap<>();
+        for(String name : names) {
+            try{
+                Class cls = Class.forName(name, false, classLoader);
+                ClassLoader loader = cls.getClassLoader() == null ? classLoader : cls.getClassLoader();
+                URL url = loader.getResource(name.replace('.', '/') + ".class");
+                if(url == null) {
+                    return null;
+                }
+                try(InputStream in = url.openStream()) {
+                    digests.put(name, digest(in));
+                }
+            } catch(ClassNotFoundException | IOException e) {
+                return null;
+            }
+        }
+        return digests;
+    }
+
+    /** 解析上下文的指纹,与内存缓存中的key保持一致,返回null表示不能进行持久化 */
+    static String fingerprint(ParserContext ctx) {
+        ParserConfiguration conf = ctx.getParserConfiguration();
+        if(conf.getInterceptors() != null && !conf.getInterceptors().isEmpty()) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if(conf.getImports() != null) {
+            for(Map.Entry<String, Object> e : new TreeMap<>(conf.getImports()).entrySet()) {
+                Object v = e.getValue();
+                String desc;
+                if(v instanceof Class) {
+                    desc = ((Class) v).getName();
+                } else if(v instanceof Method) {
+                    desc = v.toString();
+                } else {
+                    //其它类型的引用(如静态字段)无法稳定描述
+                    return null;
+                }
+                sb.append("import:").append(e.getKey()).append('=').append(desc).append(';');
+            }
+        }
+        if(conf.getPackageImports() != null) {
+            sb.append("packages:").append(new TreeSet<>(conf.getPackageImports())).append(';');
+        }
+        appendTypes(sb, "input:", ctx.getInputs());
+        appendTypes(sb, "var:", ctx.getVariables());
+        sb.append("indexed:").append(Arrays.toString(ctx.getIndexedVarNames())).append(';')
+                .append(ctx.isStrongTyping()).append(ctx.isStrictTypeEnforcement()).append(conf.isNullSafe());
+        return sb.toString();
+    }
+
+    private static void appendTypes(StringBuilder sb, String prefix, Map<String, Class> types) {
+        if(types == null) return;
+        for(Map.Entry<String, Class> e : new TreeMap<>(types).entrySet()) {
+            sb.append(prefix).append(e.getKey()).append('=').append(e.getValue() == null ? null : e.getValue().getName()).append(';');
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String digest(String s) {
+        return hex(sha256().digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String digest(InputStream in) throws IOException {
+        MessageDigest md = sha256();
+        byte[] buf = new byte[4096];
+        for(int n; (n = in.read(buf)) != -1; ) {
+            md.update(buf, 0, n);
+        }
+        return hex(md.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /** 在序列化过程中收集所有引用到的类 */
+    private static class ClassCollectingObjectOutputStream extends ObjectOutputStream {
+        private final Set<Class> classes;
+
+        ClassCollectingObjectOutputStream(OutputStream out, Set<Class> classes) throws IOException {
+            super(out);
+            this.classes = classes;
+            enableReplaceObject(true);
+        }
+
+        protected void annotateClass(Class<?> cl) {
+            classes.add(cl);
+        }
+
+        protected Object replaceObject(Object obj) {
+            if(obj instanceof Class) {
+                classes.add((Class) obj);
+            }
+            return obj;
+        }
+    }
+}
@@ -608,7 +608,7 @@ public class PropertyVerifier extends AbstractOptimizer {
      */
         //尝试从公共方法以及私有方法中找到相应的方法
         //首先找公共方法
-        if((m = getBestCandidate(args, name, ctx, ctx.getMethods(), pCtx.isStrongTyping())) == null) {
+        if((m = getBestCandidate(args, name, ctx, pCtx.isStrongTyping(), false)) == null) {
             //再查找仅有方法
             if((m = getBestCandidate(args, name, ctx, ctx.getDeclaredMethods(), pCtx.isStrongTyping())) == null) {
                 StringAppender errorBuild = new StringAppender();
@@ -50,6 +50,11 @@ public class BigDecimalCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //通用类型，toString转换
         CNV.put(Object.class,
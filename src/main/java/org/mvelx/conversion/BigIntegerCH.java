@@ -49,6 +49,11 @@ public class BigIntegerCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //对象转,即转换为string再转
         CNV.put(Object.class,
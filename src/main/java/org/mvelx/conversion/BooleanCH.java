@@ -59,6 +59,11 @@ public class BooleanCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         CNV.put(String.class,
                 stringConverter
@@ -49,6 +49,11 @@ public class ByteCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //已实现的字符串转
         CNV.put(String.class,
@@ -41,6 +41,11 @@ public class CharArrayCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     /* 仅提供了字符串和字符数组之间的转换 */
     static {
         //字符串转字符数组
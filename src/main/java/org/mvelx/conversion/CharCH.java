@@ -58,6 +58,11 @@ public class CharCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //已实现的字符串转字符
         CNV.put(String.class, stringConverter);
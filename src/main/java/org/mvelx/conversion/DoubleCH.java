@@ -54,6 +54,11 @@ public class DoubleCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //字符串转,已自实现
         CNV.put(String.class,
@@ -53,6 +53,11 @@ public class FloatCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         // 使用已实现的转换器处理
         CNV.put(String.class,
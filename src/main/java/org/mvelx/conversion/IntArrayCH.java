@@ -42,6 +42,11 @@ public class IntArrayCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //支持字符串数组转int[],每一项进行处理
         CNV.put(String[].class,
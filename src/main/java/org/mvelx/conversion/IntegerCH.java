@@ -47,6 +47,11 @@ public class IntegerCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //对象转,此处有bug
         CNV.put(Object.class,
@@ -51,6 +51,11 @@ public class LongCH implements ConversionHandler {
         return CNV.containsKey(cls);
     }
 
+
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
     static {
         //字符串转,使用已实现的方式来处理
         CNV.put(String.class,
@@ -61,6 +61,11 @@ public class ShortCH implements ConversionHandler {
     }
 
 
+    public Converter getConverter(Class cls) {
+        return CNV.get(cls);
+    }
+
+
     static {
         //字符串转,已实现
         CNV.put(String.class,
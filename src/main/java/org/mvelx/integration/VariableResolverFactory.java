@@ -107,6 +107,14 @@ public interface VariableResolverFactory extends Serializable {
     /** 根据之前存储的变量下标来获取相应的变量解析器 */
     VariableResolver getIndexedVariableResolver(int index);
 
+    /**
+     * 根据变量下标直接读取相应的变量值,与 getIndexedVariableResolver(index).getValue() 相同
+     * 基于下标存储的工厂可以直接从存储中读取,以避免创建相应的变量解析器
+     */
+    default Object getIndexedValue(int index) {
+        return getIndexedVariableResolver(index).getValue();
+    }
+
     /**
      * 判断当前解析工厂是否就是指定属性的直接解析器(因为它有多个解析链)
      * Determines whether or not the current VariableResolverFactory is the physical target for the actual
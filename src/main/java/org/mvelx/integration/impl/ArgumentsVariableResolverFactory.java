@@ -0,0 +1,119 @@
+package org.mvelx.integration.impl;
+
+import org.mvelx.integration.VariableResolver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * 基于下标参数的变量工厂,用于 MVEL.executeWithArgs(compiled, ctx, args) 的执行
+ * 编译时声明的入参按顺序对应参数数组中的下标,访问器直接通过下标从数组中读取,不再通过变量名查找,也不需要创建变量解析器.
+ * 对入参的赋值将直接写回参数数组,脚本中新定义的其它变量则仍然存储在内部的map中
+ */
+public class ArgumentsVariableResolverFactory extends MapVariableResolverFactory {
+    /** 参数值,与入参名一一对应 */
+    private final Object[] args;
+
+    public ArgumentsVariableResolverFactory(String[] inputNames, Object[] args) {
+        super(new HashMap<>());
+        if(args.length < inputNames.length) {
+            throw new IllegalArgumentException("expected " + inputNames.length + " arguments " + Arrays.toString(inputNames)
+                    + ", but found " + args.length);
+        }
+
+        this.indexedVariableNames = inputNames;
+        this.args = args;
+    }
+
+    /** 直接从参数数组中读取 */
+    public Object getIndexedValue(int index) {
+        return args[index];
+    }
+
+    /** 获取指定下标的解析器,解析器直接读写参数数组,仅在第一次使用时创建 */
+    public VariableResolver getIndexedVariableResolver(int index) {
+        if(indexedVariableResolvers == null) {
+            indexedVariableResolvers = new VariableResolver[indexedVariableNames.length];
+        }
+
+        VariableResolver vr = indexedVariableResolvers[index];
+        if(vr == null) {
+            vr = indexedVariableResolvers[index] = new ArgumentResolver(index);
+        }
+        return vr;
+    }
+
+    public VariableResolver createIndexedVariable(int index, String name, Object value) {
+        VariableResolver vr = getIndexedVariableResolver(index);
+        vr.setValue(value);
+        return vr;
+    }
+
+    public VariableResolver createIndexedVariable(int index, String name, Object value, Class<?> type) {
+        return createIndexedVariable(index, name, value);
+    }
+
+    public VariableResolver createVariable(String name, Object value) {
+        int idx = variableIndexOf(name);
+        return idx != -1 ? createIndexedVariable(idx, name, value) : super.createVariable(name, value);
+    }
+
+    public VariableResolver createVariable(String name, Object value, Class<?> type) {
+        int idx = variableIndexOf(name);
+        return idx != -1 ? createIndexedVariable(idx, name, value) : super.createVariable(name, value, type);
+    }
+
+    public VariableResolver getVariableResolver(String name) {
+        int idx = variableIndexOf(name);
+        return idx != -1 ? getIndexedVariableResolver(idx) : super.getVariableResolver(name);
+    }
+
+    public boolean isResolvable(String name) {
+        return name != null && variableIndexOf(name) != -1 || super.isResolvable(name);
+    }
+
+    /** 仅入参是基于下标处理的 */
+    public boolean isTarget(String name) {
+        return name != null && variableIndexOf(name) != -1;
+    }
+
+    public boolean isIndexedFactory() {
+        return true;
+    }
+
+    public Set<String> getKnownVariables() {
+        Set<String> vars = super.getKnownVariables();
+        vars.addAll(Arrays.asList(indexedVariableNames));
+        return vars;
+    }
+
+    /** 直接读写参数数组中指定下标的解析器 */
+    private class ArgumentResolver implements VariableResolver {
+        private final int index;
+
+        ArgumentResolver(int index) {
+            this.index = index;
+        }
+
+        public String getName() {
+            return indexedVariableNames[index];
+        }
+
+        public Class getType() {
+            return Object.class;
+        }
+
+        public int getFlags() {
+            return 0;
+        }
+
+        public Object getValue() {
+            return args[index];
+        }
+
+        public void setValue(Object value) {
+            args[index] = value;
+        }
+    }
+}
@@ -106,6 +106,14 @@ public abstract class BaseVariableResolverFactory implements VariableResolverFac
         }
     }
 
+    public Object getIndexedValue(int index) {
+        //当前工厂本身不存储下标变量时,直接委托给子级处理,以使用子级的快速读取
+        if(indexedVariableNames == null && nextFactory != null) {
+            return nextFactory.getIndexedValue(index - indexOffset);
+        }
+        return getIndexedVariableResolver(index).getValue();
+    }
+
     public VariableResolver createIndexedVariable(int index, String name, Object value, Class<?> type) {
         //当前默认不支持下标,委托给子级处理
         if(nextFactory != null) {
@@ -39,13 +39,15 @@ public class ClassImportResolverFactory extends BaseVariableResolverFactory {
     private Map<String, Object> imports;
     /** 专门用于类名的引用 */
     private Map<String, Object> dynImports;
+    /** 创建时的包引用,用于在复用时还原 */
+    private Set<String> initialPackageImports;
 
     /** 使用相应的解析配置信息和委托工厂进行相应的构建 */
     public ClassImportResolverFactory(ParserConfiguration pCfg, VariableResolverFactory nextFactory, boolean compiled) {
         if(pCfg != null) {
             //仅在非编译期才将相应的引用拉过来,因为其数据还可能在变
             if(!compiled) {
-                packageImports = pCfg.getPackageImports();
+                packageImports = initialPackageImports = pCfg.getPackageImports();
             }
             classLoader = pCfg.getClassLoader();
             imports = Collections.unmodifiableMap(pCfg.getImports());
@@ -138,6 +140,12 @@ public class ClassImportResolverFactory extends BaseVariableResolverFactory {
         return imports;
     }
 
+    /** 清除执行期间添加的类引用及包引用,即还原至创建时的状态,用于复用当前工厂时避免引用带到下一次执行中 */
+    public void resetDynamicImports() {
+        dynImports = null;
+        packageImports = initialPackageImports;
+    }
+
     /** 添加包引用 */
     public void addPackageImport(String packageName) {
         if(packageImports == null) packageImports = new HashSet<>();
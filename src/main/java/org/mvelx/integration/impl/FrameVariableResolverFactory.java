@@ -0,0 +1,172 @@
+package org.mvelx.integration.impl;
+
+import org.mvelx.UnresolveablePropertyException;
+import org.mvelx.integration.VariableResolver;
+
+import java.util.*;
+
+/**
+ * 可重复使用的map变量工厂,语义与 CachingMapVariableResolverFactory 一致,用于执行帧中
+ * 与 CachingMap 不同,每次执行时并不重新创建工厂以及变量解析器,而是通过 reset 重新绑定外部map,
+ * 之前创建的解析器按变量名保留下来,通过执行代数来判断其是否属于当前这次执行,属于之前执行的解析器在再次访问时重新绑定值.
+ * 因此对于变量名固定的表达式,多次执行之间不再产生新的对象
+ */
+@SuppressWarnings({"unchecked"})
+public class FrameVariableResolverFactory extends BaseVariableResolverFactory {
+    /** 保留的解析器数量上限,超过之后在重置时清空,避免变量名不断变化时无限增长 */
+    public static int maximumResolvers = Integer.getInteger("mvelx.frame.maximum_resolvers", 256);
+
+    /** 当前执行的外部变量 */
+    private Map<String, Object> variables;
+    /** 按变量名保留的解析器 */
+    private final Map<String, FrameResolver> resolvers = new HashMap<>();
+    /** 此次执行中已绑定的解析器,用于写回及释放,避免遍历整个map */
+    private final List<FrameResolver> bound = new ArrayList<>();
+    /** 当前的执行代数,每次重置时加1 */
+    private int generation;
+
+    /** 重新绑定外部变量,开始一次新的执行 */
+    public FrameVariableResolverFactory reset(Map variables) {
+        this.variables = variables;
+        this.nextFactory = null;
+        setTiltFlag(false);
+        bound.clear();
+        if(++generation == 0 || resolvers.size() > maximumResolvers) {
+            resolvers.clear();
+        }
+        return this;
+    }
+
+    /** 释放对外部变量以及变量值的引用,在执行结束之后调用 */
+    public void release() {
+        for(int i = 0; i < bound.size(); i++) {
+            bound.get(i).value = null;
+        }
+        bound.clear();
+        variables = null;
+        nextFactory = null;
+    }
+
+    /** 当前解析器是否属于此次执行 */
+    private FrameResolver live(String name) {
+        FrameResolver r = resolvers.get(name);
+        return r != null && r.generation == generation ? r : null;
+    }
+
+    /** 将指定变量名的解析器绑定到此次执行,已存在的解析器直接复用 */
+    private FrameResolver bind(String name, Object value, Class type, boolean updated) {
+        FrameResolver r = resolvers.get(name);
+        if(r == null) {
+            resolvers.put(name, r = new FrameResolver(name));
+        }
+        if(r.generation != generation) {
+            r.generation = generation;
+            bound.add(r);
+        }
+        r.type = type;
+        r.value = SimpleSTValueResolver.handleTypeCoercion(type, value);
+        r.updated = updated;
+        return r;
+    }
+
+    public VariableResolver createVariable(String name, Object value) {
+        VariableResolver vr;
+
+        try{
+            (vr = getVariableResolver(name)).setValue(value);
+            return vr;
+        } catch(UnresolveablePropertyException e) {
+            return bind(name, value, null, true);
+        }
+    }
+
+    public VariableResolver createVariable(String name, Object value, Class<?> type) {
+        VariableResolver vr;
+        try{
+            vr = getVariableResolver(name);
+        } catch(UnresolveablePropertyException e) {
+            vr = null;
+        }
+
+        if(vr != null && vr.getType() != null) {
+            throw new RuntimeException("variable already defined within scope: " + vr.getType() + " " + name);
+        } else {
+            return bind(name, value, type, true);
+        }
+    }
+
+    /** 优先使用此次执行中已绑定的解析器,其次从外部map中绑定,最后交由委托工厂处理 */
+    public VariableResolver getVariableResolver(String name) {
+        FrameResolver r = live(name);
+        if(r != null) {
+            return r;
+        } else if(variables != null && variables.containsKey(name)) {
+            return bind(name, variables.get(name), null, false);
+        } else if(nextFactory != null) {
+            return nextFactory.getVariableResolver(name);
+        }
+
+        throw new UnresolveablePropertyException("unable to resolve variable '" + name + "'");
+    }
+
+    public boolean isResolvable(String name) {
+        return live(name) != null
+                || (variables != null && variables.containsKey(name))
+                || (nextFactory != null && nextFactory.isResolvable(name));
+    }
+
+    public boolean isTarget(String name) {
+        return live(name) != null;
+    }
+
+    /** 将此次执行中有修改的变量写回到外部map中 */
+    public void externalize() {
+        if(variables == null) return;
+
+        for(int i = 0; i < bound.size(); i++) {
+            FrameResolver r = bound.get(i);
+            if(r.updated) variables.put(r.name, r.value);
+        }
+    }
+
+    public Set<String> getKnownVariables() {
+        if(variables != null) return new HashSet<>(variables.keySet());
+        return new HashSet<>(0);
+    }
+
+    /** 可重新绑定的变量解析器 */
+    private static class FrameResolver implements VariableResolver {
+        private final String name;
+        /** 所属的执行代数 */
+        private int generation;
+        private Class type;
+        private Object value;
+        /** 值是否有变化 */
+        private boolean updated;
+
+        FrameResolver(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class getType() {
+            return type;
+        }
+
+        public int getFlags() {
+            return updated ? -1 : 0;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            updated = true;
+            this.value = SimpleSTValueResolver.handleTypeCoercion(type, value);
+        }
+    }
+}
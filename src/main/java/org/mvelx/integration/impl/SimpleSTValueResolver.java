@@ -75,7 +75,7 @@ public class SimpleSTValueResolver implements VariableResolver {
     }
 
     /** 对即将处理的值进行转换,转换为相对应的类型 */
-    private static Object handleTypeCoercion(Class type, Object value) {
+    static Object handleTypeCoercion(Class type, Object value) {
         if(type != null && value != null && value.getClass() != type) {
             if(!canConvert(type, value.getClass())) {
                 throw new RuntimeException("cannot assign " + value.getClass().getName() + " to type: "
@@ -57,6 +57,10 @@ public class StackDemarcResolverFactory implements VariableResolverFactory {
         return delegate.getIndexedVariableResolver(index);
     }
 
+    public Object getIndexedValue(int index) {
+        return delegate.getIndexedValue(index);
+    }
+
     public boolean isTarget(String name) {
         return delegate.isTarget(name);
     }
@@ -21,6 +21,18 @@ public class StackResetResolverFactory implements VariableResolverFactory {
         this.delegate = delegate;
     }
 
+    /**
+     * 重新设置委托工厂,以便在执行帧中复用此对象,而不是每次执行都重新创建
+     * 委托为null时仅释放对原委托的引用
+     */
+    public StackResetResolverFactory reset(VariableResolverFactory delegate) {
+        if(delegate != null) {
+            delegate.setTiltFlag(false);
+        }
+        this.delegate = delegate;
+        return this;
+    }
+
     public VariableResolver createVariable(String name, Object value) {
         return delegate.createVariable(name, value);
     }
@@ -57,6 +69,10 @@ public class StackResetResolverFactory implements VariableResolverFactory {
         return delegate.getIndexedVariableResolver(index);
     }
 
+    public Object getIndexedValue(int index) {
+        return delegate.getIndexedValue(index);
+    }
+
     public boolean isTarget(String name) {
         return delegate.isTarget(name);
     }
@@ -0,0 +1,390 @@
+package org.mvelx.math;
+
+import org.mvelx.DataTypes;
+
+import static org.mvelx.Operator.*;
+import static org.mvelx.util.ParseTools.__resolveType;
+
+/**
+ * 根据运行期观察到的左右值类型特化的二元运算,用于代替 MathProcessor.doOperations 中的多层类型判断
+ * 每个特化运算仅适用于特定的左右值类型(通过类型守卫判断),其计算结果与 MathProcessor 完全一致.
+ * 当前支持 int,long,double 之间的四则运算,取模及比较,以及 boolean 的 ==, != 判断
+ */
+public abstract strictfp class SpecializedOperation {
+    /** 适用的左值类型 */
+    protected final Class<?> leftClass;
+    /** 适用的右值类型 */
+    protected final Class<?> rightClass;
+    /** 运算符 */
+    protected final int operation;
+
+    SpecializedOperation(Class<?> leftClass, int operation, Class<?> rightClass) {
+        this.leftClass = leftClass;
+        this.rightClass = rightClass;
+        this.operation = operation;
+    }
+
+    /** 类型守卫,即当前的左右值是否可以使用此特化运算 */
+    public final boolean accept(Object left, Object right) {
+        return left != null && right != null && left.getClass() == leftClass && right.getClass() == rightClass;
+    }
+
+    /** 进行运算,调用之前需要通过 accept 判断 */
+    public abstract Object apply(Object left, Object right);
+
+    /** 进行比较运算并直接返回boolean结果,调用之前需要通过 accept 判断 */
+    public boolean applyBoolean(Object left, Object right) {
+        return (Boolean) apply(left, right);
+    }
+
+    /** 实际进行计算时使用的基本类型(int,long,double或boolean) */
+    public abstract Class<?> getComputationType();
+
+    /** 运算结果的类型,比较运算时为Boolean */
+    public Class<?> getResultType() {
+        return operation >= LTHAN ? Boolean.class : Double.class;
+    }
+
+    public int getOperation() {
+        return operation;
+    }
+
+    public Class<?> getLeftClass() {
+        return leftClass;
+    }
+
+    public Class<?> getRightClass() {
+        return rightClass;
+    }
+
+    /**
+     * 根据静态类型以及运行期的值类型创建特化运算
+     *
+     * @param type1 左边的静态类型(内部表示形式),-1表示未知
+     * @param type2 右边的静态类型(内部表示形式),-1表示未知
+     * @return 不支持的类型或运算时返回null
+     */
+    public static SpecializedOperation create(int type1, Class<?> leftClass, int operation, int type2, Class<?> rightClass) {
+        int runtime1 = __resolveType(leftClass);
+        int runtime2 = __resolveType(rightClass);
+        if(type1 == -1) type1 = runtime1;
+        if(type2 == -1) type2 = runtime2;
+
+        //静态类型与运行期类型不一致时, MathProcessor 的处理方式不确定,不进行特化
+        if(box(type1) != runtime1 || box(type2) != runtime2) {
+            return null;
+        }
+
+        if(runtime1 == DataTypes.W_BOOLEAN && runtime2 == DataTypes.W_BOOLEAN) {
+            return operation == EQUAL || operation == NEQUAL ? new BooleanEquality(leftClass, operation, rightClass) : null;
+        }
+
+        if(!isSupportedOperation(operation) || !isNumeric(runtime1) || !isNumeric(runtime2)) {
+            return null;
+        }
+
+        //与 MathProcessor 一致,静态类型完全相同时按同类型运算,否则统一使用double运算再转换为较宽的类型
+        if(type1 == type2) {
+            switch(runtime1) {
+                case DataTypes.W_INTEGER:
+                    return new IntOperation(leftClass, operation, rightClass);
+                case DataTypes.W_LONG:
+                    return new LongOperation(leftClass, operation, rightClass);
+                default:
+                    return new DoubleOperation(leftClass, operation, rightClass);
+            }
+        }
+
+        return new WideningOperation(leftClass, operation, rightClass, Math.max(runtime1, runtime2));
+    }
+
+    private static boolean isSupportedOperation(int operation) {
+        return (operation >= ADD && operation <= MOD) || (operation >= LTHAN && operation <= NEQUAL);
+    }
+
+    private static boolean isNumeric(int type) {
+        return type == DataTypes.W_INTEGER || type == DataTypes.W_LONG || type == DataTypes.W_DOUBLE;
+    }
+
+    private static int box(int type) {
+        switch(type) {
+            case DataTypes.INTEGER:
+                return DataTypes.W_INTEGER;
+            case DataTypes.LONG:
+                return DataTypes.W_LONG;
+            case DataTypes.DOUBLE:
+                return DataTypes.W_DOUBLE;
+            case DataTypes.BOOLEAN:
+                return DataTypes.W_BOOLEAN;
+            default:
+                return type;
+        }
+    }
+
+    private static Boolean bool(boolean b) {
+        return b ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    /** int之间的运算 */
+    private static class IntOperation extends SpecializedOperation {
+        IntOperation(Class<?> leftClass, int operation, Class<?> rightClass) {
+            super(leftClass, operation, rightClass);
+        }
+
+        public Class<?> getComputationType() {
+            return int.class;
+        }
+
+        public Class<?> getResultType() {
+            return operation >= LTHAN ? Boolean.class : operation == DIV ? Double.class : Integer.class;
+        }
+
+        public Object apply(Object left, Object right) {
+            int a = (Integer) left;
+            int b = (Integer) right;
+            switch(operation) {
+                case ADD:
+                    return a + b;
+                case SUB:
+                    return a - b;
+                case MULT:
+                    return a * b;
+                case DIV:
+                    return (double) a / (double) b;
+                case MOD:
+                    return a % b;
+                default:
+                    return bool(compare(a, b));
+            }
+        }
+
+        public boolean applyBoolean(Object left, Object right) {
+            return compare((Integer) left, (Integer) right);
+        }
+
+        private boolean compare(int a, int b) {
+            switch(operation) {
+                case GTHAN:
+                    return a > b;
+                case GETHAN:
+                    return a >= b;
+                case LTHAN:
+                    return a < b;
+                case LETHAN:
+                    return a <= b;
+                case EQUAL:
+                    return a == b;
+                default:
+                    return a != b;
+            }
+        }
+    }
+
+    /** long之间的运算 */
+    private static class LongOperation extends SpecializedOperation {
+        LongOperation(Class<?> leftClass, int operation, Class<?> rightClass) {
+            super(leftClass, operation, rightClass);
+        }
+
+        public Class<?> getComputationType() {
+            return long.class;
+        }
+
+        public Class<?> getResultType() {
+            return operation >= LTHAN ? Boolean.class : operation == DIV ? Double.class : Long.class;
+        }
+
+        public Object apply(Object left, Object right) {
+            long a = (Long) left;
+            long b = (Long) right;
+            switch(operation) {
+                case ADD:
+                    return a + b;
+                case SUB:
+                    return a - b;
+                case MULT:
+                    return a * b;
+                case DIV:
+                    return (double) a / (double) b;
+                case MOD:
+                    return a % b;
+                default:
+                    return bool(compare(a, b));
+            }
+        }
+
+        public boolean applyBoolean(Object left, Object right) {
+            return compare((Long) left, (Long) right);
+        }
+
+        private boolean compare(long a, long b) {
+            switch(operation) {
+                case GTHAN:
+                    return a > b;
+                case GETHAN:
+                    return a >= b;
+                case LTHAN:
+                    return a < b;
+                case LETHAN:
+                    return a <= b;
+                case EQUAL:
+                    return a == b;
+                default:
+                    return a != b;
+            }
+        }
+    }
+
+    /** double之间的运算 */
+    private static class DoubleOperation extends SpecializedOperation {
+        DoubleOperation(Class<?> leftClass, int operation, Class<?> rightClass) {
+            super(leftClass, operation, rightClass);
+        }
+
+        public Class<?> getComputationType() {
+            return double.class;
+        }
+
+        public Object apply(Object left, Object right) {
+            double a = (Double) left;
+            double b = (Double) right;
+            switch(operation) {
+                case ADD:
+                    return a + b;
+                case SUB:
+                    return a - b;
+                case MULT:
+                    return a * b;
+                case DIV:
+                    return a / b;
+                case MOD:
+                    return a % b;
+                default:
+                    return bool(compare(a, b));
+            }
+        }
+
+        public boolean applyBoolean(Object left, Object right) {
+            return compare((Double) left, (Double) right);
+        }
+
+        private boolean compare(double a, double b) {
+            switch(operation) {
+                case GTHAN:
+                    return a > b;
+                case GETHAN:
+                    return a >= b;
+                case LTHAN:
+                    return a < b;
+                case LETHAN:
+                    return a <= b;
+                case EQUAL:
+                    return a == b;
+                default:
+                    return a != b;
+            }
+        }
+    }
+
+    /** 不同数字类型之间的运算,使用double计算,结果转换为较宽的类型 */
+    private static class WideningOperation extends SpecializedOperation {
+        /** 结果类型 */
+        private final int returnType;
+
+        WideningOperation(Class<?> leftClass, int operation, Class<?> rightClass, int returnType) {
+            super(leftClass, operation, rightClass);
+            this.returnType = returnType;
+        }
+
+        public Class<?> getComputationType() {
+            return double.class;
+        }
+
+        public Class<?> getResultType() {
+            if(operation >= LTHAN) return Boolean.class;
+            switch(returnType) {
+                case DataTypes.W_INTEGER:
+                    return Integer.class;
+                case DataTypes.W_LONG:
+                    return Long.class;
+                default:
+                    return Double.class;
+            }
+        }
+
+        public Object apply(Object left, Object right) {
+            double a = ((Number) left).doubleValue();
+            double b = ((Number) right).doubleValue();
+            switch(operation) {
+                case ADD:
+                    return narrow(a + b);
+                case SUB:
+                    return narrow(a - b);
+                case MULT:
+                    return narrow(a * b);
+                case DIV:
+                    return narrow(a / b);
+                case MOD:
+                    return narrow(a % b);
+                default:
+                    return bool(compare(a, b));
+            }
+        }
+
+        public boolean applyBoolean(Object left, Object right) {
+            return compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+
+        private boolean compare(double a, double b) {
+            switch(operation) {
+                case GTHAN:
+                    return a > b;
+                case GETHAN:
+                    return a >= b;
+                case LTHAN:
+                    return a < b;
+                case LETHAN:
+                    return a <= b;
+                case EQUAL:
+                    return a == b;
+                default:
+                    return a != b;
+            }
+        }
+
+        private Object narrow(double value) {
+            switch(returnType) {
+                case DataTypes.W_INTEGER:
+                    return (int) value;
+                case DataTypes.W_LONG:
+                    return (long) value;
+                default:
+                    return value;
+            }
+        }
+    }
+
+    /** boolean之间的 ==, != 判断 */
+    private static class BooleanEquality extends SpecializedOperation {
+        BooleanEquality(Class<?> leftClass, int operation, Class<?> rightClass) {
+            super(leftClass, operation, rightClass);
+        }
+
+        public Class<?> getComputationType() {
+            return boolean.class;
+        }
+
+        public Class<?> getResultType() {
+            return Boolean.class;
+        }
+
+        public Object apply(Object left, Object right) {
+            return bool(applyBoolean(left, right));
+        }
+
+        public boolean applyBoolean(Object left, Object right) {
+            boolean eq = ((Boolean) left).booleanValue() == ((Boolean) right).booleanValue();
+            return operation == EQUAL ? eq : !eq;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.mvelx.optimizers;
+
+/**
+ * 优化访问器中的类型检查未通过,即优化时的类型假设已失效
+ * 由生成的访问器在类型检查失败时创建并抛出,不填充调用栈,以避免以异常作为类型检查的开销;仅在检查失败时才会创建,不影响检查通过时的开销.
+ * 继承自 ClassCastException,因此原有按类型转换失败进行反优化的处理均可直接处理,
+ * 未被反优化处理的情况下(直接抛给调用方),通过异常信息中的期望类型,实际类型以及相应的表达式定位问题
+ */
+public final class GuardFailure extends ClassCastException {
+
+    private GuardFailure(String message) {
+        super(message);
+    }
+
+    /**
+     * 创建类型检查失败的异常,由生成的访问器调用
+     *
+     * @param value    未通过检查的值(不为null)
+     * @param expected 期望的类型
+     * @param property 相应的访问表达式
+     */
+    public static GuardFailure of(Object value, Class expected, String property) {
+        return new GuardFailure("optimized accessor type guard failed: expected " + expected.getName()
+                + " but was " + value.getClass().getName() + " [" + property + "]");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
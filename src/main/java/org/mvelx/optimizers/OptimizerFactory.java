@@ -2,6 +2,7 @@ package org.mvelx.optimizers;
 
 import org.mvelx.optimizers.dynamic.DynamicOptimizer;
 import org.mvelx.optimizers.impl.asm.AsmAccessorOptimizer;
+import org.mvelx.optimizers.impl.mh.MethodHandleAccessorOptimizer;
 import org.mvelx.optimizers.impl.refl.ReflectiveAccessorOptimizer;
 
 import java.util.HashMap;
@@ -16,6 +17,8 @@ public class OptimizerFactory {
     /** 通过反映进行属性，方法访问的处理模式 */
     public static final String SAFE_REFLECTIVE = "reflective";
     public static final String ASM = "ASM";
+    /** 通过方法句柄进行访问的处理模式,不生成新类 */
+    public static final String METHOD_HANDLE = "methodhandle";
 
     /** 默认的优化器 */
     private static String defaultOptimizer;
@@ -27,8 +30,12 @@ public class OptimizerFactory {
     private static ThreadLocal<Class<? extends AccessorOptimizer>> threadOptimizer
             = new ThreadLocal<>();
 
+    /** 当前线程是否仅使用反射优化器,在未获取到节点优化权的线程临时计算时使用,以避免生成新的访问器类 */
+    private static final ThreadLocal<Boolean> reflectiveOnly = new ThreadLocal<>();
+
     static {
         accessorCompilers.put(SAFE_REFLECTIVE, new ReflectiveAccessorOptimizer());
+        accessorCompilers.put(METHOD_HANDLE, new MethodHandleAccessorOptimizer());
         accessorCompilers.put(DYNAMIC, new DynamicOptimizer());
         accessorCompilers.put(ASM, new AsmAccessorOptimizer());
 
@@ -41,6 +48,9 @@ public class OptimizerFactory {
 
     /** 获取默认优化器的一个实例 */
     public static AccessorOptimizer getDefaultAccessorCompiler() {
+        if(reflectiveOnly.get() != null) {
+            return getAccessorCompiler(SAFE_REFLECTIVE);
+        }
         try{
             return accessorCompilers.get(defaultOptimizer).getClass().newInstance();
         } catch(Exception e) {
@@ -59,6 +69,9 @@ public class OptimizerFactory {
 
     /** 创建出线程优化器的一个实例 */
     public static AccessorOptimizer getThreadAccessorOptimizer() {
+        if(reflectiveOnly.get() != null) {
+            return getAccessorCompiler(SAFE_REFLECTIVE);
+        }
         if(threadOptimizer.get() == null) {
             threadOptimizer.set(getDefaultAccessorCompiler().getClass());
         }
@@ -92,9 +105,27 @@ public class OptimizerFactory {
         }
     }
 
+    /**
+     * 在当前线程中开始仅使用反射优化器,期间创建的访问器(包括其中的子表达式)均不会生成新类
+     *
+     * @return 是否由本次调用开始,只有返回true时才需要调用 endReflectiveOnly
+     */
+    public static boolean beginReflectiveOnly() {
+        if(reflectiveOnly.get() != null) {
+            return false;
+        }
+        reflectiveOnly.set(Boolean.TRUE);
+        return true;
+    }
+
+    /** 结束仅使用反射优化器 */
+    public static void endReflectiveOnly() {
+        reflectiveOnly.remove();
+    }
+
     /** 清除相应的优化器(已使用完毕) */
     public static void clearThreadAccessorOptimizer() {
-        threadOptimizer.set(null);
+        //直接移除即可,先set(null)会在线程变量表中重新创建一个条目
         threadOptimizer.remove();
     }
 }
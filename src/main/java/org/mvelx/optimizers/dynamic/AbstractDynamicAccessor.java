@@ -0,0 +1,103 @@
+package org.mvelx.optimizers.dynamic;
+
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
+
+/**
+ * 动态访问器的基础实现,负责维护分级优化的状态
+ * 即通过调用次数来判定当前访问器是否为热点访问器,在达到阈值后由子类切换为asm版本,
+ * 在优化版本出现类型不匹配或优化失败时,记录反优化次数,超过上限之后将使用反射版本,直到次数随时间衰减至上限以下
+ */
+public abstract class AbstractDynamicAccessor extends BaseAccessor implements DynamicAccessor {
+    /** 自上次(反)优化以来的调用次数 */
+    private int runCount;
+    /** 已被反优化(或优化失败)的次数,首次反优化时创建 */
+    private volatile DeoptimizationCounter deoptCounter;
+
+    /** 上一次(反)优化的时间,用于计算访问器的热度 */
+    private long stamp = System.currentTimeMillis();
+
+    /** 当前是否已切换为优化版本 */
+    protected volatile boolean opt = false;
+    /** 当前是否已提交后台编译,还未完成 */
+    private volatile boolean pending = false;
+
+    protected AbstractDynamicAccessor(String nodeExpr, ParserContext parserContext) {
+        super(nodeExpr, parserContext);
+    }
+
+    /**
+     * 累计调用次数，并判定是否需要进行优化
+     * 调用次数并不要求精确，因此这里不作同步处理,实际的优化过程由子类在同步块中进行
+     * 已达到反优化上限时,每达到一次调用阈值检查一次计数是否已衰减
+     */
+    protected boolean shouldOptimize() {
+        if(opt || pending || ++runCount <= DynamicOptimizer.tenuringThreshold) {
+            return false;
+        }
+
+        DeoptimizationCounter counter = deoptCounter;
+        if(counter != null && counter.isPinned()) {
+            runCount = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 将优化过程提交到后台编译器中,当前调用继续使用反射版本
+     * 如果任务因编译队列已满而被丢弃,则重新计数,在后续调用中再次尝试
+     */
+    protected void submitBackgroundCompile(Runnable compile) {
+        pending = true;
+        //热度即为单位时间(毫秒)内的调用次数
+        double hotness = (double) runCount / Math.max(1, System.currentTimeMillis() - stamp);
+        BackgroundCompiler.submit(hotness, () -> {
+            try{
+                compile.run();
+            } finally {
+                pending = false;
+            }
+        }, () -> {
+            runCount = 0;
+            stamp = System.currentTimeMillis();
+            pending = false;
+        });
+    }
+
+    /** 优化失败或者优化版本无法处理当前调用,重新回到反射版本,并记录次数 */
+    protected void optimizeFailed() {
+        DeoptimizationCounter counter = deoptCounter;
+        if(counter == null) {
+            synchronized(this) {
+                if((counter = deoptCounter) == null) {
+                    deoptCounter = counter = new DeoptimizationCounter();
+                }
+            }
+        }
+        counter.record();
+        deoptimize();
+    }
+
+    /** 回到安全访问器,由子类实现具体的访问器切换 */
+    protected abstract void resetAccessor();
+
+    /** 反优化,即取消之前的优化,重新开始计数 */
+    public void deoptimize() {
+        opt = false;
+        resetAccessor();
+        runCount = 0;
+        stamp = System.currentTimeMillis();
+    }
+
+    /** 当前(衰减之后的)反优化次数 */
+    public int getDeoptimizationCount() {
+        DeoptimizationCounter counter = deoptCounter;
+        return counter == null ? 0 : counter.get();
+    }
+
+    @Override
+    public boolean isOptimized() {
+        return opt;
+    }
+}
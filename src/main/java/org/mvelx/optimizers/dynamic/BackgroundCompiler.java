@@ -0,0 +1,184 @@
+package org.mvelx.optimizers.dynamic;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台编译器,用于将热点访问器的asm字节码生成放到独立的编译线程中进行
+ * 在编译期间,请求线程继续使用反射版本的访问器,编译完成之后再由访问器自行切换为优化版本
+ * 等待编译的任务按照热度(单位时间内的调用次数)排序,越热的访问器越先编译.
+ * 队列有上限,达到上限时丢弃热度最低的任务(可能是新提交的任务),相应的访问器在后续调用中会重新计数并再次提交
+ */
+@Slf4j
+public class BackgroundCompiler {
+    /** 编译线程数 */
+    public static int compilerThreads = Integer.getInteger("mvelx.dynamic.compiler_threads", 1);
+    /** 等待编译的任务上限,达到此上限时丢弃热度最低的任务 */
+    public static int maximumBacklog = Integer.getInteger("mvelx.dynamic.compiler_backlog", 1024);
+
+    /** 已提交的任务数 */
+    private static final AtomicLong submitted = new AtomicLong();
+    /** 编译成功的任务数 */
+    private static final AtomicLong compiled = new AtomicLong();
+    /** 编译失败的任务数 */
+    private static final AtomicLong failed = new AtomicLong();
+    /** 因队列已满而丢弃的任务数(包括被更热的任务挤出队列的) */
+    private static final AtomicLong dropped = new AtomicLong();
+    /** 累计编译耗时(纳秒) */
+    private static final AtomicLong totalCompileNanos = new AtomicLong();
+    /** 单次最长编译耗时(纳秒) */
+    private static final AtomicLong maxCompileNanos = new AtomicLong();
+
+    /** 提交任务时的锁,保证队列长度的检查与入队(或挤出)为一个整体,编译线程只会从队列中取出任务 */
+    private static final Object SUBMIT_LOCK = new Object();
+
+    private static volatile ThreadPoolExecutor executor;
+
+    /**
+     * 提交一个编译任务
+     * 队列已满时,如果新任务比队列中最冷的任务更热,则挤出最冷的任务,否则丢弃新任务.被丢弃的任务会调用其 discard 回调
+     *
+     * @param hotness 当前访问器的热度,值越大越先编译
+     * @param compile 实际的编译过程,在编译线程中执行
+     * @param discard 任务被丢弃(未执行)时的回调,用于访问器重新计数
+     * @return 是否提交成功, 为false表示队列已满, 新任务已被丢弃
+     */
+    public static boolean submit(double hotness, Runnable compile, Runnable discard) {
+        ThreadPoolExecutor executor = getExecutor();
+        CompileTask task = new CompileTask(hotness, compile, discard);
+        CompileTask evicted = null;
+        synchronized(SUBMIT_LOCK) {
+            BlockingQueue<Runnable> queue = executor.getQueue();
+            if(queue.size() >= maximumBacklog) {
+                CompileTask coldest = coldest(queue);
+                if(coldest == null || coldest.hotness >= hotness) {
+                    dropped.incrementAndGet();
+                    discard.run();
+                    return false;
+                }
+                //移除失败表示此任务已被编译线程取出,队列同样已有空位
+                if(queue.remove(coldest)) {
+                    dropped.incrementAndGet();
+                    evicted = coldest;
+                }
+            }
+
+            submitted.incrementAndGet();
+            executor.execute(task);
+        }
+
+        if(evicted != null) {
+            evicted.discard.run();
+        }
+        return true;
+    }
+
+    /** 查找队列中热度最低的任务 */
+    private static CompileTask coldest(BlockingQueue<Runnable> queue) {
+        CompileTask coldest = null;
+        for(Runnable r : queue) {
+            CompileTask task = (CompileTask) r;
+            if(coldest == null || task.hotness < coldest.hotness) {
+                coldest = task;
+            }
+        }
+        return coldest;
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        if(executor == null) {
+            synchronized(BackgroundCompiler.class) {
+                if(executor == null) {
+                    int threads = Math.max(1, compilerThreads);
+                    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                            new PriorityBlockingQueue<>(), new CompilerThreadFactory());
+                }
+            }
+        }
+        return executor;
+    }
+
+    /** 当前等待编译的任务数 */
+    public static int getQueueDepth() {
+        ThreadPoolExecutor executor = BackgroundCompiler.executor;
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public static long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public static long getCompiledCount() {
+        return compiled.get();
+    }
+
+    public static long getFailedCount() {
+        return failed.get();
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 累计编译耗时(毫秒) */
+    public static long getTotalCompileTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalCompileNanos.get());
+    }
+
+    /** 单次最长编译耗时(毫秒) */
+    public static long getMaxCompileTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxCompileNanos.get());
+    }
+
+    /** 编译任务,按热度倒序排列 */
+    private static class CompileTask implements Runnable, Comparable<CompileTask> {
+        private final double hotness;
+        private final Runnable compile;
+        private final Runnable discard;
+
+        CompileTask(double hotness, Runnable compile, Runnable discard) {
+            this.hotness = hotness;
+            this.compile = compile;
+            this.discard = discard;
+        }
+
+        public void run() {
+            long start = System.nanoTime();
+            try{
+                compile.run();
+                compiled.incrementAndGet();
+            } catch(RuntimeException e) {
+                failed.incrementAndGet();
+                log.debug("后台编译访问器失败:{}", e.getMessage());
+            } finally {
+                long time = System.nanoTime() - start;
+                totalCompileNanos.addAndGet(time);
+
+                long max;
+                while((max = maxCompileNanos.get()) < time && !maxCompileNanos.compareAndSet(max, time)) ;
+            }
+        }
+
+        public int compareTo(CompileTask o) {
+            return Double.compare(o.hotness, hotness);
+        }
+    }
+
+    /** 编译线程均为守护线程,不影响程序退出 */
+    private static class CompilerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mvelx-compiler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.mvelx.optimizers.dynamic;
+
+/**
+ * 带时间衰减的反优化计数
+ * 每经过一个衰减周期计数减半,因此一段时间内集中出现的异常类型只会使访问器暂时固定为反射版本,
+ * 在之后类型稳定时计数回落至上限以下,可以重新进行优化
+ */
+public final class DeoptimizationCounter {
+    /** 衰减之前的计数 */
+    private int count;
+    /** 上一次衰减的时间 */
+    private long stamp = System.currentTimeMillis();
+
+    /** 记录一次反优化,返回衰减之后的计数(包括本次) */
+    public synchronized int record() {
+        decay();
+        return ++count;
+    }
+
+    /** 当前衰减之后的计数 */
+    public synchronized int get() {
+        decay();
+        return count;
+    }
+
+    /** 是否已达到反优化上限,即应固定使用反射版本 */
+    public boolean isPinned() {
+        return get() >= DynamicOptimizer.maximumDeoptimization;
+    }
+
+    /** 按经过的衰减周期数进行减半,衰减周期不大于0时不衰减 */
+    private void decay() {
+        long period = DynamicOptimizer.deoptimizationDecay;
+        if(period <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long periods = (now - stamp) / period;
+        if(periods > 0) {
+            count = periods >= Integer.SIZE ? 0 : count >> periods;
+            stamp += periods * period;
+        }
+    }
+}
@@ -28,4 +28,7 @@ public interface DynamicAccessor extends AccessorNode {
 
     /** 反优化，表示在后面的处理中将不再使用原来的优化器.同时可以解释相应的优化类资源 */
     void deoptimize();
+
+    /** 当前是否已经切换为优化版本(即asm版本)的访问器 */
+    boolean isOptimized();
 }
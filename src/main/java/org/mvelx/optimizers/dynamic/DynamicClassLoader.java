@@ -18,22 +18,27 @@
 
 package org.mvelx.optimizers.dynamic;
 
+import org.mvelx.util.AccessorClassLoader;
 import org.mvelx.util.MvelClassLoader;
 
+import java.lang.ref.WeakReference;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * 用于控制在整个mvel中生成优化访问器的数量，以及承担类加载器的职能，
- * 避免将所有类都绑定在基础类加载器上
+ * 避免将所有类都绑定在基础类加载器上.
+ * 生成类均定义在独立的 AccessorClassLoader 中,此加载器仅负责计数(即一代生成类的数量);
+ * 已注册的访问器使用弱引用持有,因此所属的表达式被丢弃之后,相应的访问器以及生成类即可以被回收
  */
 public class DynamicClassLoader extends ClassLoader implements MvelClassLoader {
     /** 当前经过优化的类上限 */
-    private int totalClasses;
+    private final AtomicInteger totalClasses = new AtomicInteger();
     /** 优化限制上限值 */
     private int tenureLimit;
     /** 当前所有管理的动态访问器,通过引用达到简单管理的目的 */
-    private final LinkedList<DynamicAccessor> allAccessors = new LinkedList<>();
+    private final LinkedList<WeakReference<DynamicAccessor>> allAccessors = new LinkedList<>();
 
     public DynamicClassLoader(ClassLoader classLoader, int tenureLimit) {
         super(classLoader);
@@ -41,20 +46,28 @@ public class DynamicClassLoader extends ClassLoader implements MvelClassLoader {
     }
 
     public Class defineClassX(String className, byte[] b, int start, int end) {
-        totalClasses++;
-        return super.defineClass(className, b, start, end);
+        totalClasses.incrementAndGet();
+        return new AccessorClassLoader(getParent()).defineClassX(className, b, start, end);
+    }
+
+    public Class defineClassX(ClassLoader parent, String className, byte[] b) {
+        totalClasses.incrementAndGet();
+        return AccessorClassLoader.defineClass(parent == null ? getParent() : parent, className, b);
     }
 
     public int getTotalClasses() {
-        return totalClasses;
+        return totalClasses.get();
     }
 
     /** 注册一个，如果已达上限，则尝试反优化一个访问器 */
     public DynamicAccessor registerDynamicAccessor(DynamicAccessor accessor) {
         synchronized(allAccessors) {
-            allAccessors.add(accessor);
+            allAccessors.add(new WeakReference<>(accessor));
+            if(allAccessors.size() > tenureLimit) {
+                allAccessors.removeIf(r -> r.get() == null);
+            }
             while(allAccessors.size() > tenureLimit) {
-                DynamicAccessor da = allAccessors.removeFirst();
+                DynamicAccessor da = allAccessors.removeFirst().get();
                 if(da != null) {
                     da.deoptimize();
                 }
@@ -67,7 +80,8 @@ public class DynamicClassLoader extends ClassLoader implements MvelClassLoader {
     /** 反优化所有动态访问器 */
     public void deoptimizeAll() {
         synchronized(allAccessors) {
-            for(DynamicAccessor a : allAccessors) {
+            for(WeakReference<DynamicAccessor> r : allAccessors) {
+                DynamicAccessor a = r.get();
                 if(a != null) a.deoptimize();
             }
             allAccessors.clear();
@@ -76,6 +90,6 @@ public class DynamicClassLoader extends ClassLoader implements MvelClassLoader {
 
     /** 当前加载器是否过载,即优化生成类太多 */
     public boolean isOverloaded() {
-        return tenureLimit < totalClasses;
+        return tenureLimit < totalClasses.get();
     }
 }
@@ -18,14 +18,12 @@
 
 package org.mvelx.optimizers.dynamic;
 
+import lombok.extern.slf4j.Slf4j;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.AccessorNode;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizeType;
 import org.mvelx.optimizers.OptimizerFactory;
-import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
-
-import static java.lang.System.currentTimeMillis;
 
 /**
  * 针对内联集合InlineCollection的动态访问器
@@ -33,8 +31,10 @@ import static java.lang.System.currentTimeMillis;
  * @see org.mvelx.ast.InlineCollectionNode
  * @see org.mvelx.optimizers.impl.refl.nodes.Union
  * 整个逻辑与DynamicGetAccessor或setAccessor相一致
+ * 注:内联集合的优化需要重新计算每个元素的子表达式(可能包括方法调用),因此不使用后台编译,始终在请求线程中同步优化.
  */
-public class DynamicCollectionAccessor extends BaseAccessor implements DynamicAccessor {
+@Slf4j
+public class DynamicCollectionAccessor extends AbstractDynamicAccessor {
     private ParserContext pCtx;
     private Object rootObject;
     private Class colType;
@@ -43,15 +43,10 @@ public class DynamicCollectionAccessor extends BaseAccessor implements DynamicAc
     private int start;
     private int offset;
 
-    private long stamp;
     private AccessorOptimizeType type;
 
-    private int runCount;
-
-    private boolean opt = false;
-
     private AccessorNode _safeAccessor;
-    private AccessorNode _accessor;
+    private volatile AccessorNode _accessor;
 
     public DynamicCollectionAccessor(ParserContext pCtx, Object rootObject, Class colType, char[] property, int start, int offset, AccessorOptimizeType type, Class ctxClass, AccessorNode _accessor) {
         super(_accessor.nodeExpr(), pCtx);
@@ -65,32 +60,36 @@ public class DynamicCollectionAccessor extends BaseAccessor implements DynamicAc
         this.property = property;
         this.start = start;
         this.offset = offset;
-
-        stamp = currentTimeMillis();
     }
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        //todo 暂时屏蔽
-        /*
-        if(!opt) {
-            if(++runCount > DynamicOptimizer.tenuringThreshold) {
-                if((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
-                    opt = true;
-
-                    return optimize(pCtx, ctx, elCtx, variableFactory);
-                } else {
-                    runCount = 0;
-                    stamp = currentTimeMillis();
+        if(opt) {
+            try{
+                return _accessor.getValue(ctx, elCtx, variableFactory);
+            } catch(ClassCastException e) {
+                log.debug("优化访问器类型不匹配，回退至反射访问:{}", e.getMessage());
+                optimizeFailed();
+                return _safeAccessor.getValue(ctx, elCtx, variableFactory);
+            }
+        }
+
+        if(shouldOptimize()) {
+            synchronized(this) {
+                if(!opt) {
+                    try{
+                        return optimize(pCtx, ctx, elCtx, variableFactory);
+                    } catch(RuntimeException e) {
+                        log.debug("优化访问器失败，继续使用反射访问:{}", e.getMessage());
+                        optimizeFailed();
+                    }
                 }
             }
         }
-        */
 
-        return _accessor.getValue(ctx, elCtx, variableFactory);
+        return _safeAccessor.getValue(ctx, elCtx, variableFactory);
     }
 
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
-        runCount++;
         return _accessor.setValue(ctx, elCtx, variableFactory, value);
     }
 
@@ -100,17 +99,18 @@ public class DynamicCollectionAccessor extends BaseAccessor implements DynamicAc
             DynamicOptimizer.enforceTenureLimit();
         }
 
-        _accessor = OptimizerFactory.getAccessorCompiler("ASM").optimizeCollection(pCtx, rootObject, colType,
+        AccessorNode optimized = OptimizerFactory.getAccessorCompiler(OptimizerFactory.ASM).optimizeCollection(pCtx, rootObject, colType,
                 property, start, offset, ctx, elCtx, variableResolverFactory);
-        return _accessor.getValue(ctx, elCtx, variableResolverFactory);
-    }
+        Object result = optimized.getValue(ctx, elCtx, variableResolverFactory);
 
+        _accessor = optimized;
+        opt = true;
+
+        return result;
+    }
 
-    public void deoptimize() {
+    protected void resetAccessor() {
         this._accessor = this._safeAccessor;
-        opt = false;
-        runCount = 0;
-        stamp = currentTimeMillis();
     }
 
     public Class getKnownEgressType() {
@@ -119,11 +119,11 @@ public class DynamicCollectionAccessor extends BaseAccessor implements DynamicAc
 
     @Override
     public AccessorNode setNextNode(AccessorNode accessorNode, Class<?> currentCtxType) {
-        return _accessor.setNextNode(accessorNode, currentCtxType);
+        return _safeAccessor.setNextNode(accessorNode, currentCtxType);
     }
 
     @Override
     public Class<?> getLastCtxType() {
-        return _accessor.getLastCtxType();
+        return _safeAccessor.getLastCtxType();
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,29 @@
 package org.mvelx.optimizers.dynamic;
 
+import lombok.extern.slf4j.Slf4j;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.AccessorNode;
+import org.mvelx.integration.GlobalListenerFactory;
 import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizeType;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
-import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
+import org.mvelx.optimizers.impl.refl.nodes.*;
 
-import static java.lang.System.currentTimeMillis;
+import java.util.HashMap;
+import java.util.Map;
 
 /** 用于执行get访问的动态访问器(如字段读取，方法调用等) */
-public class DynamicGetAccessor extends BaseAccessor implements DynamicAccessor {
+@Slf4j
+public class DynamicGetAccessor extends AbstractDynamicAccessor {
+    /**
+     * 可以放到后台编译的访问节点类型,即只读取属性,字段,常量下标及静态字段,不调用带参方法或执行子表达式的节点
+     * asm优化器在生成访问器时会重新执行一次访问链,只有这些节点在编译线程中重复执行是安全的
+     */
+    private static final Class[] PURE_NODES = {VariableAccessor.class, ThisValueAccessor.class, FieldAccessor.class, GetterAccessor.class,
+            StaticVarAccessor.class, StaticReferenceAccessor.class, MapAccessor.class, ListAccessor.class, ArrayAccessor.class, ArrayLength.class};
+
     /** 相应的表达式 */
     private char[] expr;
     /** 当前处理的起始点 */
@@ -19,24 +31,16 @@ public class DynamicGetAccessor extends BaseAccessor implements DynamicAccessor
     /** 当前处理的语句长度 */
     private int offset;
 
-    /** 上一次优化访问时间(即在一定时间内上一次统计时间) */
-    private long stamp;
     /** 处理类型，有0和3可选，分别表示获取和对象创建(2的访问将转由collection处理) */
     private AccessorOptimizeType type;
 
-    /** 在时间区间内的运行统计次数 */
-    private int runCount;
-
-    /** 是否作过优化 */
-    private boolean opt = false;
-
     /** 当前解析上下文 */
     private ParserContext pCtx;
 
     /** 当前安全的访问器(即可正常执行的访问器) */
     private AccessorNode _safeAccessor;
     /** 当前的优化访问器 */
-    private AccessorNode _accessor;
+    private volatile AccessorNode _accessor;
 
     /** 使用解析上下文, 当前区间的表达式,以及指定的访问器创建结构 */
     public DynamicGetAccessor(ParserContext pCtx, char[] expr, int start, int offset, AccessorOptimizeType type, Class lastCtxClass, AccessorNode _accessor) {
@@ -50,68 +54,138 @@ public class DynamicGetAccessor extends BaseAccessor implements DynamicAccessor
         this.offset = offset;
 
         this.pCtx = pCtx;
-        stamp = currentTimeMillis();
     }
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        //todo 取消相应的优化，后续再支持
-        /*
-        if(!opt) {
-            //这里即尝试优化，即如果次数超过指定计数，并且时间在指定区间内，即在100ms内运行超过50次
-            if(++runCount > DynamicOptimizer.tenuringThreshold) {
-                if((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
-                    opt = true;
+        //已优化，则直接使用优化版本.类型不匹配时表示优化时的类型假设已失效，退回反射版本
+        if(opt) {
+            try{
+                return _accessor.getValue(ctx, elCtx, variableFactory);
+            } catch(ClassCastException e) {
+                log.debug("优化访问器类型不匹配，回退至反射访问:{}", e.getMessage());
+                optimizeFailed();
+                return _safeAccessor.getValue(ctx, elCtx, variableFactory);
+            }
+        }
+
+        //调用次数超过阈值，表示为热点访问，尝试进行优化
+        if(shouldOptimize()) {
+            //只读取属性的访问链可以放到后台进行编译,编译线程只使用当前线程中复制的变量值,不引用当前请求的变量工厂
+            //方法调用,对象创建等会重复产生副作用,仍然在当前线程中处理
+            if(DynamicOptimizer.backgroundCompile && type == AccessorOptimizeType.ACCESS_REGULAR && isPureChain()) {
+                VariableResolverFactory snapshot = snapshotVariables(variableFactory);
+                submitBackgroundCompile(() -> backgroundOptimize(ctx, elCtx, snapshot));
+                return _safeAccessor.getValue(ctx, elCtx, variableFactory);
+            }
+
+            synchronized(this) {
+                if(!opt) {
                     try{
                         return optimize(ctx, elCtx, variableFactory);
-                    } catch(OptimizationNotSupported ex) {
-                        // If optimization fails then, rather than fail evaluation, fallback to use safe reflective accessor
+                    } catch(RuntimeException e) {
+                        //优化失败时并不影响正常的执行，而是继续使用反射版本
+                        log.debug("优化访问器失败，继续使用反射访问:{}", e.getMessage());
+                        optimizeFailed();
                     }
-                } else {
-                    runCount = 0;
-                    stamp = currentTimeMillis();
                 }
             }
         }
-        */
 
-        return _accessor.getValue(ctx, elCtx, variableFactory);
+        return _safeAccessor.getValue(ctx, elCtx, variableFactory);
     }
 
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
-        runCount++;
         return _accessor.setValue(ctx, elCtx, variableFactory, value);
     }
 
-    /** 执行实际的优化过程 */
+    /** 当前访问链是否只包含只读的访问节点,并且没有全局的读取监听(监听器会在编译时被调用) */
+    private boolean isPureChain() {
+        if(GlobalListenerFactory.hasGetListeners()) {
+            return false;
+        }
+
+        //只读节点均继承自BaseAccessor,变量访问只能作为起始节点
+        for(AccessorNode node = _safeAccessor; node != null; node = ((BaseAccessor) node).getNextNode()) {
+            if(!isPureNode(node) || node instanceof VariableAccessor && node != _safeAccessor) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPureNode(AccessorNode node) {
+        for(Class type : PURE_NODES) {
+            if(type.isInstance(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 复制访问链起始变量的当前值,编译线程使用此副本进行编译
+     * 当前请求的变量工厂可能在请求结束之后被复用,因此不能在编译线程中引用
+     */
+    private VariableResolverFactory snapshotVariables(VariableResolverFactory variableFactory) {
+        Map<String, Object> vars = new HashMap<>();
+        if(_safeAccessor instanceof VariableAccessor) {
+            String name = ((VariableAccessor) _safeAccessor).getProperty();
+            vars.put(name, variableFactory.getVariableResolver(name).getValue());
+        }
+        return new MapVariableResolverFactory(vars);
+    }
+
+    /** 在编译线程中执行优化,优化的结果值直接丢弃 */
+    private void backgroundOptimize(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        synchronized(this) {
+            if(opt) {
+                return;
+            }
+
+            try{
+                optimize(ctx, elCtx, variableFactory);
+            } catch(RuntimeException e) {
+                optimizeFailed();
+                throw e;
+            }
+        }
+    }
+
+    /** 执行实际的优化过程,优化器在创建访问器的同时即完成了本次的计算 */
     private Object optimize(Object ctx, Object elCtx, VariableResolverFactory variableResolverFactory) {
-        //过载保护，避免无限创建新类(其实没什么用)
+        //过载保护，避免无限创建新类
         if(DynamicOptimizer.isOverloaded()) {
             DynamicOptimizer.enforceTenureLimit();
         }
 
         //这里采用asm优化器来进行优化,即直接执行相应的字节码
-        AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler("ASM");
+        AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler(OptimizerFactory.ASM);
+        Object result;
+        AccessorNode optimized;
         switch(type) {
             //正常对象访问
             case ACCESS_REGULAR:
-                _accessor = ao.optimizeAccessor(pCtx, expr, start, offset, ctx, elCtx, variableResolverFactory, null);
-                return ao.getResultOptPass();
+                optimized = ao.optimizeAccessor(pCtx, expr, start, offset, ctx, elCtx, variableResolverFactory, null);
+                result = ao.getResultOptPass();
+                break;
             //对象创建过程
             case ACCESS_OBJ_CREATION:
-                _accessor = ao.optimizeObjectCreation(pCtx, expr, start, offset, ctx, elCtx, variableResolverFactory);
-                return _accessor.getValue(ctx, elCtx, variableResolverFactory);
+                optimized = ao.optimizeObjectCreation(pCtx, expr, start, offset, ctx, elCtx, variableResolverFactory);
+                result = optimized.getValue(ctx, elCtx, variableResolverFactory);
+                break;
             default:
                 throw new UnsupportedOperationException("不支持的优化类型操作:" + type);
         }
+
+        _accessor = optimized;
+        opt = true;
+
+        return result;
     }
 
-    /** 反优化,即取消之前的优化 */
-    public void deoptimize() {
+    protected void resetAccessor() {
         //重置为安全访问器,即反射访问的方式
         this._accessor = this._safeAccessor;
-        opt = false;
-        runCount = 0;
-        stamp = currentTimeMillis();
     }
 
     /** 声明类型为安全访问顺的声明类型 */
@@ -121,11 +195,11 @@ public class DynamicGetAccessor extends BaseAccessor implements DynamicAccessor
 
     @Override
     public AccessorNode setNextNode(AccessorNode accessorNode, Class<?> currentCtxType) {
-        return _accessor.setNextNode(accessorNode, currentCtxType);
+        return _safeAccessor.setNextNode(accessorNode, currentCtxType);
     }
 
     @Override
     public Class<?> getLastCtxType() {
-        return _accessor.getLastCtxType();
+        return _safeAccessor.getLastCtxType();
     }
 }
@@ -23,20 +23,31 @@ import static org.mvelx.optimizers.OptimizerFactory.getAccessorCompiler;
  * 当前可用的优化器分别为反射调用和asm字节码执行,这里即是通过切换这2种来达到动态访问的目的
  */
 public class DynamicOptimizer extends AbstractOptimizer implements AccessorOptimizer {
-    /** 用于支持第一步的优化访问，表示先使用此优化器进行访问,这里即通过反射的方式处理 */
-    private AccessorOptimizer firstStage = getAccessorCompiler(SAFE_REFLECTIVE);
+    /** 第一步所使用的优化器名,默认为反射,也可以设置为 methodhandle 以在切换为asm版本之前使用方法句柄进行访问 */
+    public static String firstStageOptimizer = System.getProperty("mvelx.dynamic.first_stage", SAFE_REFLECTIVE);
+
+    /** 用于支持第一步的优化访问，表示先使用此优化器进行访问,默认即通过反射的方式处理 */
+    private AccessorOptimizer firstStage = getAccessorCompiler(firstStageOptimizer);
 
     /** 当前所使用的优化器加载类 */
     private volatile static DynamicClassLoader classLoader;
-    /** 优化调用次数，表示某个调用在一定区间内调用了超过多少次 */
-    public static int tenuringThreshold = 50;
-    /** 优化的调用区间,即表示某个方法在某个频率内调用很频繁 */
-    public static long timeSpan = 100;
+    /** 优化调用次数，表示某个访问器被调用超过多少次之后即被认为是热点访问,切换为asm版本 */
+    public static int tenuringThreshold = Integer.getInteger("mvelx.dynamic.tenuring_threshold", 50);
+    /** 单个访问器最多允许的反优化(或优化失败)次数，超过此次数之后将固定使用反射版本,直到计数衰减至此次数以下 */
+    public static int maximumDeoptimization = Integer.getInteger("mvelx.dynamic.maximum_deoptimization", 3);
+    /** 反优化计数的衰减周期(毫秒),每经过一个周期计数减半,不大于0时不衰减(即达到上限之后永久使用反射版本) */
+    public static long deoptimizationDecay = Long.getLong("mvelx.dynamic.deoptimization_decay", 60000L);
+    /**
+     * 是否在后台线程中进行asm优化,开启之后请求线程不再承担字节码生成的开销
+     * 注:asm优化器在生成访问器时会重新执行一次访问链,因此只有只读取属性,字段及常量下标的访问链才会放到后台编译,
+     * 编译时使用请求线程中复制的起始变量值;其它访问(方法调用,对象创建,内联集合及设置值)仍然在请求线程中同步优化
+     */
+    public static boolean backgroundCompile = Boolean.getBoolean("mvelx.dynamic.background_compile");
     /**
      * 在当前执行器内最大的优化上限，表示某些方法不会作优化处理(在达到上限之后，再次处理将会通过某种手段将原来优化的方法重新还原,
      * 原因在于保证不会大量产生新类)
      */
-    public static int maximumTenure = 1500;
+    public static int maximumTenure = Integer.getInteger("mvelx.dynamic.maximum_tenure", 1500);
     /** 总共还原了多少类(即从优化到反优化) */
     public static int totalRecycled = 0;
     /**
@@ -65,7 +76,7 @@ public class DynamicOptimizer extends AbstractOptimizer implements AccessorOptim
         try{
             if(classLoader.isOverloaded()) {
                 classLoader.deoptimizeAll();
-                totalRecycled = +classLoader.getTotalClasses();
+                totalRecycled += classLoader.getTotalClasses();
                 _init();
             }
         } finally {
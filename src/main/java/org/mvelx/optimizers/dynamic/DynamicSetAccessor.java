@@ -1,17 +1,16 @@
 package org.mvelx.optimizers.dynamic;
 
+import lombok.extern.slf4j.Slf4j;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.Accessor;
 import org.mvelx.compiler.AccessorNode;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
-import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
-
-import static java.lang.System.currentTimeMillis;
 
 /** 处理对象设置值之类的动态优化访问器 */
-public class DynamicSetAccessor extends BaseAccessor implements DynamicAccessor {
+@Slf4j
+public class DynamicSetAccessor extends AbstractDynamicAccessor {
     /** 处理的表达式 */
     private char[] property;
     /** 当前语句起始下标 */
@@ -19,18 +18,11 @@ public class DynamicSetAccessor extends BaseAccessor implements DynamicAccessor
     /** 当前语句长度位 */
     private int offset;
 
-    /** 是否优化过 */
-    private boolean opt = false;
-    /** 统计运行次数 */
-    private int runcount = 0;
-    /** 上限统计计时 */
-    private long stamp;
-
     private ParserContext context;
     /** 可安全调用的访问器 */
     private final Accessor _safeAccessor;
     /** 当前使用的访问器(可能为优化版本) */
-    private Accessor _accessor;
+    private volatile Accessor _accessor;
 
     public DynamicSetAccessor(ParserContext context, char[] property, int start, int offset, Class ctxClass, AccessorNode _accessor) {
         super(new String(property, start, offset), context);
@@ -43,27 +35,32 @@ public class DynamicSetAccessor extends BaseAccessor implements DynamicAccessor
         this.property = property;
         this.start = start;
         this.offset = offset;
-
-        this.stamp = System.currentTimeMillis();
     }
 
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
-        //如果未优化,则按照处理策略进行优化
-        //处理策略即在指定时间内运行了多少次
-        //todo 暂时屏蔽
-        /*
-        if(!opt) {
-            if(++runcount > DynamicOptimizer.tenuringThreshold) {
-                if((currentTimeMillis() - stamp) < DynamicOptimizer.timeSpan) {
-                    opt = true;
-                    return optimize(ctx, elCtx, variableFactory, value);
-                } else {
-                    runcount = 0;
-                    stamp = currentTimeMillis();
+        //已优化，则直接使用优化版本,类型不匹配时退回反射版本
+        if(opt) {
+            try{
+                _accessor.setValue(ctx, elCtx, variableFactory, value);
+                return value;
+            } catch(ClassCastException e) {
+                log.debug("优化访问器类型不匹配，回退至反射访问:{}", e.getMessage());
+                optimizeFailed();
+            }
+        }
+        //如果未优化,则按照调用次数进行优化
+        else if(shouldOptimize()) {
+            synchronized(this) {
+                if(!opt) {
+                    try{
+                        return optimize(ctx, elCtx, variableFactory, value);
+                    } catch(RuntimeException e) {
+                        log.debug("优化访问器失败，继续使用反射访问:{}", e.getMessage());
+                        optimizeFailed();
+                    }
                 }
             }
         }
-        */
 
         fetchNextAccessNode(ctx, elCtx, variableFactory).setValue(ctx, elCtx, variableFactory, value);
         return value;
@@ -73,31 +70,30 @@ public class DynamicSetAccessor extends BaseAccessor implements DynamicAccessor
         throw new RuntimeException("value cannot be read with this accessor");
     }
 
-    /** 对相应的表达式进行优化 */
+    /** 对相应的表达式进行优化,优化器在创建访问器的同时即完成了本次的设置 */
     private Object optimize(Object ctx, Object elCtx, VariableResolverFactory variableResolverFactory, Object value) {
         if(DynamicOptimizer.isOverloaded()) {
             DynamicOptimizer.enforceTenureLimit();
         }
 
         //采用asm进行优化处理
-        AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler("ASM");
-        _accessor = ao.optimizeSetAccessor(context, property, start, offset, ctx, elCtx,
+        AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler(OptimizerFactory.ASM);
+        Accessor optimized = ao.optimizeSetAccessor(context, property, start, offset, ctx, elCtx,
                 variableResolverFactory, false, value, value != null ? value.getClass() : Object.class);
-        assert _accessor != null;
+        assert optimized != null;
+
+        _accessor = optimized;
+        opt = true;
 
         return value;
     }
 
-    /** 反优化处理 */
-    public void deoptimize() {
+    protected void resetAccessor() {
         this._accessor = this._safeAccessor;
-        opt = false;
-        runcount = 0;
-        stamp = currentTimeMillis();
     }
 
     /** 相应的声明类型即安全访问器的声明类型 */
     public Class getKnownEgressType() {
         return _safeAccessor.getKnownEgressType();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package org.mvelx.optimizers.impl.asm;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.MapMaker;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -15,16 +16,23 @@ import org.mvelx.compiler.*;
 import org.mvelx.integration.*;
 import org.mvelx.optimizers.AbstractOptimizer;
 import org.mvelx.optimizers.AccessorOptimizer;
+import org.mvelx.optimizers.GuardFailure;
 import org.mvelx.optimizers.OptimizationNotSupported;
+import org.mvelx.optimizers.impl.refl.collection.MapCreator;
 import org.mvelx.optimizers.impl.refl.nodes.DelegatedAccessorNode;
 import org.mvelx.optimizers.impl.refl.nodes.Union;
 import org.mvelx.util.*;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
@@ -46,6 +54,11 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
     private static final org.mvelx.asm.commons.Method METHOD_GET_KNOWN_EGRESS_TYPE = org.mvelx.asm.commons.Method.getMethod("Class getKnownEgressType()");
     private static final org.mvelx.asm.commons.Method METHOD_TO_STRING = org.mvelx.asm.commons.Method.getMethod("String toString()");
 
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final Type GUARD_FAILURE_TYPE = Type.getType(GuardFailure.class);
+    private static final org.mvelx.asm.commons.Method GUARD_FAILURE_OF =
+            org.mvelx.asm.commons.Method.getMethod("org.mvelx.optimizers.GuardFailure of(Object, Class, String)");
+
     private static final int ACCESSOR_LOCAL_IDX_CTX = 1;
     private static final int ACCESSOR_LOCAL_IDX_EL_CTX = 2;
     private static final int ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY = 3;
@@ -208,7 +221,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         //无前半部分，则直接使用ctx对象
         else {
             debug("ALOAD 1");
-            mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+            loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
         }
 
         try{
@@ -243,7 +256,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     generateLiteralOrExecuteStatement(keyEs, null, null);
                     //value
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                     //可能的值类型转换
                     if(value != null && returnType != value.getClass()) {
                         generateDataConversionCode(returnType);
@@ -258,7 +271,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                     //返回参数值 与 org.mvelx.optimizers.impl.refl.nodes.MapAccessor 相一致
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                 }
                 //list类调用
                 else if(ctx instanceof List) {
@@ -273,7 +286,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     unwrapPrimitive(int.class);
                     //value
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                     //可能的值类型转换
                     if(value != null && !value.getClass().isAssignableFrom(returnType)) {
                         generateDataConversionCode(returnType);
@@ -285,7 +298,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                     //返回 set value
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                 }
                 //自定义属性类操作
                 else if(PropertyHandlerFactory.hasPropertyHandler(ctx.getClass())) {
@@ -309,7 +322,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                     //value
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                     //value类型转换
                     if(type.isPrimitive()) {
                         unwrapPrimitive(type);
@@ -324,7 +337,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                     //返回参数值
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                 } else {
                     throw new PropertyAccessException("cannot bind to collection property: " + new String(expr)
                             + ": not a recognized collection type: " + ctx.getClass(), expr, start, pCtx);
@@ -351,10 +364,10 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
             //触发全局set/get监听器
             if(GlobalListenerFactory.hasSetListeners()) {
                 //调用 GlobalListenerFactory void notifySetListeners(Object target, String name, VariableResolverFactory variableFactory, Object value)
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
                 mv.push(tk);
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                 mv.invokeStatic(Type.getType(GlobalListenerFactory.class), org.mvelx.asm.commons.Method.getMethod("void notifySetListeners(Object, String, org.mvelx.integration.VariableResolverFactory, Object)"));
 
                 GlobalListenerFactory.notifySetListeners(ctx, tk, variableFactory, value);
@@ -390,7 +403,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     //current.field = value
 
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
 
                     //以下逻辑实现
                     /*
@@ -413,7 +426,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     mv.visitLabel(primitiveAndNotNullLabel);
 
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                     //解包
                     unwrapPrimitive(fld.getType());
 
@@ -427,7 +440,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     fld.set(ctx, value);
                 } else {
                     debug("ALOAD 4");
-                    mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                    loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
 
                     //潜在的类型转换
                     if(value != null && !fld.getType().isAssignableFrom(value.getClass())) {
@@ -439,6 +452,9 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                         generateDataConversionCode(fld.getType());
                         //字段赋值
                         fld.set(ctx, DataConversion.convert(value, fld.getType()));
+                    } else {
+                        //字段赋值
+                        fld.set(ctx, value);
                     }
 
                     checkCast(fld.getType());
@@ -453,7 +469,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                 //返回参数值
                 debug("ALOAD 4");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
             }
             //方法
             else if(member != null) {
@@ -479,7 +495,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                  */
 
                 debug("ALOAD 4");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
 
                 Class methodParamType = method.getParameterTypes()[0];
 
@@ -517,7 +533,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                         mv.visitLabel(primitiveNotNullLabel);
                         //加载参数值，并解馋
                         debug("ALOAD 4");
-                        mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                        loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                         unwrapPrimitive(methodParamType);
                     } else {
                         checkCast(methodParamType);
@@ -534,7 +550,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                 //返回参数值
                 debug("ALOAD 4");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
             }
             //支持map的.式调用，如map.a=b，这种调用方式
             else if(ctx instanceof Map) {
@@ -548,7 +564,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                 mv.push(tk);
                 //value
                 debug("ALOAD 4");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
                 //op put(k,v)
                 debug("INVOKEINTERFACE java/util/Map.put");
                 mv.invokeInterface(Type.getType(Map.class), org.mvelx.asm.commons.Method.getMethod("Object put(Object,Object)"));
@@ -557,7 +573,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
                 //返回参数值
                 debug("ALOAD 4");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_SET_VALUE);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_SET_VALUE);
 
                 //noinspection unchecked
                 ((Map) ctx).put(tk, value);
@@ -816,9 +832,9 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         //支持全局监听器
         if(member != null && GlobalListenerFactory.hasGetListeners()) {
             //GlobalListenerFactory.notifyGetListeners(Object target, String name, VariableResolverFactory variableFactory)
-            mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+            loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
             mv.push(member.getName());
-            mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+            loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
 
             mv.invokeStatic(Type.getType(GlobalListenerFactory.class), org.mvelx.asm.commons.Method.getMethod("void notifyGetListeners(Object, String, org.mvelx.integration.VariableResolverFactory)"));
 
@@ -829,7 +845,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
             //支持首单词为this,即访问当前对象
             if("this".equals(property)) {
                 debug("ALOAD 2");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_EL_CTX);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_EL_CTX);
                 return thisRef;
             }
             //如果变量解析器能够解析此变量，则使用变量解析器，变量解析器敢只有在first时才能解析，
@@ -860,7 +876,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
             //其它情况下，因为要访问此属性，先把当前对象加入栈中
             else {
                 debug("ALOAD 1");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
             }
         }
 
@@ -1188,7 +1204,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         //如果是首解析，先加载当前对象至栈中，以便访问数据
         if(first) {
             debug("ALOAD 1");
-            mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+            loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
         }
 
         ExecutableStatement compiled = (ExecutableStatement) ParseTools.subCompileExpression(tk.toCharArray(), pCtx);
@@ -1372,7 +1388,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                     //执行N次 params[i] = es.getValue(ctx,factory)
                     for(int i = 0; i < subEss.length; i++) {
                         debug("ALOAD 4");
-                        mv.visitVarInsn(ALOAD, 4);
+                        mv.loadLocal(localIdxParams);
                         pushInt(i);
 
                         //es.getValue(ctx,factory), 其中es使用位置字段代替
@@ -1404,11 +1420,11 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                 //相应的functionInstance已经在栈中了,接下来准备相应的参数
 
                 debug("ALOAD 1");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
                 debug("ALOAD 2");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_EL_CTX);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_EL_CTX);
                 debug("ALOAD 3");
-                mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+                loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
                 debug("ALOAD 4");
                 mv.loadLocal(localIdxParams);
 
@@ -1439,13 +1455,13 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         Class[] parameterTypes = null;
 
         //重新尝试获取最匹配的方法，并且重置相应的参数类型
-        if((m = ParseTools.getBestCandidate(argTypes, name, cls, cls.getMethods(), false, classTarget)) != null) {
+        if((m = ParseTools.getBestCandidate(argTypes, name, cls, false, classTarget)) != null) {
             parameterTypes = m.getParameterTypes();
         }
 
         //静态方法，并且还没找到方法，尝试查找Class类上的方法,如getClass等
         if(m == null && classTarget) {
-            if((m = ParseTools.getBestCandidate(argTypes, name, cls, Class.class.getMethods(), false)) != null) {
+            if((m = ParseTools.getBestCandidate(argTypes, name, Class.class, false, false)) != null) {
                 parameterTypes = m.getParameterTypes();
             }
         }
@@ -1453,7 +1469,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         //还没有找到，则从实际对象的类型上找，则不是从声明类型中查找
         if(m == null && cls != ctx.getClass() && !(ctx instanceof Class)) {
             cls = ctx.getClass();
-            if((m = ParseTools.getBestCandidate(argTypes, name, cls, cls.getMethods(), false, false)) != null) {
+            if((m = ParseTools.getBestCandidate(argTypes, name, cls, false, false)) != null) {
                 parameterTypes = m.getParameterTypes();
             }
         }
@@ -1517,7 +1533,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         //首次调用，调用方法需要 实例对象，因此加载 实例
         if(first) {
             debug("ALOAD 1 (D) ");
-            mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+            loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
         }
 
         if(m == null) {
@@ -1825,7 +1841,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
             debug("ALOAD 0");
             cv.loadThis();
             debug("ALOAD " + (i + 1));
-            cv.loadLocal(i + 1);
+            cv.loadArg(i);
             debug("PUTFIELD p" + i);
             cv.putField(Type.getType(className), "p" + i, Type.getType(ExecutableStatement.class));
         }
@@ -1854,7 +1870,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
             }
             //栈上为list
              */
-            generateNewInstance(mv, FastList.class);
+            generateNewInstance(mv, FastList.class, ((List) o).size());
 
             for(Object item : (List) o) {
                 //以下代码调用 list.add(item)
@@ -1875,7 +1891,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
             returnType = List.class;
         } else if(o instanceof Map) {
-            generateNewInstance(mv, HashMap.class);
+            generateNewInstance(mv, HashMap.class, MapCreator.initialCapacity(((Map) o).size()));
 
             for(Object item : ((Map) o).keySet()) {
                 //以下代码调用 map.put(key,value)
@@ -1889,8 +1905,6 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
                 _getAccessor(((Map) o).get(item), type);
                 //op put
                 debug("INVOKEINTERFACE java/util/Map.put");
-                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "put",
-                        "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
                 mv.invokeInterface(Type.getType(Map.class), org.mvelx.asm.commons.Method.getMethod("Object put(Object,Object)"));
 
                 //删除返回数据
@@ -2067,6 +2081,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         _initJit4GetValue();
 
         compiledInputs = new ArrayList<>();
+        this.expr = property;
         this.start = cursor = start;
         this.end = start + offset;
         this.length = this.end - this.start;
@@ -2258,6 +2273,22 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         mvWriter.invokeConstructor(type, new org.mvelx.asm.commons.Method("<init>", "()V"));
     }
 
+    /** 使用int参数的构造函数创建对象,用于按已知的容量创建集合 */
+    private void generateNewInstance(GeneratorAdapter mvWriter, Class clazz, int capacity) {
+        val type = Type.getType(clazz);
+
+        debug(() -> "NEW " + Type.getInternalName(clazz));
+        mvWriter.newInstance(type);
+
+        debug("DUP");
+        mvWriter.dup();
+
+        pushInt(capacity);
+
+        debug("INVOKESPECIAL <init>");
+        mvWriter.invokeConstructor(type, new org.mvelx.asm.commons.Method("<init>", "(I)V"));
+    }
+
     /** 基本类型转包装类型 */
     private Class toWrapperClass(Class cls) {
         if(cls == boolean.class) {
@@ -2463,8 +2494,40 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         checkCast(Type.getType(cls));
     }
 
-    /** 断言当前对象必须是相应的类型 */
+    /**
+     * 断言当前对象必须是相应的类型
+     * 在类型转换之前先以instanceof进行检查,不匹配(且不为null)时抛出 GuardFailure,由外层回退至反射版本
+     */
     private void checkCast(Type type) {
+        if(!OBJECT_TYPE.equals(type)) {
+            Label passLabel = mv.newLabel();
+
+            debug("DUP");
+            mv.dup();
+            debug(() -> "INSTANCEOF " + type.getInternalName());
+            mv.instanceOf(type);
+            debug("IFNE : pass");
+            mv.ifZCmp(GeneratorAdapter.NE, passLabel);
+
+            debug("DUP");
+            mv.dup();
+            debug("IFNULL : pass");
+            mv.ifNull(passLabel);
+
+            //失败时以当前值,期望类型以及表达式创建异常,当前值即栈顶的值
+            debug(() -> "LDC " + type.getInternalName());
+            mv.push(type);
+            String property = expr == null || start < 0 || end <= start || end > expr.length ? "" : new String(expr, start, end - start);
+            debug(() -> "LDC \"" + property + "\"");
+            mv.push(property);
+            debug("INVOKESTATIC GuardFailure.of");
+            mv.invokeStatic(GUARD_FAILURE_TYPE, GUARD_FAILURE_OF);
+            debug("ATHROW");
+            mv.throwException();
+
+            mv.mark(passLabel);
+        }
+
         debug(() -> "CHECKCAST " + type.getInternalName());
 
         mv.checkCast(type);
@@ -2504,21 +2567,25 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         }
     }
 
+    /**
+     * 加载访问器方法的参数(ctx,elCtx,variableFactory以及set时的value)
+     * 这些参数位于局部变量表的固定位置,并不是通过newLocal分配的局部变量,因此不能使用loadLocal
+     */
+    private void loadAccessorArg(int localIdx) {
+        mv.visitVarInsn(ALOAD, localIdx);
+    }
+
     /** 从变量工厂中通过下标获取相应的值 */
     private void generateLoadVariableByIdx(int pos) {
         debug("ALOAD 3");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
 
         debug("PUSH IDX VAL =" + pos);
         pushInt(pos);
 
-        //VariableResolverFactory 中 VariableResolver getIndexedVariableResolver(int index);
-        debug("INVOKEINTERFACE " + NAMESPACE + "integration/VariableResolverFactory.getIndexedVariableResolver");
-        mv.invokeInterface(Type.getType(VariableResolverFactory.class), org.mvelx.asm.commons.Method.getMethod("org.mvelx.integration.VariableResolver getIndexedVariableResolver(int)"));
-
-        //VariableResolver 中 Object getValue();
-        debug("INVOKEINTERFACE " + NAMESPACE + "integration/VariableResolver.getValue");
-        mv.invokeInterface(Type.getType(VariableResolver.class), org.mvelx.asm.commons.Method.getMethod("Object getValue()"));
+        //VariableResolverFactory 中 Object getIndexedValue(int index);
+        debug("INVOKEINTERFACE " + NAMESPACE + "integration/VariableResolverFactory.getIndexedValue");
+        mv.invokeInterface(Type.getType(VariableResolverFactory.class), org.mvelx.asm.commons.Method.getMethod("Object getIndexedValue(int)"));
 
         returnType = Object.class;
     }
@@ -2526,7 +2593,7 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
     /** 根据名字从变量工厂中获取相应的数据值 */
     private void generateLoadVariableByName(String name) {
         debug("ALOAD 3");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
 
         debug("LDC \"" + name + "\"");
         mv.push(name);
@@ -2579,10 +2646,10 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         mv.push(member.getName());
 
         debug("ALOAD 1");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_CTX);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_CTX);
 
         debug("ALOAD 3");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
 
         debug("INVOKEINTERFACE PropertyHandler.getProperty");
         mv.invokeInterface(Type.getType(PropertyHandler.class), org.mvelx.asm.commons.Method.getMethod("Object getProperty(String, Object, org.mvelx.integration.VariableResolverFactory)"));
@@ -2605,9 +2672,9 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         generateGetEsField(esIdx);
         //获取相应的参数信息
         debug("ALOAD 2");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_EL_CTX);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_EL_CTX);
         debug("ALOAD 3");
-        mv.loadLocal(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
+        loadAccessorArg(ACCESSOR_LOCAL_IDX_VARIABLE_FACTORY);
         debug("INVOKEINTERFACE ExecutableStatement.getValue");
         mv.invokeInterface(Type.getType(ExecutableStatement.class), org.mvelx.asm.commons.Method.getMethod("Object getValue(Object, org.mvelx.integration.VariableResolverFactory)"));
     }
@@ -2641,6 +2708,17 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
 
     private static MvelClassLoader classLoader;
 
+    /** 生成类文件的输出目录,用于调试,默认不输出 */
+    public static String classDumpDir = System.getProperty("mvelx.asm.dump_dir");
+    /** 是否在字节码相同的访问器之间共享生成类,可通过 -Dmvelx.asm.disable_class_sharing=true 关闭 */
+    public static boolean shareAccessorClasses = !Boolean.getBoolean("mvelx.asm.disable_class_sharing");
+
+    /** 已定义的访问器类,按父加载器以及去掉类名之后的字节码摘要保存,均为弱引用,不影响加载器及类的卸载 */
+    private static final ConcurrentMap<Object, ConcurrentMap<String, Class>> SHARED_CLASSES = new MapMaker().weakKeys().makeMap();
+    private static final AtomicLong SHARED_CLASS_HITS = new AtomicLong();
+    /** 计算共享类的key时替换类名所使用的固定名称 */
+    private static final byte[] CANONICAL_CLASS_NAME = "AsmAccessorImpl".getBytes(StandardCharsets.US_ASCII);
+
     public static void setMvelClassLoader(MvelClassLoader cl) {
         classLoader = cl;
     }
@@ -2653,29 +2731,144 @@ public class AsmAccessorOptimizer extends AbstractOptimizer implements AccessorO
         }
     }
 
-    private ContextClassLoader getContextClassLoader() {
-        return pCtx == null ? null : new ContextClassLoader(pCtx.getClassLoader());
+    /**
+     * 加载生成的访问器类
+     * 在开启共享时,字节码(除类名之外)完全相同的访问器共用同一个类,各个节点仍各自创建实例(构造参数可以不同),
+     * 如多个规则中都有的 order.customer.tier,只会定义一次类,以减少类定义耗时,metaspace以及jit代码缓存的占用
+     */
+    private java.lang.Class loadClass(String className, byte[] b) throws Exception {
+        ClassLoader parent = pCtx == null ? null : pCtx.getClassLoader();
+        if(!shareAccessorClasses) {
+            return defineClass(parent, className, b);
+        }
+
+        ConcurrentMap<String, Class> shared = SHARED_CLASSES.computeIfAbsent(parent == null ? classLoader : parent,
+                k -> new MapMaker().weakValues().makeMap());
+        String key = canonicalKey(className, b);
+        Class cls = shared.get(key);
+        if(cls != null) {
+            SHARED_CLASS_HITS.incrementAndGet();
+            return cls;
+        }
+
+        Class defined = defineClass(parent, className, b);
+        cls = shared.putIfAbsent(key, defined);
+        return cls != null ? cls : defined;
+    }
+
+    private java.lang.Class defineClass(ClassLoader parent, String className, byte[] b) throws Exception {
+        //仅在调试时输出生成的类文件,避免在编译线程中产生额外的io开销
+        if(classDumpDir != null) {
+            Files.write(Paths.get(classDumpDir, className + ".class"), b, StandardOpenOption.CREATE);
+        }
+        //每个生成类定义在独立的加载器中(父加载器为解析上下文的加载器),以便在访问器不再使用时可以被卸载
+        return classLoader.defineClassX(parent, className, b);
+    }
+
+    /**
+     * 将类名替换为固定名称之后的字节码摘要,作为共享类的key
+     * 类名只出现在常量池的utf8常量中(类名本身以及 LAsmAccessorImpl_xx; 形式的描述符),类文件的其它部分均通过常量池下标引用,
+     * 因此逐个处理常量池,将utf8常量中的类名替换为固定名称并重新计算长度,其余部分原样参与摘要.
+     * 不能只跳过类名字节,否则utf8常量的长度前缀仍然不同,后缀位数不同的类永远无法匹配
+     */
+    private static String canonicalKey(String className, byte[] b) {
+        MessageDigest md;
+        try{
+            md = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        //类名均为ascii字符,而modified utf8中非ascii字符的各个字节均不在ascii范围内,因此可以直接按字节匹配
+        byte[] name = className.getBytes(StandardCharsets.US_ASCII);
+        //魔数及版本号
+        md.update(b, 0, 8);
+        int count = readUnsignedShort(b, 8);
+        md.update(b, 8, 2);
+
+        int index = 10;
+        for(int i = 1; i < count; i++) {
+            int tag = b[index];
+            int size;
+            switch(tag) {
+                case 1:
+                    int length = readUnsignedShort(b, index + 1);
+                    updateUtf8(md, b, index + 3, length, name);
+                    index += 3 + length;
+                    continue;
+                case 5:
+                case 6:
+                    //long及double占两个位置
+                    size = 9;
+                    i++;
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    size = 5;
+                    break;
+                case 15:
+                    size = 4;
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    size = 3;
+                    break;
+                default:
+                    //未知的常量类型,不参与共享
+                    return className;
+            }
+            md.update(b, index, size);
+            index += size;
+        }
+
+        md.update(b, index, b.length - index);
+        return Base64.getEncoder().encodeToString(md.digest());
     }
 
-    private static class ContextClassLoader extends ClassLoader {
-        ContextClassLoader(ClassLoader classLoader) {
-            super(classLoader);
+    /** 将utf8常量中的类名替换为固定名称之后(包括tag及长度)加入摘要 */
+    private static void updateUtf8(MessageDigest md, byte[] b, int start, int length, byte[] name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        int from = start;
+        int end = start + length;
+        for(int i = start; i <= end - name.length; i++) {
+            if(matches(b, i, name)) {
+                out.write(b, from, i - from);
+                out.write(CANONICAL_CLASS_NAME, 0, CANONICAL_CLASS_NAME.length);
+                from = i + name.length;
+                i = from - 1;
+            }
         }
+        out.write(b, from, end - from);
 
-        Class<?> defineClass(String name, byte[] b) {
-            return defineClass(name, b, 0, b.length);
+        md.update((byte) 1);
+        md.update((byte) (out.size() >>> 8));
+        md.update((byte) out.size());
+        md.update(out.toByteArray());
+    }
+
+    private static boolean matches(byte[] b, int offset, byte[] name) {
+        for(int j = 0; j < name.length; j++) {
+            if(b[offset + j] != name[j]) return false;
         }
+        return true;
     }
 
-    private java.lang.Class loadClass(String className, byte[] b) throws Exception {
-        Files.write(Paths.get("/tmp", className + ".class"), b, StandardOpenOption.CREATE);
-        /*
-         * This must be synchronized.  Two classes cannot be simultaneously deployed in the JVM.
-         */
-        ContextClassLoader contextClassLoader = getContextClassLoader();
-        return contextClassLoader == null ?
-                classLoader.defineClassX(className, b, 0, b.length) :
-                contextClassLoader.defineClass(className, b);
+    private static int readUnsignedShort(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    /** 因字节码相同而直接使用已有类的次数 */
+    public static long getSharedClassHits() {
+        return SHARED_CLASS_HITS.get();
     }
 
     //---------------------------- 类加载 end ------------------------------//
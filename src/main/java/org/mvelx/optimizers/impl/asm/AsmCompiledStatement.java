@@ -0,0 +1,113 @@
+package org.mvelx.optimizers.impl.asm;
+
+import lombok.Getter;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.integration.impl.ClassImportResolverFactory;
+import org.mvelx.integration.impl.StackResetResolverFactory;
+import org.mvelx.optimizers.OptimizerFactory;
+
+/**
+ * 由整体表达式编译器生成的可执行语句的基类
+ * 子类(即生成的字节码类)仅实现 execute 方法,其它的描述信息均由原编译表达式提供
+ * 在序列化时,直接替换为原编译表达式,即反序列化之后重新回到解释执行
+ */
+public abstract class AsmCompiledStatement implements ExecutableStatement {
+    /** 原编译表达式 */
+    @Getter
+    private final CompiledExpression source;
+
+    protected AsmCompiledStatement(CompiledExpression source) {
+        this.source = source;
+    }
+
+    /**
+     * 执行生成的字节码,由子类实现
+     *
+     * @param ctx     当前上下文对象
+     * @param factory 已经过包装的变量工厂
+     */
+    protected abstract Object execute(Object ctx, VariableResolverFactory factory);
+
+    public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        return getValue(ctx, variableFactory);
+    }
+
+    /** 与编译表达式相同,根据是否有外部导入来创建不同的变量工厂 */
+    public Object getValue(Object staticContext, VariableResolverFactory factory) {
+        return getDirectValue(staticContext, source.isImportInjectionRequired() ?
+                new ClassImportResolverFactory(source.getParserConfiguration(), factory, true) : new StackResetResolverFactory(factory));
+    }
+
+    /**
+     * 使用已经包装好的变量工厂执行,供执行帧复用变量工厂
+     *
+     * @param factory 已经过 StackReset 或 ClassImport 包装的变量工厂
+     */
+    public Object getDirectValue(Object staticContext, VariableResolverFactory factory) {
+        try{
+            return execute(staticContext, factory);
+        } finally {
+            OptimizerFactory.clearThreadAccessorOptimizer();
+        }
+    }
+
+    /** 不支持设置值操作 */
+    public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
+        return null;
+    }
+
+    public void setKnownIngressType(Class type) {
+        source.setKnownIngressType(type);
+    }
+
+    public void setKnownEgressType(Class type) {
+        source.setKnownEgressType(type);
+    }
+
+    public Class getKnownIngressType() {
+        return source.getKnownIngressType();
+    }
+
+    public Class getKnownEgressType() {
+        return source.getKnownEgressType();
+    }
+
+    public boolean isExplicitCast() {
+        return source.isExplicitCast();
+    }
+
+    public boolean isConvertableIngressEgress() {
+        return source.isConvertableIngressEgress();
+    }
+
+    public void computeTypeConversionRule() {
+        source.computeTypeConversionRule();
+    }
+
+    public boolean intOptimized() {
+        return false;
+    }
+
+    public boolean isLiteralOnly() {
+        return source.isLiteralOnly();
+    }
+
+    public boolean isEmptyStatement() {
+        return source.isEmptyStatement();
+    }
+
+    public String nodeExpr() {
+        return source.nodeExpr();
+    }
+
+    /** 生成的类无法被反序列化,因此序列化时使用原编译表达式替代 */
+    protected Object writeReplace() {
+        return source;
+    }
+
+    public String toString() {
+        return source.toString();
+    }
+}
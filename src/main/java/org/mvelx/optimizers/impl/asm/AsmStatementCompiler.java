@@ -0,0 +1,871 @@
+package org.mvelx.optimizers.impl.asm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mvelx.asm.ClassWriter;
+import org.mvelx.asm.Label;
+import org.mvelx.asm.Opcodes;
+import org.mvelx.asm.Type;
+import org.mvelx.asm.commons.GeneratorAdapter;
+import org.mvelx.asm.commons.Method;
+import org.mvelx.ast.*;
+import org.mvelx.compiler.*;
+import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.integration.impl.StackResetResolverFactory;
+import org.mvelx.math.MathProcessor;
+import org.mvelx.math.SpecializedOperation;
+import org.mvelx.optimizers.OptimizationNotSupported;
+import org.mvelx.util.AccessorClassLoader;
+import org.mvelx.util.ParseTools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mvelx.Operator.*;
+import static org.mvelx.asm.Opcodes.*;
+
+/**
+ * 整体表达式编译器,将一个完整的编译表达式(而不仅仅是属性访问链)翻译为一个字节码类
+ * 语句序列,if/else,while,三元运算,&&,||,!,括号以及二元运算均直接生成为jvm的控制流,嵌套的代码块也直接内联到同一个方法中,
+ * 以便jit能够对整个表达式进行内联和优化.
+ * 二元运算树在可以推断出数字类型时(常量类型,声明类型或运行期观察到的特化类型),直接生成基本类型的运算及比较,
+ * 操作数存放在jvm局部变量中,并通过 instanceof 守卫保护,守卫失败时使用通用的数学处理计算;无法推断时交由节点本身计算,
+ * 以保留节点自身的类型反馈特化. 条件判断(if,while,&&,||,!)直接生成跳转,不再生成中间的Boolean对象.
+ * 简单变量通过 VariableReadSite 直接从变量工厂中读取.
+ * 其它暂不支持的节点(如属性访问,赋值,foreach等),在生成的代码中直接调用节点本身的 getReducedValueAccelerated 进行处理,
+ * 即单个节点回退至原来的执行方式,属性访问本身仍由节点内的访问器(如dynamic优化器)负责优化.
+ * 如果节点链本身的结构无法翻译(如未被归约的操作符),则整体回退为原编译表达式
+ * <p>
+ * 脚本变量仍然通过变量工厂进行读写,因为调用方需要在执行之后从变量工厂中观察到这些变量
+ */
+@Slf4j
+public class AsmStatementCompiler {
+    private static final Method METHOD_EXECUTE = Method.getMethod("Object execute(Object, org.mvelx.integration.VariableResolverFactory)");
+    private static final Method METHOD_REDUCED_VALUE = Method.getMethod("Object getReducedValueAccelerated(Object, Object, org.mvelx.integration.VariableResolverFactory)");
+    private static final Method METHOD_GET_VALUE = Method.getMethod("Object getValue(Object, Object, org.mvelx.integration.VariableResolverFactory)");
+    private static final Method METHOD_DO_OPERATIONS = Method.getMethod("Object doOperations(int, Object, int, int, Object)");
+    private static final Method METHOD_TILT_FLAG = Method.getMethod("boolean tiltFlag()");
+    private static final Method METHOD_SET_TILT_FLAG = Method.getMethod("void setTiltFlag(boolean)");
+    private static final Method METHOD_BOOLEAN_VALUE = Method.getMethod("boolean booleanValue()");
+    private static final Method METHOD_REDUCED_BOOLEAN = Method.getMethod("boolean getReducedBoolean(Object, Object, org.mvelx.integration.VariableResolverFactory)");
+    private static final Method METHOD_READ = Method.getMethod("Object read(Object, org.mvelx.integration.VariableResolverFactory)");
+
+    private static final Type TYPE_OBJECT = Type.getType(Object.class);
+    private static final Type TYPE_BOOLEAN = Type.getType(Boolean.class);
+    private static final Type TYPE_AST_NODE = Type.getType(ASTNode.class);
+    private static final Type TYPE_ACCESSOR = Type.getType(Accessor.class);
+    private static final Type TYPE_FACTORY = Type.getType(VariableResolverFactory.class);
+    private static final Type TYPE_READ_SITE = Type.getType(VariableReadSite.class);
+
+    /** 表示变量工厂为方法参数,而不是新建的局部变量 */
+    private static final int FACTORY_ARG = -1;
+
+    /** 单个表达式中可以内联的最大节点数,避免超出单个方法的字节码长度限制 */
+    public static int maximumNodes = Integer.getInteger("mvelx.compiler.whole_expression.maximum_nodes", 1000);
+
+    private static final AtomicLong CLASS_NAME_POSTFIX = new AtomicLong(System.currentTimeMillis());
+
+    private final CompiledExpression compiled;
+    private final String className;
+    private GeneratorAdapter mv;
+
+    /** 生成代码中引用的外部对象(节点,子语句以及常量),每一项均生成为一个final字段 */
+    private final List<Object> refs = new ArrayList<>();
+    private final List<Type> refTypes = new ArrayList<>();
+
+    /** 当前已处理的节点数 */
+    private int nodeCount;
+
+    private AsmStatementCompiler(CompiledExpression compiled) {
+        this.compiled = compiled;
+        this.className = "AsmStatementImpl_" + CLASS_NAME_POSTFIX.getAndIncrement();
+    }
+
+    /**
+     * 将编译表达式编译为字节码版本的可执行语句
+     * 如果表达式中存在无法翻译的结构,或者生成失败,则直接返回原编译表达式
+     */
+    public static ExecutableStatement compile(CompiledExpression compiled) {
+        if(compiled.isEmptyStatement()) {
+            return compiled;
+        }
+
+        try{
+            return new AsmStatementCompiler(compiled).generate();
+        } catch(OptimizationNotSupported e) {
+            log.debug("表达式不支持整体编译,继续解释执行:{}", e.getMessage());
+        } catch(RuntimeException | LinkageError e) {
+            log.debug("表达式整体编译失败,继续解释执行:{}", e.getMessage());
+        }
+
+        return compiled;
+    }
+
+    /** 生成并实例化相应的类 */
+    private ExecutableStatement generate() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(Opcodes.V1_8, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, className, null,
+                Type.getInternalName(AsmCompiledStatement.class), null);
+
+        //先生成执行方法,以收集需要引用的外部对象
+        //与 SpecializedOperation 一致,使用strictfp语义进行浮点运算
+        mv = new GeneratorAdapter(ACC_PROTECTED + ACC_STRICT, METHOD_EXECUTE,
+                cw.visitMethod(ACC_PROTECTED + ACC_STRICT, METHOD_EXECUTE.getName(), METHOD_EXECUTE.getDescriptor(), null, null));
+        mv.visitCode();
+        compileBlock(compiled.getFirstNode(), FACTORY_ARG);
+        mv.returnValue();
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        generateFieldsAndConstructor(cw);
+        cw.visitEnd();
+
+        byte[] b = cw.toByteArray();
+        Class<?> cls = AccessorClassLoader.defineClass(AsmCompiledStatement.class.getClassLoader(), className, b);
+        try{
+            return (ExecutableStatement) cls.getConstructor(CompiledExpression.class, Object[].class)
+                    .newInstance(compiled, refs.toArray());
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("无法实例化生成的语句类:" + className, e);
+        }
+    }
+
+    /** 生成引用字段以及构造函数,构造函数中从数组中依次取出相应的对象 */
+    private void generateFieldsAndConstructor(ClassWriter cw) {
+        for(int i = 0; i < refs.size(); i++) {
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, "r" + i, refTypes.get(i).getDescriptor(), null, null).visitEnd();
+        }
+
+        Method init = Method.getMethod("void <init>(org.mvelx.compiler.CompiledExpression, Object[])");
+        GeneratorAdapter cv = new GeneratorAdapter(ACC_PUBLIC, init, cw.visitMethod(ACC_PUBLIC, "<init>", init.getDescriptor(), null, null));
+        cv.visitCode();
+        cv.loadThis();
+        cv.loadArg(0);
+        cv.invokeConstructor(Type.getType(AsmCompiledStatement.class), Method.getMethod("void <init>(org.mvelx.compiler.CompiledExpression)"));
+
+        for(int i = 0; i < refs.size(); i++) {
+            cv.loadThis();
+            cv.loadArg(1);
+            cv.push(i);
+            cv.arrayLoad(TYPE_OBJECT);
+            cv.checkCast(refTypes.get(i));
+            cv.putField(Type.getObjectType(className), "r" + i, refTypes.get(i));
+        }
+
+        cv.returnValue();
+        cv.visitMaxs(0, 0);
+        cv.visitEnd();
+    }
+
+    //---------------------------- 语句序列 start ------------------------------//
+
+    /**
+     * 编译一个语句块(即节点链),完成之后在栈顶留下整个语句块的值
+     * 与解释执行相同,每个语句执行完之后检查终止标记,碰到return或三元运算的真值分支时直接结束语句块
+     */
+    private void compileBlock(ASTNode first, int factory) {
+        Label exit = new Label();
+        int result = mv.newLocal(TYPE_OBJECT);
+        mv.visitInsn(ACONST_NULL);
+        mv.storeLocal(result);
+
+        ASTNode tk = first;
+        while(tk != null) {
+            tk = compileSegment(tk, factory, result, exit);
+        }
+
+        mv.mark(exit);
+        mv.loadLocal(result);
+    }
+
+    /**
+     * 编译一条语句,即由 ; 分隔开的一段节点
+     *
+     * @return 下一条语句的起始节点, 没有则返回null
+     */
+    private ASTNode compileSegment(ASTNode tk, int factory, int result, Label exit) {
+        if((tk = skipDebug(tk)) == null) {
+            return null;
+        }
+
+        //空语句,仅在结尾处允许
+        if(tk.isOperator(END_OF_STMT)) {
+            if(tk.nextASTNode != null) {
+                throw new OptimizationNotSupported("empty statement");
+            }
+            return null;
+        }
+
+        //return语句,设置终止标记之后直接结束语句块,后面的语句均不再执行
+        if(tk instanceof ReturnNode) {
+            compileFallback(tk, factory);
+            mv.storeLocal(result);
+            loadFactory(factory);
+            mv.push(true);
+            mv.invokeInterface(TYPE_FACTORY, METHOD_SET_TILT_FLAG);
+            mv.goTo(exit);
+            return null;
+        }
+
+        if(tk.isOperator()) {
+            throw new OptimizationNotSupported("unexpected operator: " + tk.getOperator());
+        }
+
+        compileValue(tk, factory);
+        mv.storeLocal(result);
+        jumpIfTilt(factory, exit);
+
+        ASTNode next = skipDebug(tk.nextASTNode);
+        if(next == null) {
+            return null;
+        }
+
+        Integer operator = next.getOperator();
+        if(operator == END_OF_STMT) {
+            return next.nextASTNode;
+        }
+        if(operator == TERNARY) {
+            return compileTernary(next, factory, result, exit);
+        }
+
+        throw new OptimizationNotSupported("unreduced operator: " + operator);
+    }
+
+    /**
+     * 编译语句级的三元运算 a ? b : c,此时条件值已存放在结果变量中
+     * 与解释执行相同,真值分支直接结束语句块,假值分支则继续执行 : 之后的语句
+     */
+    private ASTNode compileTernary(ASTNode ternary, int factory, int result, Label exit) {
+        ASTNode trueNode = skipDebug(ternary.nextASTNode);
+        if(trueNode == null || trueNode.isOperator()) {
+            throw new OptimizationNotSupported("incomplete ternary");
+        }
+        ASTNode elseOp = skipDebug(trueNode.nextASTNode);
+        if(elseOp == null || !elseOp.isOperator(TERNARY_ELSE)) {
+            throw new OptimizationNotSupported("nested ternary");
+        }
+
+        Label falseLabel = new Label();
+        mv.loadLocal(result);
+        unboxBoolean();
+        mv.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+
+        compileValue(trueNode, factory);
+        mv.storeLocal(result);
+        mv.goTo(exit);
+
+        mv.mark(falseLabel);
+        return compileSegment(elseOp.nextASTNode, factory, result, exit);
+    }
+
+    /** 终止标记已设置时(即已执行return),跳出当前语句块 */
+    private void jumpIfTilt(int factory, Label exit) {
+        loadFactory(factory);
+        mv.invokeInterface(TYPE_FACTORY, METHOD_TILT_FLAG);
+        mv.ifZCmp(GeneratorAdapter.NE, exit);
+    }
+
+    /** 跳过调试节点 */
+    private static ASTNode skipDebug(ASTNode tk) {
+        while(tk != null && tk.fields == -1) {
+            tk = tk.nextASTNode;
+        }
+        return tk;
+    }
+
+    //---------------------------- 语句序列 end ------------------------------//
+
+    //---------------------------- 节点 start ------------------------------//
+
+    /** 编译单个节点,完成之后在栈顶留下节点的值 */
+    private void compileValue(ASTNode node, int factory) {
+        countNode();
+
+        //这里均使用精确的类型进行判断,子类(如整数优化节点)可能有不同的语义,交由节点本身处理
+        Class<?> type = node.getClass();
+        if(type == LiteralNode.class) {
+            loadRef(node.getLiteralValue(), TYPE_OBJECT);
+        } else if(type == ASTNode.class && isPlainVariable(node)) {
+            compileVariable(node, factory);
+        } else if(type == BinaryOperation.class) {
+            compileBinaryOperation((BinaryOperation) node, factory);
+        } else if(type == And.class) {
+            compileAnd((And) node, factory);
+        } else if(type == Or.class) {
+            compileOr((Or) node, factory);
+        } else if(type == Negation.class && ((Negation) node).getStatement() != null) {
+            Label falseLabel = new Label();
+            compileStatementCondition(((Negation) node).getStatement(), factory, falseLabel);
+            pushBoolean(false, true, falseLabel);
+        } else if(type == Substatement.class && ((Substatement) node).getStatement() != null) {
+            compileStatement(((Substatement) node).getStatement(), factory);
+        } else if(type == IfNode.class && ((IfNode) node).getCondition() != null) {
+            compileIf((IfNode) node, factory);
+        } else if(type == WhileNode.class && ((WhileNode) node).getCondition() != null) {
+            compileWhile((WhileNode) node, factory);
+        } else {
+            compileFallback(node, factory);
+        }
+    }
+
+    /** 单节点回退,即直接调用节点本身的计算逻辑 */
+    private void compileFallback(ASTNode node, int factory) {
+        loadRef(node, TYPE_AST_NODE);
+        mv.loadArg(0);
+        mv.loadArg(0);
+        loadFactory(factory);
+        mv.invokeVirtual(TYPE_AST_NODE, METHOD_REDUCED_VALUE);
+    }
+
+    /** 简单变量,通过读取点直接从变量工厂中读取 */
+    private void compileVariable(ASTNode node, int factory) {
+        loadRef(new VariableReadSite(node.getName(), node), TYPE_READ_SITE);
+        mv.loadArg(0);
+        loadFactory(factory);
+        mv.invokeVirtual(TYPE_READ_SITE, METHOD_READ);
+    }
+
+    /** 是否为简单的变量引用,即不包含属性访问,方法调用,集合访问等 */
+    private static boolean isPlainVariable(ASTNode node) {
+        if(!node.isIdentifier() || node.isLiteral() || node.isDeepProperty() || node.isFQCN() || node.isAssignment()) {
+            return false;
+        }
+
+        String name = node.getName();
+        if(name == null || name.isEmpty() || "this".equals(name) || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for(int i = 1; i < name.length(); i++) {
+            if(!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 二元运算(取值),可以推断出类型时按基本类型计算,结果再装箱;
+     * 否则交由节点本身计算,以使用节点自身的类型反馈特化
+     */
+    private void compileBinaryOperation(BinaryOperation node, int factory) {
+        NumericTree tree = new NumericTree();
+        Class<?> type = inferType(node, tree);
+        if(type == null) {
+            compileFallback(node, factory);
+            return;
+        }
+
+        Label generic = new Label();
+        Label end = new Label();
+        prepareOperands(node, tree, factory, generic);
+        if(type == Boolean.class) {
+            Label trueLabel = new Label();
+            compileCompare(node, tree, trueLabel);
+            pushBoolean(false, true, trueLabel);
+        } else {
+            compilePrimitive(node, tree);
+            mv.valueOf(primitiveType(type));
+        }
+        mv.goTo(end);
+
+        mv.mark(generic);
+        compileGeneric(node, tree);
+        mv.mark(end);
+    }
+
+    /** 比较运算(条件),结果为false时跳转至指定的标签 */
+    private void compileComparison(BinaryOperation node, int factory, Label falseLabel) {
+        NumericTree tree = new NumericTree();
+        if(inferType(node, tree) == null) {
+            loadRef(node, TYPE_AST_NODE);
+            mv.loadArg(0);
+            mv.loadArg(0);
+            loadFactory(factory);
+            mv.invokeVirtual(TYPE_AST_NODE, METHOD_REDUCED_BOOLEAN);
+            mv.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+            return;
+        }
+
+        Label generic = new Label();
+        Label trueLabel = new Label();
+        prepareOperands(node, tree, factory, generic);
+        compileCompare(node, tree, trueLabel);
+        mv.goTo(falseLabel);
+
+        mv.mark(generic);
+        compileGeneric(node, tree);
+        unboxBoolean();
+        mv.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+        mv.mark(trueLabel);
+    }
+
+    /**
+     * 按照从左至右的顺序计算运算树中所有非常量的操作数,并存放在局部变量中,
+     * 之后依次检查其类型是否与推断的类型一致,不一致时跳转至通用运算
+     */
+    private void prepareOperands(ASTNode node, NumericTree tree, int factory, Label generic) {
+        collectOperands(node, tree);
+        for(ASTNode operand : tree.operands) {
+            compileValue(operand, factory);
+            int local = mv.newLocal(TYPE_OBJECT);
+            mv.storeLocal(local);
+            tree.locals.put(operand, local);
+        }
+        for(ASTNode operand : tree.operands) {
+            mv.loadLocal(tree.locals.get(operand));
+            mv.instanceOf(Type.getType(tree.operandTypes.get(operand)));
+            mv.ifZCmp(GeneratorAdapter.EQ, generic);
+        }
+    }
+
+    private static void collectOperands(ASTNode node, NumericTree tree) {
+        node = unwrap(node);
+        if(node.getClass() == BinaryOperation.class) {
+            collectOperands(((BinaryOperation) node).getLeft(), tree);
+            collectOperands(((BinaryOperation) node).getRight(), tree);
+        } else if(node.getClass() != LiteralNode.class) {
+            tree.operands.add(node);
+        }
+    }
+
+    /** 计算运算树的基本类型值,并留在栈顶 */
+    private void compilePrimitive(ASTNode node, NumericTree tree) {
+        node = unwrap(node);
+        if(node.getClass() == BinaryOperation.class) {
+            SpecializedOperation op = tree.operations.get(node);
+            //int,long的除法与 MathProcessor 一致,使用double计算
+            Type computation = op.getOperation() == DIV ? Type.DOUBLE_TYPE : primitiveType(op.getComputationType());
+            compileOperand(((BinaryOperation) node).getLeft(), tree, computation);
+            compileOperand(((BinaryOperation) node).getRight(), tree, computation);
+            mv.math(mathOp(op.getOperation()), computation);
+
+            Type result = primitiveType(op.getResultType());
+            if(!result.equals(computation)) {
+                mv.cast(computation, result);
+            }
+        } else if(node.getClass() == LiteralNode.class) {
+            Object value = node.getLiteralValue();
+            if(value instanceof Integer) {
+                mv.push((Integer) value);
+            } else if(value instanceof Long) {
+                mv.push((Long) value);
+            } else {
+                mv.push((Double) value);
+            }
+        } else {
+            mv.loadLocal(tree.locals.get(node));
+            mv.unbox(primitiveType(tree.operandTypes.get(node)));
+        }
+    }
+
+    /** 计算操作数并转换为指定的基本类型 */
+    private void compileOperand(ASTNode node, NumericTree tree, Type computation) {
+        compilePrimitive(node, tree);
+        Type type = primitiveType(resultType(node, tree));
+        if(!type.equals(computation)) {
+            mv.cast(type, computation);
+        }
+    }
+
+    /** 基本类型比较,结果为true时跳转至指定的标签 */
+    private void compileCompare(BinaryOperation node, NumericTree tree, Label trueLabel) {
+        SpecializedOperation op = tree.operations.get(node);
+        Type computation = primitiveType(op.getComputationType());
+        compileOperand(node.getLeft(), tree, computation);
+        compileOperand(node.getRight(), tree, computation);
+        mv.ifCmp(computation, compareMode(op.getOperation()), trueLabel);
+    }
+
+    /** 通用运算,即类型守卫失败时按照原来的方式使用数学处理器计算,操作数直接使用已计算好的局部变量 */
+    private void compileGeneric(ASTNode node, NumericTree tree) {
+        node = unwrap(node);
+        if(node.getClass() == BinaryOperation.class) {
+            BinaryOperation op = (BinaryOperation) node;
+            mv.push(op.getLeftType());
+            compileGeneric(op.getLeft(), tree);
+            mv.push(op.getOperation());
+            mv.push(op.getRightType());
+            compileGeneric(op.getRight(), tree);
+            mv.invokeStatic(Type.getType(MathProcessor.class), METHOD_DO_OPERATIONS);
+        } else if(node.getClass() == LiteralNode.class) {
+            loadRef(node.getLiteralValue(), TYPE_OBJECT);
+        } else {
+            mv.loadLocal(tree.locals.get(node));
+        }
+    }
+
+    /**
+     * 条件判断,结果为false时跳转至指定的标签,为true时继续执行
+     * 与取值不同,这里不生成中间的Boolean对象
+     */
+    private void compileCondition(ASTNode node, int factory, Label falseLabel) {
+        Class<?> type = node.getClass();
+        if(type == And.class) {
+            countNode();
+            compileCondition(((And) node).getLeft(), factory, falseLabel);
+            compileCondition(((And) node).getRight(), factory, falseLabel);
+        } else if(type == Or.class) {
+            countNode();
+            Label rightLabel = new Label();
+            Label trueLabel = new Label();
+            compileCondition(((Or) node).getLeft(), factory, rightLabel);
+            mv.goTo(trueLabel);
+            mv.mark(rightLabel);
+            compileCondition(((Or) node).getRight(), factory, falseLabel);
+            mv.mark(trueLabel);
+        } else if(type == Negation.class && ((Negation) node).getStatement() != null) {
+            countNode();
+            Label trueLabel = new Label();
+            compileStatementCondition(((Negation) node).getStatement(), factory, trueLabel);
+            mv.goTo(falseLabel);
+            mv.mark(trueLabel);
+        } else if(type == Substatement.class && ((Substatement) node).getStatement() != null) {
+            countNode();
+            compileStatementCondition(((Substatement) node).getStatement(), factory, falseLabel);
+        } else if(type == BinaryOperation.class && isComparison(((BinaryOperation) node).getOperation())) {
+            countNode();
+            compileComparison((BinaryOperation) node, factory, falseLabel);
+        } else {
+            compileValue(node, factory);
+            unboxBoolean();
+            mv.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+        }
+    }
+
+    /** 子语句作为条件,结果为false时跳转至指定的标签 */
+    private void compileStatementCondition(ExecutableStatement stmt, int factory, Label falseLabel) {
+        Class<?> type = stmt.getClass();
+        if(type == ExecutableAccessor.class) {
+            compileCondition(((ExecutableAccessor) stmt).getNode(), factory, falseLabel);
+        } else if(type == ExecutableAccessorSafe.class) {
+            compileCondition(((ExecutableAccessorSafe) stmt).getNode(), factory, falseLabel);
+        } else {
+            compileStatement(stmt, factory);
+            unboxBoolean();
+            mv.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+        }
+    }
+
+    /** && 运算,左边为false时直接跳过右边的计算 */
+    private void compileAnd(And node, int factory) {
+        Label falseLabel = new Label();
+        compileCondition(node.getLeft(), factory, falseLabel);
+        compileCondition(node.getRight(), factory, falseLabel);
+        pushBoolean(true, false, falseLabel);
+    }
+
+    /** || 运算,左边为true时直接跳过右边的计算 */
+    private void compileOr(Or node, int factory) {
+        Label rightLabel = new Label();
+        Label falseLabel = new Label();
+        Label end = new Label();
+        compileCondition(node.getLeft(), factory, rightLabel);
+        mv.getStatic(TYPE_BOOLEAN, "TRUE", TYPE_BOOLEAN);
+        mv.goTo(end);
+        mv.mark(rightLabel);
+        compileCondition(node.getRight(), factory, falseLabel);
+        pushBoolean(true, false, falseLabel);
+        mv.mark(end);
+    }
+
+    /** if/else if/else,各个分支与解释执行一样使用新的变量作用域 */
+    private void compileIf(IfNode node, int factory) {
+        Label elseLabel = new Label();
+        Label end = new Label();
+
+        compileStatementCondition(node.getCondition(), factory, elseLabel);
+        compileStatement(node.getNestedStatement(), node.isIdxAlloc() ? factory : newScope(factory, true));
+        mv.goTo(end);
+
+        mv.mark(elseLabel);
+        if(node.getElseIf() != null) {
+            compileValue(node.getElseIf(), node.isIdxAlloc() ? factory : newScope(factory, true));
+        } else if(node.getElseBlock() != null) {
+            compileStatement(node.getElseBlock(), node.isIdxAlloc() ? factory : newScope(factory, true));
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+
+        mv.mark(end);
+    }
+
+    /** while循环,循环体使用单独的变量作用域,整个循环的值为null */
+    private void compileWhile(WhileNode node, int factory) {
+        Label loop = new Label();
+        Label end = new Label();
+        int blockFactory = newScope(factory, false);
+
+        mv.mark(loop);
+        compileStatementCondition(node.getCondition(), factory, end);
+        compileStatement(node.getCompiledBlock(), blockFactory);
+        mv.pop();
+        mv.goTo(loop);
+
+        mv.mark(end);
+        mv.visitInsn(ACONST_NULL);
+    }
+
+    /**
+     * 编译一个子语句,如果子语句本身为编译表达式,则直接内联相应的节点链
+     * 内联时与 CompiledExpression.getValue 保持一致,使用新的 StackResetResolverFactory 包装变量工厂
+     */
+    private void compileStatement(ExecutableStatement stmt, int factory) {
+        Class<?> type = stmt.getClass();
+        if(type == ExecutableLiteral.class) {
+            loadRef(((ExecutableLiteral) stmt).getLiteral(), TYPE_OBJECT);
+        } else if(type == ExecutableAccessor.class) {
+            compileValue(((ExecutableAccessor) stmt).getNode(), factory);
+        } else if(type == ExecutableAccessorSafe.class) {
+            compileValue(((ExecutableAccessorSafe) stmt).getNode(), factory);
+        } else if(type == CompiledExpression.class && !((CompiledExpression) stmt).isImportInjectionRequired()) {
+            ASTNode first = ((CompiledExpression) stmt).getFirstNode();
+            if(first == null) {
+                mv.visitInsn(ACONST_NULL);
+                return;
+            }
+
+            Type resetType = Type.getType(StackResetResolverFactory.class);
+            mv.newInstance(resetType);
+            mv.dup();
+            loadFactory(factory);
+            mv.invokeConstructor(resetType, Method.getMethod("void <init>(org.mvelx.integration.VariableResolverFactory)"));
+            int blockFactory = mv.newLocal(TYPE_FACTORY);
+            mv.storeLocal(blockFactory);
+
+            compileBlock(first, blockFactory);
+        } else {
+            loadRef(stmt, TYPE_ACCESSOR);
+            mv.loadArg(0);
+            mv.loadArg(0);
+            loadFactory(factory);
+            mv.invokeInterface(TYPE_ACCESSOR, METHOD_GET_VALUE);
+        }
+    }
+
+    //---------------------------- 节点 end ------------------------------//
+
+    //---------------------------- 类型推断 start ------------------------------//
+
+    /** 二元运算树的类型推断结果 */
+    private static class NumericTree {
+        /** 每个运算节点对应的特化运算 */
+        final Map<ASTNode, SpecializedOperation> operations = new IdentityHashMap<>();
+        /** 每个非常量操作数推断出的类型 */
+        final Map<ASTNode, Class<?>> operandTypes = new IdentityHashMap<>();
+        /** 非常量操作数,按计算顺序 */
+        final List<ASTNode> operands = new ArrayList<>();
+        /** 非常量操作数计算结果所在的局部变量 */
+        final Map<ASTNode, Integer> locals = new IdentityHashMap<>();
+    }
+
+    /**
+     * 推断二元运算的结果类型,只处理四则运算,取模以及比较运算
+     * 操作数的类型依次取自常量值,声明类型,节点运行期观察到的特化类型,以及另一边的类型
+     *
+     * @return 无法推断时返回null
+     */
+    private static Class<?> inferType(BinaryOperation node, NumericTree tree) {
+        int operation = node.getOperation();
+        if(!(operation >= ADD && operation <= MOD) && !isComparison(operation)) {
+            return null;
+        }
+
+        SpecializedOperation observed = node.getSpecialized();
+        Class<?> left = operandType(node.getLeft(), observed == null ? null : observed.getLeftClass(), tree);
+        Class<?> right = operandType(node.getRight(), observed == null ? null : observed.getRightClass(), tree);
+        if(left == null && right != null) {
+            left = operandType(node.getLeft(), right, tree);
+        } else if(right == null && left != null) {
+            right = operandType(node.getRight(), left, tree);
+        }
+        if(!isNumeric(left) || !isNumeric(right)) {
+            return null;
+        }
+
+        SpecializedOperation op = SpecializedOperation.create(node.getLeftType(), left, operation, node.getRightType(), right);
+        if(op == null || op.getComputationType() == boolean.class) {
+            return null;
+        }
+        tree.operations.put(node, op);
+        return op.getResultType();
+    }
+
+    private static Class<?> operandType(ASTNode node, Class<?> hint, NumericTree tree) {
+        node = unwrap(node);
+        if(node.getClass() == BinaryOperation.class) {
+            return inferType((BinaryOperation) node, tree);
+        }
+        if(node.getClass() == LiteralNode.class) {
+            Object value = node.getLiteralValue();
+            return value == null ? null : value.getClass();
+        }
+
+        Class<?> type = node.getEgressType() == null ? null : ParseTools.boxPrimitive(node.getEgressType());
+        if(!isNumeric(type)) {
+            type = hint;
+        }
+        if(isNumeric(type)) {
+            tree.operandTypes.put(node, type);
+        }
+        return type;
+    }
+
+    /** 运算树中某个节点的结果类型(装箱类型) */
+    private static Class<?> resultType(ASTNode node, NumericTree tree) {
+        node = unwrap(node);
+        if(node.getClass() == BinaryOperation.class) {
+            return tree.operations.get(node).getResultType();
+        }
+        if(node.getClass() == LiteralNode.class) {
+            return node.getLiteralValue().getClass();
+        }
+        return tree.operandTypes.get(node);
+    }
+
+    /** 去掉括号,即 (a + b) 直接使用其中的节点 */
+    private static ASTNode unwrap(ASTNode node) {
+        while(node.getClass() == Substatement.class) {
+            ExecutableStatement stmt = ((Substatement) node).getStatement();
+            if(stmt != null && stmt.getClass() == ExecutableAccessor.class) {
+                node = ((ExecutableAccessor) stmt).getNode();
+            } else if(stmt != null && stmt.getClass() == ExecutableAccessorSafe.class) {
+                node = ((ExecutableAccessorSafe) stmt).getNode();
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Double.class;
+    }
+
+    private static boolean isComparison(int operation) {
+        return operation >= LTHAN && operation <= NEQUAL;
+    }
+
+    private static Type primitiveType(Class<?> type) {
+        if(type == Integer.class || type == int.class) {
+            return Type.INT_TYPE;
+        }
+        if(type == Long.class || type == long.class) {
+            return Type.LONG_TYPE;
+        }
+        return Type.DOUBLE_TYPE;
+    }
+
+    private static int mathOp(int operation) {
+        switch(operation) {
+            case ADD:
+                return GeneratorAdapter.ADD;
+            case SUB:
+                return GeneratorAdapter.SUB;
+            case MULT:
+                return GeneratorAdapter.MUL;
+            case DIV:
+                return GeneratorAdapter.DIV;
+            default:
+                return GeneratorAdapter.REM;
+        }
+    }
+
+    private static int compareMode(int operation) {
+        switch(operation) {
+            case LTHAN:
+                return GeneratorAdapter.LT;
+            case GTHAN:
+                return GeneratorAdapter.GT;
+            case LETHAN:
+                return GeneratorAdapter.LE;
+            case GETHAN:
+                return GeneratorAdapter.GE;
+            case EQUAL:
+                return GeneratorAdapter.EQ;
+            default:
+                return GeneratorAdapter.NE;
+        }
+    }
+
+    //---------------------------- 类型推断 end ------------------------------//
+
+    //---------------------------- 辅助方法 start ------------------------------//
+
+    /** 创建新的变量作用域,即 new MapVariableResolverFactory(new HashMap(), factory) */
+    private int newScope(int factory, boolean emptyMap) {
+        Type factoryType = Type.getType(MapVariableResolverFactory.class);
+        Type mapType = Type.getType(HashMap.class);
+
+        mv.newInstance(factoryType);
+        mv.dup();
+        mv.newInstance(mapType);
+        mv.dup();
+        if(emptyMap) {
+            mv.push(0);
+            mv.invokeConstructor(mapType, Method.getMethod("void <init>(int)"));
+        } else {
+            mv.invokeConstructor(mapType, Method.getMethod("void <init>()"));
+        }
+        loadFactory(factory);
+        mv.invokeConstructor(factoryType, Method.getMethod("void <init>(java.util.Map, org.mvelx.integration.VariableResolverFactory)"));
+
+        int local = mv.newLocal(TYPE_FACTORY);
+        mv.storeLocal(local);
+        return local;
+    }
+
+    private void countNode() {
+        if(++nodeCount > maximumNodes) {
+            throw new OptimizationNotSupported("too many nodes");
+        }
+    }
+
+    private void loadFactory(int factory) {
+        if(factory == FACTORY_ARG) {
+            mv.loadArg(1);
+        } else {
+            mv.loadLocal(factory);
+        }
+    }
+
+    /** 将栈顶的Boolean对象转换为boolean值 */
+    private void unboxBoolean() {
+        mv.checkCast(TYPE_BOOLEAN);
+        mv.invokeVirtual(TYPE_BOOLEAN, METHOD_BOOLEAN_VALUE);
+    }
+
+    /** 在条件跳转之后,压入相应的Boolean常量,即未跳转时为first,跳转至label时为second */
+    private void pushBoolean(boolean first, boolean second, Label label) {
+        Label end = new Label();
+        mv.getStatic(TYPE_BOOLEAN, first ? "TRUE" : "FALSE", TYPE_BOOLEAN);
+        mv.goTo(end);
+        mv.mark(label);
+        mv.getStatic(TYPE_BOOLEAN, second ? "TRUE" : "FALSE", TYPE_BOOLEAN);
+        mv.mark(end);
+    }
+
+    /** 加载一个外部引用的对象,相同的对象仅生成一个字段 */
+    private void loadRef(Object ref, Type type) {
+        int idx = -1;
+        for(int i = 0; i < refs.size(); i++) {
+            if(refs.get(i) == ref && refTypes.get(i).equals(type)) {
+                idx = i;
+                break;
+            }
+        }
+        if(idx == -1) {
+            idx = refs.size();
+            refs.add(ref);
+            refTypes.add(type);
+        }
+
+        mv.loadThis();
+        mv.getField(Type.getObjectType(className), "r" + idx, type);
+    }
+
+    //---------------------------- 辅助方法 end ------------------------------//
+}
@@ -0,0 +1,45 @@
+package org.mvelx.optimizers.impl.asm;
+
+import org.mvelx.UnresolveablePropertyException;
+import org.mvelx.ast.ASTNode;
+import org.mvelx.integration.VariableResolver;
+import org.mvelx.integration.VariableResolverFactory;
+
+/**
+ * 整体表达式编译中对单个变量的读取点,由生成的代码直接调用
+ * 即直接通过变量工厂读取变量值,而不再经过节点及其访问器的多层调用.
+ * 变量工厂无法解析此变量时(如变量实际为上下文对象的属性),之后的读取均交由节点本身计算
+ */
+public final class VariableReadSite {
+    /** 变量名 */
+    private final String name;
+    /** 原变量节点,用于无法通过变量工厂解析时的计算 */
+    private final ASTNode node;
+    /** 是否已出现过无法解析的情况 */
+    private volatile boolean unresolved;
+
+    public VariableReadSite(String name, ASTNode node) {
+        this.name = name;
+        this.node = node;
+    }
+
+    public Object read(Object ctx, VariableResolverFactory factory) {
+        if(!unresolved && factory != null) {
+            try{
+                VariableResolver vr = factory.getVariableResolver(name);
+                if(vr != null) {
+                    return vr.getValue();
+                }
+            } catch(UnresolveablePropertyException e) {
+                //交由节点处理
+            }
+            unresolved = true;
+        }
+
+        return node.getReducedValueAccelerated(ctx, ctx, factory);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
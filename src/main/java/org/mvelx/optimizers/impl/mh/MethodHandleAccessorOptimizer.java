@@ -0,0 +1,74 @@
+package org.mvelx.optimizers.impl.mh;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.AccessorNode;
+import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.optimizers.impl.mh.nodes.*;
+import org.mvelx.optimizers.impl.refl.ReflectiveAccessorOptimizer;
+import org.mvelx.optimizers.impl.refl.nodes.*;
+
+import java.lang.reflect.Modifier;
+
+/**
+ * 使用方法句柄进行访问的优化器
+ * 访问链的解析与反射优化器完全相同,只是将其中的getter,方法调用,字段读取以及对象创建节点替换为使用方法句柄调用的节点.
+ * 与asm优化器相比,不需要生成新的访问器类,因此不占用类加载器,也没有类数量的上限;与反射相比,省去了每次调用时的访问检查及参数数组的拆装.
+ * 调用者或参数类型与声明不一致时,节点会回退至原反射调用,因此重载,参数转换等处理逻辑与反射优化器一致.
+ * <p>
+ * 需要注意,各个节点中的句柄为实例字段,HotSpot 不会将其视为可信常量,因此句柄调用无法像asm生成类中的直接调用那样被内联,
+ * 稳态下该层级整体慢于asm优化器;对于简单的getter链,由于额外的类型检查,甚至可能慢于反射(由 JIT 对 Method.invoke 的优化决定).
+ * 若要使句柄成为常量,需要为每个访问点生成持有静态final句柄的类,这与本层级不生成类的目的相悖,因此不作处理.
+ * 该层级适合作为动态优化器中asm之前的过渡层级(方法调用及构建函数相比反射有明显提升),或用于不希望生成类的场景,
+ * 具体对比见 AccessorTierBenchmark
+ */
+@Slf4j
+public class MethodHandleAccessorOptimizer extends ReflectiveAccessorOptimizer {
+
+    public MethodHandleAccessorOptimizer() {
+    }
+
+    private MethodHandleAccessorOptimizer(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
+                                          Object thisRef, VariableResolverFactory variableFactory) {
+        super(pCtx, property, start, offset, ctx, thisRef, variableFactory);
+    }
+
+    @Override
+    protected ReflectiveAccessorOptimizer newChainOptimizer(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
+                                                            Object thisRef, VariableResolverFactory variableFactory) {
+        return new MethodHandleAccessorOptimizer(pCtx, property, start, offset, ctx, thisRef, variableFactory);
+    }
+
+    /** 仅替换类型完全一致的节点,即不处理其子类(如空值处理的NH版本),变参调用仍使用反射 */
+    @Override
+    protected AccessorNode adapt(AccessorNode node) {
+        try{
+            Class<?> type = node.getClass();
+            if(type == GetterAccessor.class) {
+                GetterAccessor getter = (GetterAccessor) node;
+                if(!Modifier.isStatic(getter.getMethod().getModifiers())) {
+                    return new HandleGetterAccessor(getter.getMethod(), getter.nodeExpr(), pCtx);
+                }
+            } else if(type == MethodAccessor.class) {
+                MethodAccessor method = (MethodAccessor) node;
+                if(!method.getMethod().isVarArgs()) {
+                    return new HandleMethodAccessor(method.getMethod(), method.getParameters(), pCtx);
+                }
+            } else if(type == FieldAccessor.class) {
+                return new HandleFieldAccessor(((FieldAccessor) node).getField(), pCtx);
+            } else if(type == StaticVarAccessor.class) {
+                StaticVarAccessor var = (StaticVarAccessor) node;
+                return new HandleStaticVarAccessor(var.getField(), var.nodeExpr(), pCtx);
+            } else if(type == ConstructorAccessor.class) {
+                ConstructorAccessor cns = (ConstructorAccessor) node;
+                if(!cns.getConstructor().isVarArgs()) {
+                    return new HandleConstructorAccessor(cns.getConstructor(), cns.getParameters(), pCtx);
+                }
+            }
+        } catch(IllegalAccessException e) {
+            //不可访问(如非公共类中的方法),仍使用反射版本
+            log.debug("unable to create method handle for {},use reflective accessor", node.nodeExpr());
+        }
+        return node;
+    }
+}
@@ -0,0 +1,29 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.optimizers.impl.refl.nodes.ConstructorAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+
+/** 通过方法句柄创建对象的访问器,仅用于非变参构建函数 */
+public class HandleConstructorAccessor extends ConstructorAccessor {
+    /** 调用句柄,类型为 (Object[])Object */
+    private final MethodHandle handle;
+
+    public HandleConstructorAccessor(Constructor constructor, ExecutableStatement[] params, ParserContext parserContext)
+            throws IllegalAccessException {
+        super(constructor, params, parserContext);
+        this.handle = Handles.constructor(constructor);
+    }
+
+    @Override
+    protected Object newInstance(Object[] args) throws Exception {
+        try{
+            return (Object) handle.invokeExact(args);
+        } catch(Throwable t) {
+            throw Handles.rethrow(t);
+        }
+    }
+}
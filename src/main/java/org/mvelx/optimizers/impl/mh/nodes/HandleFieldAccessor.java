@@ -0,0 +1,27 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.impl.refl.nodes.FieldAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+
+/** 通过方法句柄读取字段的访问器,字段的设置仍然通过反射进行 */
+public class HandleFieldAccessor extends FieldAccessor {
+    /** 读取句柄,类型为 (Object)Object */
+    private final MethodHandle handle;
+
+    public HandleFieldAccessor(Field field, ParserContext parserContext) throws IllegalAccessException {
+        super(field, parserContext);
+        this.handle = Handles.field(field);
+    }
+
+    @Override
+    protected Object get(Object ctx) throws Exception {
+        try{
+            return (Object) handle.invokeExact(ctx);
+        } catch(Throwable t) {
+            throw Handles.rethrow(t);
+        }
+    }
+}
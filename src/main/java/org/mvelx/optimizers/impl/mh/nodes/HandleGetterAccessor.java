@@ -0,0 +1,27 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.impl.refl.nodes.GetterAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/** 通过方法句柄调用getter方法的访问器 */
+public class HandleGetterAccessor extends GetterAccessor {
+    /** 调用句柄,类型为 (Object)Object */
+    private final MethodHandle handle;
+
+    public HandleGetterAccessor(Method method, String property, ParserContext parserContext) throws IllegalAccessException {
+        super(method, property, parserContext);
+        this.handle = Handles.getter(method);
+    }
+
+    @Override
+    protected Object invoke(Object ctx) throws Exception {
+        try{
+            return (Object) handle.invokeExact(ctx);
+        } catch(Throwable t) {
+            throw Handles.rethrow(t);
+        }
+    }
+}
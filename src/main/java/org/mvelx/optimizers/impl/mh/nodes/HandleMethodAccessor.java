@@ -0,0 +1,28 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.optimizers.impl.refl.nodes.MethodAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/** 通过方法句柄进行方法调用的访问器,仅用于非变参方法 */
+public class HandleMethodAccessor extends MethodAccessor {
+    /** 调用句柄,类型为 (Object,Object[])Object */
+    private final MethodHandle handle;
+
+    public HandleMethodAccessor(Method method, ExecutableStatement[] params, ParserContext parserContext) throws IllegalAccessException {
+        super(method, params, parserContext);
+        this.handle = Handles.method(method);
+    }
+
+    @Override
+    protected Object invoke(Object ctx, Object[] args) throws Exception {
+        try{
+            return (Object) handle.invokeExact(ctx, args);
+        } catch(Throwable t) {
+            throw Handles.rethrow(t);
+        }
+    }
+}
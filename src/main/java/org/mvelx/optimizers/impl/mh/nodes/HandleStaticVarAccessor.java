@@ -0,0 +1,27 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.impl.refl.nodes.StaticVarAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+
+/** 通过方法句柄读取静态字段的访问器,final字段直接读取常量 */
+public class HandleStaticVarAccessor extends StaticVarAccessor {
+    /** 读取句柄,类型为 ()Object */
+    private final MethodHandle handle;
+
+    public HandleStaticVarAccessor(Field field, String property, ParserContext parserContext) throws IllegalAccessException {
+        super(field, property, parserContext);
+        this.handle = Handles.staticField(field);
+    }
+
+    @Override
+    protected Object get() throws Exception {
+        try{
+            return (Object) handle.invokeExact();
+        } catch(Throwable t) {
+            throw Handles.rethrow(t);
+        }
+    }
+}
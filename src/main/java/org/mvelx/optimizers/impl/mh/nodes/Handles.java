@@ -0,0 +1,134 @@
+package org.mvelx.optimizers.impl.mh.nodes;
+
+import org.mvelx.optimizers.impl.refl.nodes.GetterAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static java.lang.invoke.MethodHandles.*;
+import static java.lang.invoke.MethodType.genericMethodType;
+import static java.lang.invoke.MethodType.methodType;
+import static org.mvelx.util.ReflectionUtil.toNonPrimitiveType;
+
+/**
+ * 用于创建各个访问节点所使用的方法句柄
+ * 每个句柄均由类型检查(guardWithTest)进行保护,调用者及参数的类型与声明完全一致时直接调用目标句柄,
+ * 否则回退至原反射调用,由反射调用抛出 IllegalArgumentException,以保证原有的重载,参数转换等处理逻辑不变.
+ * 目标方法抛出的异常会被包装为 InvocationTargetException,与反射调用的异常一致
+ */
+final class Handles {
+    private static final MethodHandle IS_INSTANCE;
+    private static final MethodHandle ACCEPTS;
+    private static final MethodHandle WRAP_THROWABLE;
+    private static final MethodHandle METHOD_INVOKE;
+    private static final MethodHandle FIELD_GET;
+    private static final MethodHandle CONSTRUCTOR_NEW_INSTANCE;
+
+    static {
+        try{
+            Lookup lookup = lookup();
+            IS_INSTANCE = lookup.findVirtual(Class.class, "isInstance", methodType(boolean.class, Object.class));
+            ACCEPTS = lookup.findStatic(Handles.class, "accepts",
+                    methodType(boolean.class, Class.class, Class[].class, Object.class, Object[].class));
+            WRAP_THROWABLE = lookup.findStatic(Handles.class, "wrapThrowable", methodType(Object.class, Throwable.class));
+            METHOD_INVOKE = lookup.findVirtual(Method.class, "invoke", methodType(Object.class, Object.class, Object[].class));
+            FIELD_GET = lookup.findVirtual(Field.class, "get", methodType(Object.class, Object.class));
+            CONSTRUCTOR_NEW_INSTANCE = lookup.findVirtual(Constructor.class, "newInstance", methodType(Object.class, Object[].class));
+        } catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Handles() {
+    }
+
+    /** 无参实例方法的调用句柄,类型为 (Object)Object */
+    static MethodHandle getter(Method method) throws IllegalAccessException {
+        MethodHandle target = publicLookup().unreflect(method).asType(methodType(Object.class, Object.class));
+        MethodHandle fallback = insertArguments(METHOD_INVOKE.bindTo(method), 1, (Object) GetterAccessor.EMPTY);
+        return guardWithTest(IS_INSTANCE.bindTo(method.getDeclaringClass()), wrapThrowable(target), fallback);
+    }
+
+    /** 方法调用句柄,类型为 (Object,Object[])Object,静态方法忽略第一个参数 */
+    static MethodHandle method(Method method) throws IllegalAccessException {
+        Class[] parameterTypes = method.getParameterTypes();
+        int n = parameterTypes.length;
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        MethodHandle target = publicLookup().unreflect(method);
+        target = isStatic ? dropArguments(target.asType(genericMethodType(n)), 0, Object.class) : target.asType(genericMethodType(n + 1));
+        target = wrapThrowable(target.asSpreader(Object[].class, n));
+
+        MethodHandle test = insertArguments(ACCEPTS, 0, isStatic ? null : method.getDeclaringClass(), parameterTypes);
+        return guardWithTest(test, target, METHOD_INVOKE.bindTo(method));
+    }
+
+    /** 实例字段读取句柄,类型为 (Object)Object */
+    static MethodHandle field(Field field) throws IllegalAccessException {
+        MethodHandle target = publicLookup().unreflectGetter(field).asType(methodType(Object.class, Object.class));
+        return guardWithTest(IS_INSTANCE.bindTo(field.getDeclaringClass()), target, FIELD_GET.bindTo(field));
+    }
+
+    /** 静态字段读取句柄,类型为 ()Object,final字段直接使用常量 */
+    static MethodHandle staticField(Field field) throws IllegalAccessException {
+        if(Modifier.isFinal(field.getModifiers())) {
+            return constant(Object.class, field.get(null));
+        }
+        return publicLookup().unreflectGetter(field).asType(methodType(Object.class));
+    }
+
+    /** 构建函数调用句柄,类型为 (Object[])Object */
+    static MethodHandle constructor(Constructor constructor) throws IllegalAccessException {
+        Class[] parameterTypes = constructor.getParameterTypes();
+        int n = parameterTypes.length;
+
+        MethodHandle target = publicLookup().unreflectConstructor(constructor).asType(genericMethodType(n));
+        target = wrapThrowable(target.asSpreader(Object[].class, n));
+
+        MethodHandle test = insertArguments(ACCEPTS, 0, null, parameterTypes, null);
+        return guardWithTest(test, target, CONSTRUCTOR_NEW_INSTANCE.bindTo(constructor));
+    }
+
+    /** 将目标句柄抛出的异常包装为 InvocationTargetException */
+    private static MethodHandle wrapThrowable(MethodHandle target) {
+        return catchException(target, Throwable.class, WRAP_THROWABLE);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object wrapThrowable(Throwable t) throws InvocationTargetException {
+        throw new InvocationTargetException(t);
+    }
+
+    /**
+     * 判断调用者及参数是否与声明的类型完全一致
+     * 基本类型参数只接受相应的包装类型,不作宽化(如Integer至long),这些情况由反射调用处理
+     */
+    @SuppressWarnings("unused")
+    private static boolean accepts(Class owner, Class[] parameterTypes, Object target, Object[] args) {
+        if(owner != null && !owner.isInstance(target)) return false;
+        if(args.length != parameterTypes.length) return false;
+
+        for(int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            Class type = parameterTypes[i];
+            if(arg == null) {
+                if(type.isPrimitive()) return false;
+            } else if(type.isPrimitive() ? arg.getClass() != toNonPrimitiveType(type) : !type.isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 将调用句柄时捕获的Throwable转换为Exception,Error直接抛出 */
+    static Exception rethrow(Throwable t) {
+        if(t instanceof Error) throw (Error) t;
+        if(t instanceof Exception) return (Exception) t;
+        return new InvocationTargetException(t);
+    }
+}
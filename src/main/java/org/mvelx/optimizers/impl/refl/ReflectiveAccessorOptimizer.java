@@ -76,8 +76,8 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
     public void init() {
     }
 
-    private ReflectiveAccessorOptimizer(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
-                                        Object thisRef, VariableResolverFactory variableFactory) {
+    protected ReflectiveAccessorOptimizer(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
+                                          Object thisRef, VariableResolverFactory variableFactory) {
         super(pCtx);
         this.expr = property;
         this.start = start;
@@ -331,8 +331,23 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
         }
     }
 
+    /**
+     * 对创建出来的访问节点进行转换,子类可以将其替换为其它实现(如使用方法句柄进行访问)的节点
+     * 默认不作任何转换
+     */
+    protected AccessorNode adapt(AccessorNode node) {
+        return node;
+    }
+
+    /** 创建用于继续处理后续访问链(如 new A().b 中的 .b)的优化器 */
+    protected ReflectiveAccessorOptimizer newChainOptimizer(ParserContext pCtx, char[] property, int start, int offset, Object ctx,
+                                                            Object thisRef, VariableResolverFactory variableFactory) {
+        return new ReflectiveAccessorOptimizer(pCtx, property, start, offset, ctx, thisRef, variableFactory);
+    }
+
     /** 设置起相应的节点链 */
     private void addAccessorNode(AccessorNode an, Class<?> lastCtxType) {
+        an = adapt(an);
         if(rootNode == null)
             rootNode = currNode = an;
         else {
@@ -815,7 +830,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
      * 重新尝试获取最匹配的方法，并且重置相应的参数类型
      * Try to find an instance method from the class target.
      */
-        if((m = getBestCandidate(argTypes, name, cls, cls.getMethods(), false, classTarget)) != null) {
+        if((m = getBestCandidate(argTypes, name, cls, false, classTarget)) != null) {
             parameterTypes = m.getParameterTypes();
         }
 
@@ -824,7 +839,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
       /*
        * If we didn't find anything, maybe we're looking for the actual java.lang.Class methods.
        */
-            if((m = getBestCandidate(argTypes, name, cls, Class.class.getMethods(), false)) != null) {
+            if((m = getBestCandidate(argTypes, name, Class.class, false, false)) != null) {
                 parameterTypes = m.getParameterTypes();
             }
         }
@@ -832,7 +847,7 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
         // If we didn't find anything and the declared class is different from the actual one try also with the actual one
         if(m == null && ctx != null && cls != ctx.getClass() && !(ctx instanceof Class)) {
             cls = ctx.getClass();
-            if((m = getBestCandidate(argTypes, name, cls, cls.getMethods(), false, false)) != null) {
+            if((m = getBestCandidate(argTypes, name, cls, false, false)) != null) {
                 parameterTypes = m.getParameterTypes();
             }
         }
@@ -1092,12 +1107,12 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
             parms = normalizeArgsForVarArgs(cns.getParameterTypes(), parms, cns.isVarArgs());
 
             //构造出正确的访问器
-            AccessorNode ca = new ConstructorAccessor(cns, cStmts, pCtx);
+            AccessorNode ca = adapt(new ConstructorAccessor(cns, cStmts, pCtx));
 
             //这里表示还有还有后续的访问，因此联接后续的调用,并且返回相应的串联信息
             if(cnsRes.length > 1) {
                 ReflectiveAccessorOptimizer compiledOptimizer
-                        = new ReflectiveAccessorOptimizer(pCtx, cnsRes[1].toCharArray(), 0, cnsRes[1].length(),
+                        = newChainOptimizer(pCtx, cnsRes[1].toCharArray(), 0, cnsRes[1].length(),
                         cns.newInstance(parms), ctx, vars);
                 compiledOptimizer.ingressType = cns.getDeclaringClass();
 
@@ -1115,13 +1130,13 @@ public class ReflectiveAccessorOptimizer extends AbstractOptimizer implements Ac
         else {
             ClassLoader classLoader = pCtx != null ? pCtx.getClassLoader() : currentThread().getContextClassLoader();
             Constructor<?> cns = Class.forName(new String(expression), true, classLoader).getConstructor(EMPTYCLS);
-            AccessorNode ca = new ConstructorAccessor(cns, null, pCtx);
+            AccessorNode ca = adapt(new ConstructorAccessor(cns, null, pCtx));
 
             //串联后面的访问
             if(cnsRes.length > 1) {
                 //noinspection NullArgumentToVariableArgMethod
                 ReflectiveAccessorOptimizer compiledOptimizer
-                        = new ReflectiveAccessorOptimizer(pCtx, cnsRes[1].toCharArray(), 0, cnsRes[1].length(), cns.newInstance(), ctx, vars);
+                        = newChainOptimizer(pCtx, cnsRes[1].toCharArray(), 0, cnsRes[1].length(), cns.newInstance(), ctx, vars);
                 compiledOptimizer.setRootNode(ca);
                 compiledOptimizer.compileGetChain();
                 ca = compiledOptimizer.getRootNode();
@@ -22,7 +22,6 @@ import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -36,13 +35,13 @@ public class ListCreator extends BaseAccessor implements Accessor {
     private Accessor[] values;
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        //实现时,即依次访问相应的值访问器,构建出数组,然后转换为list,即可
+        //实现时,即依次访问相应的值访问器,放入按长度创建的list中即可
         //这里采用ArrayList来声明具体的实现类型
-        Object[] template = new Object[getValues().length];
-        for(int i = 0; i < getValues().length; i++) {
-            template[i] = getValues()[i].getValue(ctx, elCtx, variableFactory);
+        List<Object> list = new ArrayList<>(values.length);
+        for(Accessor value : values) {
+            list.add(value.getValue(ctx, elCtx, variableFactory));
         }
-        return new ArrayList<>(Arrays.asList(template));
+        return list;
     }
 
     /** 通过已知的值访问器来创建出相应的访问器 */
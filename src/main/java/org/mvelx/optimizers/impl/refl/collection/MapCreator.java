@@ -23,7 +23,7 @@ public class MapCreator extends BaseAccessor implements Accessor {
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
         //直接依次调用相应的访问器,使用hashMap来进行构建
-        Map map = new HashMap(size * 2);
+        Map map = new HashMap(initialCapacity(size));
         for(int i = size - 1; i != -1; i--) {
             //noinspection unchecked
             map.put(keys[i].getValue(ctx, elCtx, variableFactory), vals[i].getValue(ctx, elCtx, variableFactory));
@@ -31,6 +31,11 @@ public class MapCreator extends BaseAccessor implements Accessor {
         return map;
     }
 
+    /** 容纳指定数量的元素而不需要扩容时,HashMap的初始容量 */
+    public static int initialCapacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f) + 1;
+    }
+
     /** 根据相应的key值访问器和相应的value访问器来构建相应的访问器 */
     public MapCreator(Accessor[] keys, Accessor[] vals) {
         super(null, null);
@@ -1,6 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
-import com.google.common.collect.MapMaker;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.mvelx.ParserContext;
@@ -10,23 +10,31 @@ import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
 import org.mvelx.util.CloneUtils;
 
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /** 用于实现基本的下一个节点的接口访问,即包装一个能够承上启下的级联调用的访问器概念 */
 @Slf4j
 public abstract class BaseAccessor implements AccessorNode {
+    /** 用于以CAS的方式替换内联缓存 */
+    private static final AtomicReferenceFieldUpdater<BaseAccessor, InlineCache> INLINE_CACHE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(BaseAccessor.class, InlineCache.class, "inlineCache");
+
     /** 引用的下一个节点 */
     @Getter
     private AccessorNode nextNode;
 
+    /** 下一个节点在创建时所对应的上下文类型 */
     private transient Class lastCtxClass;
-    private transient AccessorNode lastNextNode;
-    private transient Map<Class, AccessorNode> accessorNodeMap = new MapMaker().weakValues().makeMap();
+
+    /** 按上下文类型选择下一节点的内联缓存 */
+    @Getter
+    private transient volatile InlineCache inlineCache;
 
     /** 当前节点最开始使用时相应的节点表达式 */
     private String nodeExpr;
 
     /** 此访问时最开始解析时所使用的解析上下文 */
+    @Getter(AccessLevel.PROTECTED)
     private ParserContext parserContext;
 
     protected BaseAccessor(String nodeExpr, ParserContext parserContext) {
@@ -35,15 +43,13 @@ public abstract class BaseAccessor implements AccessorNode {
     }
 
     protected boolean hasNextNode() {
-        return lastNextNode != null;
+        return nextNode != null;
     }
 
     public AccessorNode setNextNode(AccessorNode accessorNode, Class<?> currentCtxType) {
         this.lastCtxClass = currentCtxType;
-        if(lastCtxClass != null && accessorNode != null)
-            accessorNodeMap.put(lastCtxClass, accessorNode);
-
-        return this.nextNode = lastNextNode = accessorNode;
+        this.inlineCache = accessorNode == null ? null : InlineCache.of(currentCtxType, accessorNode);
+        return this.nextNode = accessorNode;
     }
 
     @Override
@@ -52,48 +58,87 @@ public abstract class BaseAccessor implements AccessorNode {
     }
 
     protected AccessorNode fetchNextAccessNode(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        if(ctx == null)
-            return lastNextNode;
+        if(ctx == null || !nextNode.ctxSensitive())
+            return nextNode;
 
-        if(!lastNextNode.ctxSensitive())
-            return lastNextNode;
+        InlineCache cache = inlineCache;
+        AccessorNode node = cache == null ? null : cache.find(ctx.getClass());
+        return node != null ? node : cacheMiss(ctx, elCtx, variableFactory);
+    }
 
+    /** 内联缓存未命中,为新的上下文类型创建下一节点并加入缓存 */
+    private AccessorNode cacheMiss(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
         Class<?> clazz = ctx.getClass();
-        if(clazz == lastCtxClass)
-            return lastNextNode;
+        for(; ; ) {
+            InlineCache cache = inlineCache;
+            //缓存为临时数据(如反序列化之后),重新以主节点创建
+            if(cache == null) {
+                INLINE_CACHE_UPDATER.compareAndSet(this, null, InlineCache.of(lastCtxClass, nextNode));
+                continue;
+            }
 
-        //此map之前是empty,因此可以理解为第一次访问
-        if(accessorNodeMap.isEmpty()) {
-            accessorNodeMap.putIfAbsent(clazz, lastNextNode);
-            return lastNextNode;
-        }
+            AccessorNode node = cache.find(clazz);
+            if(node != null)
+                return node;
 
-        lastCtxClass = clazz;
+            //还没有确定类型,则可以理解为第一次访问,直接使用主节点
+            if(cache.primaryType() == null) {
+                if(INLINE_CACHE_UPDATER.compareAndSet(this, cache, cache.bind(clazz)))
+                    return cache.primaryNode();
+                continue;
+            }
 
-        return accessorNodeMap.computeIfAbsent(clazz, t -> {
-            try{
-                AccessorOptimizer accessorOptimizer = OptimizerFactory.getThreadAccessorOptimizer();
-                String nodeExpr = lastNextNode.nodeExpr();
-                AccessorNode accessorNode = (AccessorNode) accessorOptimizer.optimizeAccessor(parserContext, nodeExpr.toCharArray(), 0, nodeExpr.length(), ctx, elCtx, variableFactory, null);
-                accessorNode.setNextNode(clone(lastNextNode.getNextNode()), lastNextNode.getLastCtxType());
+            //超过多态上限,转为超多态,之后其它类型均使用同一个通用节点
+            if(cache.size() >= InlineCache.polymorphismLimit) {
+                node = genericNext(cache.primaryNode());
+                if(INLINE_CACHE_UPDATER.compareAndSet(this, cache, cache.toMegamorphic(node))) {
+                    InlineCache.recordMegamorphic(siteName());
+                    log.debug("accessor site became megamorphic:{}", siteName());
+                    return node;
+                }
+                continue;
+            }
 
-                log.debug("ctx type changed，change the accessor.source:{},current:{}", lastNextNode, accessorNode);
+            node = optimizeNext(cache.primaryNode(), ctx, elCtx, variableFactory);
+            if(INLINE_CACHE_UPDATER.compareAndSet(this, cache, cache.add(clazz, node)))
+                return node;
+        }
+    }
 
-                lastNextNode = accessorNode;
-                return accessorNode;
-            } finally {
-                OptimizerFactory.clearThreadAccessorOptimizer();
-            }
-        });
+    /** 以主节点的表达式为新的上下文重新创建下一节点,并复制之后的节点链 */
+    private AccessorNode optimizeNext(AccessorNode primary, Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        try{
+            AccessorOptimizer accessorOptimizer = OptimizerFactory.getThreadAccessorOptimizer();
+            String nodeExpr = primary.nodeExpr();
+            AccessorNode accessorNode = (AccessorNode) accessorOptimizer.optimizeAccessor(parserContext, nodeExpr.toCharArray(), 0, nodeExpr.length(), ctx, elCtx, variableFactory, null);
+            accessorNode.setNextNode(clone(primary.getNextNode()), primary.getLastCtxType());
+
+            log.debug("ctx type changed，change the accessor.source:{},current:{}", primary, accessorNode);
+            return accessorNode;
+        } finally {
+            OptimizerFactory.clearThreadAccessorOptimizer();
+        }
+    }
+
+    /** 以主节点创建超多态访问点的通用节点,并复制之后的节点链 */
+    private AccessorNode genericNext(AccessorNode primary) {
+        MegamorphicAccessor accessorNode = MegamorphicAccessor.of(primary, parserContext);
+        accessorNode.setNextNode(clone(primary.getNextNode()), primary.getLastCtxType());
+        return accessorNode;
+    }
+
+    /** 当前访问点的描述,即当前节点及下一节点的表达式 */
+    private String siteName() {
+        return nodeExpr + "." + nextNode.nodeExpr();
     }
 
     protected AccessorNode clone(AccessorNode accessorNode) {
         AccessorNode node = CloneUtils.clone(accessorNode);
 
+        //复制出来的节点使用自己的缓存,只保留其主节点
         if(node instanceof BaseAccessor) {
-            Map<Class, AccessorNode> newNodeMap = new MapMaker().weakValues().makeMap();
-            newNodeMap.putAll(accessorNodeMap);
-            ((BaseAccessor) node).accessorNodeMap = newNodeMap;
+            BaseAccessor accessor = (BaseAccessor) node;
+            accessor.inlineCache = accessor.nextNode == null ? null : InlineCache.of(accessor.lastCtxClass, accessor.nextNode);
         }
 
         return node;
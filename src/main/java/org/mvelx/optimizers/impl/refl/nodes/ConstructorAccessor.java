@@ -34,7 +34,7 @@ public class ConstructorAccessor extends InvokableAccessor {
             if(!coercionNeeded) {
                 //根据是否存在nextNode决定是否转发请求
                 try{
-                    Object value = constructor.newInstance(executeAll(elCtx, variableFactory));
+                    Object value = newInstance(executeAll(elCtx, variableFactory));
                     if(hasNextNode()) {
                         return fetchNextAccessNode(value, elCtx, variableFactory).getValue(value, elCtx, variableFactory);
                     }
@@ -50,7 +50,7 @@ public class ConstructorAccessor extends InvokableAccessor {
             //参数是可变的,即... 可变参数的情况
             else {
                 //变参处理,先根据相应的参数个数重新解析参数,再进行对象创建
-                Object value = constructor.newInstance(executeAndCoerce(parameterTypes, elCtx, variableFactory, constructor.isVarArgs()));
+                Object value = newInstance(executeAndCoerce(parameterTypes, elCtx, variableFactory, constructor.isVarArgs()));
                 if(hasNextNode()) {
                     return fetchNextAccessNode(value, elCtx, variableFactory).getValue(value, elCtx, variableFactory);
                 }
@@ -88,8 +88,8 @@ public class ConstructorAccessor extends InvokableAccessor {
         return false;
     }
 
-    /** 返回相应的参数执行表达式 */
-    public ExecutableStatement[] getParameters() {
-        return parms;
+    /** 使用已求值的参数创建对象,参数类型不匹配时抛出 IllegalArgumentException */
+    protected Object newInstance(Object[] args) throws Exception {
+        return constructor.newInstance(args);
     }
 }
@@ -1,5 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
+import lombok.Getter;
 import lombok.val;
 import org.mvelx.ParserContext;
 import org.mvelx.integration.VariableResolverFactory;
@@ -12,6 +13,7 @@ import static org.mvelx.DataConversion.convert;
 /** 表示一个字段的访问器 */
 public class FieldAccessor extends BaseAccessor {
     /** 当前所对应的字段信息 */
+    @Getter
     private final Field field;
     /** 是否需要对参数进行类型转换,是一个逻辑处理变量 */
     private boolean coercionRequired = false;
@@ -26,7 +28,7 @@ public class FieldAccessor extends BaseAccessor {
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
         try{
-            val value = field.get(ctx);
+            val value = get(ctx);
             //直接通过是否有next节点决定相应的处理流程
             if(hasNextNode()) {
                 return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
@@ -43,7 +45,7 @@ public class FieldAccessor extends BaseAccessor {
         if(hasNextNode()) {
             try{
                 //由当前字段是否是基本类型决定是否需要进行类型转换,即创建为基本的0数据
-                Object v = field.get(ctx);
+                Object v = get(ctx);
                 Object realValue = value == null && primitive ? PropertyTools.getPrimitiveInitialValue(field.getType()) : value;
                 return fetchNextAccessNode(v, elCtx, variableFactory).setValue(v, elCtx, variableFactory, realValue);
             } catch(Exception e) {
@@ -75,4 +77,9 @@ public class FieldAccessor extends BaseAccessor {
     public Class getKnownEgressType() {
         return field.getType();
     }
+
+    /** 读取字段值 */
+    protected Object get(Object ctx) throws Exception {
+        return field.get(ctx);
+    }
 }
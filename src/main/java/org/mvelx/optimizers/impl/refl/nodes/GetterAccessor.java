@@ -8,6 +8,7 @@ import org.mvelx.integration.VariableResolverFactory;
 
 import java.lang.reflect.Method;
 
+import static org.mvelx.util.ParseTools.EMPTY_CLS_ARR;
 import static org.mvelx.util.ParseTools.getBestCandidate;
 
 /** 表示访问一个getter方法 访问器 */
@@ -26,7 +27,7 @@ public class GetterAccessor extends BaseAccessor {
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
         try{
-            val value = method.invoke(ctx, EMPTY);
+            val value = invoke(ctx);
             //根据是否有下级节点决定相应的逻辑
             if(hasNextNode()) {
                 return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
@@ -35,7 +36,7 @@ public class GetterAccessor extends BaseAccessor {
         } catch(IllegalArgumentException e) {
             //这里处理类型不匹配 的问题，即method的调用者不正确，因此这里重新获取相应的方法信息进行处理
             if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                Method o = getBestCandidate(EMPTY, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                Method o = getBestCandidate(EMPTY_CLS_ARR, method.getName(), ctx.getClass(), true, false);
                 if(o != null) {
                     return executeOverrideTarget(o, ctx, elCtx, vars);
                 }
@@ -63,7 +64,7 @@ public class GetterAccessor extends BaseAccessor {
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory vars, Object value) {
         try{
             if(hasNextNode()) {
-                Object ctxValue = method.invoke(ctx, EMPTY);
+                Object ctxValue = invoke(ctx);
                 return fetchNextAccessNode(ctxValue, elCtx, vars).setValue(ctxValue, elCtx, vars, value);
             } else {
                 //不需要单独设置值
@@ -80,6 +81,11 @@ public class GetterAccessor extends BaseAccessor {
         return method.getReturnType();
     }
 
+    /** 调用getter方法,调用者类型不匹配时抛出 IllegalArgumentException */
+    protected Object invoke(Object ctx) throws Exception {
+        return method.invoke(ctx, EMPTY);
+    }
+
     /** 重新调用重写的其它方法 */
     private Object executeOverrideTarget(Method o, Object ctx, Object elCtx, VariableResolverFactory vars) {
         try{
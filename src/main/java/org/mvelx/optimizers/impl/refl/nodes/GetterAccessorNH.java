@@ -8,6 +8,7 @@ import org.mvelx.integration.VariableResolverFactory;
 
 import java.lang.reflect.Method;
 
+import static org.mvelx.util.ParseTools.EMPTY_CLS_ARR;
 import static org.mvelx.util.ParseTools.getBestCandidate;
 
 /** 带空值处理器的getter方法访问 */
@@ -32,7 +33,7 @@ public class GetterAccessorNH extends BaseAccessor {
             return nullHandle(method.getName(), method.invoke(ctx, EMPTY), ctx, elCtx, vars);
         } catch(IllegalArgumentException e) {
             if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                Method o = getBestCandidate(EMPTY, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                Method o = getBestCandidate(EMPTY_CLS_ARR, method.getName(), ctx.getClass(), true, false);
                 if(o != null) {
                     return executeOverrideTarget(o, ctx, elCtx, vars);
                 }
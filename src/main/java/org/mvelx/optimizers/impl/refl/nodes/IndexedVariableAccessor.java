@@ -35,7 +35,7 @@ public class IndexedVariableAccessor extends BaseAccessor {
 
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vrf) {
         //因为数据存储在相应的解析器上下文中,因此直接以下标的方式获取到解析器,再获取相应的值
-        val value = vrf.getIndexedVariableResolver(register).getValue();
+        val value = vrf.getIndexedValue(register);
         if(hasNextNode()) {
             return fetchNextAccessNode(value, elCtx, vrf).getValue(value, elCtx, vrf);
         }
@@ -46,7 +46,7 @@ public class IndexedVariableAccessor extends BaseAccessor {
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
         //根据是否有next来决定是自己执行set操作,还是转交相应的处理逻辑
         if(hasNextNode()) {
-            Object ctxValue = variableFactory.getIndexedVariableResolver(register).getValue();
+            Object ctxValue = variableFactory.getIndexedValue(register);
             return fetchNextAccessNode(ctxValue, elCtx, variableFactory).setValue(ctxValue, elCtx, variableFactory, value);
         } else {
             variableFactory.getIndexedVariableResolver(register).setValue(value);
@@ -0,0 +1,161 @@
+package org.mvelx.optimizers.impl.refl.nodes;
+
+import lombok.Getter;
+import org.mvelx.compiler.AccessorNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 访问节点用于选择下一节点的内联缓存,按上下文对象的类型记录相应的下一节点
+ * 前两个类型分别占用单独的位置(单态及双态),直接通过类型引用进行比较,之后的类型依次记录,直到达到多态上限.
+ * 超过上限之后转为超多态状态,此后所有未单独记录的类型均使用同一个通用节点(见 MegamorphicAccessor),
+ * 通用节点每次调用时按实际类型解析,不再为新类型创建节点,因此缓存的大小不随类型的增加而增长.
+ * 缓存本身不可变,每次新增类型时整体替换,因此多线程读取时无需加锁
+ */
+public final class InlineCache {
+    /** 多态上限,即最多单独记录多少种类型,超过之后转为超多态 */
+    public static int polymorphismLimit = Integer.getInteger("mvelx.inline_cache.polymorphism_limit", 4);
+    /** 最多记录多少个超多态访问点 */
+    public static int maximumTrackedSites = Integer.getInteger("mvelx.inline_cache.maximum_tracked_sites", 1024);
+
+    /** 超多态访问点及其转为超多态的次数(访问器被复制时,每个副本单独计数) */
+    private static final ConcurrentMap<String, AtomicLong> MEGAMORPHIC_SITES = new ConcurrentHashMap<>();
+
+    private static final Class[] NO_TYPES = new Class[0];
+    private static final AccessorNode[] NO_NODES = new AccessorNode[0];
+
+    /** 缓存状态 */
+    public enum State {
+        /** 还未遇到任何类型,第一个类型直接使用主节点 */
+        UNINITIALIZED,
+        MONOMORPHIC,
+        BIMORPHIC,
+        POLYMORPHIC,
+        MEGAMORPHIC
+    }
+
+    /** 第一个(单态)位置 */
+    private final Class type0;
+    private final AccessorNode node0;
+    /** 第二个(双态)位置 */
+    private final Class type1;
+    private final AccessorNode node1;
+    /** 其余的多态位置 */
+    private final Class[] types;
+    private final AccessorNode[] nodes;
+    /** 超多态之后未单独记录的类型所使用的通用节点,之前为null */
+    private final AccessorNode megamorphicNode;
+
+    /** 因未命中而新建节点的次数(不包括超多态之后的) */
+    @Getter
+    private final int misses;
+
+    private InlineCache(Class type0, AccessorNode node0, Class type1, AccessorNode node1, Class[] types, AccessorNode[] nodes,
+                        AccessorNode megamorphicNode, int misses) {
+        this.type0 = type0;
+        this.node0 = node0;
+        this.type1 = type1;
+        this.node1 = node1;
+        this.types = types;
+        this.nodes = nodes;
+        this.megamorphicNode = megamorphicNode;
+        this.misses = misses;
+    }
+
+    /** 以主节点创建缓存,类型为null时表示由第一次访问的类型决定 */
+    static InlineCache of(Class type, AccessorNode node) {
+        return new InlineCache(type, node, null, null, NO_TYPES, NO_NODES, null, 0);
+    }
+
+    /** 查找指定类型的节点,不存在时返回null */
+    AccessorNode find(Class type) {
+        if(type0 == type) return node0;
+        if(type1 == type) return node1;
+        for(int i = 0; i < types.length; i++) {
+            if(types[i] == type) return nodes[i];
+        }
+        return megamorphicNode;
+    }
+
+    /** 主节点的类型 */
+    Class primaryType() {
+        return type0;
+    }
+
+    /** 主节点 */
+    AccessorNode primaryNode() {
+        return node0;
+    }
+
+    /** 确定主节点的类型 */
+    InlineCache bind(Class type) {
+        return new InlineCache(type, node0, type1, node1, types, nodes, megamorphicNode, misses);
+    }
+
+    /** 增加一个类型,返回新的缓存 */
+    InlineCache add(Class type, AccessorNode node) {
+        if(type1 == null) {
+            return new InlineCache(type0, node0, type, node, types, nodes, null, misses + 1);
+        }
+        Class[] newTypes = Arrays.copyOf(types, types.length + 1);
+        AccessorNode[] newNodes = Arrays.copyOf(nodes, nodes.length + 1);
+        newTypes[types.length] = type;
+        newNodes[nodes.length] = node;
+        return new InlineCache(type0, node0, type1, node1, newTypes, newNodes, null, misses + 1);
+    }
+
+    /** 转为超多态状态,已记录的类型保持不变,其它类型均使用指定的通用节点 */
+    InlineCache toMegamorphic(AccessorNode genericNode) {
+        return new InlineCache(type0, node0, type1, node1, types, nodes, genericNode, misses);
+    }
+
+    /** 已单独记录的类型数 */
+    int size() {
+        return type0 == null ? 0 : type1 == null ? 1 : 2 + types.length;
+    }
+
+    public boolean isMegamorphic() {
+        return megamorphicNode != null;
+    }
+
+    public State getState() {
+        if(megamorphicNode != null) return State.MEGAMORPHIC;
+        switch(size()) {
+            case 0:
+                return State.UNINITIALIZED;
+            case 1:
+                return State.MONOMORPHIC;
+            case 2:
+                return State.BIMORPHIC;
+            default:
+                return State.POLYMORPHIC;
+        }
+    }
+
+    /** 记录一个访问点转为超多态 */
+    static void recordMegamorphic(String site) {
+        AtomicLong counter = MEGAMORPHIC_SITES.get(site);
+        if(counter == null) {
+            if(MEGAMORPHIC_SITES.size() >= maximumTrackedSites) return;
+            counter = MEGAMORPHIC_SITES.computeIfAbsent(site, k -> new AtomicLong());
+        }
+        counter.incrementAndGet();
+    }
+
+    /** 获取所有超多态访问点,及每个访问点转为超多态的次数 */
+    public static Map<String, Long> getMegamorphicSites() {
+        Map<String, Long> sites = new HashMap<>();
+        MEGAMORPHIC_SITES.forEach((k, v) -> sites.put(k, v.get()));
+        return sites;
+    }
+
+    /** 清除超多态访问点的统计信息 */
+    public static void resetStatistics() {
+        MEGAMORPHIC_SITES.clear();
+    }
+}
@@ -1,5 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
+import org.mvelx.DataConversion.ConversionSite;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.ExecutableStatement;
 import org.mvelx.integration.VariableResolverFactory;
@@ -18,6 +19,8 @@ public abstract class InvokableAccessor extends BaseAccessor {
     protected Class[] parameterTypes;
     /** 表示是否需要进行可变参数处理(默认值false，当失败时转换为true) */
     protected boolean coercionNeeded = false;
+    /** 每个参数的转换位置,记住上一次参数的源类型及转换函数 */
+    private transient ConversionSite[] conversionSites;
 
     protected InvokableAccessor(String nodeExpr, ParserContext parserContext) {
         super(nodeExpr, parserContext);
@@ -34,7 +37,7 @@ public abstract class InvokableAccessor extends BaseAccessor {
         for(int i = 0; i < length && !(isVarargs && i >= length - 1); i++) {
             //noinspection unchecked
             //取值并根据相应的类型进行转换
-            values[i] = convert(parms[i].getValue(elCtx, vars), target[i]);
+            values[i] = conversionSite(i, target[i]).convert(parms[i].getValue(elCtx, vars));
         }
         //是可变参数,则最后一个参数的类型根据声明类型来进行确定,并将相应的最后一个参数转换为数组的形式
         if(isVarargs) {
@@ -55,4 +58,22 @@ public abstract class InvokableAccessor extends BaseAccessor {
         }
         return values;
     }
+
+    /** 返回相应的参数执行表达式 */
+    public ExecutableStatement[] getParameters() {
+        return parms;
+    }
+
+    /** 获取指定参数的转换位置,目标类型有变化时重新创建 */
+    private ConversionSite conversionSite(int i, Class type) {
+        ConversionSite[] sites = conversionSites;
+        if(sites == null) {
+            conversionSites = sites = new ConversionSite[length];
+        }
+        ConversionSite site = sites[i];
+        if(site == null || site.getToType() != type) {
+            sites[i] = site = new ConversionSite(type);
+        }
+        return site;
+    }
 }
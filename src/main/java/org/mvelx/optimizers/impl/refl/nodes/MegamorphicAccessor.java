@@ -0,0 +1,158 @@
+package org.mvelx.optimizers.impl.refl.nodes;
+
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.AccessorNode;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.integration.VariableResolverFactory;
+import org.mvelx.optimizers.AccessorOptimizer;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.util.PropertyTools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static org.mvelx.DataConversion.convert;
+import static org.mvelx.util.ParseTools.*;
+import static org.mvelx.util.Varargs.normalizeArgsForVarArgs;
+import static org.mvelx.util.Varargs.paramTypeVarArgsSafe;
+
+/**
+ * 超多态访问点所使用的通用访问节点,每次调用时按上下文的实际类型解析访问目标
+ * 属性通过 PropertyIndex 查找公共字段或getter,方法通过 MethodIndex 查找最匹配的方法,查找结果均记录在类自身的索引中(ClassValue),
+ * 因此节点本身不按类型持有任何字段或方法,也不会因为类型的增加而增长.
+ * 其它类型的访问(如集合下标,静态引用等)每次使用反射优化器重新解析,并直接使用解析过程中计算出的值
+ */
+public class MegamorphicAccessor extends BaseAccessor {
+    /** 属性名,访问方法时为null */
+    private final String property;
+    /** 方法名,访问属性时为null */
+    private final String methodName;
+    /** 方法参数 */
+    private final ExecutableStatement[] parms;
+
+    private MegamorphicAccessor(String nodeExpr, String property, String methodName, ExecutableStatement[] parms, ParserContext parserContext) {
+        super(nodeExpr, parserContext);
+        this.property = property;
+        this.methodName = methodName;
+        this.parms = parms;
+    }
+
+    /** 以访问点的主节点创建通用节点,下一节点由调用方设置 */
+    static MegamorphicAccessor of(AccessorNode primary, ParserContext parserContext) {
+        Class<?> type = primary.getClass();
+        if(type == GetterAccessor.class || type == FieldAccessor.class) {
+            return new MegamorphicAccessor(primary.nodeExpr(), primary.nodeExpr(), null, null, parserContext);
+        }
+        if(type == MethodAccessor.class) {
+            MethodAccessor m = (MethodAccessor) primary;
+            return new MegamorphicAccessor(primary.nodeExpr(), null, m.getMethod().getName(), m.parms, parserContext);
+        }
+        return new MegamorphicAccessor(primary.nodeExpr(), null, null, null, parserContext);
+    }
+
+    public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
+        Object value = resolve(ctx, elCtx, vars);
+        if(hasNextNode()) {
+            return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
+        }
+        return value;
+    }
+
+    public Object setValue(Object ctx, Object elCtx, VariableResolverFactory vars, Object value) {
+        if(hasNextNode()) {
+            Object v = resolve(ctx, elCtx, vars);
+            return fetchNextAccessNode(v, elCtx, vars).setValue(v, elCtx, vars, value);
+        }
+
+        //最后一级为属性时直接赋值,其它情况由反射优化器创建的节点处理
+        if(property != null && ctx != null && !(ctx instanceof Class)) {
+            Member member = PropertyTools.getFieldOrWriteAccessor(ctx.getClass(), property, value == null ? null : value.getClass());
+            try{
+                if(member instanceof Field && (member.getModifiers() & Modifier.STATIC) == 0) {
+                    Field f = (Field) member;
+                    f.set(ctx, value = convert(value, f.getType()));
+                    return value;
+                }
+                if(member instanceof Method) {
+                    Method m = getWidenedTarget((Method) member);
+                    m.invoke(ctx, value = convert(value, m.getParameterTypes()[0]));
+                    return value;
+                }
+            } catch(InvocationTargetException e) {
+                throw new RuntimeException("unable to bind property: " + property, e.getCause());
+            } catch(IllegalAccessException e) {
+                throw new RuntimeException("unable to bind property: " + property, e);
+            }
+        }
+        //优化的过程中即完成赋值
+        optimizer().optimizeSetAccessor(getParserContext(), nodeExpr().toCharArray(), 0, nodeExpr().length(), ctx, elCtx, vars,
+                false, value, null);
+        return value;
+    }
+
+    /** 按当前上下文的实际类型计算当前节点的值 */
+    private Object resolve(Object ctx, Object elCtx, VariableResolverFactory vars) {
+        if(ctx != null && !(ctx instanceof Class)) {
+            try{
+                if(property != null) {
+                    Member member = PropertyTools.getFieldOrAccessor(ctx.getClass(), property);
+                    if(member instanceof Field && (member.getModifiers() & Modifier.STATIC) == 0) {
+                        return ((Field) member).get(ctx);
+                    }
+                    if(member instanceof Method) {
+                        return getWidenedTarget((Method) member).invoke(ctx, GetterAccessor.EMPTY);
+                    }
+                } else if(methodName != null) {
+                    return invokeMethod(ctx, elCtx, vars);
+                }
+            } catch(InvocationTargetException e) {
+                throw new RuntimeException("cannot invoke: " + nodeExpr(), e.getCause());
+            } catch(IllegalAccessException e) {
+                throw new RuntimeException("cannot access: " + nodeExpr(), e);
+            }
+        }
+
+        AccessorOptimizer optimizer = optimizer();
+        optimizer.optimizeAccessor(getParserContext(), nodeExpr().toCharArray(), 0, nodeExpr().length(), ctx, elCtx, vars, null);
+        return optimizer.getResultOptPass();
+    }
+
+    /** 计算参数,并按参数类型查找最匹配的方法进行调用 */
+    private Object invokeMethod(Object ctx, Object elCtx, VariableResolverFactory vars) throws InvocationTargetException, IllegalAccessException {
+        int length = parms == null ? 0 : parms.length;
+        Object[] args = length == 0 ? GetterAccessor.EMPTY : new Object[length];
+        Class[] argTypes = length == 0 ? EMPTY_CLS_ARR : new Class[length];
+        for(int i = 0; i < length; i++) {
+            args[i] = parms[i].getValue(elCtx, vars);
+            Class known = parms[i].getKnownEgressType();
+            argTypes[i] = known != null && known != Object.class ? known : args[i] == null ? null : args[i].getClass();
+        }
+
+        Class<?> cls = ctx.getClass();
+        Method m = getBestCandidate(argTypes, methodName, cls, false, false);
+        if(m == null) {
+            throw new RuntimeException("unable to resolve method: " + cls.getName() + "." + methodName + " [arglength=" + length + "]");
+        }
+
+        Class<?>[] parameterTypes = m.getParameterTypes();
+        for(int i = 0; i < length; i++) {
+            args[i] = convert(args[i], paramTypeVarArgsSafe(parameterTypes, i, m.isVarArgs()));
+        }
+        return getWidenedTarget(cls, m).invoke(ctx, normalizeArgsForVarArgs(parameterTypes, args, m.isVarArgs()));
+    }
+
+    private static AccessorOptimizer optimizer() {
+        return OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
+    }
+
+    public Class getKnownEgressType() {
+        return Object.class;
+    }
+
+    public String toString() {
+        return "megamorphic:" + nodeExpr();
+    }
+}
@@ -1,5 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
+import lombok.Getter;
 import org.mvelx.ParserContext;
 import org.mvelx.compiler.ExecutableStatement;
 import org.mvelx.integration.VariableResolverFactory;
@@ -14,6 +15,7 @@ import static org.mvelx.util.ParseTools.getWidenedTarget;
 public class MethodAccessor extends InvokableAccessor {
 
     /** 所引用的方法信息 */
+    @Getter
     private final Method method;
 
     /** 通过方法以及相应的参数执行单元来进行方法访问器构建 */
@@ -32,7 +34,7 @@ public class MethodAccessor extends InvokableAccessor {
         //先按照不需要进行参数转换的逻辑来执行
         if(!coercionNeeded) {
             try{
-                Object value = method.invoke(ctx, executeAll(elCtx, vars, method));
+                Object value = invoke(ctx, executeAll(elCtx, vars, method));
                 if(hasNextNode()) {
                     return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
                 }
@@ -40,7 +42,7 @@ public class MethodAccessor extends InvokableAccessor {
             } catch(IllegalArgumentException e) {
                 //调用失败了,则重新尝试方法重写的可能
                 if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                    Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                    Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), true, false);
                     if(o != null) {
                         return executeOverrideTarget(getWidenedTarget(o), ctx, elCtx, vars);
                     }
@@ -56,7 +58,7 @@ public class MethodAccessor extends InvokableAccessor {
         } else {
             try{
                 //尝试进行参数转换并处理
-                Object value = method.invoke(ctx, executeAndCoerce(parameterTypes, elCtx, vars, method.isVarArgs()));
+                Object value = invoke(ctx, executeAndCoerce(parameterTypes, elCtx, vars, method.isVarArgs()));
                 if(hasNextNode()) {
                     return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
                 }
@@ -154,11 +156,11 @@ public class MethodAccessor extends InvokableAccessor {
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
         //这里仅支持按实际参数直接调用,不需要参数转换.是一个潜在处理的问题
         try{
-            Object ctxValue = method.invoke(ctx, executeAll(elCtx, variableFactory, method));
+            Object ctxValue = invoke(ctx, executeAll(elCtx, variableFactory, method));
             return fetchNextAccessNode(ctxValue, elCtx, variableFactory).setValue(ctxValue, elCtx, variableFactory, value);
         } catch(IllegalArgumentException e) {
             if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), true, false);
                 if(o != null) {
                     Object ctxValue = executeOverrideTarget(o, ctx, elCtx, variableFactory);
                     return fetchNextAccessNode(ctxValue, elCtx, variableFactory).setValue(ctxValue, elCtx, variableFactory, value);
@@ -177,4 +179,9 @@ public class MethodAccessor extends InvokableAccessor {
     public Class getKnownEgressType() {
         return method.getReturnType();
     }
+
+    /** 使用已求值的参数调用方法,调用者或参数类型不匹配时抛出 IllegalArgumentException */
+    protected Object invoke(Object ctx, Object[] args) throws Exception {
+        return method.invoke(ctx, args);
+    }
 }
\ No newline at end of file
@@ -58,7 +58,7 @@ public class MethodAccessorNH extends BaseAccessor {
             } catch(IllegalArgumentException e) {
                 //先尝试可能的方法重写调用.
                 if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                    Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                    Method o = getBestCandidate(parameterTypes, method.getName(), ctx.getClass(), true, false);
                     if(o != null) {
                         return executeOverrideTarget(o, ctx, elCtx, vars);
                     }
@@ -7,6 +7,7 @@ import org.mvelx.util.PropertyTools;
 import java.lang.reflect.Method;
 
 import static org.mvelx.DataConversion.convert;
+import static org.mvelx.util.ParseTools.EMPTY_CLS_ARR;
 import static org.mvelx.util.ParseTools.getBestCandidate;
 
 /** 描述一个setter方法的访问器 */
@@ -43,7 +44,7 @@ public class SetterAccessor extends BaseAccessor {
         } catch(IllegalArgumentException e) {
             //这里有可能是子类重载了相应的方法,并且相应的类型进行了处理,如使用了其它的定义,这里为重载,不是重写.即有多个同名方法,但参数定义不同
             if(ctx != null && method.getDeclaringClass() != ctx.getClass()) {
-                Method o = getBestCandidate(EMPTY, method.getName(), ctx.getClass(), ctx.getClass().getMethods(), true);
+                Method o = getBestCandidate(EMPTY_CLS_ARR, method.getName(), ctx.getClass(), true, false);
                 if(o != null) {
                     return executeOverrideTarget(o, ctx, value);
                 }
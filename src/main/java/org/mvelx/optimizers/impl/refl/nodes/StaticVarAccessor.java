@@ -1,5 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
+import lombok.Getter;
 import lombok.val;
 import org.mvelx.OptimizationFailure;
 import org.mvelx.ParserContext;
@@ -10,6 +11,7 @@ import java.lang.reflect.Field;
 /** 描述静态字段访问器 */
 public class StaticVarAccessor extends BaseAccessor {
     /** 相应的字段 */
+    @Getter
     private Field field;
 
     public StaticVarAccessor(Field field, String property, ParserContext parserContext) {
@@ -20,7 +22,7 @@ public class StaticVarAccessor extends BaseAccessor {
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory vars) {
         //直接通过field.get来获取静态字段的值,因为是静态字段,因此无需传参
         try{
-            val value = field.get(null);
+            val value = get();
             if(hasNextNode()) {
                 return fetchNextAccessNode(value, elCtx, vars).getValue(value, elCtx, vars);
             }
@@ -36,7 +38,7 @@ public class StaticVarAccessor extends BaseAccessor {
             if(!hasNextNode()) {
                 field.set(null, value);
             } else {
-                Object ctxValue = field.get(null);
+                Object ctxValue = get();
                 return fetchNextAccessNode(ctxValue, elCtx, variableFactory).setValue(ctxValue, elCtx, variableFactory, value);
             }
         } catch(Exception e) {
@@ -56,4 +58,9 @@ public class StaticVarAccessor extends BaseAccessor {
     public boolean ctxSensitive() {
         return false;
     }
-}
\ No newline at end of file
+
+    /** 读取静态字段值 */
+    protected Object get() throws Exception {
+        return field.get(null);
+    }
+}
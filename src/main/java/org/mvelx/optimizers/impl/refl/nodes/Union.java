@@ -7,15 +7,23 @@ import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.optimizers.AccessorOptimizer;
 import org.mvelx.optimizers.OptimizerFactory;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * @author Christopher Brock
  */
 public class Union extends BaseAccessor implements Accessor {
+    private static final AtomicIntegerFieldUpdater<Union> OPTIMIZING_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Union.class, "optimizing");
+
     private Accessor accessor;
     private char[] nextExpr;
     private int start;
     private int offset;
-    private Accessor nextAccessor;
+    /** 后续访问器,在第一次执行时由获取到优化权的线程创建 */
+    private volatile Accessor nextAccessor;
+    /** 是否有线程正在创建后续访问器,1表示正在创建 */
+    private volatile int optimizing;
     private ParserContext pCtx;
 
     public Union(ParserContext pCtx, AccessorNode accessor, char[] nextAccessor, int start, int offset) {
@@ -28,28 +36,58 @@ public class Union extends BaseAccessor implements Accessor {
         this.pCtx = pCtx;
     }
 
+    /**
+     * 第一次执行时创建后续访问器,同一节点同时只有一个线程进行创建
+     * 其它线程(以及创建过程中重入当前节点的调用)在创建完成之前使用临时的反射访问器计算,且不安装,以避免相互等待
+     */
     public Object getValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        if(nextAccessor == null) {
-            return get(ctx, elCtx, variableFactory);
-        } else {
-            return nextAccessor.getValue(get(ctx, elCtx, variableFactory), elCtx, variableFactory);
+        Accessor next = nextAccessor;
+        if(next != null) {
+            return next.getValue(accessor.getValue(ctx, elCtx, variableFactory), elCtx, variableFactory);
         }
+
+        if(!OPTIMIZING_UPDATER.compareAndSet(this, 0, 1)) {
+            return evaluateReflective(ctx, elCtx, variableFactory);
+        }
+
+        try{
+            if(nextAccessor == null) {
+                return optimizeNext(ctx, elCtx, variableFactory);
+            }
+        } finally {
+            optimizing = 0;
+        }
+
+        //在获取到优化权之前,其它线程已经完成了优化
+        return nextAccessor.getValue(accessor.getValue(ctx, elCtx, variableFactory), elCtx, variableFactory);
     }
 
     public Object setValue(Object ctx, Object elCtx, VariableResolverFactory variableFactory, Object value) {
-        return nextAccessor.setValue(get(ctx, elCtx, variableFactory), elCtx, variableFactory, value);
+        return nextAccessor.setValue(accessor.getValue(ctx, elCtx, variableFactory), elCtx, variableFactory, value);
     }
 
-    private Object get(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
-        if(nextAccessor == null) {
-            Object o = accessor.getValue(ctx, elCtx, variableFactory);
-            AccessorOptimizer ao = OptimizerFactory.getDefaultAccessorCompiler();
-            Class ingress = accessor.getKnownEgressType();
+    /** 创建后续访问器,并返回创建过程中计算出的值 */
+    private Object optimizeNext(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        Object o = accessor.getValue(ctx, elCtx, variableFactory);
+        AccessorOptimizer ao = OptimizerFactory.getDefaultAccessorCompiler();
+        Class ingress = accessor.getKnownEgressType();
+
+        nextAccessor = ao.optimizeAccessor(pCtx, nextExpr, start, offset, o, elCtx, variableFactory, ingress);
+        return ao.getResultOptPass();
+    }
 
-            nextAccessor = ao.optimizeAccessor(pCtx, nextExpr, start, offset, o, elCtx, variableFactory, ingress);
+    /** 未获取到优化权时,使用临时的反射访问器计算后续访问,期间不会生成新类 */
+    private Object evaluateReflective(Object ctx, Object elCtx, VariableResolverFactory variableFactory) {
+        Object o = accessor.getValue(ctx, elCtx, variableFactory);
+        boolean reflective = OptimizerFactory.beginReflectiveOnly();
+        try{
+            AccessorOptimizer ao = OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
+            ao.optimizeAccessor(pCtx, nextExpr, start, offset, o, elCtx, variableFactory, accessor.getKnownEgressType());
             return ao.getResultOptPass();
-        } else {
-            return accessor.getValue(ctx, elCtx, variableFactory);
+        } finally {
+            if(reflective) {
+                OptimizerFactory.endReflectiveOnly();
+            }
         }
     }
 
@@ -1,5 +1,6 @@
 package org.mvelx.optimizers.impl.refl.nodes;
 
+import lombok.Getter;
 import lombok.val;
 import org.mvelx.ParserContext;
 import org.mvelx.integration.VariableResolverFactory;
@@ -7,6 +8,7 @@ import org.mvelx.integration.VariableResolverFactory;
 /** 表示对变量信息的访问,即变量之前以变量名的方式存储在上下文中,这里从相应的上下文中进行获取 */
 public class VariableAccessor extends BaseAccessor {
     /** 变量名 */
+    @Getter
     private String property;
 
     public VariableAccessor(String property, ParserContext parserContext) {
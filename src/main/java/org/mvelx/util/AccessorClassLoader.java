@@ -0,0 +1,98 @@
+package org.mvelx.util;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用于加载运行期生成类(如asm访问器,整体编译的语句类)的短生命周期类加载器
+ * 每个加载器仅由其加载的类引用,当相应的访问器(即所属的编译表达式)不再被引用时,加载器以及其中的类即可以被回收(卸载),
+ * 从而避免生成类长期占用 metaspace.
+ * 同时记录所有加载器的创建和回收情况,用于确认在表达式不断变化的情况下生成类的数量是有界的
+ */
+public class AccessorClassLoader extends ClassLoader implements MvelClassLoader {
+    /** 用于感知加载器被回收的引用队列 */
+    private static final ReferenceQueue<AccessorClassLoader> queue = new ReferenceQueue<>();
+    /** 当前还未回收的加载器引用,保证引用对象本身不会先被回收 */
+    private static final Set<LoaderRef> liveRefs = ConcurrentHashMap.newKeySet();
+
+    /** 累计创建的加载器数 */
+    private static final AtomicLong totalLoaders = new AtomicLong();
+    /** 累计定义的类数 */
+    private static final AtomicLong totalClasses = new AtomicLong();
+    /** 已回收的加载器数 */
+    private static final AtomicLong unloadedLoaders = new AtomicLong();
+    /** 已回收的类数 */
+    private static final AtomicLong unloadedClasses = new AtomicLong();
+
+    private final LoaderRef ref;
+
+    public AccessorClassLoader(ClassLoader parent) {
+        super(parent);
+        expunge();
+        ref = new LoaderRef(this);
+        liveRefs.add(ref);
+        totalLoaders.incrementAndGet();
+    }
+
+    /** 在一个新的加载器中定义指定的类 */
+    public static Class<?> defineClass(ClassLoader parent, String className, byte[] b) {
+        return new AccessorClassLoader(parent).defineClassX(className, b, 0, b.length);
+    }
+
+    public synchronized Class<?> defineClassX(String className, byte[] b, int start, int end) {
+        Class<?> cls = super.defineClass(className, b, start, end);
+        ref.classes++;
+        totalClasses.incrementAndGet();
+        return cls;
+    }
+
+    /** 处理已经被回收的加载器 */
+    private static void expunge() {
+        Reference<? extends AccessorClassLoader> r;
+        while((r = queue.poll()) != null) {
+            LoaderRef loaderRef = (LoaderRef) r;
+            if(liveRefs.remove(loaderRef)) {
+                unloadedLoaders.incrementAndGet();
+                unloadedClasses.addAndGet(loaderRef.classes);
+            }
+        }
+    }
+
+    /** 当前仍存活的加载器数 */
+    public static long getLiveLoaders() {
+        expunge();
+        return totalLoaders.get() - unloadedLoaders.get();
+    }
+
+    /** 当前仍存活的生成类数 */
+    public static long getLiveClasses() {
+        expunge();
+        return totalClasses.get() - unloadedClasses.get();
+    }
+
+    public static long getTotalLoaders() {
+        return totalLoaders.get();
+    }
+
+    public static long getTotalClasses() {
+        return totalClasses.get();
+    }
+
+    public static long getUnloadedLoaders() {
+        expunge();
+        return unloadedLoaders.get();
+    }
+
+    /** 记录加载器中类数量的虚引用,在加载器被回收之后用于更新统计 */
+    private static class LoaderRef extends PhantomReference<AccessorClassLoader> {
+        private volatile int classes;
+
+        LoaderRef(AccessorClassLoader loader) {
+            super(loader, queue);
+        }
+    }
+}
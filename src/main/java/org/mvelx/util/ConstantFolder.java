@@ -0,0 +1,345 @@
+package org.mvelx.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mvelx.Operator;
+import org.mvelx.ParserContext;
+import org.mvelx.ast.*;
+import org.mvelx.compiler.ExecutableLiteral;
+import org.mvelx.integration.impl.ImmutableDefaultFactory;
+import org.mvelx.optimizers.AccessorOptimizer;
+import org.mvelx.optimizers.OptimizerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mvelx.util.ParseTools.*;
+
+/**
+ * 编译期的常量折叠处理,在节点链完成优化(finalizePayload)之后对整个节点链再进行一次处理
+ * 包括:二元运算中左右均为常量的子树直接计算为常量,静态常量字段及枚举值内联为常量,
+ * 白名单中的无副作用静态方法在参数均为常量时直接计算,常量条件的if及三元运算去除不可达的分支,
+ * 以及return之后和结果被丢弃的常量语句的删除.
+ * 计算过程中出现异常的节点保持不变,以保证运行时仍然报出相同的错误
+ * 同时根据内联集合所在的位置判断集合是否会被修改或传递到表达式之外,不会时将内容均为常量的集合转为共享的常量集合
+ */
+@Slf4j
+public class ConstantFolder {
+    /** 是否进行常量折叠 */
+    public static boolean foldConstants = !Boolean.getBoolean("mvelx.compiler.disable_folding");
+    /** 是否输出折叠前后的节点链,用于观察折叠的效果 */
+    public static boolean dumpFolded = Boolean.getBoolean("mvelx.compiler.dump_folded");
+
+    /** 不会修改集合,也不会返回集合本身的访问方法 */
+    private static final Set<String> READ_ONLY_ACCESS = new HashSet<>(Arrays.asList(
+            "get", "size", "length", "isEmpty", "contains", "containsKey", "containsValue", "indexOf"));
+
+    /** 可在编译期计算的静态方法,以 类名.方法名 的形式记录 */
+    private static final Set<String> PURE_METHODS = ConcurrentHashMap.newKeySet();
+
+    static {
+        for(String m : Arrays.asList("abs", "max", "min", "pow", "sqrt", "cbrt", "floor", "ceil", "round", "rint", "signum",
+                "exp", "log", "log10", "sin", "cos", "tan", "toRadians", "toDegrees", "hypot")) {
+            PURE_METHODS.add("java.lang.Math." + m);
+        }
+        PURE_METHODS.addAll(Arrays.asList("java.lang.String.valueOf",
+                "java.lang.Integer.valueOf", "java.lang.Integer.parseInt", "java.lang.Integer.toString", "java.lang.Integer.toHexString",
+                "java.lang.Long.valueOf", "java.lang.Long.parseLong", "java.lang.Long.toString",
+                "java.lang.Double.valueOf", "java.lang.Double.parseDouble", "java.lang.Double.toString",
+                "java.lang.Boolean.valueOf", "java.lang.Boolean.parseBoolean"));
+
+        //额外的方法通过逗号分隔,如 com.x.Util.max,com.x.Util.min
+        String extra = System.getProperty("mvelx.compiler.pure_methods");
+        if(extra != null) {
+            for(String m : extra.split(",")) {
+                if(!m.trim().isEmpty()) PURE_METHODS.add(m.trim());
+            }
+        }
+    }
+
+    /** 添加可在编译期计算的静态方法,方法必须无副作用,并且相同参数总是返回相同的结果 */
+    public static void addPureMethod(Class cls, String methodName) {
+        PURE_METHODS.add(cls.getName() + "." + methodName);
+    }
+
+    /**
+     * 对节点链进行常量折叠
+     *
+     * @param astLinkedList 已经过 finalizePayload 处理的节点链
+     * @param expr          原始表达式,仅用于输出
+     * @return 折叠之后的节点链
+     */
+    public static ASTLinkedList fold(ASTLinkedList astLinkedList, String expr, ParserContext pCtx) {
+        if(!foldConstants || astLinkedList.firstNode() == null) return astLinkedList;
+
+        String before = dumpFolded ? dump(astLinkedList.firstNode()) : null;
+
+        List<ASTNode> nodes = new ArrayList<>();
+        for(ASTNode n = astLinkedList.firstNode(); n != null; n = n.nextASTNode) {
+            if(n instanceof IfNode) {
+                IfNode folded = ((IfNode) n).foldBranches();
+                nodes.add(folded != null ? folded : new LiteralNode(null, pCtx));
+            } else {
+                nodes.add(n.getFields() == -1 ? n : foldNode(n, pCtx));
+            }
+        }
+
+        nodes = removeUnreachable(foldTernary(nodes));
+
+        ASTLinkedList optimizedAst = new ASTLinkedList();
+        for(ASTNode n : nodes) {
+            n.nextASTNode = null;
+            optimizedAst.addTokenNode(n);
+        }
+
+        if(before != null) {
+            log.info("constant folding:{}\nbefore:\n{}after:\n{}", expr, before, dump(optimizedAst.firstNode()));
+        }
+        return optimizedAst;
+    }
+
+    /** 对单个节点进行折叠,返回替换之后的节点,不能折叠时返回原节点 */
+    private static ASTNode foldNode(ASTNode node, ParserContext pCtx) {
+        if(node.getClass() == ASTNode.class) {
+            if(node.isIdentifier() && !node.isLiteral()) {
+                ASTNode folded = foldStaticReference(node, pCtx);
+                if(folded != null) return folded;
+            }
+        } else if(node instanceof Substatement) {
+            if(((Substatement) node).getStatement() instanceof ExecutableLiteral) {
+                return new LiteralNode(((Substatement) node).getStatement().getValue(null, null), pCtx);
+            }
+        } else if(node instanceof Contains) {
+            shareCollection(((Contains) node).getStmt(), pCtx);
+            shareCollection(((Contains) node).getStmt2(), pCtx);
+        } else if(node instanceof Union) {
+            if(isReadOnlyAccess(node.getName())) shareCollection(((Union) node).getMain(), pCtx);
+        } else if(node instanceof BinaryOperation || node instanceof And || node instanceof Or) {
+            BooleanNode b = (BooleanNode) node;
+            b.setLeft(foldNode(b.getLeft(), pCtx));
+            b.setRight(foldNode(b.getRight(), pCtx));
+
+            //相等比较不会修改集合
+            if(node instanceof BinaryOperation && (((BinaryOperation) node).getOperation() == Operator.EQUAL
+                    || ((BinaryOperation) node).getOperation() == Operator.NEQUAL)) {
+                shareCollection(b.getLeft(), pCtx);
+                shareCollection(b.getRight(), pCtx);
+            }
+
+            //逻辑运算在左边为常量时即可确定结果,右边不会被执行
+            if(!(node instanceof BinaryOperation) && b.getLeft() instanceof LiteralNode && b.getLeft().getLiteralValue() instanceof Boolean) {
+                boolean left = (Boolean) b.getLeft().getLiteralValue();
+                if(node instanceof And && !left || node instanceof Or && left) {
+                    return new LiteralNode(left, pCtx);
+                }
+            }
+
+            if(b.getLeft() instanceof LiteralNode && b.getRight() instanceof LiteralNode) {
+                try{
+                    return new LiteralNode(node.getReducedValueAccelerated(null, null, null), pCtx);
+                } catch(RuntimeException e) {
+                    //运行时再报出相同的错误
+                }
+            }
+        }
+        return node;
+    }
+
+    /** 节点为内联集合时,尝试转为共享的常量集合 */
+    private static void shareCollection(ASTNode node, ParserContext pCtx) {
+        if(node instanceof InlineCollectionNode) {
+            ((InlineCollectionNode) node).shareLiteral(pCtx);
+        }
+    }
+
+    /** 集合之后的访问(如 [0] 或 size())是否只读取集合,并且不会返回集合本身 */
+    private static boolean isReadOnlyAccess(String access) {
+        if(access.isEmpty()) return false;
+        if(access.charAt(0) == '[') return true;
+
+        int end = 0;
+        while(end < access.length() && Character.isJavaIdentifierPart(access.charAt(end))) end++;
+        return READ_ONLY_ACCESS.contains(access.substring(0, end));
+    }
+
+    /** 将静态常量字段,枚举值,以及参数均为常量的无副作用静态方法调用替换为常量节点 */
+    private static ASTNode foldStaticReference(ASTNode node, ParserContext pCtx) {
+        String name = node.getName();
+        int paren = name.indexOf('(');
+
+        //静态方法调用,要求调用之后不再有其它的访问
+        if(paren != -1) {
+            char[] chars = name.toCharArray();
+            if(balancedCapture(chars, paren, '(') != chars.length - 1) return null;
+
+            String target = name.substring(0, paren).trim();
+            int dot = target.lastIndexOf('.');
+            if(dot == -1 || !isQualifiedName(target)) return null;
+
+            Class cls = resolveClass(target.substring(0, dot), pCtx);
+            if(cls == null || !PURE_METHODS.contains(cls.getName() + "." + target.substring(dot + 1))) return null;
+
+            //使用单独的解析上下文分析参数,以避免向当前上下文中添加变量信息
+            ParserContext evalCtx = new ParserContext(pCtx.getParserConfiguration());
+            try{
+                for(char[] arg : parseMethodOrConstructor(chars)) {
+                    if(!(subCompileExpression(arg, evalCtx) instanceof ExecutableLiteral)) return null;
+                }
+
+                AccessorOptimizer optimizer = OptimizerFactory.getAccessorCompiler(OptimizerFactory.SAFE_REFLECTIVE);
+                optimizer.optimizeAccessor(evalCtx, chars, 0, chars.length, null, null, new ImmutableDefaultFactory(), null);
+                return new LiteralNode(optimizer.getResultOptPass(), pCtx);
+            } catch(RuntimeException e) {
+                return null;
+            }
+        }
+
+        //静态字段,仅处理基本类型,字符串及枚举这些不可变的值
+        int dot = name.lastIndexOf('.');
+        if(dot == -1 || !isQualifiedName(name)) return null;
+
+        Class cls = resolveClass(name.substring(0, dot), pCtx);
+        if(cls == null) return null;
+        try{
+            Field f = cls.getField(name.substring(dot + 1));
+            int mod = f.getModifiers();
+            Class type = f.getType();
+            if(!Modifier.isStatic(mod) || !Modifier.isFinal(mod)
+                    || !(type.isPrimitive() || type == String.class || type.isEnum() || !type.isArray() && unboxPrimitive(type) != type)) {
+                return null;
+            }
+            return new LiteralNode(f.get(null), pCtx);
+        } catch(NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** 解析类引用,第一段为变量或入参时不作为类处理 */
+    private static Class resolveClass(String className, ParserContext pCtx) {
+        int dot = className.indexOf('.');
+        if(pCtx.hasVarOrInput(dot == -1 ? className : className.substring(0, dot))) return null;
+        try{
+            if(pCtx.hasImport(className)) {
+                return pCtx.getImport(className);
+            }
+            return createClass(className, pCtx);
+        } catch(ClassNotFoundException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** 是否是由.连接的java标识符,如 a.b.c */
+    private static boolean isQualifiedName(String name) {
+        boolean start = true;
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(c == '.') {
+                if(start) return false;
+                start = true;
+            } else if(start ? !Character.isJavaIdentifierStart(c) : !Character.isJavaIdentifierPart(c)) {
+                return false;
+            } else {
+                start = false;
+            }
+        }
+        return !start;
+    }
+
+    /**
+     * 处理条件为常量的三元运算,三元运算总是当前表达式的最后一个语句
+     * 条件为true时仅保留 ? 与 : 之间的节点(: 之后的节点在运行时不会被执行),为false时仅保留 : 之后的节点
+     */
+    private static List<ASTNode> foldTernary(List<ASTNode> nodes) {
+        while(true) {
+            int t = -1;
+            for(int i = 0; i < nodes.size(); i++) {
+                if(nodes.get(i).isOperator(Operator.TERNARY)) {
+                    t = i;
+                    break;
+                }
+            }
+            //条件必须是单独的常量语句
+            if(t < 1 || !(nodes.get(t - 1) instanceof LiteralNode) || !(nodes.get(t - 1).getLiteralValue() instanceof Boolean)
+                    || t > 1 && !nodes.get(t - 2).isOperator(Operator.END_OF_STMT)) {
+                return nodes;
+            }
+
+            int e = -1;
+            for(int i = t + 1; i < nodes.size(); i++) {
+                if(nodes.get(i).isOperator(Operator.TERNARY_ELSE)) {
+                    e = i;
+                    break;
+                }
+                //嵌套的三元运算不进行处理
+                if(nodes.get(i).isOperator(Operator.TERNARY)) return nodes;
+            }
+            if(e == -1 || e == t + 1 || e == nodes.size() - 1) return nodes;
+
+            List<ASTNode> folded = new ArrayList<>(nodes.subList(0, t - 1));
+            if((Boolean) nodes.get(t - 1).getLiteralValue()) {
+                folded.addAll(nodes.subList(t + 1, e));
+            } else {
+                folded.addAll(nodes.subList(e + 1, nodes.size()));
+            }
+            nodes = folded;
+        }
+    }
+
+    /** 去除return之后的语句,以及中间结果被丢弃的常量语句(如条件为false的if) */
+    private static List<ASTNode> removeUnreachable(List<ASTNode> nodes) {
+        List<ASTNode> result = new ArrayList<>(nodes.size());
+        boolean statementStart = true;
+        boolean ternary = false;
+        for(int i = 0; i < nodes.size(); i++) {
+            ASTNode n = nodes.get(i);
+            if(n.getFields() == -1) {
+                result.add(n);
+                continue;
+            }
+
+            if(statementStart && !ternary) {
+                if(n instanceof ReturnNode) {
+                    result.add(n);
+                    break;
+                }
+                if(n instanceof LiteralNode && i + 2 < nodes.size() && nodes.get(i + 1).isOperator(Operator.END_OF_STMT)) {
+                    i++;
+                    continue;
+                }
+            }
+
+            result.add(n);
+            ternary |= n.isOperator(Operator.TERNARY);
+            statementStart = n.isOperator(Operator.END_OF_STMT);
+        }
+        return result;
+    }
+
+    /** 输出节点链,每个节点一行,if节点同时输出各个分支 */
+    public static String dump(ASTNode node) {
+        StringBuilder appender = new StringBuilder();
+        for(; node != null; node = node.nextASTNode) {
+            dump(node, appender, "  ");
+        }
+        return appender.toString();
+    }
+
+    private static void dump(ASTNode node, StringBuilder appender, String indent) {
+        appender.append(indent).append(node.getClass().getSimpleName()).append(' ').append(node).append('\n');
+        if(node instanceof IfNode) {
+            IfNode n = (IfNode) node;
+            appender.append(indent).append("  if: ").append(n.getCondition()).append('\n');
+            appender.append(indent).append("  then: ").append(n.getNestedStatement()).append('\n');
+            if(n.getElseIf() != null) {
+                dump(n.getElseIf(), appender, indent + "  ");
+            } else if(n.getElseBlock() != null) {
+                appender.append(indent).append("  else: ").append(n.getElseBlock()).append('\n');
+            }
+        }
+    }
+}
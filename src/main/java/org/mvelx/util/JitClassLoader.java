@@ -2,7 +2,8 @@ package org.mvelx.util;
 
 /**
  * 内部统一使用的类加载器
- * 提供统一的加载访问,避免随便引用
+ * 提供统一的加载访问,避免随便引用.
+ * 生成类并不直接定义在此加载器中,而是每次定义在一个新的 AccessorClassLoader 中,以便在不再使用时可以被卸载
  */
 public class JitClassLoader extends ClassLoader implements MvelClassLoader {
     public JitClassLoader(ClassLoader classLoader) {
@@ -10,6 +11,10 @@ public class JitClassLoader extends ClassLoader implements MvelClassLoader {
     }
 
     public Class<?> defineClassX(String className, byte[] b, int off, int len) {
-        return super.defineClass(className, b, off, len);
+        return new AccessorClassLoader(getParent()).defineClassX(className, b, off, len);
+    }
+
+    public Class<?> defineClassX(ClassLoader parent, String className, byte[] b) {
+        return AccessorClassLoader.defineClass(parent == null ? getParent() : parent, className, b);
     }
 }
@@ -0,0 +1,186 @@
+package org.mvelx.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按类建立的方法索引,用于加速重载方法及构建函数的查找
+ * 索引通过ClassValue挂在类上,随类一起回收.索引中按方法名对公共方法进行分组,并记住每一组
+ * (方法名,参数个数及类型,是否精确匹配,是否静态)的查找结果,包括找不到的情况,以及方法的宽化结果.
+ * 这样多态调用中反复重新优化,或者调用失败后重新查找时,不再对类上所有的方法重新评分.
+ * 为避免通过参数类型持有其它类加载器,只有参数类型对当前类可见时才记住查找结果
+ */
+public final class MethodIndex {
+    /** 每个类最多记住的查找结果数,超过之后不再记录新的结果 */
+    public static int maximumResolutions = Integer.getInteger("mvelx.method_index.maximum_resolutions", 1024);
+
+    /** 找不到方法时记录的标记 */
+    private static final Object NOT_FOUND = new Object();
+
+    private static final Method[] NO_METHODS = new Method[0];
+
+    /** mvelx自身的类加载器,其中的类(如NullType)可以作为参数类型被记录 */
+    private static final ClassLoader OWN_LOADER = MethodIndex.class.getClassLoader();
+
+    private static final ClassValue<MethodIndex> INDEXES = new ClassValue<MethodIndex>() {
+        @Override
+        protected MethodIndex computeValue(Class<?> type) {
+            return new MethodIndex(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    /** 按方法名分组的公共方法,顺序与getMethods一致 */
+    private final Map<String, Method[]> methodsByName;
+
+    /** 方法的查找结果 */
+    private final ConcurrentMap<Resolution, Object> methods = new ConcurrentHashMap<>();
+
+    /** 构建函数的查找结果 */
+    private final ConcurrentMap<Resolution, Object> constructors = new ConcurrentHashMap<>();
+
+    /** 方法的宽化结果 */
+    private final ConcurrentMap<Method, Method> widened = new ConcurrentHashMap<>();
+
+    private MethodIndex(Class<?> type) {
+        this.type = type;
+
+        Map<String, List<Method>> grouped = new HashMap<>();
+        for(Method m : type.getMethods()) {
+            grouped.computeIfAbsent(m.getName(), k -> new ArrayList<>(2)).add(m);
+        }
+        Map<String, Method[]> byName = new HashMap<>(grouped.size() * 2);
+        for(Map.Entry<String, List<Method>> e : grouped.entrySet()) {
+            byName.put(e.getKey(), e.getValue().toArray(new Method[e.getValue().size()]));
+        }
+        this.methodsByName = byName;
+    }
+
+    /** 获取指定类的方法索引 */
+    public static MethodIndex of(Class<?> type) {
+        return INDEXES.get(type);
+    }
+
+    /** 获取指定名字的公共方法,不存在时返回空数组,返回的数组不能修改 */
+    public Method[] getMethods(String name) {
+        Method[] found = methodsByName.get(name);
+        return found == null ? NO_METHODS : found;
+    }
+
+    /**
+     * 在当前类的公共方法中获取最匹配的方法,结果与 {@link ParseTools#getBestCandidate(Class[], String, Class, Method[], boolean, boolean)} 一致
+     *
+     * @param classTarget 是否是静态方法
+     */
+    public Method getBestCandidate(Class[] arguments, String name, boolean requireExact, boolean classTarget) {
+        Resolution key = new Resolution(name, arguments, requireExact, classTarget);
+        Object found = methods.get(key);
+        if(found == null) {
+            Method[] candidates = getMethods(name);
+            //接口上没有同名方法时,直接查找Object上的方法
+            if(candidates.length == 0 && type.isInterface()) {
+                candidates = of(Object.class).getMethods(name);
+            }
+            Method m = ParseTools.getBestCandidate(arguments, name, type, candidates, requireExact, classTarget);
+            found = m == null ? NOT_FOUND : m;
+            remember(methods, key, arguments, found);
+        }
+        return found == NOT_FOUND ? null : (Method) found;
+    }
+
+    /** 获取当前类最匹配的构建函数 */
+    public Constructor getBestConstructorCandidate(Class[] arguments, boolean requireExact) {
+        Resolution key = new Resolution(null, arguments, requireExact, false);
+        Object found = constructors.get(key);
+        if(found == null) {
+            Constructor c = ParseTools.findBestConstructorCandidate(arguments, type, requireExact);
+            found = c == null ? NOT_FOUND : c;
+            remember(constructors, key, arguments, found);
+        }
+        return found == NOT_FOUND ? null : (Constructor) found;
+    }
+
+    /** 从当前类的接口或父类中获取指定方法的宽化定义 */
+    public Method getWidenedTarget(Method method) {
+        Method m = widened.get(method);
+        if(m == null) {
+            m = ParseTools.findWidenedTarget(type, method);
+            if(widened.size() < maximumResolutions) {
+                widened.putIfAbsent(method, m);
+            }
+        }
+        return m;
+    }
+
+    /** 当前索引中记住的查找结果数 */
+    public int size() {
+        return methods.size() + constructors.size() + widened.size();
+    }
+
+    private void remember(ConcurrentMap<Resolution, Object> cache, Resolution key, Class[] arguments, Object found) {
+        if(cache.size() >= maximumResolutions) {
+            return;
+        }
+        ClassLoader owner = type.getClassLoader();
+        for(Class arg : arguments) {
+            if(arg != null && !isVisible(arg.getClassLoader(), owner)) {
+                return;
+            }
+        }
+        //查找时使用的参数数组可能被调用方修改,因此记录时进行复制
+        cache.putIfAbsent(key.copy(), found);
+    }
+
+    /** 参数类型的加载器是否为当前类的加载器或其父加载器,即记录之后不会导致其它类加载器无法回收 */
+    private static boolean isVisible(ClassLoader loader, ClassLoader owner) {
+        return loader == null || isAncestor(loader, owner) || isAncestor(loader, OWN_LOADER);
+    }
+
+    private static boolean isAncestor(ClassLoader loader, ClassLoader child) {
+        for(ClassLoader cl = child; cl != null; cl = cl.getParent()) {
+            if(cl == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 查找条件 */
+    private static final class Resolution {
+        private final String name;
+        private final Class[] arguments;
+        private final boolean requireExact;
+        private final boolean classTarget;
+        private final int hash;
+
+        Resolution(String name, Class[] arguments, boolean requireExact, boolean classTarget) {
+            this.name = name;
+            this.arguments = arguments;
+            this.requireExact = requireExact;
+            this.classTarget = classTarget;
+            this.hash = (Objects.hashCode(name) * 31 + Arrays.hashCode(arguments)) * 4 + (requireExact ? 2 : 0) + (classTarget ? 1 : 0);
+        }
+
+        Resolution copy() {
+            return new Resolution(name, arguments.clone(), requireExact, classTarget);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Resolution)) return false;
+            Resolution r = (Resolution) o;
+            return hash == r.hash && requireExact == r.requireExact && classTarget == r.classTarget
+                    && Objects.equals(name, r.name) && Arrays.equals(arguments, r.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -4,4 +4,11 @@ package org.mvelx.util;
 public interface MvelClassLoader {
     Class defineClassX(String className, byte[] b, int start, int end);
 
+    /**
+     * 使用指定的父加载器定义一个生成类
+     * 默认实现忽略父加载器,直接定义在当前加载器中
+     */
+    default Class defineClassX(ClassLoader parent, String className, byte[] b) {
+        return defineClassX(className, b, 0, b.length);
+    }
 }
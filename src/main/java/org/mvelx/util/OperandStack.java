@@ -0,0 +1,115 @@
+package org.mvelx.util;
+
+import org.mvelx.ScriptRuntimeException;
+
+import static org.mvelx.Operator.NOOP;
+import static org.mvelx.math.MathProcessor.doOperations;
+
+/**
+ * 运行期使用的操作数栈,用于 MVELRuntime 中对编译表达式的解释执行
+ * 与 ExecutionStack 不同,这里使用数组存储操作数,每个操作数可以附带一个操作符(使用int存储),
+ * 表示此操作数与前一个操作数之间待执行的运算,入栈和运算过程均不再创建新的节点对象,也不需要对操作符进行装箱.
+ * 由于运行时在每次入栈之后均会立即进行归约,因此栈中同时存在的操作数不会超过2个,
+ * 栈的容量是固定的,每次执行只需要创建一个栈对象即可
+ */
+public class OperandStack {
+    /** 运行期最大的栈深度,即 a op b 在归约之前的2个操作数 */
+    public static final int MAX_DEPTH = 2;
+
+    /** 操作数 */
+    private final Object[] values;
+    /** 与操作数对应的操作符,即values[i - 1] operators[i] values[i] */
+    private final int[] operators;
+    /** 当前栈中的操作数个数 */
+    private int size;
+
+    public OperandStack() {
+        this(MAX_DEPTH);
+    }
+
+    public OperandStack(int capacity) {
+        values = new Object[capacity];
+        operators = new int[capacity];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** 入栈1个操作数 */
+    public void push(Object value) {
+        values[size] = value;
+        operators[size++] = NOOP;
+    }
+
+    /** 入栈1个操作数以及其与前一个操作数之间的操作符 */
+    public void push(Object value, int operator) {
+        values[size] = value;
+        operators[size++] = operator;
+    }
+
+    /** 获取栈顶的操作数 */
+    public Object peek() {
+        return size == 0 ? null : values[size - 1];
+    }
+
+    /** 获取栈顶操作数上附带的操作符 */
+    public int peekOperator() {
+        return operators[size - 1];
+    }
+
+    /** 弹出栈顶的操作数 */
+    public Object pop() {
+        if(size == 0) {
+            return null;
+        }
+
+        Object value = values[--size];
+        values[size] = null;
+        return value;
+    }
+
+    /** 弹出栈顶的操作数，并期望是一个boolean值 */
+    public Boolean popBoolean() {
+        if(size == 0) {
+            return null;
+        }
+
+        Object value = pop();
+        if(value instanceof Boolean) return (Boolean) value;
+        throw new ScriptRuntimeException("expected Boolean; but found: " + (value == null ? "null" : value.getClass().getName()));
+    }
+
+    /** 判定当前栈是否可以继续归约 */
+    public boolean isReduceable() {
+        return size > 1;
+    }
+
+    /** 使用栈顶的操作符对最上面的2个操作数进行运算，运算结果替换这2个操作数 */
+    public void op() {
+        Object right = values[--size];
+        values[size] = null;
+        values[size - 1] = doOperations(values[size - 1], operators[size], right);
+    }
+
+    public void clear() {
+        for(int i = 0; i < size; i++) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String toString() {
+        StringBuilder appender = new StringBuilder().append("[");
+        for(int i = 0; i < size; i++) {
+            if(i != 0) appender.append(", ");
+            if(operators[i] != NOOP) appender.append("<<").append(operators[i]).append(">> ");
+            appender.append(values[i]);
+        }
+        return appender.append("]").toString();
+    }
+}
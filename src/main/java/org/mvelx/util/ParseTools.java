@@ -1,14 +1,15 @@
 package org.mvelx.util;
 
+import com.google.common.collect.MapMaker;
 import org.mvelx.*;
 import org.mvelx.ast.ASTNode;
 import org.mvelx.compiler.*;
 import org.mvelx.integration.VariableResolverFactory;
 import org.mvelx.integration.impl.ClassImportResolverFactory;
 import org.mvelx.math.MathProcessor;
+import org.mvelx.optimizers.impl.asm.AsmStatementCompiler;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -16,6 +17,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.lang.Class.forName;
 import static java.lang.Double.parseDouble;
@@ -196,6 +198,15 @@ public class ParseTools {
         return getBestCandidate(arguments, method, decl, methods, requireExact, false);
     }
 
+    /**
+     * 在指定类的公共方法中获取最匹配的方法,查找结果会记录在类的方法索引中
+     *
+     * @param classTarget 是否是静态方法
+     */
+    public static Method getBestCandidate(Class[] arguments, String method, Class decl, boolean requireExact, boolean classTarget) {
+        return MethodIndex.of(decl).getBestCandidate(arguments, method, requireExact, classTarget);
+    }
+
     /**
      * 在指定的方法中获取最匹配的方法
      *
@@ -343,8 +354,8 @@ public class ParseTools {
     /** 获取在相应类上具备指定名字，参数类型以及返回类型的方法 */
     public static Method getExactMatch(String name, Class[] args, Class returnType, Class cls) {
         outer:
-        for(Method meth : cls.getMethods()) {
-            if(name.equals(meth.getName()) && returnType == meth.getReturnType()) {
+        for(Method meth : MethodIndex.of(cls).getMethods(name)) {
+            if(returnType == meth.getReturnType()) {
                 Class[] parameterTypes = meth.getParameterTypes();
                 if(parameterTypes.length != args.length) continue;
 
@@ -362,8 +373,13 @@ public class ParseTools {
         return getWidenedTarget(method.getDeclaringClass(), method);
     }
 
-    /** 从指定类上查找指定的宽化方法定义(即从指定类的接口或者父类，不处理当前类) */
+    /** 从指定类上查找指定的宽化方法定义(即从指定类的接口或者父类，不处理当前类),查找结果会记录在类的方法索引中 */
     public static Method getWidenedTarget(Class cls, Method method) {
+        return MethodIndex.of(cls).getWidenedTarget(method);
+    }
+
+    /** 从指定类上查找指定的宽化方法定义,不使用方法索引 */
+    static Method findWidenedTarget(Class cls, Method method) {
         //静态方法不存在继承问题,因此只能直接返回
         if(Modifier.isStatic(method.getModifiers())) {
             return method;
@@ -397,19 +413,18 @@ public class ParseTools {
         return best;
     }
 
-    private static final Map<Constructor, WeakReference<Class[]>> CONSTRUCTOR_PARMS_CACHE
-            = Collections.synchronizedMap(new WeakHashMap<Constructor, WeakReference<Class[]>>(10));
-
-    private static Class[] getConstructors(Constructor cns) {
-        WeakReference<Class[]> ref = CONSTRUCTOR_PARMS_CACHE.get(cns);
-        Class[] parms;
-        if(ref != null && (parms = ref.get()) != null) {
-            return parms;
-        } else {
-            CONSTRUCTOR_PARMS_CACHE.put(cns, new WeakReference<>(parms = cns.getParameterTypes()));
+    /** 构建函数的参数类型,与 {@link #getConstructors(Class)} 中的构建函数一一对应 */
+    private static final ClassValue<Class[][]> CONSTRUCTOR_PARMS_CACHE = new ClassValue<Class[][]>() {
+        @Override
+        protected Class[][] computeValue(Class<?> type) {
+            Constructor[] cns = getConstructors(type);
+            Class[][] parms = new Class[cns.length][];
+            for(int i = 0; i < cns.length; i++) {
+                parms[i] = cns[i].getParameterTypes();
+            }
             return parms;
         }
-    }
+    };
 
     /** 获取指定类的一个最匹配的构造函数 */
     public static Constructor getBestConstructorCandidate(Object[] args, Class cls, boolean requireExact) {
@@ -424,14 +439,23 @@ public class ParseTools {
         return getBestConstructorCandidate(arguments, cls, requireExact);
     }
 
+    /** 获取指定类的一个最匹配的构建函数,查找结果会记录在类的方法索引中 */
     public static Constructor getBestConstructorCandidate(Class[] arguments, Class cls, boolean requireExact) {
+        return MethodIndex.of(cls).getBestConstructorCandidate(arguments, requireExact);
+    }
+
+    /** 获取指定类的一个最匹配的构建函数,不使用方法索引 */
+    static Constructor findBestConstructorCandidate(Class[] arguments, Class cls, boolean requireExact) {
         Class[] parmTypes;
         Constructor bestCandidate = null;
         int bestScore = 0;
 
-        for(Constructor construct : getConstructors(cls)) {
+        Constructor[] constructors = getConstructors(cls);
+        Class[][] constructorParms = CONSTRUCTOR_PARMS_CACHE.get(cls);
+        for(int i = 0; i < constructors.length; i++) {
+            Constructor construct = constructors[i];
             boolean isVarArgs = construct.isVarArgs();
-            if((parmTypes = getConstructors(construct)).length != arguments.length && !construct.isVarArgs()) {
+            if((parmTypes = constructorParms[i]).length != arguments.length && !construct.isVarArgs()) {
                 continue;
             } else if(arguments.length == 0 && parmTypes.length == 0) {
                 return construct;
@@ -448,29 +472,34 @@ public class ParseTools {
     }
 
 
-    /** 对加载过的类进行的一个全局缓存,优化查找速度 */
-    private static final Map<ClassLoader, Map<String, WeakReference<Class>>> CLASS_RESOLVER_CACHE
-            = Collections.synchronizedMap(new WeakHashMap<ClassLoader, Map<String, WeakReference<Class>>>(1, 1.0f));
+    /**
+     * 对加载过的类进行的一个全局缓存,优化查找速度
+     * 按类加载器分开存放,加载器及类均为弱引用,不影响类加载器的回收;使用分段的并发map,查找时不需要加锁
+     */
+    private static final ConcurrentMap<ClassLoader, ConcurrentMap<String, Class>> CLASS_RESOLVER_CACHE = new MapMaker().weakKeys().makeMap();
     /** 对加载过的构建函数进行一个全局缓存,优化查找速度 */
-    private static final Map<Class, WeakReference<Constructor[]>> CLASS_CONSTRUCTOR_CACHE
-            = Collections.synchronizedMap(new WeakHashMap<Class, WeakReference<Constructor[]>>(10));
+    private static final ClassValue<Constructor[]> CLASS_CONSTRUCTOR_CACHE = new ClassValue<Constructor[]>() {
+        @Override
+        protected Constructor[] computeValue(Class<?> type) {
+            return type.getConstructors();
+        }
+    };
 
 
     /** 进行类加载,使用编译上下文中的类加载器 */
     public static Class createClass(String className, ParserContext pCtx) throws ClassNotFoundException {
         ClassLoader classLoader = pCtx != null ? pCtx.getClassLoader() : currentThread().getContextClassLoader();
 
-        Map<String, WeakReference<Class>> cache = CLASS_RESOLVER_CACHE.get(classLoader);
-
-        if(cache == null) {
-            CLASS_RESOLVER_CACHE.put(classLoader, cache = Collections.synchronizedMap(new WeakHashMap<String, WeakReference<Class>>(10)));
+        //启动类加载器无法作为key,直接加载
+        if(classLoader == null) {
+            return forName(className, true, null);
         }
 
-        WeakReference<Class> ref;
+        Map<String, Class> cache = CLASS_RESOLVER_CACHE.computeIfAbsent(classLoader, k -> new MapMaker().weakValues().makeMap());
         Class cls;
 
         //如果缓存中存在,则直接使用缓存
-        if((ref = cache.get(className)) != null && (cls = ref.get()) != null) {
+        if((cls = cache.get(className)) != null) {
             return cls;
         } else {
             //使用上下文中的加载器或者是线程类加载器进行加载
@@ -487,22 +516,15 @@ public class ParseTools {
                 }
             }
 
-            cache.put(className, new WeakReference<>(cls));
+            cache.put(className, cls);
             return cls;
         }
     }
 
 
+    /** 获取指定类的公共构建函数,返回的数组不能修改 */
     public static Constructor[] getConstructors(Class cls) {
-        WeakReference<Constructor[]> ref = CLASS_CONSTRUCTOR_CACHE.get(cls);
-        Constructor[] cns;
-
-        if(ref != null && (cns = ref.get()) != null) {
-            return cns;
-        } else {
-            CLASS_CONSTRUCTOR_CACHE.put(cls, new WeakReference<>(cns = cls.getConstructors()));
-            return cns;
-        }
+        return CLASS_CONSTRUCTOR_CACHE.get(cls);
     }
 
 
@@ -1907,6 +1929,11 @@ public class ParseTools {
             return _optimizeTree(compiled);
         }
 
+        //多节点的表达式,可以整体编译为字节码
+        if(MVEL.COMPILER_OPT_WHOLE_EXPRESSION && !compiled.isSingleNode()) {
+            return AsmStatementCompiler.compile(compiled);
+        }
+
         return compiled;
     }
 
@@ -0,0 +1,193 @@
+package org.mvelx.util;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.reflect.Modifier.*;
+import static org.mvelx.DataConversion.canConvert;
+
+/**
+ * 按类建立的属性元数据表,用于加速getter,setter及公共字段的查找
+ * 表通过ClassValue挂在类上,随类一起回收.类的公共字段,无参实例方法及单参方法只在建表时获取一次,
+ * 每个属性在首次访问时解析出相应的字段,getter,setter候选以及属性类型,之后直接使用解析结果,
+ * 不再对所有方法进行遍历,也不再拼接getXxx/setXxx等方法名.
+ * 解析规则与原 {@link PropertyTools} 中的逐个遍历保持一致
+ */
+public final class PropertyIndex {
+    /** 每个类最多记录的属性数,超过之后不再记录新的属性(仍可正常解析) */
+    public static int maximumProperties = Integer.getInteger("mvelx.property_index.maximum_properties", 1024);
+
+    private static final Field[] NO_FIELDS = new Field[0];
+
+    private static final ClassValue<PropertyIndex> INDEXES = new ClassValue<PropertyIndex>() {
+        @Override
+        protected PropertyIndex computeValue(Class<?> type) {
+            return new PropertyIndex(type);
+        }
+    };
+
+    /** 按名字分组的公共字段,顺序与getFields一致 */
+    private final Map<String, Field[]> fields;
+
+    /** 公共的无参实例方法,即getter候选 */
+    private final Method[] readMethods;
+
+    /** 公共的单参方法,即setter候选 */
+    private final Method[] writeMethods;
+
+    /** 已解析的属性 */
+    private final ConcurrentMap<String, Property> properties = new ConcurrentHashMap<>();
+
+    private PropertyIndex(Class<?> type) {
+        Map<String, List<Field>> grouped = new HashMap<>();
+        for(Field f : type.getFields()) {
+            grouped.computeIfAbsent(f.getName(), k -> new ArrayList<>(1)).add(f);
+        }
+        Map<String, Field[]> byName = new HashMap<>(grouped.size() * 2);
+        for(Map.Entry<String, List<Field>> e : grouped.entrySet()) {
+            byName.put(e.getKey(), e.getValue().toArray(new Field[e.getValue().size()]));
+        }
+        this.fields = byName;
+
+        List<Method> reads = new ArrayList<>();
+        List<Method> writes = new ArrayList<>();
+        for(Method m : type.getMethods()) {
+            int mod = m.getModifiers();
+            if((mod & PUBLIC) == 0) continue;
+
+            int n = m.getParameterTypes().length;
+            if(n == 0 && (mod & STATIC) == 0) {
+                reads.add(m);
+            } else if(n == 1) {
+                writes.add(m);
+            }
+        }
+        this.readMethods = reads.toArray(new Method[reads.size()]);
+        this.writeMethods = writes.toArray(new Method[writes.size()]);
+    }
+
+    /** 获取指定类的属性元数据表 */
+    public static PropertyIndex of(Class<?> type) {
+        return INDEXES.get(type);
+    }
+
+    /** 获取指定属性的元数据,属性不存在时其中的各项均为空 */
+    public Property getProperty(String name) {
+        Property p = properties.get(name);
+        if(p == null) {
+            p = new Property(name);
+            if(properties.size() < maximumProperties) {
+                Property existed = properties.putIfAbsent(name, p);
+                if(existed != null) p = existed;
+            }
+        }
+        return p;
+    }
+
+    /** 当前表中已解析的属性数 */
+    public int size() {
+        return properties.size();
+    }
+
+    /** 一个属性的元数据 */
+    @Getter
+    public final class Property {
+        /** 属性名 */
+        private final String name;
+
+        /** 同名的公共字段,第一个即为当前类可见的字段 */
+        private final Field[] fields;
+
+        /** getter方法,包括 getXxx,isXxx(仅boolean) 以及与属性同名的无参方法,有多个时取返回类型最细化的 */
+        private final Method getter;
+
+        /** setXxx形式的setter方法 */
+        private final Method setter;
+
+        /** 所有的setter候选,包括 setXxx 以及 set+属性名 的形式,在赋值时按类型进行选择 */
+        private final Method[] setters;
+
+        Property(String name) {
+            this.name = name;
+            Field[] found = PropertyIndex.this.fields.get(name);
+            this.fields = found == null ? NO_FIELDS : found;
+            this.getter = findGetter(name);
+
+            String setterName = ReflectionUtil.getSetter(name);
+            String simple = "set" + name;
+            Method setter = null;
+            List<Method> setters = new ArrayList<>(1);
+            for(Method m : writeMethods) {
+                boolean standard = setterName.equals(m.getName());
+                if(standard || simple.equals(m.getName())) {
+                    setters.add(m);
+                    if(standard && setter == null) setter = m;
+                }
+            }
+            this.setter = setter;
+            this.setters = setters.toArray(new Method[setters.size()]);
+        }
+
+        /** 公共字段,不存在时返回null */
+        public Field getField() {
+            return fields.length == 0 ? null : fields[0];
+        }
+
+        /** 获取与指定类型兼容的公共字段,类型为null时表示不限制 */
+        public Field getField(Class type) {
+            for(Field f : fields) {
+                if(type == null || canConvert(f.getType(), type)) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        /** 获取与指定类型兼容的setter方法,类型为null时表示不限制 */
+        public Method getSetter(Class type) {
+            for(Method m : setters) {
+                if(type == null || canConvert(m.getParameterTypes()[0], type)) {
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        /** 属性的声明类型(擦除之后的类型),优先使用字段类型,不存在时返回null */
+        public Class getType() {
+            Field f = getField();
+            return f != null ? f.getType() : getter != null ? getter.getReturnType() : null;
+        }
+
+        /** 属性的泛型类型,优先使用字段类型,不存在时返回null */
+        public Type getGenericType() {
+            Field f = getField();
+            return f != null ? f.getGenericType() : getter != null ? getter.getGenericReturnType() : null;
+        }
+
+        private Method findGetter(String property) {
+            String simple = "get" + property;
+            String simpleIsGet = "is" + property;
+            String isGet = ReflectionUtil.getIsGetter(property);
+            String getter = ReflectionUtil.getGetter(property);
+
+            Method candidate = null;
+            for(Method meth : readMethods) {
+                String n = meth.getName();
+                if(getter.equals(n) || property.equals(n) || simple.equals(n)
+                        || ((isGet.equals(n) || simpleIsGet.equals(n)) && meth.getReturnType() == boolean.class)) {
+                    if(candidate == null || candidate.getReturnType().isAssignableFrom(meth.getReturnType())) {
+                        candidate = meth;
+                    }
+                }
+            }
+            return candidate;
+        }
+    }
+}
@@ -10,11 +10,12 @@ import java.util.Collection;
 import java.util.Map;
 
 import static java.lang.String.valueOf;
-import static java.lang.reflect.Modifier.*;
-import static org.mvelx.DataConversion.canConvert;
 import static org.mvelx.util.ParseTools.boxPrimitive;
 
-/** 一个基于对象,方法,字段,类型,值的工具类 */
+/**
+ * 一个基于对象,方法,字段,类型,值的工具类
+ * 属性相关的查找(getter,setter,公共字段)均通过 {@link PropertyIndex} 进行,结果按类记录
+ */
 public class PropertyTools {
     /** 判断指定对象是否是空的 */
     public static boolean isEmpty(Object o) {
@@ -34,32 +35,12 @@ public class PropertyTools {
 
     /** 获取指定属性的setter方法 */
     public static Method getSetter(Class clazz, String property) {
-        property = ReflectionUtil.getSetter(property);
-
-        for(Method method : clazz.getMethods()) {
-            if((method.getModifiers() & PUBLIC) != 0 && method.getParameterTypes().length == 1
-                    && property.equals(method.getName())) {
-                return method;
-            }
-        }
-
-        return null;
+        return PropertyIndex.of(clazz).getProperty(property).getSetter();
     }
 
     /** 获取指定类指定属性中的setter方法，并且该方法的类型是兼容的 */
     public static Method getSetter(Class clazz, String property, Class type) {
-        String simple = "set" + property;
-        property = ReflectionUtil.getSetter(property);
-
-        for(Method meth : clazz.getMethods()) {
-            if((meth.getModifiers() & PUBLIC) != 0 && meth.getParameterTypes().length == 1 &&
-                    (property.equals(meth.getName()) || simple.equals(meth.getName()))
-                    && (type == null || canConvert(meth.getParameterTypes()[0], type))) {
-                return meth;
-            }
-        }
-
-        return null;
+        return PropertyIndex.of(clazz).getProperty(property).getSetter(type);
     }
 
     /** 指定字段是否是getter方法 */
@@ -77,22 +58,7 @@ public class PropertyTools {
 
     /** 获取指定成员的getter方法 */
     public static Method getGetter(Class clazz, String property) {
-        String simple = "get" + property;
-        String simpleIsGet = "is" + property;
-        String isGet = ReflectionUtil.getIsGetter(property);
-        String getter = ReflectionUtil.getGetter(property);
-
-        Method candidate = null;
-        for(Method meth : clazz.getMethods()) {
-            if((meth.getModifiers() & PUBLIC) != 0 && (meth.getModifiers() & STATIC) == 0 && meth.getParameterTypes().length == 0
-                    && (getter.equals(meth.getName()) || property.equals(meth.getName()) || ((isGet.equals(meth.getName()) || simpleIsGet.equals(meth.getName())) && meth.getReturnType() == boolean.class)
-                    || simple.equals(meth.getName()))) {
-                if(candidate == null || candidate.getReturnType().isAssignableFrom(meth.getReturnType())) {
-                    candidate = meth;
-                }
-            }
-        }
-        return candidate;
+        return PropertyIndex.of(clazz).getProperty(property).getGetter();
     }
 
     /** 获取一个类中指定属性的类型信息 */
@@ -102,42 +68,27 @@ public class PropertyTools {
 
     /** 获取指定成员公共字段或者是相应的getter访问器 */
     public static Member getFieldOrAccessor(Class clazz, String property) {
-        for(Field f : clazz.getFields()) {
-            if(property.equals(f.getName())) {
-                if((f.getModifiers() & PUBLIC) != 0) return f;
-                break;
-            }
-        }
-        return getGetter(clazz, property);
+        PropertyIndex.Property p = PropertyIndex.of(clazz).getProperty(property);
+        Field f = p.getField();
+        return f != null ? f : p.getGetter();
     }
 
     /** 获取一个属性的公共字段形式或相应的setter方法(即下一步会使用此成员进行赋值调用) */
     public static Member getFieldOrWriteAccessor(Class clazz, String property) {
-        Field field;
-        try{
-            if((field = clazz.getField(property)) != null &&
-                    //这一个判断不需要,因此本身class.getField就是获取公共字段
-                    isPublic(field.getModifiers())) {
-                return field;
-            }
-        } catch(NullPointerException e) {
+        if(clazz == null || property == null) {
             return null;
-        } catch(NoSuchFieldException e) {
-            // do nothing.
         }
 
-        return getSetter(clazz, property);
+        PropertyIndex.Property p = PropertyIndex.of(clazz).getProperty(property);
+        Field f = p.getField();
+        return f != null ? f : p.getSetter();
     }
 
     /** 获取指定类型指定属性的公共字段或相应的getter方法,并且期望能够与相应的类型相兼容 */
     public static Member getFieldOrWriteAccessor(Class clazz, String property, Class type) {
-        for(Field f : clazz.getFields()) {
-            if(property.equals(f.getName()) && (type == null || canConvert(f.getType(), type))) {
-                return f;
-            }
-        }
-
-        return getSetter(clazz, property, type);
+        PropertyIndex.Property p = PropertyIndex.of(clazz).getProperty(property);
+        Field f = p.getField(type);
+        return f != null ? f : p.getSetter(type);
     }
 
     /**
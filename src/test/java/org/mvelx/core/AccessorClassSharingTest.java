@@ -0,0 +1,161 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.impl.asm.AsmAccessorOptimizer;
+import org.mvelx.util.AccessorClassLoader;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * 对asm访问器类的共享进行测试
+ * 即多个表达式中相同的属性访问只生成一个类,而访问不同类型或不同属性时仍各自生成
+ */
+public class AccessorClassSharingTest {
+
+    @Test
+    public void testSameAccessorSharesClass() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            //先执行一次,排除第一次生成的类
+            execute("order.customer.tier", order("gold"));
+
+            long before = AccessorClassLoader.getTotalClasses();
+            long hits = AsmAccessorOptimizer.getSharedClassHits();
+            for(int i = 0; i < 100; i++) {
+                //每次均为新的编译表达式,即不同的节点
+                assertEquals(execute("order.customer.tier", order("tier" + i)), "tier" + i);
+            }
+            assertEquals(AccessorClassLoader.getTotalClasses() - before, 0);
+            assertTrue(AsmAccessorOptimizer.getSharedClassHits() - hits >= 100);
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    /** 相同的表达式,但访问的对象类型不同时,生成的字节码不同,不能共享 */
+    @Test
+    public void testDifferentTypesNotShared() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            for(int i = 0; i < 3; i++) {
+                assertEquals(execute("order.customer.tier", order("gold")), "gold");
+                Map<String, Object> map = new HashMap<>();
+                map.put("tier", "silver");
+                Map<String, Object> mapOrder = new HashMap<>();
+                mapOrder.put("customer", map);
+                assertEquals(execute("order.customer.tier", mapOrder), "silver");
+                assertEquals(execute("order.customer.level", order("gold")), 3);
+            }
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    /** 关闭共享之后每个节点各自生成类 */
+    @Test
+    public void testSharingDisabled() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        AsmAccessorOptimizer.shareAccessorClasses = false;
+        try{
+            long before = AccessorClassLoader.getTotalClasses();
+            for(int i = 0; i < 10; i++) {
+                execute("order.customer.tier", order("gold"));
+            }
+            assertEquals(AccessorClassLoader.getTotalClasses() - before, 10);
+        } finally {
+            AsmAccessorOptimizer.shareAccessorClasses = true;
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    /** 类名后缀的位数不同(即常量池中类名常量的长度不同)时,字节码相同的访问器仍然共享类 */
+    @Test
+    public void testSharedAcrossNameLengths() throws Exception {
+        Field field = AsmAccessorOptimizer.class.getDeclaredField("CLASS_NAME_POSTFIX");
+        field.setAccessible(true);
+        AtomicLong postfix = (AtomicLong) field.get(null);
+        long current = postfix.get();
+
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            //后缀为1位数时定义类
+            postfix.set(1);
+            long before = AccessorClassLoader.getTotalClasses();
+            assertEquals(execute("order.customer", new Item("a")), "a");
+            assertEquals(AccessorClassLoader.getTotalClasses() - before, 1);
+
+            //后缀为4位数时直接使用已定义的类
+            postfix.set(1000);
+            before = AccessorClassLoader.getTotalClasses();
+            assertEquals(execute("order.customer", new Item("b")), "b");
+            assertEquals(AccessorClassLoader.getTotalClasses() - before, 0);
+        } finally {
+            postfix.set(Math.max(current, postfix.get()));
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    private static Object execute(String expr, Object order) {
+        Serializable s = MVEL.compileExpression(expr);
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("order", order);
+        Object first = MVEL.executeExpression(s, vars);
+        //再次执行,使用已安装的访问器
+        assertEquals(MVEL.executeExpression(s, vars), first);
+        return first;
+    }
+
+    private static Order order(String tier) {
+        return new Order(new Customer(tier));
+    }
+
+    public static class Order {
+        private final Customer customer;
+
+        public Order(Customer customer) {
+            this.customer = customer;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+    }
+
+    /** 仅用于 testSharedAcrossNameLengths,以保证相应的访问器类在该测试中第一次定义 */
+    public static class Item {
+        private final String customer;
+
+        public Item(String customer) {
+            this.customer = customer;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+    }
+
+    public static class Customer {
+        private final String tier;
+
+        public Customer(String tier) {
+            this.tier = tier;
+        }
+
+        public String getTier() {
+            return tier;
+        }
+
+        public int getLevel() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.mvelx.core;
+
+import org.mvelx.ParserConfiguration;
+import org.mvelx.ParserContext;
+import org.mvelx.util.ParseTools;
+import org.testng.annotations.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对类名解析及构建函数的缓存进行测试
+ * 即多线程同时查找时结果正确,并且缓存不影响类加载器的回收
+ */
+public class ClassResolutionCacheTest {
+
+    @Test
+    public void testConcurrentLookup() throws Exception {
+        ParserContext pCtx = new ParserContext();
+        String[] names = {"java.util.ArrayList", "java.util.HashMap", "java.lang.StringBuilder", "org.mvelx.MVEL"};
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for(int i = 0; i < 2000; i++) {
+                        String name = names[i % names.length];
+                        if(ParseTools.createClass(name, pCtx) != Class.forName(name)) return false;
+                        if(ParseTools.getBestConstructorCandidate(new Class[]{int.class}, ArrayList.class, false) == null) return false;
+                    }
+                    return true;
+                }));
+            }
+            for(Future<Boolean> f : futures) {
+                assertTrue(f.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertSame(ParseTools.getConstructors(ArrayList.class), ParseTools.getConstructors(ArrayList.class));
+        try{
+            ParseTools.createClass("org.mvelx.NoSuchClass", pCtx);
+            fail("expected ClassNotFoundException");
+        } catch(ClassNotFoundException e) {
+            //expected
+        }
+    }
+
+    /** 缓存中的类加载器可以被回收 */
+    @Test
+    public void testLoaderUnload() throws Exception {
+        WeakReference<ClassLoader> ref = resolveWithTemporaryLoader();
+        for(int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(ref.get());
+    }
+
+    private static WeakReference<ClassLoader> resolveWithTemporaryLoader() throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[0], ClassResolutionCacheTest.class.getClassLoader());
+        ParserContext pCtx = new ParserContext(new ParserConfiguration());
+        pCtx.getParserConfiguration().setClassLoader(loader);
+        assertSame(ParseTools.createClass("java.util.ArrayList", pCtx), ArrayList.class);
+        loader.close();
+        return new WeakReference<>(loader);
+    }
+}
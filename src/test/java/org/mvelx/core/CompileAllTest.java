@@ -0,0 +1,105 @@
+package org.mvelx.core;
+
+import org.mvelx.ErrorDetail;
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.BulkCompilation;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对批量并行编译进行测试
+ * 即并行编译的结果与逐个编译一致,编译失败的表达式单独记录错误,并且不影响模板上下文
+ */
+public class CompileAllTest {
+
+    @Test
+    public void testSameAsSequential() {
+        Map<String, String> expressions = new LinkedHashMap<>();
+        for(int i = 0; i < 2000; i++) {
+            expressions.put("rule" + i, "if(a > " + (i % 10) + ") { x = a * " + i + "; x + Math.abs(b) } else { name.length() + " + i + " }");
+        }
+        ParserContext template = new ParserContext();
+        template.addInput("a", Integer.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try{
+            BulkCompilation result = MVEL.compileAll(expressions, template, executor);
+            assertFalse(result.hasErrors());
+            assertEquals(new ArrayList<>(result.getCompiled().keySet()), new ArrayList<>(expressions.keySet()));
+
+            for(Map.Entry<String, String> e : expressions.entrySet()) {
+                Object expected = MVEL.executeExpression(MVEL.compileExpression(e.getValue()), vars());
+                assertEquals(MVEL.executeExpression(result.getCompiled().get(e.getKey()), vars()), expected, e.getKey());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //编译中识别到的变量不会写回到模板中
+        assertEquals(template.getInputs().keySet(), Collections.singleton("a"));
+        assertTrue(template.getVariables() == null || template.getVariables().isEmpty());
+    }
+
+    /** 单个表达式失败不影响其它表达式,失败原因通过 ErrorDetail 给出 */
+    @Test
+    public void testErrorsPerExpression() {
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put("ok", "a + 1");
+        expressions.put("broken", "a +* (");
+        expressions.put("ok2", "name == 'mvel'");
+
+        BulkCompilation result = MVEL.compileAll(expressions, null, null);
+        assertTrue(result.hasErrors());
+        assertEquals(result.getCompiled().keySet(), new HashSet<>(Arrays.asList("ok", "ok2")));
+        List<ErrorDetail> errors = result.getErrors().get("broken");
+        assertNotNull(errors);
+        assertFalse(errors.isEmpty());
+        assertTrue(errors.get(0).isCritical());
+        assertEquals(MVEL.executeExpression(result.getCompiled().get("ok"), vars()), 4);
+    }
+
+    /** 表达式中的 import 语句只对当前表达式有效,并行编译时不会相互影响,也不会写回到模板中 */
+    @Test
+    public void testImportsIsolated() {
+        String[] imports = {"java.util.ArrayList", "java.util.LinkedList", "java.util.HashSet", "java.util.TreeSet"};
+        Map<String, String> expressions = new LinkedHashMap<>();
+        for(int i = 0; i < 400; i++) {
+            String cls = imports[i % imports.length];
+            String simpleName = cls.substring(cls.lastIndexOf('.') + 1);
+            if(i % 2 == 0) {
+                expressions.put("rule" + i, "import " + cls + "; new " + simpleName + "().getClass().getName()");
+            } else {
+                expressions.put("rule" + i, "import java.util.concurrent.*; import " + cls + "; new " + simpleName + "().getClass().getName()");
+            }
+        }
+
+        ParserContext template = new ParserContext();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try{
+            BulkCompilation result = MVEL.compileAll(expressions, template, executor);
+            for(int i = 0; i < 400; i++) {
+                assertEquals(MVEL.executeExpression(result.getCompiled().get("rule" + i), vars()), imports[i % imports.length], "rule" + i);
+            }
+            assertFalse(result.hasErrors());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(template.hasImport("LinkedList"));
+        assertNull(template.getParserConfiguration().getPackageImports());
+    }
+
+    private static Map<String, Object> vars() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", 3);
+        vars.put("b", -2);
+        vars.put("name", "mvel");
+        return vars;
+    }
+}
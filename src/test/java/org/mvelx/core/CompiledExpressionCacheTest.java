@@ -0,0 +1,122 @@
+package org.mvelx.core;
+
+import org.mvelx.CompileException;
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.CompiledExpressionCache;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+/** 对全局编译表达式缓存进行测试 */
+public class CompiledExpressionCacheTest {
+
+    /** 相同的表达式和配置复用编译结果,不同的引用配置则重新编译 */
+    @Test
+    public void testHitAndFingerprint() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(100);
+        Serializable s1 = cache.compile("a + 1");
+        Serializable s2 = cache.compile("a + 1");
+        assertSame(s1, s2);
+
+        Map<String, Object> imports = new HashMap<>();
+        imports.put("Lists", Arrays.class);
+        Serializable s3 = cache.compile("a + 1", imports);
+        assertNotSame(s1, s3);
+
+        assertEquals(cache.stats().hitCount(), 1);
+        assertEquals(cache.stats().missCount(), 2);
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", 2);
+        assertEquals(MVEL.executeExpression(s2, vars), 3);
+    }
+
+    /** 相同的文本在不同的类加载器下编译时各自缓存 */
+    @Test
+    public void testClassLoaderInKey() throws Exception {
+        CompiledExpressionCache cache = new CompiledExpressionCache(100);
+        ClassLoader parent = getClass().getClassLoader();
+        try(URLClassLoader first = new URLClassLoader(new URL[0], parent);
+            URLClassLoader second = new URLClassLoader(new URL[0], parent)){
+            Serializable s1 = cache.compile("new java.util.ArrayList()", context(first));
+            assertSame(cache.compile("new java.util.ArrayList()", context(first)), s1);
+
+            Serializable s2 = cache.compile("new java.util.ArrayList()", context(second));
+            assertNotSame(s2, s1);
+            assertSame(cache.compile("new java.util.ArrayList()", context(second)), s2);
+            assertEquals(cache.size(), 2);
+        }
+    }
+
+    private static ParserContext context(ClassLoader classLoader) {
+        ParserContext ctx = new ParserContext();
+        ctx.getParserConfiguration().setClassLoader(classLoader);
+        return ctx;
+    }
+
+    /** 超过上限之后进行淘汰 */
+    @Test
+    public void testEviction() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10);
+        for(int i = 0; i < 50; i++) {
+            cache.compile("a + " + i);
+        }
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.stats().evictionCount() >= 40);
+
+        cache = new CompiledExpressionCache(0, 20);
+        for(int i = 0; i < 50; i++) {
+            cache.compile("abc + " + i);
+        }
+        assertTrue(cache.size() * "abc + 10".length() <= 20 + "abc + 10".length());
+    }
+
+    /** 编译错误直接抛出,并且不会缓存 */
+    @Test
+    public void testCompileError() {
+        CompiledExpressionCache cache = new CompiledExpressionCache(10);
+        for(int i = 0; i < 2; i++) {
+            try{
+                cache.compile("a + (b");
+                fail();
+            } catch(CompileException e) {
+                //expected
+            }
+        }
+        assertEquals(cache.size(), 0);
+    }
+
+    /** 并发情况下同一个表达式只编译一次 */
+    @Test
+    public void testSingleFlight() throws Exception {
+        CompiledExpressionCache cache = new CompiledExpressionCache(100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try{
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Future<Serializable>> futures = new ArrayList<>();
+            for(int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> {
+                    latch.await();
+                    return cache.compile("x = 1; y = x * 2; y + 3");
+                }));
+            }
+            latch.countDown();
+
+            Set<Serializable> results = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(Future<Serializable> f : futures) {
+                results.add(f.get());
+            }
+            assertEquals(results.size(), 1);
+            assertEquals(cache.stats().loadCount(), 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
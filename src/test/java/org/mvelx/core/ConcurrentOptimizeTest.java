@@ -0,0 +1,152 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.impl.asm.AsmAccessorOptimizer;
+import org.mvelx.util.AccessorClassLoader;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * 对节点在并发首次执行时的优化进行测试
+ * 即多个线程同时首次执行同一个编译表达式时,每个节点只会由一个线程生成访问器类,同时所有线程的结果均正确
+ */
+public class ConcurrentOptimizeTest {
+    private static final String EXPR = "bean.name + ':' + bean.age + ':' + bean.child.name + ':' + [bean.age, 2].size()";
+    /** 包括 new 及 return 节点 */
+    private static final String NEW_AND_RETURN_EXPR = "b = new Bean(bean.name, bean.age + 1, bean); if (b.age > 1) { return b.name + ':' + b.age + ':' + new Bean('x', 1, bean).child.age; } 'none'";
+    private static final int THREADS = 16;
+
+    @Test
+    public void testSingleGeneratedClassPerNode() throws Exception {
+        assertSingleGeneration(EXPR);
+    }
+
+    /** new 及 return 节点同样只由一个线程进行优化 */
+    @Test
+    public void testNewAndReturn() throws Exception {
+        assertSingleGeneration(NEW_AND_RETURN_EXPR);
+    }
+
+    /** 创建对象时参数的计算重入同一个 new 节点(如递归函数),重入的调用不能等待当前线程自己完成优化 */
+    @Test(timeOut = 30000)
+    public void testReentrantNew() {
+        String expr = "def f(n) { if (n <= 0) { return new java.util.ArrayList(); } new java.util.ArrayList(f(n - 1)) }; f(3)";
+        assertEquals(MVEL.executeExpression(compile(expr), new HashMap<>()), new ArrayList<>());
+
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            assertEquals(MVEL.executeExpression(compile(expr), new HashMap<>()), new ArrayList<>());
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    /** 使用asm优化器时,new 之后的后续访问(Union)在创建后续访问器的过程中同样会因参数计算而重入 */
+    @Test(timeOut = 30000)
+    public void testReentrantUnion() {
+        String expr = "def f(n) { if (n <= 0) { return 0; } new java.util.ArrayList(java.util.Collections.nCopies(f(n - 1), 'x')).size() + 1 }; f(3)";
+        assertEquals(MVEL.executeExpression(compile(expr), new HashMap<>()), 3);
+
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            assertEquals(MVEL.executeExpression(compile(expr), new HashMap<>()), 3);
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    private static void assertSingleGeneration(String expr) throws Exception {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        //关闭类共享,否则之后各轮都会直接使用第一轮生成的类,无法体现重复生成
+        AsmAccessorOptimizer.shareAccessorClasses = false;
+        try{
+            //单线程下执行时生成的类个数作为基准(不包括编译期间生成的类)
+            Serializable first = compile(expr);
+            long before = AccessorClassLoader.getTotalClasses();
+            Object expected = MVEL.executeExpression(first, vars());
+            long perExpression = AccessorClassLoader.getTotalClasses() - before;
+
+            for(int round = 0; round < 20; round++) {
+                Serializable s = compile(expr);
+                before = AccessorClassLoader.getTotalClasses();
+                for(Object result : executeConcurrently(s)) {
+                    assertEquals(result, expected);
+                }
+                assertEquals(AccessorClassLoader.getTotalClasses() - before, perExpression, "round " + round);
+            }
+        } finally {
+            AsmAccessorOptimizer.shareAccessorClasses = true;
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    private static Serializable compile(String expr) {
+        ParserContext ctx = new ParserContext();
+        ctx.addImport("Bean", Bean.class);
+        return MVEL.compileExpression(expr, ctx);
+    }
+
+    /** 所有线程同时开始首次执行,每个线程再执行多次 */
+    private static List<Object> executeConcurrently(Serializable s) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try{
+            CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<Object>> futures = new ArrayList<>();
+            for(int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    Object result = null;
+                    for(int j = 0; j < 10; j++) {
+                        result = MVEL.executeExpression(s, vars());
+                    }
+                    return result;
+                }));
+            }
+
+            List<Object> results = new ArrayList<>();
+            for(Future<Object> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> vars() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("bean", new Bean("parent", 40, new Bean("child", 10, null)));
+        return vars;
+    }
+
+    public static class Bean {
+        private final String name;
+        private final int age;
+        private final Bean child;
+
+        public Bean(String name, int age, Bean child) {
+            this.name = name;
+            this.age = age;
+            this.child = child;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public Bean getChild() {
+            return child;
+        }
+    }
+}
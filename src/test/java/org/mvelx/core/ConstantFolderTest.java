@@ -0,0 +1,118 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.ast.ASTNode;
+import org.mvelx.ast.BinaryOperation;
+import org.mvelx.ast.IfNode;
+import org.mvelx.ast.LiteralNode;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExecutableLiteral;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.mvelx.util.ConstantFolder;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对编译期常量折叠进行测试
+ * 即静态常量,枚举及白名单方法被内联为常量,常量条件的分支被去除,并且执行结果与不折叠时一致
+ */
+public class ConstantFolderTest {
+    private static final String[] EXPRESSIONS = {
+            "Limits.MAX + 1", "x + Limits.MAX * 2", "Math.max(1, Limits.MAX) * x", "String.valueOf(3) + x",
+            "Level.HIGH == level", "java.lang.Integer.MAX_VALUE - 1", "Limits.counter + 1", "true ? x : 0", "false ? x : 5",
+            "if (Limits.MAX > 20) { 'a' } else if (Level.HIGH == Level.LOW) { 'b' } else { x }", "if (false) { x }; 3",
+            "y = 2; return y * x; y = 3", "false && x > 1", "x > 1 || Limits.MAX == 10", "(Limits.MAX + 1) * x"
+    };
+
+    @Test
+    public void testInline() {
+        assertLiteral("Limits.MAX + 1", 11);
+        assertLiteral("Level.HIGH", Level.HIGH);
+        assertLiteral("java.lang.Integer.MAX_VALUE", Integer.MAX_VALUE);
+        assertLiteral("Math.max(1, Limits.MAX)", 10);
+        assertLiteral("String.valueOf(3)", "3");
+        assertLiteral("false && x > 1", false);
+        assertLiteral("true ? 1 : x", 1);
+        assertTrue(MVEL.compileExpression("Math.min(2, 3) * 4") instanceof ExecutableLiteral);
+
+        //非final字段及非白名单方法不内联
+        assertFalse(firstNode("Limits.counter") instanceof LiteralNode);
+        assertFalse(firstNode("Math.random()") instanceof LiteralNode);
+        assertFalse(firstNode("Math.max(x, 1)") instanceof LiteralNode);
+
+        ASTNode node = firstNode("x + Limits.MAX * 2");
+        assertTrue(node instanceof BinaryOperation);
+        assertEquals(((BinaryOperation) node).getRight().getLiteralValue(), 20);
+    }
+
+    @Test
+    public void testDeadBranch() {
+        ASTNode node = firstNode("if (Limits.MAX > 20) { 'a' } else if (Level.HIGH == Level.LOW) { 'b' } else { x }");
+        assertTrue(node instanceof IfNode);
+        assertTrue(((IfNode) node).isUnconditional());
+        assertNull(node.nextASTNode);
+
+        String dump = ConstantFolder.dump(compile("x = 1; if (false) { x = 2 }; return x; x = 3").getFirstNode());
+        assertFalse(dump.contains("IfNode"), dump);
+        assertTrue(dump.trim().endsWith("<<99>>"), dump);
+    }
+
+    @Test
+    public void testSameResult() {
+        Map<String, Object> expected = new HashMap<>();
+        ConstantFolder.foldConstants = false;
+        try{
+            for(String expr : EXPRESSIONS) {
+                expected.put(expr, execute(expr));
+            }
+        } finally {
+            ConstantFolder.foldConstants = true;
+        }
+
+        for(String expr : EXPRESSIONS) {
+            assertEquals(execute(expr), expected.get(expr), expr);
+        }
+    }
+
+    private static void assertLiteral(String expr, Object value) {
+        CompiledExpression compiled = compile(expr);
+        assertTrue(compiled.isSingleNode() && compiled.isLiteralOnly(), expr);
+        assertEquals(compiled.getFirstNode().getLiteralValue(), value);
+    }
+
+    private static ASTNode firstNode(String expr) {
+        return compile(expr).getFirstNode();
+    }
+
+    private static CompiledExpression compile(String expr) {
+        return new ExpressionCompiler(expr, parserContext()).compile();
+    }
+
+    private static Object execute(String expr) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("x", 4);
+        vars.put("level", Level.HIGH);
+        return MVEL.executeExpression(MVEL.compileExpression(expr, parserContext()), vars);
+    }
+
+    private static ParserContext parserContext() {
+        ParserContext pCtx = new ParserContext();
+        pCtx.addImport("Limits", Limits.class);
+        pCtx.addImport("Level", Level.class);
+        return pCtx;
+    }
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    public static class Limits {
+        public static final int MAX = 10;
+        public static int counter = 7;
+    }
+}
@@ -0,0 +1,101 @@
+package org.mvelx.core;
+
+import org.mvelx.ConversionHandler;
+import org.mvelx.DataConversion;
+import org.mvelx.DataConversion.ConversionSite;
+import org.mvelx.conversion.Converter;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对按类型对记录的转换函数进行测试
+ * 即记录的转换函数与原转换结果一致,注册新的转换器之后失效,并且多线程下动态添加数组转换器是安全的
+ */
+public class DataConversionPlanTest {
+
+    @Test
+    public void testConverter() {
+        assertSame(DataConversion.getConverter(Integer.class, Number.class), DataConversion.IDENTITY);
+        assertSame(DataConversion.getConverter(String.class, Integer.class), DataConversion.getConverter(String.class, Integer.class));
+
+        assertEquals(DataConversion.getConverter(String.class, Integer.class).convert("12"), 12);
+        assertEquals(DataConversion.getConverter(String.class, int.class).convert("12"), 12);
+        assertEquals(DataConversion.getConverter(Integer.class, BigDecimal.class).convert(3), new BigDecimal(3));
+        assertEquals(DataConversion.convert("1.5", Double.class), 1.5);
+        assertEquals(DataConversion.convert(Arrays.asList("1", "2"), Long[].class), new Long[]{1L, 2L});
+
+        assertTrue(DataConversion.canConvert(int.class, String.class));
+        assertTrue(DataConversion.canConvert(int.class, String.class));
+        assertFalse(DataConversion.canConvert(Integer.class, List.class));
+    }
+
+    @Test
+    public void testConversionSite() {
+        ConversionSite site = new ConversionSite(Long.class);
+        assertEquals(site.convert("5"), 5L);
+        assertEquals(site.convert(6), 6L);
+        assertEquals(site.convert(7L), 7L);
+        assertEquals(site.convert("8"), 8L);
+        assertNull(site.convert(null));
+    }
+
+    /** 注册新的转换器之后,之前记录的转换函数失效 */
+    @Test
+    public void testAddConversionHandler() {
+        assertFalse(DataConversion.canConvert(Money.class, String.class));
+
+        DataConversion.addConversionHandler(Money.class, new ConversionHandler() {
+            public Object convertFrom(Object in) {
+                return new Money(String.valueOf(in));
+            }
+
+            public boolean canConvertFrom(Class cls) {
+                return cls == String.class;
+            }
+        });
+        assertTrue(DataConversion.canConvert(Money.class, String.class));
+        assertEquals(DataConversion.convert("10", Money.class).amount, "10");
+
+        Converter c = DataConversion.getConverter(String.class, Money.class);
+        assertEquals(((Money) c.convert("3")).amount, "3");
+    }
+
+    /** 多线程同时转换至新的数组类型 */
+    @Test
+    public void testConcurrentArrayConversion() throws Exception {
+        Class[] targets = {Long[].class, Short[].class, Double[].class, BigDecimal[].class, Float[].class};
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for(int i = 0; i < 500; i++) {
+                        Object[] out = (Object[]) DataConversion.convert(new String[]{"1", "2"}, targets[i % targets.length]);
+                        if(out.length != 2 || out.getClass() != targets[i % targets.length]) return false;
+                    }
+                    return true;
+                }));
+            }
+            for(Future<Boolean> f : futures) {
+                assertTrue(f.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static class Money {
+        final String amount;
+
+        Money(String amount) {
+            this.amount = amount;
+        }
+    }
+}
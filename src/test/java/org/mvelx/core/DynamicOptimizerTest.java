@@ -0,0 +1,296 @@
+package org.mvelx.core;
+
+import org.mvelx.ParserContext;
+import org.mvelx.ast.ASTNode;
+import org.mvelx.compiler.AccessorNode;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.mvelx.core.property_test.Base;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.optimizers.GuardFailure;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.dynamic.AbstractDynamicAccessor;
+import org.mvelx.optimizers.dynamic.BackgroundCompiler;
+import org.mvelx.optimizers.dynamic.DynamicAccessor;
+import org.mvelx.optimizers.dynamic.DynamicOptimizer;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对动态优化器的分级优化进行测试
+ * 即访问器在调用达到阈值之后切换为asm版本,并且在失败时能够回退到反射版本
+ */
+public class DynamicOptimizerTest {
+
+    private CompiledExpression compile(String expr) {
+        return new ExpressionCompiler(expr, new ParserContext()).compile();
+    }
+
+    private DynamicAccessor firstAccessor(CompiledExpression compiled) {
+        return (DynamicAccessor) compiled.getFirstNode().getAccessor();
+    }
+
+    /** 超过阈值之后切换为优化版本，并且结果保持一致 */
+    @Test
+    public void testTierUp() {
+        CompiledExpression compiled = compile("foo.bar.name");
+        Base ctx = new Base();
+
+        compiled.getValue(ctx, new MapVariableResolverFactory(new HashMap<>()));
+        assertFalse(firstAccessor(compiled).isOptimized());
+
+        for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+            assertEquals("dog", compiled.getValue(ctx, new MapVariableResolverFactory(new HashMap<>())));
+        }
+        assertTrue(firstAccessor(compiled).isOptimized());
+    }
+
+    /** 优化版本碰到不同类型的参数时，回退至反射版本 */
+    @Test
+    public void testDeoptimizeOnTypeChange() {
+        CompiledExpression compiled = compile("a.isEmpty()");
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", "abc");
+
+        for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+            assertEquals(false, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+        }
+        assertTrue(firstAccessor(compiled).isOptimized());
+
+        vars.put("a", new ArrayList<>());
+        assertEquals(true, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+        assertFalse(firstAccessor(compiled).isOptimized());
+    }
+
+    /** 设置值访问器同样进行分级优化 */
+    @Test
+    public void testSetTierUp() {
+        CompiledExpression compiled = compile("foo.bar.name = 'cow'");
+        Base ctx = new Base();
+
+        for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+            ctx.foo.bar.name = "dog";
+            compiled.getValue(ctx, new MapVariableResolverFactory(new HashMap<>()));
+            assertEquals(ctx.foo.bar.name, "cow");
+        }
+
+        //赋值节点中的设置访问器不对外暴露,因此直接通过动态优化器创建设置访问器,确认其在达到阈值之后切换为优化版本
+        char[] property = "foo.bar.name".toCharArray();
+        MapVariableResolverFactory factory = new MapVariableResolverFactory(new HashMap<>());
+        DynamicAccessor accessor = (DynamicAccessor) OptimizerFactory.getAccessorCompiler(OptimizerFactory.DYNAMIC)
+                .optimizeSetAccessor(new ParserContext(), property, 0, property.length, ctx, ctx, factory, false, "cow", String.class);
+        assertFalse(accessor.isOptimized());
+
+        for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+            ctx.foo.bar.name = "dog";
+            accessor.setValue(ctx, ctx, factory, "cow");
+            assertEquals(ctx.foo.bar.name, "cow");
+        }
+        assertTrue(accessor.isOptimized());
+
+        //优化版本同样可以正确设置
+        ctx.foo.bar.name = "dog";
+        accessor.setValue(ctx, ctx, factory, "cow");
+        assertEquals(ctx.foo.bar.name, "cow");
+    }
+
+    /** 开启后台编译时,请求线程继续使用反射版本,编译完成之后再切换为优化版本 */
+    @Test
+    public void testBackgroundCompile() throws Exception {
+        boolean background = DynamicOptimizer.backgroundCompile;
+        DynamicOptimizer.backgroundCompile = true;
+        try{
+            CompiledExpression compiled = compile("foo.bar.name");
+            Base ctx = new Base();
+            long submitted = BackgroundCompiler.getSubmittedCount();
+
+            for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+                assertEquals("dog", compiled.getValue(ctx, new MapVariableResolverFactory(new HashMap<>())));
+            }
+            assertTrue(BackgroundCompiler.getSubmittedCount() > submitted);
+
+            for(int i = 0; i < 100 && !firstAccessor(compiled).isOptimized(); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(firstAccessor(compiled).isOptimized());
+            assertEquals("dog", compiled.getValue(ctx, new MapVariableResolverFactory(new HashMap<>())));
+        } finally {
+            DynamicOptimizer.backgroundCompile = background;
+        }
+    }
+
+    /**
+     * 后台编译只使用请求线程中复制的变量值,请求结束之后变量工厂被清空(复用)也不影响编译
+     * 调用方法的访问链不放到后台编译,以避免方法在编译线程中被重复调用
+     */
+    @Test
+    public void testBackgroundCompileSnapshot() throws Exception {
+        boolean background = DynamicOptimizer.backgroundCompile;
+        DynamicOptimizer.backgroundCompile = true;
+        try{
+            CompiledExpression compiled = compile("x.foo.bar.name");
+            Map<String, Object> vars = new HashMap<>();
+            for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+                vars.put("x", new Base());
+                assertEquals("dog", compiled.getValue(null, new MapVariableResolverFactory(vars)));
+                vars.clear();
+            }
+            for(int i = 0; i < 100 && !firstAccessor(compiled).isOptimized(); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(firstAccessor(compiled).isOptimized());
+
+            long submitted = BackgroundCompiler.getSubmittedCount();
+            compiled = compile("a.isEmpty()");
+            vars.put("a", "abc");
+            for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+                assertEquals(false, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+            }
+            assertEquals(BackgroundCompiler.getSubmittedCount(), submitted);
+            assertTrue(firstAccessor(compiled).isOptimized());
+        } finally {
+            DynamicOptimizer.backgroundCompile = background;
+        }
+    }
+
+    /** 编译队列已满时挤出热度最低的任务,新任务最冷时丢弃新任务 */
+    @Test
+    public void testBackgroundBacklogEviction() throws Exception {
+        int backlog = BackgroundCompiler.maximumBacklog;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try{
+            //先占用编译线程,之后提交的任务均在队列中等待
+            BackgroundCompiler.submit(Double.MAX_VALUE, () -> {
+                started.countDown();
+                try{
+                    release.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, () -> {
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            BackgroundCompiler.maximumBacklog = BackgroundCompiler.getQueueDepth() + 2;
+
+            List<Double> discarded = new CopyOnWriteArrayList<>();
+            List<Double> compiledTasks = new CopyOnWriteArrayList<>();
+            for(double hotness : new double[]{1, 2, 3, 0.5}) {
+                BackgroundCompiler.submit(hotness, () -> compiledTasks.add(hotness), () -> discarded.add(hotness));
+            }
+            assertEquals(discarded, Arrays.asList(1.0, 0.5));
+
+            release.countDown();
+            for(int i = 0; i < 100 && compiledTasks.size() < 2; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(compiledTasks, Arrays.asList(3.0, 2.0));
+        } finally {
+            release.countDown();
+            BackgroundCompiler.maximumBacklog = backlog;
+        }
+    }
+
+    /** asm访问器通过类型检查抛出 GuardFailure(而不是由类型转换抛出异常),并在异常信息中给出类型及表达式 */
+    @Test
+    public void testGuardFailure() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", "abc");
+        AccessorNode accessor = OptimizerFactory.getAccessorCompiler(OptimizerFactory.ASM)
+                .optimizeAccessor(new ParserContext(), "a.isEmpty()".toCharArray(), 0, 11, null, null, new MapVariableResolverFactory(vars), null);
+        assertEquals(accessor.getValue(null, null, new MapVariableResolverFactory(vars)), false);
+
+        vars.put("a", new ArrayList<>());
+        try{
+            accessor.getValue(null, null, new MapVariableResolverFactory(vars));
+            fail("expected GuardFailure");
+        } catch(GuardFailure e) {
+            //异常信息中包括期望类型,实际类型以及表达式
+            assertTrue(e.getMessage().contains(String.class.getName()), e.getMessage());
+            assertTrue(e.getMessage().contains(ArrayList.class.getName()), e.getMessage());
+            assertTrue(e.getMessage().contains("a.isEmpty()"), e.getMessage());
+            assertEquals(e.getStackTrace().length, 0);
+        }
+        //null值仍然通过类型检查
+        vars.put("a", null);
+        try{
+            accessor.getValue(null, null, new MapVariableResolverFactory(vars));
+            fail("expected NullPointerException");
+        } catch(NullPointerException e) {
+            //expected
+        }
+    }
+
+    /** 反优化次数达到上限之后暂时使用反射版本,计数衰减之后可以重新优化 */
+    @Test
+    public void testDeoptimizationDecay() throws Exception {
+        long decay = DynamicOptimizer.deoptimizationDecay;
+        DynamicOptimizer.deoptimizationDecay = 200;
+        try{
+            CompiledExpression compiled = compile("a.isEmpty()");
+            Map<String, Object> vars = new HashMap<>();
+            for(int k = 0; k < DynamicOptimizer.maximumDeoptimization; k++) {
+                vars.put("a", "abc");
+                for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+                    assertEquals(false, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+                }
+                assertTrue(firstAccessor(compiled).isOptimized());
+
+                vars.put("a", new ArrayList<>());
+                assertEquals(true, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+                assertFalse(firstAccessor(compiled).isOptimized());
+            }
+            AbstractDynamicAccessor accessor = (AbstractDynamicAccessor) firstAccessor(compiled);
+            assertEquals(accessor.getDeoptimizationCount(), DynamicOptimizer.maximumDeoptimization);
+
+            //已达上限,不再优化
+            vars.put("a", "abc");
+            for(int i = 0; i <= DynamicOptimizer.tenuringThreshold * 3; i++) {
+                assertEquals(false, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+            }
+            assertFalse(accessor.isOptimized());
+
+            //衰减之后重新优化
+            Thread.sleep(450);
+            for(int i = 0; i <= DynamicOptimizer.tenuringThreshold + 1; i++) {
+                assertEquals(false, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+            }
+            assertTrue(accessor.isOptimized());
+        } finally {
+            DynamicOptimizer.deoptimizationDecay = decay;
+        }
+    }
+
+    /** 节点被固定为反射访问之后,在反优化计数衰减之后重新使用默认优化器 */
+    @Test
+    public void testNodeRespecialize() throws Exception {
+        long decay = DynamicOptimizer.deoptimizationDecay;
+        DynamicOptimizer.deoptimizationDecay = 200;
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            CompiledExpression compiled = compile("a.isEmpty()");
+            ASTNode node = compiled.getFirstNode();
+            Map<String, Object> vars = new HashMap<>();
+            for(int k = 0; k <= DynamicOptimizer.maximumDeoptimization; k++) {
+                vars.put("a", k % 2 == 0 ? "abc" : new ArrayList<>());
+                assertEquals(k % 2 != 0, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+            }
+            assertTrue((node.getFields() & ASTNode.NOJIT) != 0);
+
+            Thread.sleep(450);
+            for(int i = 0; i < 2048; i++) {
+                assertEquals(true, compiled.getValue(null, new MapVariableResolverFactory(vars)));
+            }
+            assertEquals(node.getFields() & ASTNode.NOJIT, 0);
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+            DynamicOptimizer.deoptimizationDecay = decay;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.mvelx.core;
+
+import org.mvelx.EvaluationFrame;
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对可复用的执行帧进行测试
+ * 即执行结果与 MVEL.executeExpression 保持一致,多次执行之间变量不会串用,并且重复执行不再产生新的对象
+ */
+public class EvaluationFrameTest {
+
+    @Test
+    public void testSameAsExecuteExpression() {
+        String[] expressions = {
+                "a > 5 && name == 'mvel'",
+                "a * 2 + b",
+                "x = a + 1; x * 2",
+                "foreach(i : list) { total += i; } total",
+                "if(a > 3) { 'big' } else { 'small' }",
+        };
+
+        EvaluationFrame frame = new EvaluationFrame();
+        for(String expr : expressions) {
+            Serializable s = MVEL.compileExpression(expr);
+            for(int i = 0; i < 10; i++) {
+                Map<String, Object> expectedVars = vars(i);
+                Map<String, Object> actualVars = vars(i);
+                assertEquals(frame.execute(s, null, actualVars), MVEL.executeExpression(s, null, expectedVars), expr + ":" + i);
+                assertEquals(actualVars, expectedVars, expr + ":" + i);
+            }
+        }
+    }
+
+    /** 上一次执行中的变量不能在下一次执行中被访问到 */
+    @Test
+    public void testNoLeakBetweenExecutions() {
+        EvaluationFrame frame = new EvaluationFrame();
+        Serializable s = MVEL.compileExpression("isdef c ? c : a");
+
+        Map<String, Object> first = vars(1);
+        first.put("c", "c");
+        assertEquals(frame.execute(s, first), "c");
+        assertEquals(frame.execute(s, vars(2)), 2);
+
+        //执行中新建的变量写回到外部map中,但不会带到下一次执行
+        Serializable assign = MVEL.compileExpression("y = isdef y ? y + 1 : 1");
+        Map<String, Object> vars = new HashMap<>();
+        assertEquals(frame.execute(assign, vars), 1);
+        assertEquals(vars.get("y"), 1);
+        assertEquals(frame.execute(assign, vars), 2);
+        assertEquals(frame.execute(assign, new HashMap<>()), 1);
+    }
+
+    /** 执行过程中又使用同一个执行帧 */
+    @Test
+    public void testReentrant() {
+        Serializable s = MVEL.compileExpression("helper.nested(a) + a");
+        Map<String, Object> vars = vars(3);
+        vars.put("helper", new Helper());
+        assertEquals(EvaluationFrame.local().execute(s, vars), 3 * 10 + 3);
+    }
+
+    /** 使用变量工厂,引用以及boolean执行 */
+    @Test
+    public void testFactoryAndImports() {
+        ParserContext ctx = new ParserContext();
+        ctx.addImport("Math", Math.class);
+        Serializable s = MVEL.compileExpression("Math.max(a, 4) == 4", ctx);
+
+        EvaluationFrame frame = new EvaluationFrame();
+        for(int i = 0; i < 8; i++) {
+            assertEquals(frame.executeBoolean(s, null, new MapVariableResolverFactory(vars(i))), i <= 4);
+            assertEquals(frame.executeBoolean(s, vars(i)), i <= 4);
+        }
+    }
+
+    /** 执行出错时,出错之前对变量的修改同样写回外部map,与直接执行一致 */
+    @Test
+    public void testExternalizeOnFailure() {
+        Serializable s = MVEL.compileExpression("y = a + 1; a = 0; missing.length()");
+        Map<String, Object> expected = vars(3);
+        Map<String, Object> actual = vars(3);
+
+        try{
+            MVEL.executeExpression(s, expected);
+            fail("expected exception");
+        } catch(RuntimeException e) {
+            //expected
+        }
+        try{
+            new EvaluationFrame().execute(s, actual);
+            fail("expected exception");
+        } catch(RuntimeException e) {
+            //expected
+        }
+        assertEquals(actual.get("y"), 4);
+        assertEquals(actual, expected);
+    }
+
+    /** 执行期间添加的引用不能带到同一执行帧的下一次执行中 */
+    @Test
+    public void testNoImportLeak() {
+        ParserContext ctx = new ParserContext();
+        ctx.addImport("Math", Math.class);
+        Serializable check = MVEL.compileExpression("isdef TimeUnit", ctx);
+        //引用的类只在执行期间解析,编译时不会加入到解析配置中
+        Serializable importing = MVEL.compileExpression("import java.util.concurrent.*; isdef TimeUnit", ctx);
+
+        EvaluationFrame frame = new EvaluationFrame();
+        assertEquals(frame.execute(check, new HashMap<>()), false);
+        assertEquals(frame.execute(importing, new HashMap<>()), true);
+        assertEquals(frame.execute(check, new HashMap<>()), false);
+        assertEquals(MVEL.executeExpression(check, new HashMap<>()), false);
+    }
+
+    /** 重复执行常见的条件表达式时不再产生新的对象 */
+    @Test
+    public void testNoAllocation() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if(!(mx instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("thread allocation counter is not supported");
+        }
+        com.sun.management.ThreadMXBean threadMx = (com.sun.management.ThreadMXBean) mx;
+        long tid = Thread.currentThread().getId();
+
+        Serializable s = MVEL.compileExpression("a > 5 && name == 'mvel'");
+        Map<String, Object> vars = vars(8);
+        EvaluationFrame frame = new EvaluationFrame();
+        int n = 50000;
+        for(int i = 0; i < n; i++) {
+            frame.executeBoolean(s, vars);
+        }
+
+        long start = threadMx.getThreadAllocatedBytes(tid);
+        for(int i = 0; i < n; i++) {
+            frame.executeBoolean(s, vars);
+        }
+        long bytes = threadMx.getThreadAllocatedBytes(tid) - start;
+        assertTrue(bytes / n < 8, "allocated " + bytes / n + " bytes per evaluation");
+    }
+
+    private static Map<String, Object> vars(int a) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", a);
+        vars.put("b", 10);
+        vars.put("name", a % 2 == 0 ? "mvel" : "other");
+        vars.put("total", 0);
+        vars.put("list", Arrays.asList(1, 2, a));
+        return vars;
+    }
+
+    public static class Helper {
+        public int nested(int a) {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("a", a);
+            return (Integer) EvaluationFrame.local().execute(MVEL.compileExpression("a * 10"), vars);
+        }
+    }
+}
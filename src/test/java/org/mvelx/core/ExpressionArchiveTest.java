@@ -0,0 +1,88 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.compiler.ExpressionArchive;
+import org.mvelx.compiler.ExpressionArchiveCompiler;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对构建期预编译的表达式包进行测试
+ * 即从源目录编译为jar之后,通过类加载器加载得到的表达式与直接编译的执行结果一致
+ */
+public class ExpressionArchiveTest {
+
+    @Test
+    public void testCompileAndLoad() throws Exception {
+        Path src = Files.createTempDirectory("mvelx-rules");
+        write(src.resolve("discount.mvel"), "amount > 100 ? amount * rate : amount");
+        write(src.resolve("order/valid.mvel"), "name != null && Math.max(amount, 0) > 0");
+        write(src.resolve("order/items.mvel"), "total = 0; foreach(i : items) { total += i; } total");
+        Path schema = src.resolve("schema.properties");
+        write(schema, "amount=java.lang.Integer\nrate=java.lang.Double\nimport.Math=java.lang.Math\n");
+
+        Path jar = src.resolve("out/rules.jar");
+        ExpressionArchiveCompiler.main(new String[]{"-o", jar.toString(), "-s", schema.toString(), src.toString()});
+
+        try(URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, getClass().getClassLoader())) {
+            ExpressionArchive archive = ExpressionArchive.load(loader);
+            assertEquals(archive.ids(), new HashSet<>(Arrays.asList("discount", "order/valid", "order/items")));
+            assertNull(archive.get("missing"));
+
+            Serializable discount = archive.get("discount");
+            assertSame(archive.get("discount"), discount);
+            assertEquals(MVEL.executeExpression(discount, vars(200)), 20.0);
+            assertEquals(MVEL.executeExpression(discount, vars(50)), 50);
+            assertEquals(MVEL.executeExpression(archive.get("order/valid"), vars(50)), true);
+            assertEquals(MVEL.executeExpression(archive.get("order/items"), vars(50)), 6);
+        }
+    }
+
+    /** 表达式有错误时在构建期即失败 */
+    @Test
+    public void testCompileError() {
+        ExpressionArchiveCompiler compiler = new ExpressionArchiveCompiler().add("ok", "1 + 1").add("broken", "a +* (");
+        try{
+            compiler.writeTo(Files.createTempDirectory("mvelx-out"));
+            fail("expected compile error");
+        } catch(Exception e) {
+            assertTrue(e.getMessage().contains("'broken'"), e.getMessage());
+        }
+    }
+
+    /** 输出到目录,与项目的类一起打包 */
+    @Test
+    public void testWriteToDirectory() throws Exception {
+        Path out = Files.createTempDirectory("mvelx-classes");
+        new ExpressionArchiveCompiler().declare("a", "java.lang.Integer").add("twice", "a * 2").writeTo(out);
+
+        try(URLClassLoader loader = new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader())) {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("a", 21);
+            assertEquals(MVEL.executeExpression(ExpressionArchive.load(loader).get("twice"), vars), 42);
+        }
+    }
+
+    private static Map<String, Object> vars(int amount) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("amount", amount);
+        vars.put("rate", 0.1);
+        vars.put("name", "order");
+        vars.put("items", Arrays.asList(1, 2, 3));
+        return vars;
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.impl.asm.AsmAccessorOptimizer;
+import org.mvelx.util.AccessorClassLoader;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertTrue;
+
+/**
+ * 对生成类的卸载进行测试
+ * 即编译表达式被丢弃之后,相应的生成类加载器可以被回收,存活的生成类数量不会持续增长
+ */
+public class GeneratedClassUnloadTest {
+
+    @Test
+    public void testUnloadAfterDropped() throws Exception {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        //关闭类共享,使每个表达式均生成各自的类
+        AsmAccessorOptimizer.shareAccessorClasses = false;
+        try{
+            long before = AccessorClassLoader.getTotalLoaders();
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("s", "abc");
+            for(int i = 0; i < 200; i++) {
+                Serializable s = MVEL.compileExpression("s.substring(" + (i % 3) + ").length() + " + i);
+                MVEL.executeExpression(s, vars);
+            }
+            long created = AccessorClassLoader.getTotalLoaders() - before;
+            assertTrue(created >= 200, "created: " + created);
+        } finally {
+            AsmAccessorOptimizer.shareAccessorClasses = true;
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+
+        long unloaded = AccessorClassLoader.getUnloadedLoaders();
+        for(int i = 0; i < 20 && AccessorClassLoader.getUnloadedLoaders() - unloaded < 100; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertTrue(AccessorClassLoader.getUnloadedLoaders() - unloaded >= 100,
+                "unloaded: " + (AccessorClassLoader.getUnloadedLoaders() - unloaded) + ", live: " + AccessorClassLoader.getLiveLoaders());
+    }
+}
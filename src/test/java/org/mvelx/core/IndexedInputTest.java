@@ -0,0 +1,86 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+/**
+ * 对按下标声明入参的编译和执行进行测试
+ * 即 MVEL.compileWithInputs(expr, ctx, inputNames) 与 MVEL.executeWithArgs(compiled, ctx, args)
+ */
+public class IndexedInputTest {
+
+    /** 直接读取入参以及入参上的属性 */
+    @Test
+    public void testReadInputs() {
+        Serializable s = MVEL.compileWithInputs("a + b * 2", new ParserContext(), "a", "b");
+        assertEquals(MVEL.executeWithArgs(s, null, new Object[]{1, 2}), 5);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("x", 10);
+        s = MVEL.compileWithInputs("m.x + l.size()", null, "m", "l");
+        assertEquals(MVEL.executeWithArgs(s, null, new Object[]{map, Arrays.asList(1, 2, 3)}), 13);
+    }
+
+    /** 多次执行(超过动态优化的阈值)时仍使用每次传入的参数 */
+    @Test
+    public void testRepeatedExecution() {
+        for(String optimizer : new String[]{OptimizerFactory.DYNAMIC, OptimizerFactory.SAFE_REFLECTIVE, OptimizerFactory.ASM}) {
+            OptimizerFactory.setDefaultOptimizer(optimizer);
+            try{
+                Serializable s = MVEL.compileWithInputs("p.length() + n", null, "p", "n");
+                for(int i = 0; i < 200; i++) {
+                    assertEquals(MVEL.executeWithArgs(s, null, new Object[]{"abc", i}), 3 + i, optimizer);
+                }
+            } finally {
+                OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+            }
+        }
+    }
+
+    /** 对入参的赋值写回到参数数组中,脚本中的局部变量不影响参数 */
+    @Test
+    public void testAssignment() {
+        Serializable s = MVEL.compileWithInputs("t = a * 2; a = t + 1; a", null, "a");
+        Object[] args = {4};
+        assertEquals(MVEL.executeWithArgs(s, null, args), 9);
+        assertEquals(args[0], 9);
+        assertEquals(args.length, 1);
+    }
+
+    /** 同一上下文用于不同入参顺序的表达式,入参下标以各自的 inputNames 为准,并且不修改传入的上下文 */
+    @Test
+    public void testReuseContext() {
+        ParserContext ctx = new ParserContext();
+        Serializable ab = MVEL.compileWithInputs("a - b", ctx, "a", "b");
+        Serializable ba = MVEL.compileWithInputs("a - b", ctx, "b", "a");
+
+        assertEquals(MVEL.executeWithArgs(ab, null, new Object[]{10, 3}), 7);
+        assertEquals(MVEL.executeWithArgs(ba, null, new Object[]{10, 3}), -7);
+        assertEquals(ctx.getIndexedVarNames().length, 0);
+        assertFalse(ctx.hasVarOrInput("a"));
+        assertFalse(ctx.hasVarOrInput("b"));
+    }
+
+    /** 重复的入参名报错 */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDuplicateInputs() {
+        MVEL.compileWithInputs("a + a", null, "a", "a");
+    }
+
+    /** 参数个数不足时报错 */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMissingArguments() {
+        Serializable s = MVEL.compileWithInputs("a + b", null, "a", "b");
+        MVEL.executeWithArgs(s, null, new Object[]{1});
+    }
+}
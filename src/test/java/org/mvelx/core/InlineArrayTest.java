@@ -1,8 +1,12 @@
 /* Created by flym at 12/26/16 */
 package org.mvelx.core;
 
+import org.mvelx.MVEL;
+import org.mvelx.optimizers.OptimizerFactory;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -85,4 +89,19 @@ public class InlineArrayTest {
         //for循环判定
         assertEquals(true, test("a = {1,2,3}; foreach (i : a) { if (i == 1) { return true; } }"));
     }
+
+    /** 使用asm优化器创建包含变量的内联map */
+    @Test
+    public void testAsmMapCreate() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("x", 7);
+            Map m = (Map) MVEL.executeExpression(MVEL.compileExpression("['a' : x, 'b' : [x, 1]]"), vars);
+            assertEquals(7, m.get("a"));
+            assertEquals(Arrays.asList(7, 1), m.get("b"));
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package org.mvelx.core;
+
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.AccessorNode;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.optimizers.impl.refl.ReflectiveAccessorOptimizer;
+import org.mvelx.optimizers.impl.refl.nodes.BaseAccessor;
+import org.mvelx.optimizers.impl.refl.nodes.InlineCache;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对访问节点选择下一节点的内联缓存进行测试
+ * 即随上下文类型的增加依次经过单态,双态,多态至超多态,并且多线程下交替访问不同类型时结果正确
+ * 超多态之后所有新类型共用同一个通用节点
+ */
+public class InlineCacheTest {
+    private static final Object[] VALUES = {new A(), new B(), new C(), new D(), new E(), new F()};
+
+    @Test
+    public void testTransitions() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("x", VALUES[0]);
+        MapVariableResolverFactory factory = new MapVariableResolverFactory(vars);
+        AccessorNode root = new ReflectiveAccessorOptimizer()
+                .optimizeAccessor(new ParserContext(), "x.value".toCharArray(), 0, 7, null, null, factory, null);
+        InlineCache.resetStatistics();
+
+        InlineCache.State[] expected = {InlineCache.State.MONOMORPHIC, InlineCache.State.BIMORPHIC, InlineCache.State.POLYMORPHIC,
+                InlineCache.State.POLYMORPHIC, InlineCache.State.MEGAMORPHIC, InlineCache.State.MEGAMORPHIC};
+        for(int i = 0; i < VALUES.length; i++) {
+            vars.put("x", VALUES[i]);
+            assertEquals(root.getValue(null, null, factory), VALUES[i].getClass().getSimpleName());
+            assertEquals(((BaseAccessor) root).getInlineCache().getState(), expected[i]);
+        }
+        assertEquals(((BaseAccessor) root).getInlineCache().getMisses(), InlineCache.polymorphismLimit - 1);
+        assertEquals(InlineCache.getMegamorphicSites().get("x.value"), Long.valueOf(1));
+
+        //再次访问全部命中
+        for(int i = VALUES.length - 1; i >= 0; i--) {
+            vars.put("x", VALUES[i]);
+            assertEquals(root.getValue(null, null, factory), VALUES[i].getClass().getSimpleName());
+        }
+        assertEquals(((BaseAccessor) root).getInlineCache().getMisses(), InlineCache.polymorphismLimit - 1);
+        assertEquals(InlineCache.getMegamorphicSites().get("x.value"), Long.valueOf(1));
+    }
+
+    /** 超多态之后的属性读取及方法调用按实际类型解析,不再为新类型创建节点 */
+    @Test
+    public void testGenericNode() {
+        Object[] values = {new ArrayList<>(), new HashMap<>(), new HashSet<>(), new LinkedList<>(), new TreeMap<>(), "", "abc",
+                new TreeSet<>(Collections.singleton(1)), new ArrayDeque<>(), new Vector<>(), Collections.singletonList(2)};
+        for(String expr : new String[]{"x.empty", "x.toString()", "x.equals(y)"}) {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("x", values[0]);
+            vars.put("y", values[0]);
+            MapVariableResolverFactory factory = new MapVariableResolverFactory(vars);
+            AccessorNode root = new ReflectiveAccessorOptimizer()
+                    .optimizeAccessor(new ParserContext(), expr.toCharArray(), 0, expr.length(), null, null, factory, null);
+
+            for(int round = 0; round < 2; round++) {
+                for(Object value : values) {
+                    vars.put("x", value);
+                    Object expected = expr.equals("x.empty") ? value.toString().equals("") || value.toString().equals("[]") || value.toString().equals("{}")
+                            : expr.equals("x.toString()") ? value.toString() : value.equals(values[0]);
+                    assertEquals(root.getValue(null, null, factory), expected, expr + ":" + value.getClass());
+                }
+            }
+            assertEquals(((BaseAccessor) root).getInlineCache().getState(), InlineCache.State.MEGAMORPHIC, expr);
+            assertEquals(((BaseAccessor) root).getInlineCache().getMisses(), InlineCache.polymorphismLimit - 1, expr);
+        }
+    }
+
+    /** 多线程交替访问不同类型 */
+    @Test
+    public void testConcurrentAlternation() throws Exception {
+        Map<String, Object> initVars = new HashMap<>();
+        initVars.put("x", VALUES[0]);
+        AccessorNode root = new ReflectiveAccessorOptimizer()
+                .optimizeAccessor(new ParserContext(), "x.value".toCharArray(), 0, 7, null, null, new MapVariableResolverFactory(initVars), null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                int offset = t;
+                futures.add(pool.submit(() -> {
+                    Map<String, Object> vars = new HashMap<>();
+                    MapVariableResolverFactory factory = new MapVariableResolverFactory(vars);
+                    for(int i = 0; i < 2000; i++) {
+                        Object value = VALUES[(i + offset) % VALUES.length];
+                        vars.put("x", value);
+                        if(!value.getClass().getSimpleName().equals(root.getValue(null, null, factory))) return false;
+                    }
+                    return true;
+                }));
+            }
+            for(Future<Boolean> f : futures) {
+                assertTrue(f.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(((BaseAccessor) root).getInlineCache().getState(), InlineCache.State.MEGAMORPHIC);
+    }
+
+    public static class A {
+        public String getValue() {
+            return getClass().getSimpleName();
+        }
+    }
+
+    public static class B {
+        public String getValue() {
+            return "B";
+        }
+    }
+
+    public static class C {
+        public String getValue() {
+            return "C";
+        }
+    }
+
+    public static class D extends A {
+    }
+
+    public static class E extends A {
+    }
+
+    public static class F {
+        public String value = "F";
+    }
+}
@@ -0,0 +1,85 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.ast.ASTNode;
+import org.mvelx.ast.Contains;
+import org.mvelx.ast.Union;
+import org.mvelx.compiler.ExecutableLiteral;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对内容均为常量的内联集合的共享进行测试
+ * 即只读使用的常量集合只构建一次,而可能被修改或返回的集合每次仍新建
+ */
+public class LiteralCollectionTest {
+
+    @Test
+    public void testShared() {
+        ASTNode node = compile("['A','B','C'] contains status");
+        assertTrue(node instanceof Contains);
+        ASTNode collection = ((Contains) node).getStmt();
+        assertTrue(collection.getAccessor() instanceof ExecutableLiteral);
+        assertSame(collection.getReducedValueAccelerated(null, null, null), collection.getReducedValueAccelerated(null, null, null));
+
+        node = compile("['a':1,'b':2][key]");
+        assertTrue(((Union) node).getMain().getAccessor() instanceof ExecutableLiteral);
+
+        //包含变量的集合不共享
+        node = compile("['A', status] contains status");
+        assertFalse(((Contains) node).getStmt().getAccessor() instanceof ExecutableLiteral);
+    }
+
+    @Test
+    public void testResult() {
+        Serializable s = MVEL.compileExpression("['A','B','C'] contains status && ['a':1,'b':2][key] == 2 && [1,2] == list");
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("key", "b");
+        vars.put("list", Arrays.asList(1, 2));
+        for(String status : new String[]{"A", "C", "D", "B"}) {
+            vars.put("status", status);
+            assertEquals(MVEL.executeExpression(s, vars), !"D".equals(status));
+        }
+    }
+
+    /** 可能被修改或返回的集合仍然每次新建 */
+    @Test
+    public void testEscape() {
+        assertEquals(MVEL.executeExpression(MVEL.compileExpression("l = [1,2]; l.add(3); l"), new HashMap<>()), Arrays.asList(1, 2, 3));
+        assertEquals(MVEL.executeExpression(MVEL.compileExpression("m = ['a':1]; m.put('b', 2); m.size()"), new HashMap<>()), 2);
+
+        Serializable s = MVEL.compileExpression("[1,2,3]");
+        List first = (List) MVEL.executeExpression(s);
+        first.add(4);
+        assertEquals(MVEL.executeExpression(s), Arrays.asList(1, 2, 3));
+    }
+
+    @Test
+    public void testAsm() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            Serializable s = MVEL.compileExpression("['a':x,'b':2,'c':3,'d':4]");
+            Map<String, Object> vars = new HashMap<>();
+            for(int i = 0; i < 3; i++) {
+                vars.put("x", i);
+                Map m = (Map) MVEL.executeExpression(s, vars);
+                assertEquals(m.size(), 4);
+                assertEquals(m.get("a"), i);
+            }
+            assertEquals(MVEL.executeExpression(MVEL.compileExpression("[x, 2, 3]"), vars), Arrays.asList(2, 2, 3));
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    private static ASTNode compile(String expr) {
+        return new ExpressionCompiler(expr, new ParserContext()).compile().getFirstNode();
+    }
+}
@@ -0,0 +1,140 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.AccessorNode;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.mvelx.optimizers.impl.mh.nodes.HandleFieldAccessor;
+import org.mvelx.optimizers.impl.mh.nodes.HandleGetterAccessor;
+import org.mvelx.optimizers.impl.mh.nodes.HandleMethodAccessor;
+import org.mvelx.util.AccessorClassLoader;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对方法句柄优化器进行测试
+ * 即访问结果与反射优化器一致,类型不匹配时能正确回退,并且不生成新的访问器类
+ */
+public class MethodHandleOptimizerTest {
+    private static final String[] EXPRESSIONS = {
+            "bean.name", "bean.count", "bean.items.size()", "bean.add(2, 3)", "bean.add('2', 3)", "bean.add(2L, 3)",
+            "bean.concat(null, 'x')", "bean.concat(bean.name, 'x')", "Bean.PREFIX + bean.name", "Bean.counter",
+            "new java.lang.StringBuilder('a').append(bean.name).toString()", "new java.util.ArrayList(3).size()",
+            "java.lang.String.valueOf(bean.count)", "bean.items[0]"
+    };
+
+    @Test
+    public void testSameResultAsReflective() {
+        Map<String, Object> expected = new HashMap<>();
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+        try{
+            for(String expr : EXPRESSIONS) {
+                expected.put(expr, execute(expr, new Bean()));
+            }
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+        try{
+            long before = AccessorClassLoader.getTotalClasses();
+            for(int i = 0; i < 3; i++) {
+                for(String expr : EXPRESSIONS) {
+                    assertEquals(execute(expr, new Bean()), expected.get(expr), expr);
+                }
+            }
+            assertEquals(AccessorClassLoader.getTotalClasses() - before, 0);
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    @Test
+    public void testHandleNodes() {
+        Bean bean = new Bean();
+        assertTrue(optimize("name", bean) instanceof HandleGetterAccessor);
+        assertTrue(optimize("count", bean) instanceof HandleFieldAccessor);
+        assertTrue(optimize("add(1, 2)", bean) instanceof HandleMethodAccessor);
+    }
+
+    /** 同一访问节点在调用者及参数类型变化时回退至反射调用 */
+    @Test
+    public void testFallback() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+        try{
+            Object s = MVEL.compileExpression("x.size() + ':' + bean.add(y, 1)");
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("bean", new Bean());
+            List<Object> xs = Arrays.asList(new ArrayList<>(Arrays.asList(1)), new LinkedList<>(Arrays.asList(1, 2)),
+                    new HashSet<>(Arrays.asList(1, 2, 3)), Collections.singletonList(1));
+            List<Object> ys = Arrays.asList(1, "2", 3, 4L);
+            String[] expected = {"1:2", "2:3", "3:4", "1:5"};
+            for(int i = 0; i < xs.size(); i++) {
+                vars.put("x", xs.get(i));
+                vars.put("y", ys.get(i));
+                assertEquals(MVEL.executeExpression(s, vars), expected[i]);
+            }
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    /** 目标方法抛出的异常与反射调用时一样进行包装 */
+    @Test
+    public void testException() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.METHOD_HANDLE);
+        try{
+            execute("bean.fail('boom')", new Bean());
+            fail("expected exception");
+        } catch(RuntimeException e) {
+            Throwable t = e;
+            while(t.getCause() != null && !(t instanceof IllegalStateException)) t = t.getCause();
+            assertEquals(t.getMessage(), "boom");
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
+
+    private static AccessorNode optimize(String expr, Object ctx) {
+        return OptimizerFactory.getAccessorCompiler(OptimizerFactory.METHOD_HANDLE)
+                .optimizeAccessor(new ParserContext(), expr.toCharArray(), 0, expr.length(), ctx, null, null, null);
+    }
+
+    private static Object execute(String expr, Bean bean) {
+        ParserContext pCtx = new ParserContext();
+        pCtx.addImport("Bean", Bean.class);
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("bean", bean);
+        return MVEL.executeExpression(MVEL.compileExpression(expr, pCtx), vars);
+    }
+
+    public static class Bean {
+        public static final String PREFIX = "p-";
+        public static int counter = 7;
+
+        public int count = 5;
+
+        public String getName() {
+            return "bean";
+        }
+
+        public List<String> getItems() {
+            return Arrays.asList("a", "b");
+        }
+
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public String concat(String a, String b) {
+            return a + b;
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
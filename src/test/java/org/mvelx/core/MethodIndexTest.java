@@ -0,0 +1,129 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.util.MethodIndex;
+import org.mvelx.util.NullType;
+import org.mvelx.util.ParseTools;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对按类建立的方法索引进行测试
+ * 即通过索引查找的结果与直接对所有方法评分的结果一致,并且重复查找时直接使用记录的结果
+ */
+public class MethodIndexTest {
+
+    @Test
+    public void testSameAsLinearScan() {
+        Class[][] argTypes = {
+                {}, {int.class}, {Integer.class}, {long.class}, {String.class}, {Object.class}, {null},
+                {NullType.class}, {int.class, int.class}, {String.class, int.class}, {char.class}, {CharSequence.class}
+        };
+        String[] names = {"valueOf", "indexOf", "append", "add", "get", "equals", "hashCode", "substring", "missing"};
+        Class[] types = {String.class, StringBuilder.class, ArrayList.class, List.class, Integer.class, Math.class};
+
+        for(Class type : types) {
+            for(String name : names) {
+                for(Class[] args : argTypes) {
+                    for(boolean classTarget : new boolean[]{false, true}) {
+                        Method expected = ParseTools.getBestCandidate(args, name, type, type.getMethods(), false, classTarget);
+                        assertEquals(ParseTools.getBestCandidate(args, name, type, false, classTarget), expected,
+                                type.getName() + "." + name + Arrays.toString(args));
+                        //第二次查找使用记录的结果
+                        assertEquals(ParseTools.getBestCandidate(args, name, type, false, classTarget), expected);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMemoizeAndNegativeCache() {
+        MethodIndex index = MethodIndex.of(Holder.class);
+        assertSame(MethodIndex.of(Holder.class), index);
+
+        Class[] args = {Integer.class};
+        Method m = index.getBestCandidate(args, "pick", false, false);
+        assertEquals(m.getParameterTypes()[0], int.class);
+        int size = index.size();
+
+        //修改调用方的参数数组不影响已记录的结果
+        args[0] = String.class;
+        assertEquals(index.getBestCandidate(new Class[]{Integer.class}, "pick", false, false), m);
+        assertEquals(index.getBestCandidate(args, "pick", false, false).getParameterTypes()[0], String.class);
+
+        //找不到的结果同样会被记录
+        assertNull(index.getBestCandidate(new Class[]{Map.class, Map.class}, "pick", true, false));
+        assertNull(index.getBestCandidate(new Class[]{Map.class, Map.class}, "pick", true, false));
+        assertEquals(index.size(), size + 2);
+
+        assertNotNull(ParseTools.getBestConstructorCandidate(new Class[]{String.class}, Holder.class, false));
+        assertNull(ParseTools.getBestConstructorCandidate(new Class[]{Map.class, Map.class}, Holder.class, true));
+        assertEquals(index.size(), size + 4);
+    }
+
+    @Test
+    public void testWidenedTarget() throws Exception {
+        Method m = ArrayList.class.getMethod("size");
+        Method widened = ParseTools.getWidenedTarget(ArrayList.class, m);
+        assertTrue(widened.getDeclaringClass().isInterface(), widened.toString());
+        assertSame(ParseTools.getWidenedTarget(ArrayList.class, m), widened);
+    }
+
+    /** 接口上查找Object的方法 */
+    @Test
+    public void testInterfaceObjectMethods() {
+        assertEquals(ParseTools.getBestCandidate(new Class[0], "getClass", Runnable.class, false, false).getDeclaringClass(), Object.class);
+    }
+
+    /** 参数类型来自其它类加载器时不进行记录 */
+    @Test
+    public void testForeignArgumentsNotRemembered() throws Exception {
+        MethodIndex index = MethodIndex.of(Objects.class);
+        int size = index.size();
+        Class proxy = Proxy.getProxyClass(new URLClassLoader(new URL[0], getClass().getClassLoader()), Runnable.class);
+        assertNotNull(index.getBestCandidate(new Class[]{proxy}, "toString", false, false));
+        assertEquals(index.size(), size);
+    }
+
+    /** 多态调用中的重新优化结果正确 */
+    @Test
+    public void testPolymorphicCalls() {
+        Serializable expr = MVEL.compileExpression("x.contains(y)");
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("y", 2);
+        Object[] targets = {Arrays.asList(1, 2), new HashSet<>(Arrays.asList(3)), new LinkedList<>(Arrays.asList(2)), new Vector<>()};
+        Object[] expected = {true, false, true, false};
+        for(int round = 0; round < 2; round++) {
+            for(int i = 0; i < targets.length; i++) {
+                vars.put("x", targets[i]);
+                assertEquals(MVEL.executeExpression(expr, vars), expected[i]);
+            }
+        }
+    }
+
+    public static class Holder {
+        public Holder(String s) {
+        }
+
+        public String pick(int i) {
+            return "int";
+        }
+
+        public String pick(String s) {
+            return "string";
+        }
+
+        public String pick(Object o) {
+            return "object";
+        }
+    }
+}
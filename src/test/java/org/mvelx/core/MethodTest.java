@@ -1,8 +1,10 @@
 /* Created by flym at 12/2/16 */
 package org.mvelx.core;
 
+import org.mvelx.MVEL;
 import org.mvelx.core.method_test.Base;
 import org.mvelx.core.util.MvelUtils;
+import org.mvelx.optimizers.OptimizerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -68,4 +70,18 @@ public class MethodTest extends BaseTest {
     public void testMethodTwoParamSpace() {
         Assert.assertEquals(true, MvelUtils.test("   equalityCheck(   c  \n  ,   \n   'cat'      )   ", createCtx(), createCtxMap()));
     }
+
+    /** 使用asm优化器调用脚本中定义的函数 */
+    @Test
+    public void testAsmFunctionCall() {
+        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.ASM);
+        try{
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("x", 7);
+            vars.put("y", 3);
+            Assert.assertEquals(20, MVEL.executeExpression(MVEL.compileExpression("def add(a, b) { a + b }; add(x, y) + add(y, x)"), vars));
+        } finally {
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.CompiledExpressionCache;
+import org.mvelx.compiler.PersistentExpressionCache;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对持久化的编译表达式缓存进行测试
+ * 即重启(使用新的内存缓存)之后可直接从磁盘中加载表达式,并且在引用的类有变化时重新编译
+ */
+public class PersistentExpressionCacheTest {
+
+    @Test
+    public void testLoadAfterRestart() throws Exception {
+        Path dir = Files.createTempDirectory("mvelx-cache");
+        String expr = "a > 5 ? Math.max(a, b) : name.length()";
+
+        PersistentExpressionCache first = new PersistentExpressionCache(dir);
+        Serializable compiled = new CompiledExpressionCache(100).persistTo(first).compile(expr, context());
+        assertEquals(first.getMisses(), 1);
+
+        //模拟重启,使用新的内存缓存
+        PersistentExpressionCache second = new PersistentExpressionCache(dir);
+        Serializable loaded = new CompiledExpressionCache(100).persistTo(second).compile(expr, context());
+        assertEquals(second.getHits(), 1);
+        assertEquals(second.getMisses(), 0);
+        assertNotSame(loaded, compiled);
+        for(int a = 0; a < 10; a++) {
+            assertEquals(MVEL.executeExpression(loaded, vars(a)), MVEL.executeExpression(compiled, vars(a)));
+        }
+
+        //解析上下文不同时不能复用
+        ParserContext other = context();
+        other.addInput("c", String.class);
+        new CompiledExpressionCache(100).persistTo(second).compile(expr, other);
+        assertEquals(second.getMisses(), 1);
+    }
+
+    /** 表达式引用的类字节码有变化时缓存失效 */
+    @Test
+    public void testInvalidateOnClassChange() throws Exception {
+        Path dir = Files.createTempDirectory("mvelx-cache");
+        Path classFile = dir.resolve("Helper.class");
+        try(InputStream in = Helper.class.getResourceAsStream("PersistentExpressionCacheTest$Helper.class")) {
+            Files.copy(in, classFile);
+        }
+
+        HelperLoader loader = new HelperLoader(classFile);
+        ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try{
+            Class helper = loader.loadClass(Helper.class.getName());
+            String expr = "Helper.twice(a)";
+
+            PersistentExpressionCache persistent = new PersistentExpressionCache(dir);
+            new CompiledExpressionCache(100).persistTo(persistent).compile(expr, helperContext(helper));
+            Serializable loaded = new CompiledExpressionCache(100).persistTo(persistent).compile(expr, helperContext(helper));
+            assertEquals(persistent.getHits(), 1);
+            assertEquals(MVEL.executeExpression(loaded, vars(4)), 8);
+
+            //修改类文件,相当于重新部署了新版本的类
+            Files.write(classFile, new byte[]{0}, StandardOpenOption.APPEND);
+            Serializable recompiled = new CompiledExpressionCache(100).persistTo(persistent).compile(expr, helperContext(helper));
+            assertEquals(persistent.getInvalidated(), 1);
+            assertEquals(persistent.getMisses(), 2);
+            assertEquals(MVEL.executeExpression(recompiled, vars(5)), 10);
+        } finally {
+            Thread.currentThread().setContextClassLoader(old);
+        }
+    }
+
+    private static ParserContext context() {
+        ParserContext ctx = new ParserContext();
+        ctx.addInput("a", Integer.class);
+        ctx.addImport("Math", Math.class);
+        return ctx;
+    }
+
+    private static ParserContext helperContext(Class helper) {
+        ParserContext ctx = new ParserContext();
+        ctx.addImport("Helper", helper);
+        return ctx;
+    }
+
+    private static Map<String, Object> vars(int a) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", a);
+        vars.put("b", 7);
+        vars.put("name", "mvel");
+        return vars;
+    }
+
+    public static class Helper {
+        public static int twice(int a) {
+            return a * 2;
+        }
+    }
+
+    /** 从指定类文件中加载Helper类的加载器 */
+    private static class HelperLoader extends ClassLoader {
+        private final Path classFile;
+
+        HelperLoader(Path classFile) {
+            super(HelperLoader.class.getClassLoader());
+            this.classFile = classFile;
+        }
+
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(!name.equals(Helper.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized(getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if(c == null) {
+                    try{
+                        byte[] bytes = Files.readAllBytes(classFile);
+                        c = defineClass(name, bytes, 0, bytes.length);
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return c;
+            }
+        }
+
+        public URL getResource(String name) {
+            if(name.equals(Helper.class.getName().replace('.', '/') + ".class")) {
+                try{
+                    return classFile.toUri().toURL();
+                } catch(MalformedURLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return super.getResource(name);
+        }
+    }
+}
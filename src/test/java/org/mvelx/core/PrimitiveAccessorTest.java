@@ -0,0 +1,112 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.Operator;
+import org.mvelx.ast.BinaryOperation;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.integration.impl.MapVariableResolverFactory;
+import org.mvelx.math.SpecializedOperation;
+import org.mvelx.optimizers.OptimizerFactory;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对基本类型的访问器接口进行测试
+ * 即 getBoolean,getInt 等方法以及 MVEL.executeBoolean 的结果与 getValue 保持一致
+ */
+public class PrimitiveAccessorTest {
+    private static final String[] PREDICATES = {
+            "a > 5",
+            "a > 5 && b != null",
+            "!(a < 3) || flag",
+            "!flag",
+            "name == 'mvel'",
+            "a + 1 >= 3",
+            "a * 2.0 < 100",
+            "true",
+            "x = 0; while(x < a) { x++; } x == a",
+            "if(flag) { a > 1 } else { a < 1 }",
+    };
+
+    /** 特化运算的boolean结果与装箱结果一致 */
+    @Test
+    public void testSpecializedApplyBoolean() {
+        int[] ops = {Operator.LTHAN, Operator.GTHAN, Operator.LETHAN, Operator.GETHAN, Operator.EQUAL, Operator.NEQUAL};
+        Object[] values = {3, -7, 5L, 2.5d, Double.NaN};
+        for(Object l : values) {
+            for(Object r : values) {
+                for(int op : ops) {
+                    SpecializedOperation s = SpecializedOperation.create(-1, l.getClass(), op, -1, r.getClass());
+                    assertNotNull(s);
+                    assertEquals(s.applyBoolean(l, r), s.apply(l, r), l + " " + op + " " + r);
+                }
+            }
+        }
+
+        SpecializedOperation s = SpecializedOperation.create(-1, Boolean.class, Operator.NEQUAL, -1, Boolean.class);
+        assertTrue(s.applyBoolean(true, false));
+        assertFalse(s.applyBoolean(true, true));
+    }
+
+    @Test
+    public void testExecuteBoolean() {
+        for(String optimizer : new String[]{OptimizerFactory.DYNAMIC, OptimizerFactory.SAFE_REFLECTIVE, OptimizerFactory.ASM}) {
+            OptimizerFactory.setDefaultOptimizer(optimizer);
+            try{
+                for(String expr : PREDICATES) {
+                    Serializable s = MVEL.compileExpression(expr);
+                    //执行超过特化阈值的次数,以同时覆盖特化前后的运算
+                    for(int i = 0; i < BinaryOperation.specializeThreshold * 2; i++) {
+                        Map<String, Object> vars = vars(i % 10, i % 3 == 0);
+                        boolean expected = (Boolean) MVEL.executeExpression(s, vars(i % 10, i % 3 == 0));
+                        assertEquals(MVEL.executeBoolean(s, vars), expected, optimizer + ":" + expr + ":" + i);
+                    }
+                }
+            } finally {
+                OptimizerFactory.setDefaultOptimizer(OptimizerFactory.DYNAMIC);
+            }
+        }
+    }
+
+    /** 使用变量工厂及上下文对象执行 */
+    @Test
+    public void testExecuteBooleanWithContext() {
+        Serializable s = MVEL.compileExpression("size() > limit");
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("limit", 1);
+        assertTrue(MVEL.executeBoolean(s, Arrays.asList(1, 2), new MapVariableResolverFactory(vars)));
+        assertFalse(MVEL.executeBoolean(s, Arrays.asList(1), new MapVariableResolverFactory(vars)));
+    }
+
+    /** 子表达式的数字结果以基本类型获取 */
+    @Test
+    public void testNumericValue() {
+        ExecutableStatement stmt = (ExecutableStatement) MVEL.compileExpression("(a + 3)");
+        Map<String, Object> vars = vars(4, false);
+        MapVariableResolverFactory factory = new MapVariableResolverFactory(vars);
+        assertEquals(stmt.getInt(null, null, factory), 7);
+        assertEquals(stmt.getLong(null, null, factory), 7L);
+        assertEquals(stmt.getDouble(null, null, factory), 7.0d);
+    }
+
+    /** 结果不是boolean时报错,与原条件判断的处理方式一致 */
+    @Test(expectedExceptions = ClassCastException.class)
+    public void testNonBooleanResult() {
+        MVEL.executeBoolean(MVEL.compileExpression("a + 1"), vars(1, false));
+    }
+
+    private static Map<String, Object> vars(int a, boolean flag) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", a);
+        vars.put("b", flag ? null : "b");
+        vars.put("flag", flag);
+        vars.put("name", flag ? "mvel" : "other");
+        return vars;
+    }
+}
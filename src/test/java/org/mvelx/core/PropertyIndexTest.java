@@ -0,0 +1,117 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.util.PropertyIndex;
+import org.mvelx.util.PropertyTools;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对按类建立的属性元数据表进行测试
+ * 即getter,setter及公共字段的解析规则与原逐个遍历的方式一致,并且同一属性只解析一次
+ */
+public class PropertyIndexTest {
+
+    @Test
+    public void testResolve() throws Exception {
+        PropertyIndex index = PropertyIndex.of(Bean.class);
+        assertSame(PropertyIndex.of(Bean.class), index);
+
+        assertEquals(PropertyTools.getGetter(Bean.class, "name"), Bean.class.getMethod("getName"));
+        assertEquals(PropertyTools.getGetter(Bean.class, "active"), Bean.class.getMethod("isActive"));
+        //只有boolean类型的isXxx才是getter
+        assertNull(PropertyTools.getGetter(Bean.class, "boxed"));
+        //与属性同名的无参方法
+        assertEquals(PropertyTools.getGetter(Bean.class, "size"), Bean.class.getMethod("size"));
+        //静态方法不是getter
+        assertNull(PropertyTools.getGetter(Bean.class, "shared"));
+        assertNull(PropertyTools.getGetter(Bean.class, "missing"));
+
+        //公共字段优先
+        assertEquals(PropertyTools.getFieldOrAccessor(Bean.class, "items"), Bean.class.getField("items"));
+        assertEquals(PropertyTools.getFieldOrAccessor(Bean.class, "name"), Bean.class.getMethod("getName"));
+
+        assertEquals(PropertyTools.getSetter(Bean.class, "name"), Bean.class.getMethod("setName", String.class));
+        assertEquals(PropertyTools.getFieldOrWriteAccessor(Bean.class, "items"), Bean.class.getField("items"));
+        assertNull(PropertyTools.getFieldOrWriteAccessor(null, "items"));
+        //按类型选择setter
+        assertNull(PropertyTools.getSetter(Bean.class, "amount", Map.class));
+        assertEquals(PropertyTools.getFieldOrWriteAccessor(Bean.class, "amount", Integer.class).getName(), "setAmount");
+
+        PropertyIndex.Property items = index.getProperty("items");
+        assertSame(index.getProperty("items"), items);
+        assertEquals(items.getType(), List.class);
+        assertTrue(items.getGenericType() instanceof ParameterizedType);
+        assertEquals(index.getProperty("name").getType(), String.class);
+        assertNull(index.getProperty("missing").getType());
+    }
+
+    /** 有多个getter时取返回类型最细化的 */
+    @Test
+    public void testCovariantGetter() throws Exception {
+        assertEquals(PropertyTools.getGetter(SubBean.class, "value").getReturnType(), String.class);
+        assertEquals(PropertyTools.getFieldOrWriteAccessor(SubBean.class, "items"), Bean.class.getField("items"));
+    }
+
+    @Test
+    public void testExecute() {
+        Bean bean = new Bean();
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("b", bean);
+        MVEL.executeExpression(MVEL.compileExpression("b.name = 'x'; b.amount = 3"), vars);
+        assertEquals(bean.getName(), "x");
+        assertEquals(bean.amount, 3);
+        assertEquals(MVEL.executeExpression(MVEL.compileExpression("b.name + b.active + b.size"), vars), "xfalse1");
+    }
+
+    public static class Bean {
+        public List<String> items;
+        private String name;
+        private int amount;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setAmount(int amount) {
+            this.amount = amount;
+        }
+
+        public boolean isActive() {
+            return false;
+        }
+
+        public Boolean isBoxed() {
+            return true;
+        }
+
+        public int size() {
+            return 1;
+        }
+
+        public Object getValue() {
+            return null;
+        }
+
+        public static String getShared() {
+            return "";
+        }
+    }
+
+    public static class SubBean extends Bean {
+        @Override
+        public String getValue() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.Operator;
+import org.mvelx.ParserContext;
+import org.mvelx.ast.BinaryOperation;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.mvelx.math.MathProcessor;
+import org.mvelx.math.SpecializedOperation;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * 对基于运行期类型反馈的二元运算特化进行测试
+ * 即特化后的运算结果与 MathProcessor 完全一致,并且在类型变化时能回到通用运算
+ */
+public class SpecializedOperationTest {
+    private static final int[] OPERATIONS = {Operator.ADD, Operator.SUB, Operator.MULT, Operator.DIV, Operator.MOD,
+            Operator.LTHAN, Operator.GTHAN, Operator.LETHAN, Operator.GETHAN, Operator.EQUAL, Operator.NEQUAL};
+
+    /** 与 MathProcessor 的结果(包括类型)保持一致 */
+    @Test
+    public void testSameAsMathProcessor() {
+        Object[] values = {3, -7, Integer.MAX_VALUE, 5L, Long.MIN_VALUE, 2.5d, -0.0d, Double.NaN};
+        int[][] staticTypes = {{-1, -1}, {101, 101}, {101, -1}};
+        for(Object l : values) {
+            for(Object r : values) {
+                for(int op : OPERATIONS) {
+                    for(int[] types : staticTypes) {
+                        SpecializedOperation s = SpecializedOperation.create(types[0], l.getClass(), op, types[1], r.getClass());
+                        if(s == null) continue;
+
+                        Object expected = MathProcessor.doOperations(types[0], l, op, types[1], r);
+                        Object actual = s.apply(l, r);
+                        assertEquals(actual, expected, l + " " + op + " " + r);
+                        assertEquals(actual.getClass(), expected.getClass(), l + " " + op + " " + r);
+                    }
+                }
+            }
+        }
+
+        assertNotNull(SpecializedOperation.create(-1, Boolean.class, Operator.EQUAL, -1, Boolean.class));
+        assertNull(SpecializedOperation.create(-1, String.class, Operator.ADD, -1, String.class));
+    }
+
+    /** 多次执行之后特化,类型变化之后反特化并保证结果正确 */
+    @Test
+    public void testSpecializeAndDeoptimize() {
+        CompiledExpression compiled = new ExpressionCompiler("a * b", new ParserContext()).compile();
+        BinaryOperation node = (BinaryOperation) compiled.getFirstNode();
+
+        Map<String, Object> vars = new HashMap<>();
+        for(int i = 0; i < BinaryOperation.specializeThreshold + 5; i++) {
+            vars.put("a", i);
+            vars.put("b", 2);
+            assertEquals(MVEL.executeExpression(compiled, vars), i * 2);
+        }
+        assertNotNull(node.getSpecialized());
+        assertEquals(node.getSpecialized().getLeftClass(), Integer.class);
+
+        vars.put("a", 1.5d);
+        assertEquals(MVEL.executeExpression(compiled, vars), 3.0d);
+        assertNull(node.getSpecialized());
+
+        vars.put("a", 2L);
+        assertEquals(MVEL.executeExpression(compiled, vars), 4L);
+    }
+}
@@ -0,0 +1,137 @@
+package org.mvelx.core;
+
+import org.mvelx.MVEL;
+import org.mvelx.ParserContext;
+import org.mvelx.compiler.CompiledExpression;
+import org.mvelx.compiler.ExecutableStatement;
+import org.mvelx.compiler.ExpressionCompiler;
+import org.mvelx.optimizers.impl.asm.AsmCompiledStatement;
+import org.mvelx.optimizers.impl.asm.AsmStatementCompiler;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * 对整体表达式编译进行测试
+ * 即编译之后的字节码版本与解释执行的结果保持一致
+ */
+public class WholeExpressionCompileTest {
+
+    private Map<String, Object> createVars() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", 5);
+        vars.put("b", 3);
+        vars.put("c", true);
+        vars.put("l", Arrays.asList(1, 2, 3));
+        vars.put("n", 7L);
+        vars.put("d", 2.5);
+        vars.put("nan", Double.NaN);
+        vars.put("s", "str");
+        return vars;
+    }
+
+    @DataProvider
+    public Object[][] expressions() {
+        return new Object[][]{
+                {"a + b * 2"},
+                {"(a + b) * 3"},
+                {"x = 1; y = x + 2; y"},
+                {"a > 1 && c || false"},
+                {"!c"},
+                {"a == null"},
+                {"a > 1 ? 'x' : c ? 'y' : 'z'"},
+                {"a < 0 ? 1 : 2; 3"},
+                {"if (a > 1) { 'big' } else if (a < 0) { 'neg' } else { 'small' }"},
+                {"if (a < 1) { 'small' } else { 'big' }"},
+                {"if (a > 1) { return 5; } 7"},
+                {"return a; b"},
+                {"i = 0; while(i < 10) { i++ }; i"},
+                {"s = 0; foreach(v : l) { s += v }; s"},
+                {"a / 2"},
+                {"a % 3 + n * 2"},
+                {"(a - b) * (a + b) / 4 - 1"},
+                {"d * 2 + a"},
+                {"a * 2 > n"},
+                {"nan < 1.0 || nan >= 1.0"},
+                {"nan != 1.0"},
+                {"a + 2147483647"},
+                {"n > 3 && !(a == 5)"},
+                {"s + 1"},
+                {"x = 0; while(x < a * 2 && x != 7) { x = x + 1 }; x"},
+        };
+    }
+
+    /** 编译版本与解释执行的结果一致 */
+    @Test(dataProvider = "expressions")
+    public void testSameResult(String expr) {
+        ExecutableStatement compiled = AsmStatementCompiler.compile(new ExpressionCompiler(expr, new ParserContext()).compile());
+        assertTrue(compiled instanceof AsmCompiledStatement);
+
+        Object expected = MVEL.executeExpression(new ExpressionCompiler(expr, new ParserContext()).compile(), null, createVars());
+        assertEquals(MVEL.executeExpression(compiled, null, createVars()), expected);
+    }
+
+    /** 按推断类型生成的基本类型运算,在变量类型变化时(守卫失败)仍与解释执行的结果一致 */
+    @Test
+    public void testTypeGuard() {
+        String expr = "if (a * 2 + 1 > b) { a * b - 1 } else { a / b }";
+        ExecutableStatement compiled = AsmStatementCompiler.compile(new ExpressionCompiler(expr, new ParserContext()).compile());
+        assertTrue(compiled instanceof AsmCompiledStatement);
+
+        Object[][] values = {{5, 3}, {5L, 3}, {2.5, 3}, {1, 7.0}, {"x", "y"}, {Integer.MAX_VALUE, 1}};
+        for(Object[] v : values) {
+            Map<String, Object> vars = createVars();
+            vars.put("a", v[0]);
+            vars.put("b", v[1]);
+            Object expected;
+            try{
+                expected = MVEL.executeExpression(new ExpressionCompiler(expr, new ParserContext()).compile(), null, new HashMap<>(vars));
+            } catch(RuntimeException e) {
+                expected = e.getClass();
+            }
+
+            Object actual;
+            try{
+                actual = MVEL.executeExpression(compiled, null, vars);
+            } catch(RuntimeException e) {
+                actual = e.getClass();
+            }
+            assertEquals(actual, expected, Arrays.toString(v));
+        }
+    }
+
+    /** 运行期观察到的类型会用于整体编译时的类型推断 */
+    @Test
+    public void testObservedTypes() {
+        String expr = "a * b + d";
+        CompiledExpression interpreted = new ExpressionCompiler(expr, new ParserContext()).compile();
+        for(int i = 0; i < 50; i++) {
+            MVEL.executeExpression(interpreted, null, createVars());
+        }
+
+        ExecutableStatement compiled = AsmStatementCompiler.compile(interpreted);
+        assertTrue(compiled instanceof AsmCompiledStatement);
+        assertEquals(MVEL.executeExpression(compiled, null, createVars()), 17.5);
+
+        Map<String, Object> vars = createVars();
+        vars.put("d", 1);
+        assertEquals(MVEL.executeExpression(compiled, null, vars), 16);
+    }
+
+    /** 脚本中的变量仍然写入到外部的变量工厂中 */
+    @Test
+    public void testVariablesVisible() {
+        ExecutableStatement compiled = AsmStatementCompiler.compile(new ExpressionCompiler("x = a + 1; y = x * 2", new ParserContext()).compile());
+        Map<String, Object> vars = createVars();
+        MVEL.executeExpression(compiled, null, vars);
+
+        assertEquals(vars.get("x"), 6);
+        assertEquals(vars.get("y"), 12);
+    }
+}